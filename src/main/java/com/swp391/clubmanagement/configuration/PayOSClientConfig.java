@@ -0,0 +1,142 @@
+package com.swp391.clubmanagement.configuration;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * PayOSClientConfig - HTTP client dùng chung để gọi PayOS API
+ *
+ * - Apache HttpClient 5 với connection pool: kết nối TLS được giữ lại (keep-alive) và tái sử dụng giữa các request
+ * - Giới hạn số kết nối (max-connections): request vượt quá chờ lấy kết nối tối đa pool-wait-ms rồi báo lỗi,
+ *   không để thread của ứng dụng bị treo theo PayOS
+ * - Timeout tường minh cho kết nối, đọc response và chờ pool
+ * - Retry tự động của HttpClient bị tắt: PayOSService tự retry (có jitter) và chỉ với lời gọi idempotent
+ *
+ * RestTemplate được tạo từ RestTemplateBuilder của Spring Boot nên được Micrometer đo tự động
+ * (metric http.client.requests, tag uri theo từng endpoint PayOS nhờ rootUri + đường dẫn tương đối).
+ *
+ * Mọi lời gọi PayOS đi qua circuit breaker + bulkhead (PayOSService):
+ * - Circuit breaker mở khi tỷ lệ lỗi mạng/5xx hoặc tỷ lệ call chậm vượt ngưỡng -> fail ngay (PAYOS_UNAVAILABLE)
+ *   thay vì để mỗi request chờ hết timeout
+ * - Bulkhead giới hạn số lời gọi PayOS đồng thời, vượt quá -> fail ngay (PAYOS_BUSY), không chiếm hết thread Tomcat
+ */
+@Configuration
+public class PayOSClientConfig {
+
+    /**
+     * HttpClient có connection pool cho PayOS (đóng pool khi ứng dụng dừng)
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient payOSHttpClient(
+            @Value("${payos.http.max-connections:20}") int maxConnections,
+            @Value("${payos.http.pool-wait-ms:2000}") long poolWaitMs,
+            @Value("${payos.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${payos.http.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${payos.http.idle-seconds:30}") long idleSeconds,
+            @Value("${payos.http.ttl-seconds:300}") long ttlSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                // Chỉ gọi một host (PayOS) nên giới hạn theo route bằng giới hạn tổng
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setTimeToLive(TimeValue.ofSeconds(ttlSeconds))
+                        // Kiểm tra lại kết nối đã rảnh một lúc trước khi dùng (server có thể đã đóng)
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(idleSeconds / 2))
+                        .build())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolWaitMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleSeconds))
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * Circuit breaker cho PayOS: chỉ tính lỗi hạ tầng (I/O, timeout, 5xx) và call chậm, không tính lỗi 4xx nghiệp vụ
+     */
+    @Bean
+    public CircuitBreaker payOSCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${payos.resilience.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${payos.resilience.slow-call-ms:5000}") long slowCallMs,
+            @Value("${payos.resilience.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${payos.resilience.minimum-calls:10}") int minimumCalls,
+            @Value("${payos.resilience.open-seconds:30}") long openSeconds) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallMs))
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofSeconds(openSeconds))
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .recordExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker("payos");
+    }
+
+    /**
+     * Bulkhead cho PayOS: giới hạn số lời gọi đồng thời, chờ tối đa max-wait-ms để có lượt
+     */
+    @Bean
+    public Bulkhead payOSBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${payos.resilience.max-concurrent-calls:10}") int maxConcurrentCalls,
+            @Value("${payos.resilience.max-wait-ms:0}") long maxWaitMs) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMs))
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead("payos");
+    }
+
+    /**
+     * RestTemplate gọi PayOS: đường dẫn truyền vào là đường dẫn tương đối so với payos.api-url
+     */
+    @Bean
+    public RestTemplate payOSRestTemplate(RestTemplateBuilder builder,
+                                          CloseableHttpClient payOSHttpClient,
+                                          @Value("${payos.api-url}") String apiUrl) {
+        return builder
+                .rootUri(apiUrl)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(payOSHttpClient))
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.swp391.clubmanagement.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * SchedulingConfig - Bật cơ chế chạy tác vụ định kỳ (@Scheduled) của Spring
+ *
+ * Các job nền (lưu trữ lịch sử thanh toán, ...) khai báo @Scheduled ngay trong service tương ứng,
+ * lịch chạy (cron) được cấu hình trong application.yaml.
+ *
+ * Số thread chạy job được cấu hình bằng spring.task.scheduling.pool.size (mặc định của Spring Boot là 1 thread
+ * cho tất cả job). Các job xử lý hàng đợi chỉ xử lý tối đa max-batches-per-run lô mỗi lần chạy để không giữ thread lâu.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
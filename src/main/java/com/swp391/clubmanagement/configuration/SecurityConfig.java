@@ -124,10 +124,11 @@ public class SecurityConfig {
 
     /**
      * Bean PasswordEncoder: Dùng để mã hóa mật khẩu người dùng.
-     * Sử dụng thuật toán BCrypt (mạnh mẽ, an toàn).
+     * Sử dụng thuật toán BCrypt (mạnh mẽ, an toàn), cost theo app.password-hashing.bcrypt-strength.
+     * Hash cũ có cost thấp hơn vẫn kiểm tra được và được băm lại khi đăng nhập (PasswordHashingService).
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.password-hashing.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
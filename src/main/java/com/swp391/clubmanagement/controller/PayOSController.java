@@ -2,22 +2,23 @@ package com.swp391.clubmanagement.controller;
 
 import com.swp391.clubmanagement.dto.request.ConfirmWebhookRequest;
 import com.swp391.clubmanagement.dto.request.CreatePaymentLinkRequest;
-import com.swp391.clubmanagement.dto.request.PayOSCreatePaymentRequest;
 import com.swp391.clubmanagement.dto.response.ApiResponse;
 import com.swp391.clubmanagement.dto.response.ConfirmWebhookResponse;
 import com.swp391.clubmanagement.dto.response.PaymentLinkResponse;
-import com.swp391.clubmanagement.dto.response.PayOSPaymentLinkResponse;
 import com.swp391.clubmanagement.dto.response.PayOSWebhookData;
+import com.swp391.clubmanagement.dto.response.PaymentStatusResponse;
 import com.swp391.clubmanagement.entity.Registers;
 import com.swp391.clubmanagement.entity.Users;
-import com.swp391.clubmanagement.enums.JoinStatus;
 import com.swp391.clubmanagement.exception.AppException;
 import com.swp391.clubmanagement.exception.ErrorCode;
 import com.swp391.clubmanagement.repository.RegisterRepository;
 import com.swp391.clubmanagement.repository.UserRepository;
-import com.swp391.clubmanagement.service.PaymentHistoryService;
 import com.swp391.clubmanagement.service.PayOSService;
-import com.swp391.clubmanagement.utils.DateTimeUtils;
+import com.swp391.clubmanagement.service.PaymentLinkService;
+import com.swp391.clubmanagement.service.PaymentStatusNotifier;
+import com.swp391.clubmanagement.service.WebhookInboxService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -30,9 +31,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/payments")
@@ -43,14 +44,27 @@ import java.time.LocalDateTime;
 public class PayOSController {
     
     PayOSService payOSService;
+    PaymentLinkService paymentLinkService;
     RegisterRepository registerRepository;
     UserRepository userRepository;
-    PaymentHistoryService paymentHistoryService;
+    WebhookInboxService webhookInboxService;
+    PaymentStatusNotifier paymentStatusNotifier;
+    ObjectMapper objectMapper;
     
     @NonFinal
     @Value("${app.base-url}")
     String baseUrl;
     
+    /** Bật/tắt xác thực chữ ký webhook (chỉ tắt khi test với dữ liệu không ký) */
+    @NonFinal
+    @Value("${payos.webhook.verify-signature:true}")
+    boolean verifyWebhookSignature;
+    
+    /** Thời gian chờ tối đa của request long-poll trạng thái thanh toán */
+    @NonFinal
+    @Value("${payos.status.long-poll-timeout-ms:25000}")
+    long longPollTimeoutMs;
+    
     /**
      * Lấy user hiện tại từ SecurityContext
      */
@@ -68,178 +82,91 @@ public class PayOSController {
      * Logic:
      * - Nếu đã có payment link đang pending (có payosOrderCode nhưng chưa thanh toán) -> trả về link đó
      * - Nếu chưa có -> tạo payment link mới
-     * - Sử dụng pessimistic locking để tránh race condition khi tạo đồng thời
+     * - Lời gọi PayOS nằm ngoài transaction/lock của register (xem PaymentLinkService),
+     *   request đồng thời cho cùng register nhận 409 thay vì chờ lock
      */
     @PostMapping("/create-link")
     @PreAuthorize("hasAnyAuthority('SCOPE_SinhVien', 'SCOPE_ChuTich')")
     @Operation(summary = "Tạo payment link", 
                description = "Tạo link thanh toán PayOS cho đăng ký CLB. Nếu đã có payment link đang pending, trả về link đó.")
-    @org.springframework.transaction.annotation.Transactional
     public ApiResponse<PaymentLinkResponse> createPaymentLink(@Valid @RequestBody CreatePaymentLinkRequest request) {
         // Lấy user hiện tại
         Users currentUser = getCurrentUser();
         
-        // Lấy thông tin đăng ký với pessimistic lock để tránh race condition
-        // Lock sẽ được giữ cho đến khi transaction kết thúc
-        // Điều này đảm bảo chỉ một request có thể tạo payment link tại một thời điểm
-        Registers register = registerRepository.findByIdWithLock(request.getSubscriptionId())
-                .orElseThrow(() -> new AppException(ErrorCode.REGISTER_NOT_FOUND));
-        
-        // Kiểm tra quyền: chỉ user sở hữu register mới được tạo payment link
-        if (!register.getUser().getUserId().equals(currentUser.getUserId())) {
-            throw new AppException(ErrorCode.UNAUTHORIZED);
-        }
-        
-        // Kiểm tra đã thanh toán chưa
-        if (Boolean.TRUE.equals(register.getIsPaid())) {
-            throw new AppException(ErrorCode.PAYMENT_ALREADY_PROCESSED);
-        }
-        
-        // Kiểm tra đã được duyệt chưa
-        if (register.getStatus() != JoinStatus.DaDuyet) {
-            throw new AppException(ErrorCode.INVALID_APPLICATION_STATUS);
-        }
-        
-        // Kiểm tra price hợp lệ
-        if (register.getMembershipPackage().getPrice() == null || 
-            register.getMembershipPackage().getPrice().compareTo(java.math.BigDecimal.ZERO) <= 0) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
-        }
-        
-        // QUAN TRỌNG: Kiểm tra xem đã có payment link đang pending chưa
-        // Nếu đã có payosOrderCode và payosPaymentLinkId nhưng chưa thanh toán -> trả về link đó
-        if (register.getPayosOrderCode() != null && register.getPayosPaymentLinkId() != null) {
-            log.info("Payment link already exists for subscriptionId: {}, orderCode: {}, paymentLinkId: {}. Returning existing link.",
-                    register.getSubscriptionId(), register.getPayosOrderCode(), register.getPayosPaymentLinkId());
-            
-            // Trả về payment link đã tồn tại
-            PaymentLinkResponse response = PaymentLinkResponse.builder()
-                    .paymentLink("https://pay.payos.vn/web/" + register.getPayosPaymentLinkId())
-                    .orderCode(register.getPayosOrderCode())
-                    .paymentLinkId(register.getPayosPaymentLinkId())
-                    .build();
-            
-            return ApiResponse.<PaymentLinkResponse>builder()
-                    .result(response)
-                    .message("Đã có payment link đang chờ thanh toán. Vui lòng sử dụng link này để thanh toán.")
-                    .build();
-        }
-        
-        // Tạo order code từ subscription ID (đảm bảo unique)
-        // Lấy 6 số cuối của timestamp hiện tại để đảm bảo tính thời gian
-        // Kết hợp với subscriptionId ở đầu để đảm bảo unique theo đơn hàng
-        long timestamp = System.currentTimeMillis();
-        String timeStr = String.valueOf(timestamp);
-        String timeSuffix = timeStr.substring(timeStr.length() - 6);
-
-        // Ví dụ: subId = 3, time = ...123456 -> orderCode = 3123456
-        long orderCode = Long.parseLong(register.getSubscriptionId() + timeSuffix);
-        
-        // Đảm bảo orderCode là số dương
-        if (orderCode <= 0) {
-            orderCode = Math.abs(orderCode);
-        }
-        
-        // Kiểm tra orderCode đã tồn tại chưa (tránh duplicate)
-        int maxRetries = 5;
-        int retryCount = 0;
-        while (registerRepository.findByPayosOrderCode(orderCode).isPresent() && retryCount < maxRetries) {
-            // Thêm random nếu bị trùng
-            orderCode = timestamp * 100000L + register.getSubscriptionId() + (long)(Math.random() * 10000);
-            retryCount++;
-        }
-        
-        if (retryCount >= maxRetries) {
-            log.error("Failed to generate unique orderCode after {} retries", maxRetries);
-            throw new AppException(ErrorCode.PAYMENT_LINK_CREATION_FAILED, "Không thể tạo mã đơn hàng duy nhất");
-        }
-        
-        // Tính toán amount (chuyển từ BigDecimal sang int - VND)
-        // PayOS yêu cầu amount là số nguyên (VND)
-        // Price trong DB đã là VND (ví dụ: 10000.00 = 10,000 VND), chuyển trực tiếp
-        int amount = register.getMembershipPackage().getPrice().intValue();
-        
-        // Tạo payment request
-        // PayOS yêu cầu returnUrl và cancelUrl phải là URL hợp lệ (không chấp nhận localhost)
-        // PayOS sẽ redirect về returnUrl với query params: code, id, cancel, status, orderCode
-        String frontendUrl = "https://club-management-system-ochre.vercel.app";
-        String returnUrl = frontendUrl + "/payment/success?subscriptionId=" + register.getSubscriptionId();
-        String cancelUrl = frontendUrl + "/payment/cancel?subscriptionId=" + register.getSubscriptionId();
-        
-        // Tạo items array (required by PayOS API)
-        // PayOS giới hạn description tối đa 25 ký tự
-        String description = "Phi CLB" + register.getMembershipPackage().getPackageName();
+        PaymentLinkService.PaymentLinkResult result =
+                paymentLinkService.createPaymentLink(request.getSubscriptionId(), currentUser.getUserId());
         
-        PayOSCreatePaymentRequest.ItemData item = PayOSCreatePaymentRequest.ItemData.builder()
-                .name(register.getMembershipPackage().getPackageName())
-                .quantity(1)
-                .price(amount)
-                .build();
-        
-        PayOSCreatePaymentRequest payOSRequest = PayOSCreatePaymentRequest.builder()
-                .orderCode(orderCode)
-                .amount(amount)
-                .description(description)
-                .items(java.util.Collections.singletonList(item))
-                .returnUrl(returnUrl)
-                .cancelUrl(cancelUrl)
+        return ApiResponse.<PaymentLinkResponse>builder()
+                .result(result.link())
+                .message(result.existing()
+                        ? "Đã có payment link đang chờ thanh toán. Vui lòng sử dụng link này để thanh toán."
+                        : "Tạo payment link thành công")
                 .build();
-        
-        log.info("=== PayOS Payment Request ===");
-        log.info("OrderCode: {}", orderCode);
-        log.info("Amount: {}", amount);
-        log.info("Description: {}", description);
-        log.info("Items: {}", payOSRequest.getItems());
-        log.info("ReturnUrl: {}", returnUrl);
-        log.info("CancelUrl: {}", cancelUrl);
-        log.info("============================");
-        
-        // Gọi PayOS API
-        PayOSPaymentLinkResponse payOSResponse;
+    }
+
+    /**
+     * GET /api/payments/{orderCode}/status
+     * Long-poll trạng thái thanh toán của một đơn hàng (thay cho việc frontend gọi /payments/success liên tục)
+     * 
+     * Logic:
+     * - Đơn đã thanh toán -> trả về ngay
+     * - Chưa thanh toán -> request được "đỗ" lại (DeferredResult, không giữ thread Tomcat, không query lại database)
+     *   cho đến khi webhook ghi nhận thanh toán (PaymentStatusNotifier đánh thức sau commit)
+     *   hoặc hết thời gian chờ -> trả về PENDING, frontend gọi lại
+     */
+    @GetMapping("/{orderCode}/status")
+    @PreAuthorize("hasAnyAuthority('SCOPE_SinhVien', 'SCOPE_ChuTich')")
+    @Operation(summary = "Trạng thái thanh toán (long-poll)", 
+               description = "Chờ đến khi đơn hàng được thanh toán hoặc hết thời gian chờ (tối đa payos.status.long-poll-timeout-ms)")
+    public DeferredResult<ApiResponse<PaymentStatusResponse>> getPaymentStatus(
+            @PathVariable Long orderCode,
+            @RequestParam(required = false) Long timeoutMs) {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        
+        // Đăng ký chờ TRƯỚC khi đọc database để không lỡ thông báo xảy ra giữa hai bước
+        CompletableFuture<Boolean> waiter = paymentStatusNotifier.await(orderCode);
+        Registers register;
         try {
-            payOSResponse = payOSService.createPaymentLink(payOSRequest);
-        } catch (Exception e) {
-            log.error("Error calling PayOS API for subscriptionId: {}", register.getSubscriptionId(), e);
-            throw e; // Re-throw để GlobalExceptionHandler xử lý
+            register = registerRepository.findByPayosOrderCode(orderCode)
+                    .orElseThrow(() -> new AppException(ErrorCode.PAYMENT_NOT_FOUND));
+            if (!register.getUser().getEmail().equals(email)) {
+                throw new AppException(ErrorCode.UNAUTHORIZED);
+            }
+        } catch (RuntimeException e) {
+            paymentStatusNotifier.cancel(orderCode, waiter);
+            throw e;
         }
         
-        // Validate response
-        if (payOSResponse == null || payOSResponse.getData() == null) {
-            log.error("PayOS response is null or data is null for subscriptionId: {}", register.getSubscriptionId());
-            throw new AppException(ErrorCode.PAYMENT_LINK_CREATION_FAILED, 
-                    "PayOS returned invalid response");
-        }
+        Integer subscriptionId = register.getSubscriptionId();
+        boolean paid = Boolean.TRUE.equals(register.getIsPaid());
         
-        // Validate required fields
-        if (payOSResponse.getData().getOrderCode() == null || payOSResponse.getData().getPaymentLinkId() == null) {
-            log.error("PayOS response missing required fields: orderCode={}, paymentLinkId={}", 
-                    payOSResponse.getData().getOrderCode(), payOSResponse.getData().getPaymentLinkId());
-            throw new AppException(ErrorCode.PAYMENT_LINK_CREATION_FAILED, 
-                    "PayOS response missing required fields");
+        // Đã thanh toán, hoặc thời gian chờ <= 0 (không muốn chờ) -> trả về trạng thái hiện tại ngay.
+        // Không tạo DeferredResult với timeout 0: servlet async context sẽ chờ vô thời hạn
+        if (paid || longPollTimeoutMs <= 0 || (timeoutMs != null && timeoutMs <= 0)) {
+            paymentStatusNotifier.cancel(orderCode, waiter);
+            DeferredResult<ApiResponse<PaymentStatusResponse>> result = new DeferredResult<>();
+            result.setResult(paymentStatus(orderCode, subscriptionId, paid));
+            return result;
         }
         
-        // Lưu thông tin PayOS vào register
-        // Lưu orderCode từ PayOS response (có thể khác với orderCode ta gửi lên)
-        register.setPayosOrderCode(payOSResponse.getData().getOrderCode());
-        register.setPayosPaymentLinkId(payOSResponse.getData().getPaymentLinkId());
-        registerRepository.save(register);
-        
-        log.info("Saved PayOS info to register: subscriptionId={}, orderCode={}, paymentLinkId={}", 
-                register.getSubscriptionId(), 
-                payOSResponse.getData().getOrderCode(), 
-                payOSResponse.getData().getPaymentLinkId());
-        
-        // Tạo response
-        PaymentLinkResponse response = PaymentLinkResponse.builder()
-                .paymentLink("https://pay.payos.vn/web/" + payOSResponse.getData().getPaymentLinkId())
-                .qrCode(payOSResponse.getData().getQrCode())
-                .orderCode(payOSResponse.getData().getOrderCode())
-                .paymentLinkId(payOSResponse.getData().getPaymentLinkId())
-                .build();
+        long timeout = timeoutMs == null ? longPollTimeoutMs : Math.min(timeoutMs, longPollTimeoutMs);
+        DeferredResult<ApiResponse<PaymentStatusResponse>> result =
+                new DeferredResult<>(timeout, paymentStatus(orderCode, subscriptionId, false));
         
-        return ApiResponse.<PaymentLinkResponse>builder()
-                .result(response)
-                .message("Tạo payment link thành công")
+        waiter.thenAccept(settled -> result.setResult(paymentStatus(orderCode, subscriptionId, true)));
+        result.onCompletion(() -> paymentStatusNotifier.cancel(orderCode, waiter));
+        return result;
+    }
+    
+    private ApiResponse<PaymentStatusResponse> paymentStatus(Long orderCode, Integer subscriptionId, boolean paid) {
+        return ApiResponse.<PaymentStatusResponse>builder()
+                .result(PaymentStatusResponse.builder()
+                        .orderCode(orderCode)
+                        .subscriptionId(subscriptionId)
+                        .paid(paid)
+                        .status(paid ? "PAID" : "PENDING")
+                        .build())
+                .message(paid ? "Thanh toán thành công" : "Đang chờ thanh toán")
                 .build();
     }
 
@@ -276,17 +203,16 @@ public class PayOSController {
      * GET: PayOS dùng để verify webhook URL khi save
      * POST: PayOS gửi thông tin thanh toán thực tế
      * 
-     * Sử dụng @Transactional để đảm bảo thay đổi được commit vào database
-     * và pessimistic lock hoạt động đúng cách
+     * Endpoint chỉ xác thực chữ ký và lưu webhook vào hàng đợi (PaymentWebhookInbox) rồi trả lời ngay,
+     * việc ghi nhận thanh toán được WebhookInboxService xử lý ở background
+     * -> PayOS không phải chờ database, không retry vì timeout
      */
     @RequestMapping(value = "/webhook", method = {RequestMethod.POST, RequestMethod.GET})
     @Operation(summary = "PayOS Webhook", 
                description = "Endpoint nhận callback từ PayOS khi thanh toán thành công (POST) hoặc verify (GET)")
-    @org.springframework.transaction.annotation.Transactional
-    public ApiResponse<String> handleWebhook(@RequestBody(required = false) PayOSWebhookData webhookData) {
-        log.info("=== WEBHOOK RECEIVED ===");
-        
+    public ApiResponse<String> handleWebhook(@RequestBody(required = false) String rawBody) {
         // Xử lý request test từ PayOS (khi save webhook URL)
+        PayOSWebhookData webhookData = parseWebhook(rawBody);
         if (webhookData == null || webhookData.getData() == null) {
             log.info("Webhook test request from PayOS - returning success");
             return ApiResponse.<String>builder()
@@ -295,18 +221,12 @@ public class PayOSController {
                     .build();
         }
         
-        log.info("Code: {}", webhookData.getCode());
-        log.info("Desc: {}", webhookData.getDesc());
-        log.info("OrderCode: {}", webhookData.getData().getOrderCode());
-        log.info("Amount: {}", webhookData.getData().getAmount());
-        log.info("Signature: {}", webhookData.getSignature());
-        log.info("========================");
-        
-        // Detect test webhook từ PayOS (khi confirm webhook URL)
-        // PayOS gửi test data với orderCode nhỏ (thường là 123) và amount nhỏ (3000)
         Long orderCode = webhookData.getData().getOrderCode();
         Integer amount = webhookData.getData().getAmount();
+        log.info("Webhook received: code={}, orderCode={}, amount={}", webhookData.getCode(), orderCode, amount);
         
+        // Detect test webhook từ PayOS (khi confirm webhook URL)
+        // PayOS gửi test data với orderCode nhỏ (thường là 123) và amount nhỏ (3000)
         if (orderCode != null && orderCode <= 1000 && amount != null && amount <= 5000) {
             log.info("✅ Test webhook detected (orderCode={}, amount={}). Returning success without processing.", 
                     orderCode, amount);
@@ -317,114 +237,53 @@ public class PayOSController {
                     .build();
         }
         
-        try {
-//            boolean isValid = payOSService.verifyWebhookSignature(
-//                    webhookData.getCode(),
-//                    webhookData.getDesc(),
-//                    webhookData.getData(),
-//                    webhookData.getSignature()
-//            );
-//
-//            if (!isValid) {
-//                log.error("Invalid webhook signature");
-//                throw new AppException(ErrorCode.INVALID_PAYMENT_SIGNATURE);
-//            }
-
-            log.warn("SIGNATURE VERIFICATION SKIPPED FOR TESTING");
-            
-            // Kiểm tra code = "00" (thành công)
-            if (!"00".equals(webhookData.getCode())) {
-                log.warn("Payment failed with code: {}, desc: {}", 
-                        webhookData.getCode(), webhookData.getDesc());
-                return ApiResponse.<String>builder()
-                        .result("Payment failed")
-                        .message(webhookData.getDesc())
-                        .build();
-            }
-            
-            // Tìm register theo orderCode với pessimistic lock để tránh xử lý trùng lặp
-            // Lock đảm bảo chỉ một webhook request có thể xử lý thanh toán tại một thời điểm
-            log.info("Looking for register with orderCode: {}", orderCode);
-            
-            Registers registerFound = registerRepository.findByPayosOrderCode(orderCode)
-                    .orElseThrow(() -> {
-                        log.error("Register not found for orderCode: {}", orderCode);
-                        return new AppException(ErrorCode.PAYMENT_NOT_FOUND);
-                    });
-            
-            // Lưu subscriptionId trước khi lock
-            Integer subscriptionId = registerFound.getSubscriptionId();
-            
-            // Lock register để tránh race condition khi xử lý webhook đồng thời
-            // Reload với lock để đảm bảo dữ liệu mới nhất
-            Registers register = registerRepository.findByIdWithLock(subscriptionId)
-                    .orElseThrow(() -> {
-                        log.error("Register not found after lock for subscriptionId: {}", subscriptionId);
-                        return new AppException(ErrorCode.PAYMENT_NOT_FOUND);
-                    });
-            
-            log.info("Found register: subscriptionId={}, isPaid={}", 
-                    register.getSubscriptionId(), register.getIsPaid());
-            
-            // Kiểm tra đã thanh toán chưa (double-check sau khi lock)
-            if (Boolean.TRUE.equals(register.getIsPaid())) {
-                log.warn("Payment already processed for orderCode: {}. This is a duplicate webhook call.", orderCode);
-                return ApiResponse.<String>builder()
-                        .result("Payment already processed")
-                        .message("Giao dịch đã được xử lý trước đó")
-                        .build();
-            }
-            
-            // Kiểm tra amount có khớp không (tránh fraud)
-            int expectedAmount = register.getMembershipPackage().getPrice().intValue();
-            int receivedAmount = webhookData.getData().getAmount();
-            log.info("Amount check: expected={}, received={}", expectedAmount, receivedAmount);
-            
-            if (expectedAmount != receivedAmount) {
-                log.error("Amount mismatch for orderCode: {}. Expected: {}, Received: {}", 
-                        orderCode, expectedAmount, receivedAmount);
-                throw new AppException(ErrorCode.INVALID_PAYMENT_SIGNATURE);
-            }
-            
-            // Cập nhật thông tin thanh toán
-            log.info("Updating register to PAID status...");
-            LocalDateTime now = DateTimeUtils.nowVietnam();
-            register.setIsPaid(true);
-            register.setPaymentDate(now);
-            register.setPaymentMethod("PayOS");
-            register.setPayosReference(webhookData.getData().getReference());
-            
-            // Set thời gian bắt đầu và kết thúc membership dựa trên term của gói
-            LocalDateTime startDate = now;
-            register.setStartDate(startDate);
-            
-            // Tính endDate dựa trên term của package
-            String term = register.getMembershipPackage().getTerm();
-            LocalDateTime endDate = calculateEndDate(startDate, term);
-            register.setEndDate(endDate);
-            
-            // Save và flush để đảm bảo thay đổi được commit ngay lập tức
-            register = registerRepository.save(register);
-            registerRepository.flush(); // Force flush to database
-            
-            log.info("✅ Payment processed successfully for subscriptionId: {}, orderCode: {}, isPaid: {}, membership valid until: {}", 
-                    register.getSubscriptionId(), orderCode, register.getIsPaid(), endDate);
-            
-            // Tạo payment history record
-            paymentHistoryService.createPaymentHistory(register);
-            log.info("Payment history created for subscriptionId: {}", register.getSubscriptionId());
-            
+        // Xác thực chữ ký trước khi chấp nhận event
+        if (verifyWebhookSignature && !payOSService.verifyWebhookSignature(webhookData)) {
+            log.error("Invalid webhook signature for orderCode: {}", orderCode);
+            throw new AppException(ErrorCode.INVALID_PAYMENT_SIGNATURE);
+        }
+        
+        // Kiểm tra code = "00" (thành công)
+        if (!"00".equals(webhookData.getCode())) {
+            log.warn("Payment failed with code: {}, desc: {}", 
+                    webhookData.getCode(), webhookData.getDesc());
             return ApiResponse.<String>builder()
-                    .result("Payment processed successfully")
-                    .message("Thanh toán thành công")
+                    .result("Payment failed")
+                    .message(webhookData.getDesc())
                     .build();
-                    
-        } catch (Exception e) {
-            log.error("❌ Error processing webhook: {}", e.getMessage(), e);
-            if (e instanceof AppException) {
-                throw e;
-            }
-            throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
+        }
+        
+        if (orderCode == null) {
+            throw new AppException(ErrorCode.INVALID_REQUEST, "orderCode is required");
+        }
+        
+        // Lưu event vào hàng đợi, xử lý ở background (webhook trùng bị loại ngay)
+        boolean accepted = webhookInboxService.enqueue(orderCode, webhookData.getData().getReference(), rawBody);
+        if (!accepted) {
+            return ApiResponse.<String>builder()
+                    .result("Payment already processed")
+                    .message("Giao dịch đã được xử lý trước đó")
+                    .build();
+        }
+        
+        return ApiResponse.<String>builder()
+                .result("Webhook received")
+                .message("Đã nhận thông tin thanh toán, đang xử lý")
+                .build();
+    }
+    
+    /**
+     * Parse JSON webhook (null nếu body rỗng - request test/verify của PayOS)
+     */
+    private PayOSWebhookData parseWebhook(String rawBody) {
+        if (rawBody == null || rawBody.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(rawBody, PayOSWebhookData.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Malformed webhook payload: {}", e.getOriginalMessage());
+            throw new AppException(ErrorCode.INVALID_REQUEST, "Malformed webhook payload");
         }
     }
 
@@ -519,73 +378,4 @@ public class PayOSController {
                 .message("Bạn đã hủy thanh toán. Bạn có thể thanh toán lại sau.")
                 .build();
     }
-    
-    /**
-     * Helper method: Tính toán endDate dựa trên term của gói membership
-     * @param startDate Ngày bắt đầu
-     * @param term Kỳ hạn (VD: "1 tháng", "3 tháng", "6 tháng", "1 năm")
-     * @return Ngày hết hạn
-     */
-    private LocalDateTime calculateEndDate(LocalDateTime startDate, String term) {
-        if (term == null || term.isEmpty()) {
-            // Mặc định 1 năm nếu không có term
-            log.warn("Term is null or empty. Using default 1 year");
-            return startDate.plusYears(1);
-        }
-        
-        // Chuyển về lowercase và trim để dễ xử lý
-        String normalizedTerm = term.toLowerCase().trim();
-        
-        // Parse term và tính endDate
-        if (normalizedTerm.contains("tháng")) {
-            // Trích xuất số tháng (VD: "1 tháng", "3 tháng", "6 tháng")
-            try {
-                String[] parts = normalizedTerm.split("\\s+");
-                int months = Integer.parseInt(parts[0]);
-                log.info("Calculated end date: {} months from {}", months, startDate);
-                return startDate.plusMonths(months);
-            } catch (Exception e) {
-                log.warn("Cannot parse term: {}. Using default 6 months", term);
-                return startDate.plusMonths(6);
-            }
-        } else if (normalizedTerm.contains("năm")) {
-            // Trích xuất số năm (VD: "1 năm", "2 năm")
-            try {
-                String[] parts = normalizedTerm.split("\\s+");
-                int years = Integer.parseInt(parts[0]);
-                log.info("Calculated end date: {} years from {}", years, startDate);
-                return startDate.plusYears(years);
-            } catch (Exception e) {
-                log.warn("Cannot parse term: {}. Using default 1 year", term);
-                return startDate.plusYears(1);
-            }
-        } else if (normalizedTerm.contains("month")) {
-            // Support English format (VD: "1 month", "6 months")
-            try {
-                String[] parts = normalizedTerm.split("\\s+");
-                int months = Integer.parseInt(parts[0]);
-                log.info("Calculated end date: {} months from {}", months, startDate);
-                return startDate.plusMonths(months);
-            } catch (Exception e) {
-                log.warn("Cannot parse term: {}. Using default 6 months", term);
-                return startDate.plusMonths(6);
-            }
-        } else if (normalizedTerm.contains("year")) {
-            // Support English format (VD: "1 year", "2 years")
-            try {
-                String[] parts = normalizedTerm.split("\\s+");
-                int years = Integer.parseInt(parts[0]);
-                log.info("Calculated end date: {} years from {}", years, startDate);
-                return startDate.plusYears(years);
-            } catch (Exception e) {
-                log.warn("Cannot parse term: {}. Using default 1 year", term);
-                return startDate.plusYears(1);
-            }
-        } else {
-            // Format không nhận diện được, mặc định 1 năm
-            log.warn("Unknown term format: {}. Using default 1 year", term);
-            return startDate.plusYears(1);
-        }
-    }
 }
-
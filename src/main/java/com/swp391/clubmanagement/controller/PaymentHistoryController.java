@@ -127,6 +127,28 @@ public class PaymentHistoryController {
                 .build();
     }
     
+    /**
+     * GET /api/payment-history/revenue/club/{clubId}/packages
+     * Tính doanh thu của một CLB theo từng gói membership
+     */
+    @GetMapping("/revenue/club/{clubId}/packages")
+    @PreAuthorize("hasAnyAuthority('SCOPE_QuanTriVien', 'SCOPE_ChuTich')")
+    @Operation(summary = "Tính doanh thu của CLB theo gói", 
+               description = "Tính doanh thu của một CLB theo từng gói membership trong khoảng thời gian")
+    public ApiResponse<List<RevenueResponse>> getRevenueByPackageForClub(
+            @PathVariable Integer clubId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        
+        List<RevenueResponse> result = paymentHistoryService.calculateRevenueByPackageForClub(
+                clubId, startDate, endDate);
+        
+        return ApiResponse.<List<RevenueResponse>>builder()
+                .result(result)
+                .message("Tính doanh thu thành công")
+                .build();
+    }
+    
     /**
      * GET /api/payment-history/revenue/by-month/date-range
      * Tính doanh thu theo tháng kèm danh sách doanh thu từng CLB
@@ -2,12 +2,20 @@ package com.swp391.clubmanagement.controller;
 
 import com.swp391.clubmanagement.dto.request.*;
 import com.swp391.clubmanagement.dto.response.ApiResponse;
+import com.swp391.clubmanagement.dto.response.UserImportResponse;
 import com.swp391.clubmanagement.dto.response.UserResponse;
+import com.swp391.clubmanagement.dto.response.UserSearchResponse;
 import com.swp391.clubmanagement.entity.Users;
 import com.swp391.clubmanagement.exception.AppException;
+import com.swp391.clubmanagement.exception.ErrorCode;
+import com.swp391.clubmanagement.service.EmailRateLimitService;
+import com.swp391.clubmanagement.service.UserImportService;
+import com.swp391.clubmanagement.service.UserSearchService;
 import com.swp391.clubmanagement.service.UserService;
+import com.swp391.clubmanagement.utils.HtmlTemplate;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -18,8 +26,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/users")
@@ -27,12 +41,29 @@ import org.springframework.web.bind.annotation.*;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Tag(name = "User Management", description = "APIs quản lý người dùng: Đăng ký, xác thực email, quên mật khẩu, cập nhật thông tin")
 public class UserController {
+    private static final MediaType HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
+    /** Trang xác thực thành công không có phần động: render một lần */
+    private static final byte[] VERIFY_SUCCESS_PAGE =
+            HtmlTemplate.load("templates/page/verify-success.html").renderBytes();
+
+    private static final HtmlTemplate VERIFY_ERROR_TEMPLATE =
+            HtmlTemplate.load("templates/page/verify-error.html", "errorMessage");
+
+    /** Trang lỗi theo mã lỗi (số mã lỗi hữu hạn) */
+    private static final Map<ErrorCode, byte[]> ERROR_PAGES = new ConcurrentHashMap<>();
+
     UserService userService;
+    EmailRateLimitService emailRateLimitService;
+    UserImportService userImportService;
+    UserSearchService userSearchService;
 
     @PostMapping
     @Operation(summary = "Đăng ký tài khoản mới", 
                description = "Đăng ký tài khoản người dùng mới. Hệ thống sẽ gửi email xác thực đến địa chỉ email đã đăng ký.")
-    ApiResponse<Users> createUser(@RequestBody @Valid UserCreationRequest request) {
+    ApiResponse<Users> createUser(@RequestBody @Valid UserCreationRequest request, HttpServletRequest httpRequest) {
+        // Chặn burst trước mọi truy vấn database / BCrypt / email
+        emailRateLimitService.checkEmailRequest(request.getEmail(), httpRequest.getRemoteAddr());
         return ApiResponse.<Users>builder()
                 .result(userService.createUser(request))
                 .build();
@@ -40,17 +71,17 @@ public class UserController {
 
     /**
      * API xác thực email qua link (GET request từ email)
-     * Trả về trang HTML thông báo kết quả
+     * Trả về trang HTML thông báo kết quả (byte[] UTF-8 đã render sẵn, không tạo lại trang mỗi request)
      */
     @GetMapping(value = "/verify", produces = MediaType.TEXT_HTML_VALUE)
     @Operation(summary = "Xác thực email qua link", 
                description = "Xác thực email qua link được gửi trong email. API này được gọi khi người dùng click vào link xác thực trong email. Trả về trang HTML thông báo kết quả.")
-    String verifyEmailByToken(@RequestParam("token") String token) {
+    ResponseEntity<byte[]> verifyEmailByToken(@RequestParam("token") String token) {
         try {
             userService.verifyEmailByToken(token);
-            return buildSuccessHtmlPage();
+            return htmlPage(VERIFY_SUCCESS_PAGE);
         } catch (AppException e) {
-            return buildErrorHtmlPage(e.getErrorCode().getMessage());
+            return htmlPage(errorPage(e.getErrorCode()));
         }
     }
 
@@ -67,7 +98,8 @@ public class UserController {
     @PostMapping("/forgot-password")
     @Operation(summary = "Quên mật khẩu", 
                description = "Yêu cầu đặt lại mật khẩu. Hệ thống sẽ gửi mật khẩu mới đến email đã đăng ký.")
-    ApiResponse<String> forgotPassword(@RequestBody ForgotPasswordRequest request) {
+    ApiResponse<String> forgotPassword(@RequestBody ForgotPasswordRequest request, HttpServletRequest httpRequest) {
+        emailRateLimitService.checkEmailRequest(request.getEmail(), httpRequest.getRemoteAddr());
         userService.forgotPassword(request);
         return ApiResponse.<String>builder()
                 .result("Mật khẩu mới đã được gửi đến email của bạn")
@@ -117,6 +149,26 @@ public class UserController {
                 .build();
     }
 
+    @GetMapping("/search")
+    @PreAuthorize("hasAuthority('SCOPE_QuanTriVien')") // Chỉ Admin được tìm kiếm
+    @Operation(summary = "Tìm kiếm users (Admin only)",
+            description = "Lọc users theo mã sinh viên, họ tên (không phân biệt dấu), email (tìm theo tiền tố), chuyên ngành, vai trò, trạng thái hoạt động. Kết quả mới nhất trước, phân trang bằng con trỏ: gửi lại nextCursor để lấy trang tiếp theo.")
+    public ApiResponse<UserSearchResponse> searchUsers(@ParameterObject UserSearchRequest request) {
+        return ApiResponse.<UserSearchResponse>builder()
+                .result(userSearchService.search(request))
+                .build();
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('SCOPE_QuanTriVien')") // Chỉ Admin được import
+    @Operation(summary = "Import tài khoản sinh viên từ file CSV (Admin only)",
+            description = "Tạo hàng loạt tài khoản sinh viên từ file CSV UTF-8. Header bắt buộc: studentCode, fullName, email, password; tùy chọn: phoneNumber, major. Mỗi tài khoản được gửi email xác thực như khi tự đăng ký. Trả về kết quả từng dòng (CREATED / FAILED kèm lý do).")
+    public ApiResponse<UserImportResponse> importUsers(@RequestParam("file") MultipartFile file) {
+        return ApiResponse.<UserImportResponse>builder()
+                .result(userImportService.importUsers(file))
+                .build();
+    }
+
     @DeleteMapping("/{userId}")
     @PreAuthorize("hasAuthority('SCOPE_QuanTriVien')") // Chỉ Admin được xóa
     @Operation(summary = "Xóa user (Admin only)",
@@ -129,200 +181,16 @@ public class UserController {
     }
 
     /**
-     * Trang HTML thông báo xác thực thành công
-     * (Đã đổi % thành %% để an toàn nếu sau này dùng .formatted)
+     * Trang HTML lỗi xác thực, render một lần cho mỗi mã lỗi rồi cache
      */
-    private String buildSuccessHtmlPage() {
-        return """
-        <!DOCTYPE html>
-        <html lang="vi">
-        <head>
-            <meta charset="UTF-8">
-            <meta name="viewport" content="width=device-width, initial-scale=1.0">
-            <title>Xác Thực Email Thành Công - ClubHub</title>
-            <style>
-                * { margin: 0; padding: 0; box-sizing: border-box; }
-                body {
-                    font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
-                    background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                    min-height: 100vh;
-                    display: flex;
-                    align-items: center;
-                    justify-content: center;
-                    padding: 20px;
-                }
-                .container {
-                    background: #ffffff;
-                    border-radius: 20px;
-                    padding: 60px 40px;
-                    text-align: center;
-                    box-shadow: 0 20px 60px rgba(0,0,0,0.3);
-                    max-width: 500px;
-                    width: 100%%;
-                }
-                .icon {
-                    width: 100px;
-                    height: 100px;
-                    background: linear-gradient(135deg, #11998e 0%%, #38ef7d 100%%);
-                    border-radius: 50%%;
-                    display: flex;
-                    align-items: center;
-                    justify-content: center;
-                    margin: 0 auto 30px;
-                    font-size: 50px;
-                    color: white; /* Đảm bảo dấu tick màu trắng */
-                }
-                h1 {
-                    color: #333333;
-                    font-size: 28px;
-                    margin-bottom: 15px;
-                    font-weight: 700;
-                }
-                p {
-                    color: #666666;
-                    font-size: 16px;
-                    line-height: 1.6;
-                    margin-bottom: 30px;
-                }
-                .btn {
-                    display: inline-block;
-                    padding: 16px 45px;
-                    /* FIX: Màu nền dự phòng (Solid color) cho trình duyệt không hỗ trợ gradient */
-                    background-color: #667eea; 
-                    /* Gradient chủ đạo */
-                    background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                    color: #ffffff !important; /* Bắt buộc chữ màu trắng */
-                    text-decoration: none;
-                    border-radius: 50px;
-                    font-weight: 700; /* Tăng độ đậm chữ */
-                    font-size: 16px;
-                    box-shadow: 0 4px 15px rgba(102, 126, 234, 0.4); /* Bóng đổ nhẹ để nút nổi lên */
-                    transition: all 0.3s ease;
-                    border: 1px solid transparent; /* Giữ layout ổn định */
-                }
-                .btn:hover {
-                    transform: translateY(-3px);
-                    box-shadow: 0 10px 25px rgba(102, 126, 234, 0.6);
-                    /* Khi hover đổi màu nhẹ để tạo hiệu ứng */
-                    background: linear-gradient(135deg, #5a6fd6 0%%, #6c4596 100%%);
-                }
-                .logo {
-                    margin-top: 40px;
-                    color: #999999;
-                    font-size: 14px;
-                    font-weight: 500;
-                }
-            </style>
-        </head>
-        <body>
-            <div class="container">
-                <div class="icon">✓</div>
-                <h1>Xác Thực Email Thành Công!</h1>
-                <p>Chúc mừng! Email của bạn đã được xác thực thành công.<br>Bây giờ bạn có thể đăng nhập và sử dụng đầy đủ các tính năng của ClubHub.</p>
-                <a href="https://club-management-system-ochre.vercel.app/" class="btn">Đăng Nhập Ngay</a>
-                <p class="logo">🎓 ClubHub - FPT University</p>
-            </div>
-        </body>
-        </html>
-        """;
+    private static byte[] errorPage(ErrorCode errorCode) {
+        return ERROR_PAGES.computeIfAbsent(errorCode, code -> VERIFY_ERROR_TEMPLATE.renderBytes(code.getMessage()));
     }
 
-    /**
-     * Trang HTML thông báo lỗi xác thực
-     * FIX: Đã thay thế % bằng %% trong CSS
-     */
-    private String buildErrorHtmlPage(String errorMessage) {
-        return """
-            <!DOCTYPE html>
-            <html lang="vi">
-            <head>
-                <meta charset="UTF-8">
-                <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                <title>Lỗi Xác Thực Email - ClubHub</title>
-                <style>
-                    * { margin: 0; padding: 0; box-sizing: border-box; }
-                    body {
-                        font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
-                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                        min-height: 100vh;
-                        display: flex;
-                        align-items: center;
-                        justify-content: center;
-                        padding: 20px;
-                    }
-                    .container {
-                        background: white;
-                        border-radius: 20px;
-                        padding: 60px 40px;
-                        text-align: center;
-                        box-shadow: 0 20px 60px rgba(0,0,0,0.3);
-                        max-width: 500px;
-                        width: 100%%;
-                    }
-                    .icon {
-                        width: 100px;
-                        height: 100px;
-                        background: linear-gradient(135deg, #eb3349 0%%, #f45c43 100%%);
-                        border-radius: 50%%;
-                        display: flex;
-                        align-items: center;
-                        justify-content: center;
-                        margin: 0 auto 30px;
-                        font-size: 50px;
-                    }
-                    h1 {
-                        color: #333;
-                        font-size: 28px;
-                        margin-bottom: 15px;
-                    }
-                    p {
-                        color: #666;
-                        font-size: 16px;
-                        line-height: 1.6;
-                        margin-bottom: 30px;
-                    }
-                    .error-box {
-                        background: #fff5f5;
-                        border: 1px solid #feb2b2;
-                        border-radius: 10px;
-                        padding: 15px 20px;
-                        margin-bottom: 30px;
-                        color: #c53030;
-                        font-weight: 500;
-                    }
-                    .btn {
-                        display: inline-block;
-                        padding: 15px 40px;
-                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                        color: white;
-                        text-decoration: none;
-                        border-radius: 50px;
-                        font-weight: 600;
-                        font-size: 16px;
-                        transition: transform 0.3s, box-shadow 0.3s;
-                    }
-                    .btn:hover {
-                        transform: translateY(-3px);
-                        box-shadow: 0 10px 30px rgba(102, 126, 234, 0.4);
-                    }
-                    .logo {
-                        margin-top: 40px;
-                        color: #999;
-                        font-size: 14px;
-                    }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="icon">✕</div>
-                    <h1>Lỗi Xác Thực Email</h1>
-                    <div class="error-box">%s</div>
-                    <p>Link xác thực không hợp lệ hoặc đã hết hạn.<br>Vui lòng thử đăng ký lại hoặc liên hệ hỗ trợ.</p>
-                    <a href="https://club-management-system-ochre.vercel.app" class="btn">Quay Về Trang Chủ</a>
-                    <p class="logo">🎓 ClubHub - FPT University</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(errorMessage);
+    private static ResponseEntity<byte[]> htmlPage(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(HTML_UTF8)
+                .contentLength(body.length)
+                .body(body);
     }
-}
\ No newline at end of file
+}
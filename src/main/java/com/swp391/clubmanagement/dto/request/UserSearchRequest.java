@@ -0,0 +1,42 @@
+package com.swp391.clubmanagement.dto.request;
+
+import com.swp391.clubmanagement.enums.RoleType;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * UserSearchRequest - DTO cho bộ lọc tìm kiếm users (Admin)
+ * 
+ * Được bind từ query parameters của endpoint GET /users/search. Mọi tiêu chí đều không bắt buộc
+ * và được kết hợp bằng AND.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserSearchRequest {
+    /** Mã sinh viên bắt đầu bằng */
+    String studentCode;
+    
+    /** Họ tên bắt đầu bằng (không phân biệt dấu, hoa thường) */
+    String name;
+    
+    /** Email bắt đầu bằng */
+    String email;
+    
+    /** Chuyên ngành (chính xác) */
+    String major;
+    
+    /** Vai trò hệ thống */
+    RoleType role;
+    
+    /** Trạng thái hoạt động */
+    Boolean active;
+    
+    /** Con trỏ trang tiếp theo (nextCursor của trang trước), bỏ trống để lấy trang đầu */
+    String cursor;
+    
+    /** Số users mỗi trang (mặc định 20, tối đa 100) */
+    Integer size;
+}
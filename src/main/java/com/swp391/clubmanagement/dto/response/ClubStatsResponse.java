@@ -1,5 +1,6 @@
 package com.swp391.clubmanagement.dto.response;
 
+import com.swp391.clubmanagement.utils.VndAmount;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
@@ -29,7 +30,7 @@ public class ClubStatsResponse {
     Long thanhVienCount; // Số Thành viên thường
     
     // Thống kê tài chính
-    BigDecimal totalRevenue; // Tổng doanh thu từ phí thành viên
+    VndAmount totalRevenue; // Tổng doanh thu từ phí thành viên (VND)
     Long paidCount; // Số người đã đóng phí
     Long unpaidCount; // Số người chưa đóng phí
     
@@ -0,0 +1,54 @@
+package com.swp391.clubmanagement.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * PayOSPaymentInfoResponse - Response của PayOS API GET /v2/payment-requests/{orderCode}
+ * 
+ * Dùng khi đối soát (reconciliation): hỏi PayOS trạng thái thực tế của một đơn hàng
+ * khi hệ thống chưa nhận được webhook.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PayOSPaymentInfoResponse {
+    String code;
+    String desc;
+    PaymentInfo data;
+    String signature;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class PaymentInfo {
+        String id;
+        Long orderCode;
+        Integer amount;
+        Integer amountPaid;
+        Integer amountRemaining;
+        /** PENDING, PAID, PROCESSING, CANCELLED, EXPIRED */
+        String status;
+        String createdAt;
+        List<Transaction> transactions;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Transaction {
+        String reference;
+        Integer amount;
+        String accountNumber;
+        String description;
+        String transactionDateTime;
+    }
+}
@@ -0,0 +1,29 @@
+package com.swp391.clubmanagement.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * PaymentStatusResponse - DTO cho trạng thái thanh toán của một đơn hàng PayOS
+ * 
+ * Được sử dụng trong endpoint GET /payments/{orderCode}/status (long-poll):
+ * trả về ngay khi đơn đã thanh toán, hoặc khi hết thời gian chờ với paid = false.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentStatusResponse {
+    /** Mã đơn hàng PayOS */
+    Long orderCode;
+    
+    /** ID đăng ký tham gia CLB */
+    Integer subscriptionId;
+    
+    /** Đã thanh toán chưa */
+    Boolean paid;
+    
+    /** PAID hoặc PENDING */
+    String status;
+}
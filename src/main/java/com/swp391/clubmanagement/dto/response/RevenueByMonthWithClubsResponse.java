@@ -1,9 +1,9 @@
 package com.swp391.clubmanagement.dto.response;
 
+import com.swp391.clubmanagement.utils.VndAmount;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -21,8 +21,8 @@ public class RevenueByMonthWithClubsResponse {
     /** Tháng */
     Integer month;
     
-    /** Tổng doanh thu của tất cả CLB trong tháng này */
-    BigDecimal totalRevenue;
+    /** Tổng doanh thu của tất cả CLB trong tháng này (VND) */
+    VndAmount totalRevenue;
     
     /** Tổng số giao dịch của tất cả CLB trong tháng này */
     Long totalTransactionCount;
@@ -41,7 +41,7 @@ public class RevenueByMonthWithClubsResponse {
     public static class ClubRevenueItem {
         Integer clubId;
         String clubName;
-        BigDecimal revenue;
+        VndAmount revenue;
         Long transactionCount;
     }
 }
@@ -1,6 +1,7 @@
 package com.swp391.clubmanagement.dto.response;
 
 import lombok.*;
+import com.swp391.clubmanagement.utils.VndAmount;
 import lombok.experimental.FieldDefaults;
 
 import java.math.BigDecimal;
@@ -16,8 +17,8 @@ import java.util.List;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class RevenueResponse {
-    /** Tổng doanh thu */
-    BigDecimal totalRevenue;
+    /** Tổng doanh thu (VND, serialize ra JSON dưới dạng số thập phân) */
+    VndAmount totalRevenue;
     
     /** Số lượng giao dịch */
     Long transactionCount;
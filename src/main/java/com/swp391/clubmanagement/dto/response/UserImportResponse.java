@@ -0,0 +1,54 @@
+package com.swp391.clubmanagement.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * UserImportResponse - DTO cho kết quả import tài khoản sinh viên từ file CSV
+ * 
+ * Được sử dụng trong endpoint POST /users/import (Admin): tổng hợp số dòng tạo thành công / lỗi
+ * và kết quả của từng dòng trong file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserImportResponse {
+    /** Tổng số dòng dữ liệu (không tính header) */
+    int total;
+    
+    /** Số tài khoản đã tạo */
+    int created;
+    
+    /** Số dòng bị bỏ qua do lỗi */
+    int failed;
+    
+    /** Kết quả từng dòng, theo thứ tự trong file */
+    List<RowResult> rows;
+    
+    /**
+     * Kết quả import một dòng
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class RowResult {
+        /** Số dòng trong file (header là dòng 1) */
+        int line;
+        
+        String email;
+        
+        String studentCode;
+        
+        /** CREATED hoặc FAILED */
+        String status;
+        
+        /** Lý do lỗi (null nếu tạo thành công) */
+        String message;
+    }
+}
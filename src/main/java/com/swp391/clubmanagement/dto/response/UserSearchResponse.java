@@ -0,0 +1,24 @@
+package com.swp391.clubmanagement.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * UserSearchResponse - DTO cho một trang kết quả tìm kiếm users (keyset pagination)
+ * 
+ * Được sử dụng trong endpoint GET /users/search: trang tiếp theo được lấy bằng cách gửi lại nextCursor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserSearchResponse {
+    /** Users của trang hiện tại, mới nhất trước */
+    List<UserResponse> users;
+    
+    /** Con trỏ của trang tiếp theo (null nếu đây là trang cuối) */
+    String nextCursor;
+}
@@ -0,0 +1,83 @@
+package com.swp391.clubmanagement.entity;
+
+import com.swp391.clubmanagement.enums.ProcessingStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * EmailOutbox Entity - Đại diện cho bảng EmailOutbox (hàng đợi email cần gửi) trong database
+ * 
+ * Email (xác thực, quên mật khẩu...) được ghi vào bảng này trong cùng transaction nghiệp vụ,
+ * EmailOutboxService gửi qua SMTP ở background. Request đăng ký không còn phải chờ SMTP.
+ * 
+ * - status: ChoXuLy (chờ gửi) -> DangXuLy -> DaXuLy (đã gửi) hoặc ThatBai (dead letter, hết số lần thử)
+ * - html_body: được xóa sau khi gửi thành công
+ * - password_reset_user_id: email mật khẩu mới - không lưu nội dung, mật khẩu được tạo và băm ngay lúc gửi
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "EmailOutbox",
+       indexes = {
+           @Index(name = "idx_eo_status_next_attempt", columnList = "status, next_attempt_at")
+       })
+public class EmailOutbox {
+    
+    // Khóa chính: ID tự tăng, cũng là thứ tự gửi
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "email_id")
+    Long emailId;
+    
+    // Địa chỉ người nhận
+    @Column(name = "recipient", nullable = false)
+    String recipient;
+    
+    // Tiêu đề email
+    @Column(name = "subject", nullable = false)
+    String subject;
+    
+    // Nội dung HTML (null sau khi đã gửi, luôn null với email mật khẩu mới)
+    @Column(name = "html_body", columnDefinition = "MEDIUMTEXT")
+    String htmlBody;
+    
+    // User nhận mật khẩu mới (email quên mật khẩu), nội dung được tạo lúc gửi
+    @Column(name = "password_reset_user_id")
+    String passwordResetUserId;
+    
+    // Trạng thái gửi
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    ProcessingStatus status = ProcessingStatus.ChoXuLy;
+    
+    // Số lần đã thử gửi (kể cả lần lỗi)
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    int attempts = 0;
+    
+    // Thời điểm sớm nhất được gửi (lùi lại sau mỗi lần lỗi)
+    @Column(name = "next_attempt_at", nullable = false)
+    LocalDateTime nextAttemptAt;
+    
+    // Thời điểm dispatcher nhận email (dùng để giải phóng email bị kẹt khi dispatcher chết giữa chừng)
+    @Column(name = "locked_at")
+    LocalDateTime lockedAt;
+    
+    // Lỗi gần nhất (nếu có)
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    LocalDateTime sentAt;
+}
@@ -0,0 +1,49 @@
+package com.swp391.clubmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * MembershipReminder Entity - Đại diện cho bảng MembershipReminder (các email nhắc gia hạn đã gửi) trong database
+ * 
+ * Mỗi dòng ghi nhận một lần nhắc cho một đăng ký trong một cửa sổ (vd. còn 7 ngày, còn 1 ngày).
+ * Unique key (subscription_id, window_days, end_date) đảm bảo mỗi mốc chỉ nhắc một lần, kể cả khi job chạy lại
+ * hoặc chạy song song trên nhiều instance; gia hạn (end_date mới) thì được nhắc lại từ đầu.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "MembershipReminder",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_mr_subscription_window_end",
+                             columnNames = {"subscription_id", "window_days", "end_date"})
+       })
+public class MembershipReminder {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "reminder_id")
+    Long reminderId;
+    
+    // Đăng ký được nhắc
+    @Column(name = "subscription_id", nullable = false)
+    Integer subscriptionId;
+    
+    // Cửa sổ nhắc (số ngày trước khi hết hạn)
+    @Column(name = "window_days", nullable = false)
+    Integer windowDays;
+    
+    // Ngày hết hạn tại thời điểm nhắc
+    @Column(name = "end_date", nullable = false)
+    LocalDateTime endDate;
+    
+    @Column(name = "sent_at", nullable = false)
+    LocalDateTime sentAt;
+}
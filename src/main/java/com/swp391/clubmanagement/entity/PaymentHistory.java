@@ -28,7 +28,14 @@ import java.time.LocalDateTime;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @EntityListeners(com.swp391.clubmanagement.configuration.EntityAuditListener.class)
-@Table(name = "PaymentHistory")
+@Table(name = "PaymentHistory",
+       indexes = {
+           @Index(name = "idx_payment_history_club_date", columnList = "club_id, payment_date"),
+           @Index(name = "idx_payment_history_payment_date", columnList = "payment_date")
+       },
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_payment_history_settlement", columnNames = "settlement_outbox_id")
+       })
 public class PaymentHistory {
     
     // Khóa chính: ID tự tăng
@@ -42,6 +49,10 @@ public class PaymentHistory {
     @JoinColumn(name = "subscription_id", nullable = false)
     Registers register;
     
+    // Event settlement đã tạo record này (PaymentSettlementOutbox): unique, mỗi lần thanh toán một record
+    @Column(name = "settlement_outbox_id")
+    Long settlementOutboxId;
+    
     // Quan hệ Many-to-One với Users: User nào thanh toán
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
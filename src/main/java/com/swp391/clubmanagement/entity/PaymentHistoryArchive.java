@@ -0,0 +1,105 @@
+package com.swp391.clubmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * PaymentHistoryArchive Entity - Đại diện cho bảng PaymentHistoryArchive (kho lưu trữ lạnh) trong database
+ *
+ * Các giao dịch cũ hơn mốc lưu trữ (xem PaymentArchiveService) được chuyển từ bảng PaymentHistory sang đây
+ * để bảng nóng PaymentHistory không phình to mãi và các query doanh thu không phải quét toàn bộ lịch sử.
+ *
+ * Khác với PaymentHistory:
+ * - KHÔNG dùng quan hệ @ManyToOne / foreign key: dữ liệu lưu trữ là bản chụp (snapshot) tại thời điểm chuyển,
+ *   gồm cả tên user, tên CLB, tên gói để vẫn hiển thị được lịch sử mà không cần join bảng nóng
+ * - Có cột archive_year (năm của payment_date): bảng được RANGE partition theo cột này, mỗi năm một partition (V15),
+ *   và mọi query đều lọc theo archive_year để database chỉ mở partition của các năm cần thiết.
+ *   Khóa chính trong database là (payment_id, archive_year) (V13) vì MySQL yêu cầu cột partition nằm trong mọi unique key
+ * - payment_id giữ nguyên giá trị gốc từ PaymentHistory (không tự tăng) và vẫn duy nhất,
+ *   nên entity chỉ dùng payment_id làm @Id
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "PaymentHistoryArchive",
+       indexes = {
+           @Index(name = "idx_pha_year_club", columnList = "archive_year, club_id"),
+           @Index(name = "idx_pha_user_date", columnList = "user_id, payment_date"),
+           @Index(name = "idx_pha_club_date", columnList = "club_id, payment_date")
+       })
+public class PaymentHistoryArchive {
+
+    // Khóa chính: giữ nguyên payment_id của bản ghi gốc trong PaymentHistory
+    @Id
+    @Column(name = "payment_id")
+    Integer paymentId;
+
+    // ID đăng ký được thanh toán (subscription_id gốc)
+    @Column(name = "subscription_id", nullable = false)
+    Integer subscriptionId;
+
+    // ========== SNAPSHOT THÔNG TIN USER ==========
+
+    @Column(name = "user_id", nullable = false)
+    String userId;
+
+    @Column(name = "user_name")
+    String userName;
+
+    @Column(name = "user_email")
+    String userEmail;
+
+    // ========== SNAPSHOT THÔNG TIN CLB VÀ GÓI ==========
+
+    @Column(name = "club_id", nullable = false)
+    Integer clubId;
+
+    @Column(name = "club_name")
+    String clubName;
+
+    @Column(name = "package_id", nullable = false)
+    Integer packageId;
+
+    @Column(name = "package_name")
+    String packageName;
+
+    // ========== THÔNG TIN GIAO DỊCH ==========
+
+    // Số tiền thanh toán (giữ nguyên kiểu cột DECIMAL(10,2) như bảng gốc)
+    @Column(name = "amount", precision = 10, scale = 2, nullable = false)
+    BigDecimal amount;
+
+    @Column(name = "payment_method", nullable = false)
+    String paymentMethod;
+
+    @Column(name = "payos_order_code")
+    Long payosOrderCode;
+
+    @Column(name = "payos_reference")
+    String payosReference;
+
+    @Column(name = "payment_date", nullable = false)
+    LocalDateTime paymentDate;
+
+    // Thời điểm record gốc được tạo trong PaymentHistory
+    @Column(name = "created_at")
+    LocalDateTime createdAt;
+
+    // ========== THÔNG TIN LƯU TRỮ ==========
+
+    // Năm của payment_date: khóa phân vùng, mọi query lưu trữ đều lọc theo cột này
+    @Column(name = "archive_year", nullable = false)
+    Integer archiveYear;
+
+    // Thời điểm record được chuyển sang kho lưu trữ
+    @Column(name = "archived_at")
+    LocalDateTime archivedAt;
+}
@@ -0,0 +1,106 @@
+package com.swp391.clubmanagement.entity;
+
+import com.swp391.clubmanagement.enums.ProcessingStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * PaymentSettlementOutbox Entity - Đại diện cho bảng PaymentSettlementOutbox (outbox của settlement) trong database
+ * 
+ * Khi một đăng ký được ghi nhận thanh toán (webhook PayOS, đối soát, Chủ tịch xác nhận tay), transaction settlement
+ * chỉ ghi thêm một dòng vào bảng này. Các tác vụ phụ (payment history, email, thống kê...) được
+ * SettlementOutboxService chạy sau ở background, nên transaction settlement không dài thêm khi có thêm tác vụ.
+ * 
+ * - subscription_id: đăng ký vừa được thanh toán
+ * - user_id ... payment_date: snapshot của lần thanh toán, ghi trong transaction settlement. Handler dùng snapshot
+ *   thay vì đọc lại đăng ký, vì đăng ký được dùng lại khi gia hạn / tham gia lại và có thể đã thay đổi lúc relay chạy
+ * - status / attempts / next_attempt_at: trạng thái xử lý và lịch thử lại khi lỗi
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "PaymentSettlementOutbox",
+       indexes = {
+           @Index(name = "idx_pso_status_next_attempt", columnList = "status, next_attempt_at")
+       })
+public class PaymentSettlementOutbox {
+    
+    // Khóa chính: ID tự tăng, cũng là thứ tự ghi nhận thanh toán
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id")
+    Long outboxId;
+    
+    // Đăng ký vừa được thanh toán
+    @Column(name = "subscription_id", nullable = false)
+    Integer subscriptionId;
+    
+    // Snapshot: user thanh toán
+    @Column(name = "user_id")
+    String userId;
+    
+    // Snapshot: CLB nhận thanh toán
+    @Column(name = "club_id")
+    Integer clubId;
+    
+    // Snapshot: gói membership được thanh toán
+    @Column(name = "package_id")
+    Integer packageId;
+    
+    // Snapshot: số tiền (giá gói tại thời điểm thanh toán)
+    @Column(name = "amount", precision = 10, scale = 2)
+    BigDecimal amount;
+    
+    // Snapshot: phương thức thanh toán
+    @Column(name = "payment_method")
+    String paymentMethod;
+    
+    // Snapshot: mã đơn hàng PayOS
+    @Column(name = "payos_order_code")
+    Long payosOrderCode;
+    
+    // Snapshot: reference code từ PayOS
+    @Column(name = "payos_reference")
+    String payosReference;
+    
+    // Snapshot: ngày giờ thanh toán thành công
+    @Column(name = "payment_date")
+    LocalDateTime paymentDate;
+    
+    // Trạng thái xử lý
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    ProcessingStatus status = ProcessingStatus.ChoXuLy;
+    
+    // Số lần đã xử lý (kể cả lần lỗi)
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    int attempts = 0;
+    
+    // Thời điểm sớm nhất được xử lý (lùi lại sau mỗi lần lỗi)
+    @Column(name = "next_attempt_at", nullable = false)
+    LocalDateTime nextAttemptAt;
+    
+    // Thời điểm relay nhận event (dùng để giải phóng event bị kẹt khi relay chết giữa chừng)
+    @Column(name = "locked_at")
+    LocalDateTime lockedAt;
+    
+    // Lỗi gần nhất (nếu có)
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+    
+    @Column(name = "processed_at")
+    LocalDateTime processedAt;
+}
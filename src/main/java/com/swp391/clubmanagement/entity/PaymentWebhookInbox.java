@@ -0,0 +1,77 @@
+package com.swp391.clubmanagement.entity;
+
+import com.swp391.clubmanagement.enums.ProcessingStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * PaymentWebhookInbox Entity - Đại diện cho bảng PaymentWebhookInbox (hàng đợi webhook PayOS) trong database
+ * 
+ * Webhook PayOS được xác thực chữ ký rồi lưu nguyên văn vào bảng này và trả lời PayOS ngay lập tức.
+ * WebhookInboxService lấy các event theo lô và xử lý (ghi nhận thanh toán) ở background.
+ * 
+ * - payload: JSON gốc PayOS gửi (để xử lý lại / đối soát khi cần)
+ * - order_code: khóa nhóm - các event cùng orderCode (cùng một đăng ký) được xử lý tuần tự theo event_id
+ * - status / attempts / next_attempt_at: trạng thái xử lý và lịch thử lại khi lỗi
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "PaymentWebhookInbox",
+       indexes = {
+           @Index(name = "idx_pwi_status_next_attempt", columnList = "status, next_attempt_at"),
+           @Index(name = "idx_pwi_order_code", columnList = "order_code"),
+           @Index(name = "idx_pwi_status_processed_at", columnList = "status, processed_at")
+       })
+public class PaymentWebhookInbox {
+    
+    // Khóa chính: ID tự tăng, cũng là thứ tự nhận webhook
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    Long eventId;
+    
+    // Mã đơn hàng PayOS (data.orderCode)
+    @Column(name = "order_code", nullable = false)
+    Long orderCode;
+    
+    // JSON gốc của webhook
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    String payload;
+    
+    // Trạng thái xử lý
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    ProcessingStatus status = ProcessingStatus.ChoXuLy;
+    
+    // Số lần đã xử lý (kể cả lần lỗi)
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    int attempts = 0;
+    
+    // Thời điểm sớm nhất được xử lý (lùi lại sau mỗi lần lỗi)
+    @Column(name = "next_attempt_at", nullable = false)
+    LocalDateTime nextAttemptAt;
+    
+    // Thời điểm worker nhận event (dùng để giải phóng event bị kẹt khi worker chết giữa chừng)
+    @Column(name = "locked_at")
+    LocalDateTime lockedAt;
+    
+    // Lỗi gần nhất (nếu có)
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    String lastError;
+    
+    @Column(name = "received_at", nullable = false)
+    LocalDateTime receivedAt;
+    
+    @Column(name = "processed_at")
+    LocalDateTime processedAt;
+}
@@ -0,0 +1,51 @@
+package com.swp391.clubmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * PaymentWebhookKey Entity - Đại diện cho bảng PaymentWebhookKey (khóa chống xử lý trùng webhook PayOS)
+ * 
+ * Mỗi giao dịch PayOS (orderCode + reference) chỉ có một dòng nhờ unique constraint.
+ * WebhookInboxService ghi khóa bằng một câu INSERT ... ON DUPLICATE KEY UPDATE trước khi đưa webhook vào hàng đợi:
+ * PayOS gửi lại cùng giao dịch -> chỉ tăng duplicate_count -> webhook bị loại ngay, không load register, không lock.
+ * Khóa cũ hơn payos.webhook.retention.days bị xóa định kỳ.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "PaymentWebhookKey",
+       uniqueConstraints = @UniqueConstraint(name = "uk_pwk_order_reference", columnNames = {"order_code", "reference"}),
+       indexes = @Index(name = "idx_pwk_received_at", columnList = "received_at"))
+public class PaymentWebhookKey {
+    
+    // Khóa chính: ID tự tăng
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "key_id")
+    Long keyId;
+    
+    // Mã đơn hàng PayOS
+    @Column(name = "order_code", nullable = false)
+    Long orderCode;
+    
+    // Mã tham chiếu giao dịch PayOS (chuỗi rỗng nếu PayOS không gửi)
+    @Column(name = "reference", nullable = false, length = 100)
+    String reference;
+    
+    // Thời điểm nhận webhook đầu tiên của giao dịch
+    @Column(name = "received_at", nullable = false)
+    LocalDateTime receivedAt;
+    
+    // Số lần PayOS gửi lại giao dịch này sau lần đầu
+    @Column(name = "duplicate_count", nullable = false)
+    @Builder.Default
+    int duplicateCount = 0;
+}
@@ -28,7 +28,12 @@ import java.time.LocalDateTime;
 @Entity
 @EntityListeners(com.swp391.clubmanagement.configuration.EntityAuditListener.class)
 @Table(name = "Registers", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "package_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "package_id"}),
+       indexes = {
+           @Index(name = "idx_registers_payos_order_code", columnList = "payos_order_code"),
+           @Index(name = "idx_registers_package_status_paid", columnList = "package_id, status, is_paid"),
+           @Index(name = "idx_registers_status_paid_end_date", columnList = "status, is_paid, end_date")
+       })
 public class Registers {
     
     // Khóa chính: ID tự tăng
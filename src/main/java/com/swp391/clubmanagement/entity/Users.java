@@ -1,6 +1,7 @@
 package com.swp391.clubmanagement.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.swp391.clubmanagement.utils.TextNormalizer;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -26,7 +27,16 @@ import java.util.Set;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @EntityListeners(com.swp391.clubmanagement.configuration.EntityAuditListener.class)
-@Table(name = "Users")
+@Table(name = "Users",
+       indexes = {
+           @Index(name = "uk_users_email", columnList = "email", unique = true),
+           @Index(name = "idx_users_verification_code", columnList = "verification_code"),
+           @Index(name = "idx_users_enabled_verification_expiry", columnList = "is_enabled, verification_expiry"),
+           @Index(name = "idx_users_full_name_normalized", columnList = "full_name_normalized"),
+           @Index(name = "idx_users_major", columnList = "major"),
+           @Index(name = "idx_users_created_at_user_id", columnList = "created_at, user_id"),
+           @Index(name = "idx_users_role_active_created", columnList = "role_id, is_active, created_at, user_id")
+       })
 public class Users {
     
     // Khóa chính: UUID được tự động sinh ra
@@ -43,6 +53,11 @@ public class Users {
     @Column(name = "full_name", nullable = false)
     String fullName;
     
+    // Họ tên không dấu, chữ thường (tìm kiếm theo tên), luôn được tính lại từ fullName trước khi lưu
+    @JsonIgnore
+    @Column(name = "full_name_normalized")
+    String fullNameNormalized;
+    
     // Chuyên ngành học
     @Column(name = "major")
     String major;
@@ -65,8 +80,9 @@ public class Users {
     String password;
 
     // Mã xác thực email: được gửi đến email khi đăng ký/đổi mật khẩu
+    // SHA-256 (hex) của mã xác thực email, mã gốc chỉ có trong link gửi qua email
     @JsonIgnore
-    @Column(name = "verification_code")
+    @Column(name = "verification_code", length = 64, columnDefinition = "CHAR(64)")
     String verificationCode;
 
     // Thời điểm mã xác thực hết hạn: sau thời điểm này mã không còn hiệu lực
@@ -120,4 +136,11 @@ public class Users {
     @JsonIgnore
     @OneToMany(mappedBy = "approver")
     Set<Registers> approvedRegisters;
+    
+    // Cập nhật fullNameNormalized mỗi khi user được tạo / sửa
+    @PrePersist
+    @PreUpdate
+    void normalizeFullName() {
+        fullNameNormalized = TextNormalizer.normalize(fullName);
+    }
 }
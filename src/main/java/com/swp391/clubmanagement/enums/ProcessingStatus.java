@@ -0,0 +1,22 @@
+package com.swp391.clubmanagement.enums;
+
+/**
+ * ProcessingStatus Enum - Trạng thái xử lý của một bản ghi trong hàng đợi nền (inbox / outbox)
+ * 
+ * Vòng đời: ChoXuLy -> DangXuLy -> DaXuLy
+ *                          |-> ChoXuLy (lỗi tạm thời, chờ thử lại)
+ *                          |-> ThatBai (hết số lần thử)
+ */
+public enum ProcessingStatus {
+    /** ChoXuLy (PENDING): Đang chờ worker lấy ra xử lý (hoặc chờ đến lượt thử lại) */
+    ChoXuLy,
+    
+    /** DangXuLy (PROCESSING): Đã được một worker nhận (claim), đang xử lý */
+    DangXuLy,
+    
+    /** DaXuLy (DONE): Đã xử lý xong */
+    DaXuLy,
+    
+    /** ThatBai (FAILED): Thử lại quá số lần cho phép, cần kiểm tra thủ công */
+    ThatBai
+}
@@ -20,6 +20,8 @@ public enum ErrorCode {
     INVALID_VERIFICATION_CODE(1003, "Mã xác thực không hợp lệ", HttpStatus.BAD_REQUEST),
     VERIFICATION_LINK_EXPIRED(1004, "Liên kết xác thực đã hết hạn", HttpStatus.BAD_REQUEST),
     EMAIL_ALREADY_EXISTS(1005, "Email đã được sử dụng bởi CLB khác", HttpStatus.BAD_REQUEST),
+    TOO_MANY_REQUESTS(1006, "Bạn thao tác quá nhanh, vui lòng thử lại sau ít phút", HttpStatus.TOO_MANY_REQUESTS),
+    SERVICE_BUSY(1007, "Hệ thống đang quá tải, vui lòng thử lại sau ít giây", HttpStatus.SERVICE_UNAVAILABLE),
     
     // --- User Related Errors (Lỗi liên quan đến người dùng - 2xxx) ---
     USER_EXISTED(2001, "Người dùng đã tồn tại", HttpStatus.BAD_REQUEST),
@@ -30,6 +32,8 @@ public enum ErrorCode {
     EMAIL_NOT_EXIST(2006, "Email không tồn tại", HttpStatus.NOT_FOUND),
     CANNOT_DELETE_FOUNDER(2007, "Không thể xóa người dùng là người sáng lập câu lạc bộ. Vui lòng chuyển quyền sở hữu trước.", HttpStatus.BAD_REQUEST),
     USER_DEACTIVATED(2008, "Tài khoản của bạn đã bị vô hiệu hóa bởi quản trị viên. Vui lòng liên hệ hỗ trợ để được trợ giúp.", HttpStatus.FORBIDDEN),
+    INVALID_IMPORT_FILE(2009, "File CSV không hợp lệ: thiếu cột bắt buộc, rỗng hoặc vượt quá số dòng cho phép", HttpStatus.BAD_REQUEST),
+    INVALID_SEARCH_CURSOR(2010, "Con trỏ phân trang không hợp lệ", HttpStatus.BAD_REQUEST),
     
     // --- Authentication & Authorization Errors (Lỗi xác thực & phân quyền - 3xxx) ---
     UNAUTHENTICATED(3001, "Chưa xác thực", HttpStatus.UNAUTHORIZED), // Chưa đăng nhập hoặc token không hợp lệ
@@ -75,6 +79,9 @@ public enum ErrorCode {
     INVALID_PAYMENT_SIGNATURE(8002, "Chữ ký thanh toán không hợp lệ", HttpStatus.BAD_REQUEST),
     PAYMENT_NOT_FOUND(8003, "Không tìm thấy thanh toán", HttpStatus.NOT_FOUND),
     PAYMENT_ALREADY_PROCESSED(8004, "Thanh toán đã được xử lý", HttpStatus.BAD_REQUEST),
+    PAYOS_UNAVAILABLE(8005, "Cổng thanh toán PayOS tạm thời không khả dụng, vui lòng thử lại sau", HttpStatus.SERVICE_UNAVAILABLE),
+    PAYOS_BUSY(8006, "Cổng thanh toán đang quá tải, vui lòng thử lại sau", HttpStatus.SERVICE_UNAVAILABLE),
+    PAYMENT_LINK_IN_PROGRESS(8007, "Payment link đang được tạo, vui lòng thử lại sau giây lát", HttpStatus.CONFLICT),
     ;
     
     private final int code;           // Mã lỗi nội bộ (Business Code)
@@ -12,6 +12,7 @@ import java.util.stream.Collectors;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
+    @Mapping(target = "fullNameNormalized", ignore = true)
     Users toUser(UserCreationRequest request);
 
     @Mapping(target = "role", expression = "java(user.getRole() != null ? user.getRole().getRoleName() : null)")
@@ -21,6 +22,7 @@ public interface UserMapper {
     UserResponse toUserResponse(Users user);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "fullNameNormalized", ignore = true)
     void updateUser(@MappingTarget Users user, UserUpdateRequest request);
 
     /**
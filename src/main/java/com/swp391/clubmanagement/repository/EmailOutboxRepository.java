@@ -0,0 +1,39 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.EmailOutbox;
+import com.swp391.clubmanagement.enums.ProcessingStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * EmailOutboxRepository - Spring Data JPA Repository cho entity EmailOutbox
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    
+    /**
+     * Khóa một lô email đến hạn gửi (theo thứ tự tạo)
+     * FOR UPDATE SKIP LOCKED: nhiều instance cùng gửi không lấy trùng email, cũng không chờ nhau
+     * Phải gọi trong transaction; caller chuyển các email sang DangXuLy trước khi commit
+     */
+    @Query(value = "SELECT * FROM email_outbox " +
+           "WHERE status = 'ChoXuLy' AND next_attempt_at <= :now " +
+           "ORDER BY email_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<EmailOutbox> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /** Trả các email bị kẹt ở DangXuLy quá lâu (dispatcher chết giữa chừng) về hàng đợi */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :pending, e.lockedAt = null " +
+           "WHERE e.status = :processing AND e.lockedAt < :staleBefore")
+    int releaseStale(
+            @Param("pending") ProcessingStatus pending,
+            @Param("processing") ProcessingStatus processing,
+            @Param("staleBefore") LocalDateTime staleBefore);
+}
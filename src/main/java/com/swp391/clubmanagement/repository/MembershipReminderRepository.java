@@ -0,0 +1,33 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.MembershipReminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * MembershipReminderRepository - Spring Data JPA Repository cho entity MembershipReminder
+ */
+@Repository
+public interface MembershipReminderRepository extends JpaRepository<MembershipReminder, Long> {
+    
+    /**
+     * Ghi nhận đã nhắc (subscription, cửa sổ, ngày hết hạn) nếu chưa có
+     * INSERT IGNORE trên unique key: không cần SELECT trước, an toàn khi nhiều instance chạy cùng lúc
+     * 
+     * @return 1 nếu vừa ghi nhận (cần gửi email), 0 nếu đã nhắc trước đó
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO membership_reminder (subscription_id, window_days, end_date, sent_at) " +
+           "VALUES (:subscriptionId, :windowDays, :endDate, :sentAt)",
+           nativeQuery = true)
+    int insertIfAbsent(
+            @Param("subscriptionId") Integer subscriptionId,
+            @Param("windowDays") int windowDays,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("sentAt") LocalDateTime sentAt);
+}
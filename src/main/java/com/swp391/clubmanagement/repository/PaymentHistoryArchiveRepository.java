@@ -0,0 +1,157 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.PaymentHistoryArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * PaymentHistoryArchiveRepository - Spring Data JPA Repository cho entity PaymentHistoryArchive
+ *
+ * Các query doanh thu ở đây có cùng "shape" kết quả với PaymentHistoryRepository
+ * (cùng thứ tự cột Object[]) để PaymentHistoryService gộp kết quả hai bảng mà không cần xử lý riêng.
+ *
+ * Mọi query theo khoảng thời gian đều lọc thêm archiveYear BETWEEN :startYear AND :endYear
+ * để database chỉ đọc các năm (partition) cần thiết.
+ *
+ * Query doanh thu gom nhóm theo ID (clubId / packageId), không theo tên trong snapshot: CLB / gói đổi tên
+ * giữa các lần lưu trữ vẫn chỉ là một dòng mỗi tháng. Tên lấy từ bảng Clubs / Memberships (giống bảng nóng),
+ * snapshot chỉ dùng khi CLB / gói không còn.
+ */
+@Repository
+public interface PaymentHistoryArchiveRepository extends JpaRepository<PaymentHistoryArchive, Integer> {
+
+    // ============ CHUYỂN DỮ LIỆU SANG KHO LƯU TRỮ ============
+
+    /** Một payment_id bất kỳ trong kho lưu trữ (rỗng nếu kho chưa có dữ liệu) - không đếm cả bảng như count() */
+    @Query("SELECT a.paymentId FROM PaymentHistoryArchive a")
+    List<Integer> findAnyPaymentId(Pageable pageable);
+
+    /** Tên các partition hiện có của bảng lưu trữ (rỗng nếu bảng chưa được partition) */
+    @Query(value = "SELECT partition_name FROM information_schema.partitions " +
+           "WHERE table_schema = DATABASE() AND table_name = 'payment_history_archive' " +
+           "AND partition_name IS NOT NULL",
+           nativeQuery = true)
+    List<String> findPartitionNames();
+
+    /**
+     * Copy các bản ghi PaymentHistory (theo danh sách ID) sang bảng lưu trữ, kèm snapshot tên user/CLB/gói
+     * Phải chạy cùng transaction với lệnh xóa ở PaymentHistoryRepository.deleteByPaymentIdIn
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_history_archive " +
+           "(payment_id, subscription_id, user_id, user_name, user_email, club_id, club_name, " +
+           "package_id, package_name, amount, payment_method, payos_order_code, payos_reference, " +
+           "payment_date, created_at, archive_year, archived_at) " +
+           "SELECT ph.payment_id, ph.subscription_id, ph.user_id, u.full_name, u.email, ph.club_id, c.club_name, " +
+           "ph.package_id, m.package_name, ph.amount, ph.payment_method, ph.payos_order_code, ph.payos_reference, " +
+           "ph.payment_date, ph.created_at, YEAR(ph.payment_date), :archivedAt " +
+           "FROM payment_history ph " +
+           "JOIN users u ON u.user_id = ph.user_id " +
+           "JOIN clubs c ON c.club_id = ph.club_id " +
+           "JOIN memberships m ON m.package_id = ph.package_id " +
+           "WHERE ph.payment_id IN (:ids)",
+           nativeQuery = true)
+    int copyFromPaymentHistory(@Param("ids") List<Integer> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    // ============ TÌM KIẾM LỊCH SỬ GIAO DỊCH ============
+
+    /** Lịch sử giao dịch đã lưu trữ của một user (mới nhất trước), phân trang theo offset tuyệt đối */
+    @Query(value = "SELECT * FROM payment_history_archive WHERE user_id = :userId " +
+           "ORDER BY payment_date DESC, payment_id DESC LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<PaymentHistoryArchive> findByUserIdWithOffset(
+            @Param("userId") String userId,
+            @Param("offset") long offset,
+            @Param("limit") int limit);
+
+    /** Lịch sử giao dịch đã lưu trữ của một CLB (mới nhất trước), phân trang theo offset tuyệt đối */
+    @Query(value = "SELECT * FROM payment_history_archive WHERE club_id = :clubId " +
+           "ORDER BY payment_date DESC, payment_id DESC LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<PaymentHistoryArchive> findByClubIdWithOffset(
+            @Param("clubId") Integer clubId,
+            @Param("offset") long offset,
+            @Param("limit") int limit);
+
+    /** Đếm số giao dịch đã lưu trữ của một user */
+    long countByUserId(String userId);
+
+    /** Đếm số giao dịch đã lưu trữ của một CLB */
+    long countByClubId(Integer clubId);
+
+    // ============ XUẤT DỮ LIỆU PHÂN TÍCH (EXPORT) ============
+
+    /** Lấy một lô "payment facts" đã lưu trữ (cùng shape với PaymentHistoryRepository.findFactsBetween) */
+    @Query("SELECT a.paymentId, a.clubId, a.packageId, a.userId, a.amount, a.paymentDate, a.paymentMethod " +
+           "FROM PaymentHistoryArchive a " +
+           "WHERE a.archiveYear = :archiveYear " +
+           "AND a.paymentDate >= :startDate AND a.paymentDate < :endDate AND a.paymentId > :afterId " +
+           "ORDER BY a.paymentId")
+    List<Object[]> findFactsBetween(
+            @Param("archiveYear") Integer archiveYear,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable);
+
+    // ============ TÍNH DOANH THU ============
+
+    /** Tính tổng doanh thu đã lưu trữ của một CLB */
+    @Query("SELECT COALESCE(SUM(a.amount), 0) FROM PaymentHistoryArchive a WHERE a.clubId = :clubId")
+    BigDecimal calculateTotalRevenueByClub(@Param("clubId") Integer clubId);
+
+    /** Tính doanh thu của một CLB theo tháng (cùng shape với PaymentHistoryRepository.calculateRevenueByClubByMonth) */
+    @Query("SELECT YEAR(a.paymentDate) as year, MONTH(a.paymentDate) as month, " +
+           "a.clubId, COALESCE((SELECT c.clubName FROM Clubs c WHERE c.clubId = a.clubId), MAX(a.clubName)), " +
+           "COALESCE(SUM(a.amount), 0) as totalRevenue, COUNT(a) as transactionCount " +
+           "FROM PaymentHistoryArchive a " +
+           "WHERE a.clubId = :clubId AND a.archiveYear BETWEEN :startYear AND :endYear " +
+           "AND a.paymentDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY YEAR(a.paymentDate), MONTH(a.paymentDate), a.clubId " +
+           "ORDER BY year DESC, month DESC, totalRevenue DESC")
+    List<Object[]> calculateRevenueByClubByMonth(
+            @Param("clubId") Integer clubId,
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    /** Tính doanh thu theo CLB và tháng (cùng shape với PaymentHistoryRepository.calculateRevenueByClubAndMonth) */
+    @Query("SELECT YEAR(a.paymentDate) as year, MONTH(a.paymentDate) as month, " +
+           "a.clubId, COALESCE((SELECT c.clubName FROM Clubs c WHERE c.clubId = a.clubId), MAX(a.clubName)), " +
+           "COALESCE(SUM(a.amount), 0) as totalRevenue, COUNT(a) as transactionCount " +
+           "FROM PaymentHistoryArchive a " +
+           "WHERE a.archiveYear BETWEEN :startYear AND :endYear " +
+           "AND a.paymentDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY YEAR(a.paymentDate), MONTH(a.paymentDate), a.clubId " +
+           "ORDER BY year DESC, month DESC, totalRevenue DESC")
+    List<Object[]> calculateRevenueByClubAndMonth(
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    /** Tính doanh thu theo từng gói của một CLB (cùng shape với PaymentHistoryRepository.calculateRevenueByPackageForClub) */
+    @Query("SELECT a.packageId, " +
+           "COALESCE((SELECT m.packageName FROM Memberships m WHERE m.packageId = a.packageId), MAX(a.packageName)), " +
+           "COALESCE(SUM(a.amount), 0) as totalRevenue, COUNT(a) as transactionCount " +
+           "FROM PaymentHistoryArchive a " +
+           "WHERE a.clubId = :clubId AND a.archiveYear BETWEEN :startYear AND :endYear " +
+           "AND a.paymentDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY a.packageId " +
+           "ORDER BY totalRevenue DESC")
+    List<Object[]> calculateRevenueByPackageForClub(
+            @Param("clubId") Integer clubId,
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+}
@@ -6,6 +6,7 @@ import com.swp391.clubmanagement.entity.Users;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -51,6 +52,9 @@ public interface PaymentHistoryRepository extends JpaRepository<PaymentHistory,
     /** Tìm giao dịch theo PayOS order code */
     Optional<PaymentHistory> findByPayosOrderCode(Long orderCode);
     
+    /** Event settlement đã tạo payment history chưa (settlement handler idempotent) */
+    boolean existsBySettlementOutboxId(Long settlementOutboxId);
+    
     // ============ TÍNH DOANH THU ============
     
     /** Tính tổng doanh thu của một CLB */
@@ -116,19 +120,20 @@ public interface PaymentHistoryRepository extends JpaRepository<PaymentHistory,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    /** Tính doanh thu của một CLB theo tháng */
+    /** Tính doanh thu của một CLB theo tháng (shape chung của RevenueReportEngine) */
     @Query("SELECT YEAR(ph.paymentDate) as year, MONTH(ph.paymentDate) as month, " +
+           "ph.club.clubId, ph.club.clubName, " +
            "COALESCE(SUM(ph.amount), 0) as totalRevenue, COUNT(ph) as transactionCount " +
            "FROM PaymentHistory ph " +
            "WHERE ph.club.clubId = :clubId AND ph.paymentDate BETWEEN :startDate AND :endDate " +
-           "GROUP BY YEAR(ph.paymentDate), MONTH(ph.paymentDate) " +
-           "ORDER BY year DESC, month DESC")
+           "GROUP BY YEAR(ph.paymentDate), MONTH(ph.paymentDate), ph.club.clubId, ph.club.clubName " +
+           "ORDER BY year DESC, month DESC, totalRevenue DESC")
     List<Object[]> calculateRevenueByClubByMonth(
             @Param("clubId") Integer clubId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    /** Tính doanh thu theo CLB và tháng (group by club, year, month) */
+    /** Tính doanh thu theo CLB và tháng (group by club, year, month - shape chung của RevenueReportEngine) */
     @Query("SELECT YEAR(ph.paymentDate) as year, MONTH(ph.paymentDate) as month, " +
            "ph.club.clubId, ph.club.clubName, " +
            "COALESCE(SUM(ph.amount), 0) as totalRevenue, COUNT(ph) as transactionCount " +
@@ -156,5 +161,37 @@ public interface PaymentHistoryRepository extends JpaRepository<PaymentHistory,
     
     /** Đếm số giao dịch của một CLB trong khoảng thời gian */
     long countByClubAndPaymentDateBetween(Clubs club, LocalDateTime startDate, LocalDateTime endDate);
+    
+    // ============ XUẤT DỮ LIỆU PHÂN TÍCH (EXPORT) ============
+    
+    /**
+     * Lấy một lô "payment facts" trong khoảng [startDate, endDate) theo keyset paymentId > :afterId
+     * Shape: [paymentId, clubId, packageId, userId, amount, paymentDate, paymentMethod]
+     */
+    @Query("SELECT ph.paymentId, ph.club.clubId, ph.membershipPackage.packageId, ph.user.userId, " +
+           "ph.amount, ph.paymentDate, ph.paymentMethod " +
+           "FROM PaymentHistory ph " +
+           "WHERE ph.paymentDate >= :startDate AND ph.paymentDate < :endDate AND ph.paymentId > :afterId " +
+           "ORDER BY ph.paymentId")
+    List<Object[]> findFactsBetween(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable);
+    
+    // ============ LƯU TRỮ (ARCHIVE) ============
+    
+    /** Ngày thanh toán cũ nhất còn nằm trong bảng nóng (null nếu bảng rỗng) */
+    @Query("SELECT MIN(ph.paymentDate) FROM PaymentHistory ph")
+    LocalDateTime findMinPaymentDate();
+    
+    /** Lấy một lô ID giao dịch cũ hơn mốc lưu trữ (theo thứ tự payment_id) để chuyển sang PaymentHistoryArchive */
+    @Query("SELECT ph.paymentId FROM PaymentHistory ph WHERE ph.paymentDate < :cutoff ORDER BY ph.paymentId")
+    List<Integer> findIdsOlderThan(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    /** Xóa các giao dịch đã được copy sang PaymentHistoryArchive (cùng transaction với lệnh copy) */
+    @Modifying
+    @Query("DELETE FROM PaymentHistory ph WHERE ph.paymentId IN :ids")
+    int deleteByPaymentIdIn(@Param("ids") List<Integer> ids);
 }
 
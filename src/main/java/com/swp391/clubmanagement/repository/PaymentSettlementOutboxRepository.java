@@ -0,0 +1,39 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.PaymentSettlementOutbox;
+import com.swp391.clubmanagement.enums.ProcessingStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * PaymentSettlementOutboxRepository - Spring Data JPA Repository cho entity PaymentSettlementOutbox
+ */
+@Repository
+public interface PaymentSettlementOutboxRepository extends JpaRepository<PaymentSettlementOutbox, Long> {
+    
+    /**
+     * Khóa một lô event đến hạn xử lý (theo thứ tự ghi nhận)
+     * FOR UPDATE SKIP LOCKED: nhiều instance cùng relay không lấy trùng event, cũng không chờ nhau
+     * Phải gọi trong transaction; caller chuyển các event sang DangXuLy trước khi commit
+     */
+    @Query(value = "SELECT * FROM payment_settlement_outbox " +
+           "WHERE status = 'ChoXuLy' AND next_attempt_at <= :now " +
+           "ORDER BY outbox_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<PaymentSettlementOutbox> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /** Trả các event bị kẹt ở DangXuLy quá lâu (relay chết giữa chừng) về hàng đợi */
+    @Modifying
+    @Query("UPDATE PaymentSettlementOutbox e SET e.status = :pending, e.lockedAt = null " +
+           "WHERE e.status = :processing AND e.lockedAt < :staleBefore")
+    int releaseStale(
+            @Param("pending") ProcessingStatus pending,
+            @Param("processing") ProcessingStatus processing,
+            @Param("staleBefore") LocalDateTime staleBefore);
+}
@@ -0,0 +1,54 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.PaymentWebhookInbox;
+import com.swp391.clubmanagement.enums.ProcessingStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * PaymentWebhookInboxRepository - Spring Data JPA Repository cho entity PaymentWebhookInbox
+ */
+@Repository
+public interface PaymentWebhookInboxRepository extends JpaRepository<PaymentWebhookInbox, Long> {
+    
+    /**
+     * Khóa một lô event đến hạn xử lý (theo thứ tự nhận)
+     * FOR UPDATE SKIP LOCKED: nhiều instance cùng drain không lấy trùng event, cũng không chờ nhau
+     * NOT EXISTS: chỉ lấy event cũ nhất chưa xong của mỗi orderCode - event sau phải chờ event trước
+     * xử lý xong (DaXuLy) hoặc hỏng hẳn (ThatBai), kể cả khi event trước đang chờ backoff
+     * Phải gọi trong transaction; caller chuyển các event sang DangXuLy trước khi commit
+     */
+    @Query(value = "SELECT * FROM payment_webhook_inbox e " +
+           "WHERE e.status = 'ChoXuLy' AND e.next_attempt_at <= :now " +
+           "AND NOT EXISTS (SELECT 1 FROM payment_webhook_inbox older " +
+           "WHERE older.order_code = e.order_code AND older.event_id < e.event_id " +
+           "AND older.status IN ('ChoXuLy', 'DangXuLy')) " +
+           "ORDER BY e.event_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<PaymentWebhookInbox> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /** Trả các event bị kẹt ở DangXuLy quá lâu (worker chết giữa chừng) về hàng đợi */
+    @Modifying
+    @Query("UPDATE PaymentWebhookInbox e SET e.status = :pending, e.lockedAt = null " +
+           "WHERE e.status = :processing AND e.lockedAt < :staleBefore")
+    int releaseStale(
+            @Param("pending") ProcessingStatus pending,
+            @Param("processing") ProcessingStatus processing,
+            @Param("staleBefore") LocalDateTime staleBefore);
+    
+    /**
+     * Xóa một lô event đã xử lý xong (DaXuLy) trước processedBefore; event ThatBai được giữ lại để kiểm tra
+     * @return Số dòng đã xóa (nhỏ hơn limit nghĩa là đã hết)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM payment_webhook_inbox WHERE status = 'DaXuLy' AND processed_at < :processedBefore " +
+           "LIMIT :limit",
+           nativeQuery = true)
+    int deleteProcessedBefore(@Param("processedBefore") LocalDateTime processedBefore, @Param("limit") int limit);
+}
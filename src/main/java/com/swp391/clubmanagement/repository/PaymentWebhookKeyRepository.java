@@ -0,0 +1,43 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.PaymentWebhookKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * PaymentWebhookKeyRepository - Spring Data JPA Repository cho entity PaymentWebhookKey
+ */
+@Repository
+public interface PaymentWebhookKeyRepository extends JpaRepository<PaymentWebhookKey, Long> {
+    
+    /**
+     * Ghi khóa (orderCode, reference) nếu chưa có - một lần đi qua unique index
+     * Không dùng INSERT IGNORE: IGNORE biến cả lỗi dữ liệu (vd. reference quá dài bị cắt) thành warning,
+     * hai reference khác nhau bị cắt giống nhau sẽ bị coi là trùng. Khóa đã có -> tăng duplicate_count
+     * (luôn thay đổi dòng nên số dòng trả về là 2, kể cả khi driver bật CLIENT_FOUND_ROWS)
+     * @return 1 nếu đây là lần đầu nhận giao dịch, 2 nếu là webhook trùng
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_webhook_key (order_code, reference, received_at, duplicate_count) " +
+           "VALUES (:orderCode, :reference, :receivedAt, 0) " +
+           "ON DUPLICATE KEY UPDATE duplicate_count = duplicate_count + 1",
+           nativeQuery = true)
+    int insertOrCountDuplicate(
+            @Param("orderCode") Long orderCode,
+            @Param("reference") String reference,
+            @Param("receivedAt") LocalDateTime receivedAt);
+    
+    /**
+     * Xóa một lô khóa nhận trước receivedBefore (PayOS không gửi lại giao dịch cũ như vậy)
+     * @return Số dòng đã xóa (nhỏ hơn limit nghĩa là đã hết)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM payment_webhook_key WHERE received_at < :receivedBefore LIMIT :limit",
+           nativeQuery = true)
+    int deleteReceivedBefore(@Param("receivedBefore") LocalDateTime receivedBefore, @Param("limit") int limit);
+}
@@ -5,12 +5,15 @@ import com.swp391.clubmanagement.entity.Users;
 import com.swp391.clubmanagement.enums.ClubRoleType;
 import com.swp391.clubmanagement.enums.JoinStatus;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,6 +56,44 @@ public interface RegisterRepository extends JpaRepository<Registers, Integer> {
     // Tìm đăng ký theo PayOS order code
     Optional<Registers> findByPayosOrderCode(Long orderCode);
     
+    /**
+     * Keyset: orderCode của các đăng ký đã có payment link nhưng chưa thanh toán, trong khoảng (after, before)
+     * theo thứ tự tăng dần (dùng cho job đối soát PayOS, đi theo index payos_order_code)
+     */
+    @Query("SELECT r.payosOrderCode FROM Registers r WHERE r.payosOrderCode > :after AND r.payosOrderCode < :before "
+            + "AND r.payosPaymentLinkId IS NOT NULL AND (r.isPaid = false OR r.isPaid IS NULL) ORDER BY r.payosOrderCode")
+    List<Long> findUnpaidOrderCodes(@Param("after") Long after, @Param("before") Long before, Pageable pageable);
+    
+    /**
+     * Bỏ payment link đã kết thúc mà không thanh toán (PayOS báo CANCELLED / EXPIRED) khỏi đăng ký,
+     * nếu đăng ký vẫn giữ đúng orderCode đó và chưa thanh toán
+     * -> job đối soát không hỏi lại đơn này, sinh viên tạo link mới thay vì nhận lại link đã hủy
+     * Phải gọi trong transaction của caller
+     */
+    @Modifying
+    @Query("UPDATE Registers r SET r.payosOrderCode = null, r.payosPaymentLinkId = null "
+            + "WHERE r.payosOrderCode = :orderCode AND (r.isPaid = false OR r.isPaid IS NULL)")
+    int releaseClosedPaymentLink(@Param("orderCode") Long orderCode);
+    
+    /**
+     * Keyset: thành viên chính thức (DaDuyet, đã thanh toán) có endDate trong khoảng (from, to],
+     * sau vị trí (afterEndDate, afterId) theo thứ tự (endDate, subscriptionId) - dùng cho job nhắc gia hạn,
+     * chỉ lấy các cột cần để gửi email (không load entity)
+     */
+    @Query("SELECT r.subscriptionId AS subscriptionId, r.endDate AS endDate, u.email AS email, "
+            + "u.fullName AS fullName, c.clubName AS clubName "
+            + "FROM Registers r JOIN r.user u JOIN r.membershipPackage m JOIN m.club c "
+            + "WHERE r.status = :status AND r.isPaid = true AND r.endDate > :from AND r.endDate <= :to "
+            + "AND (r.endDate > :afterEndDate OR (r.endDate = :afterEndDate AND r.subscriptionId > :afterId)) "
+            + "ORDER BY r.endDate, r.subscriptionId")
+    List<ExpiringMembership> findExpiringMemberships(
+            @Param("status") JoinStatus status,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterEndDate") LocalDateTime afterEndDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable);
+    
     /**
      * Tìm đăng ký theo ID với pessimistic write lock
      * Dùng để tránh race condition khi nhiều request đồng thời tạo payment link hoặc xử lý webhook
@@ -86,4 +127,13 @@ public interface RegisterRepository extends JpaRepository<Registers, Integer> {
            "r.membershipPackage.club.logo, r.membershipPackage.club.category " +
            "ORDER BY memberCount DESC")
     List<Object[]> findTopClubsByMemberCount(@Param("status") JoinStatus status, @Param("isPaid") Boolean isPaid);
+    
+    /** Thông tin một membership sắp hết hạn (đủ để gửi email nhắc gia hạn) */
+    interface ExpiringMembership {
+        Integer getSubscriptionId();
+        LocalDateTime getEndDate();
+        String getEmail();
+        String getFullName();
+        String getClubName();
+    }
 }
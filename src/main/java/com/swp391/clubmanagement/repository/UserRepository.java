@@ -5,9 +5,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,7 +27,7 @@ import java.util.Optional;
  * - Ví dụ: findByEmail() -> SELECT * FROM Users WHERE email = ?
  */
 @Repository
-public interface UserRepository extends JpaRepository<Users, String> {
+public interface UserRepository extends JpaRepository<Users, String>, JpaSpecificationExecutor<Users> {
     /** Kiểm tra mã sinh viên đã tồn tại chưa: true = đã tồn tại, false = chưa tồn tại */
     boolean existsByStudentCode(String studentCode);
     
@@ -34,11 +40,64 @@ public interface UserRepository extends JpaRepository<Users, String> {
     /** Tìm user theo email: trả về Optional<Users> (có thể rỗng nếu không tìm thấy) */
     Optional<Users> findByEmail(String email);
     
+    /**
+     * Email và mã sinh viên của các user trùng email HOẶC mã sinh viên với danh sách cho trước
+     * (một query duy nhất để kiểm tra trùng khi import hàng loạt): mỗi phần tử là [email, studentCode]
+     */
+    @Query("SELECT u.email, u.studentCode FROM Users u WHERE u.email IN :emails OR u.studentCode IN :studentCodes")
+    List<Object[]> findExistingEmailsAndStudentCodes(
+            @Param("emails") Collection<String> emails,
+            @Param("studentCodes") Collection<String> studentCodes);
+    
+    /**
+     * Xóa một lô tài khoản chưa xác thực email đã hết hạn xác thực trước expiredBefore
+     * Chỉ xóa tài khoản chưa phát sinh dữ liệu liên quan (đăng ký CLB, đơn thành lập CLB, CLB, thanh toán)
+     * để không vi phạm khóa ngoại; đi theo index (is_enabled, verification_expiry)
+     * 
+     * @return Số tài khoản đã xóa (nhỏ hơn limit nghĩa là đã hết)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE is_enabled = false AND verification_expiry < :expiredBefore " +
+           "AND NOT EXISTS (SELECT 1 FROM registers r WHERE r.user_id = users.user_id OR r.approver_id = users.user_id) " +
+           "AND NOT EXISTS (SELECT 1 FROM club_applications a WHERE a.creator_id = users.user_id OR a.reviewer_id = users.user_id) " +
+           "AND NOT EXISTS (SELECT 1 FROM clubs c WHERE c.founder_id = users.user_id) " +
+           "AND NOT EXISTS (SELECT 1 FROM payment_history p WHERE p.user_id = users.user_id) " +
+           "LIMIT :limit",
+           nativeQuery = true)
+    int deleteExpiredUnverified(@Param("expiredBefore") LocalDateTime expiredBefore, @Param("limit") int limit);
+    
+    /**
+     * Thay hash mật khẩu nếu hash hiện tại vẫn là currentHash (không ghi đè mật khẩu vừa được đổi ở request khác)
+     * Dùng khi băm lại mật khẩu với cost mới sau khi đăng nhập (phải gọi trong transaction của caller)
+     */
+    @Modifying
+    @Query("UPDATE Users u SET u.password = :newHash WHERE u.userId = :userId AND u.password = :currentHash")
+    int updatePasswordIfUnchanged(
+            @Param("userId") String userId,
+            @Param("currentHash") String currentHash,
+            @Param("newHash") String newHash);
+    
+    /** Users chưa có fullNameNormalized (dữ liệu trước V9), dùng để backfill theo lô */
+    List<Users> findByFullNameNormalizedIsNull(Pageable pageable);
+    
     /** Tìm user theo mã xác thực email: dùng để verify email khi user click link trong email */
     Optional<Users> findByVerificationCode(String verificationCode);
     
     /**
-     * Lấy danh sách users với eager load registers và các relationship cần thiết
+     * Phân trang danh sách users - bước 1: chỉ lấy userId của trang hiện tại
+     * 
+     * Query không fetch collection nên LIMIT/OFFSET và ORDER BY (theo pageable) chạy trong database,
+     * chỉ đọc đúng page size dòng.
+     * 
+     * @param pageable Phân trang: page number, page size, sort (theo thuộc tính của Users)
+     * @return Page<String> chứa userId của trang, kèm tổng số users
+     */
+    @Query(value = "SELECT u.userId FROM Users u",
+           countQuery = "SELECT COUNT(u) FROM Users u")
+    Page<String> findUserIds(Pageable pageable);
+    
+    /**
+     * Phân trang danh sách users - bước 2: eager load registers và các relationship cần thiết cho đúng các userId của trang
      * 
      * Sử dụng EntityGraph để eager load (load ngay lập tức) các quan hệ:
      * - role: Vai trò của user
@@ -46,10 +105,12 @@ public interface UserRepository extends JpaRepository<Users, String> {
      * - registers.membershipPackage: Gói membership của mỗi đơn đăng ký
      * - registers.membershipPackage.club: CLB của mỗi gói membership
      * 
-     * Điều này giúp tránh N+1 query problem và populate được clubIds trong UserResponse
+     * Điều này giúp tránh N+1 query problem và populate được clubIds trong UserResponse.
+     * Không dùng EntityGraph collection cùng Pageable trong một query: Hibernate sẽ load toàn bộ join
+     * Users x Registers rồi mới phân trang trong bộ nhớ (HHH90003004).
      * 
-     * @param pageable Phân trang: page number, page size, sort
-     * @return Page<Users> chứa danh sách users đã load đầy đủ relationships
+     * @param userIds userId của trang (từ findUserIds)
+     * @return Users đã load đầy đủ relationships (không theo thứ tự của userIds)
      */
     @EntityGraph(attributePaths = {
         "role",
@@ -57,6 +118,6 @@ public interface UserRepository extends JpaRepository<Users, String> {
         "registers.membershipPackage", 
         "registers.membershipPackage.club"
     }, type = EntityGraph.EntityGraphType.LOAD)
-    @Query("SELECT DISTINCT u FROM Users u")
-    Page<Users> findAllWithRegisters(Pageable pageable);
+    @Query("SELECT DISTINCT u FROM Users u WHERE u.userId IN :userIds")
+    List<Users> findAllWithRegistersByUserIdIn(@Param("userIds") Collection<String> userIds);
 }
@@ -0,0 +1,81 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.dto.request.UserSearchRequest;
+import com.swp391.clubmanagement.entity.Users;
+import com.swp391.clubmanagement.utils.TextNormalizer;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * UserSpecifications - Các điều kiện lọc Users (Spring Data JPA Specification) cho tìm kiếm của Admin
+ * 
+ * Mọi điều kiện đều đi theo index (V9):
+ * - Tìm theo mã sinh viên / email / họ tên dùng LIKE 'tiền tố%' (không có % ở đầu) nên dùng được B-tree index
+ * - Họ tên so trên cột full_name_normalized (không dấu, chữ thường)
+ * - Tiêu chí null hoặc rỗng được bỏ qua
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Kết hợp (AND) mọi tiêu chí có giá trị trong request
+     */
+    public static Specification<Users> matches(UserSearchRequest request) {
+        return Specification.where(studentCodeStartsWith(request.getStudentCode()))
+                .and(emailStartsWith(request.getEmail()))
+                .and(nameStartsWith(request.getName()))
+                .and(majorEquals(request.getMajor()))
+                .and(roleEquals(request))
+                .and(activeEquals(request.getActive()));
+    }
+
+    public static Specification<Users> studentCodeStartsWith(String prefix) {
+        return isBlank(prefix) ? null
+                : (root, query, cb) -> cb.like(root.get("studentCode"), likePrefix(prefix.trim()), '\\');
+    }
+
+    public static Specification<Users> emailStartsWith(String prefix) {
+        return isBlank(prefix) ? null
+                : (root, query, cb) -> cb.like(root.get("email"), likePrefix(prefix.trim()), '\\');
+    }
+
+    public static Specification<Users> nameStartsWith(String prefix) {
+        return isBlank(prefix) ? null
+                : (root, query, cb) -> cb.like(root.get("fullNameNormalized"),
+                        likePrefix(TextNormalizer.normalize(prefix)), '\\');
+    }
+
+    public static Specification<Users> majorEquals(String major) {
+        return isBlank(major) ? null : (root, query, cb) -> cb.equal(root.get("major"), major.trim());
+    }
+
+    public static Specification<Users> roleEquals(UserSearchRequest request) {
+        return request.getRole() == null ? null
+                : (root, query, cb) -> cb.equal(root.get("role").get("roleName"), request.getRole());
+    }
+
+    public static Specification<Users> activeEquals(Boolean active) {
+        return active == null ? null : (root, query, cb) -> cb.equal(root.get("isActive"), active);
+    }
+
+    /**
+     * Keyset: các users đứng sau (createdAt, userId) theo thứ tự createdAt DESC, userId DESC
+     */
+    public static Specification<Users> before(LocalDateTime createdAt, String userId) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("userId"), userId)));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /** Escape ký tự đặc biệt của LIKE rồi thêm % ở cuối */
+    private static String likePrefix(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -39,8 +39,9 @@ import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
 
 // ========== Spring Framework ==========
 import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ application.properties
-import org.springframework.security.crypto.password.PasswordEncoder; // Mã hóa/so sánh mật khẩu (BCrypt)
+import org.springframework.scheduling.TaskScheduler; // Pool thread của các job nền (spring.task.scheduling)
 import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho việc ghi hash mới
 
 // ========== Java Standard Library ==========
 import java.text.ParseException; // Exception khi parse JWT token
@@ -85,8 +86,8 @@ public class AuthenticationService {
     /** Repository thao tác với bảng users - tìm user theo email */
     UserRepository userRepository;
     
-    /** PasswordEncoder để mã hóa và so sánh mật khẩu (BCrypt) */
-    PasswordEncoder passwordEncoder;
+    /** So sánh / băm lại mật khẩu (BCrypt) trên thread pool riêng */
+    PasswordHashingService passwordHashingService;
     
     /** Repository thao tác với bảng clubs - lấy CLB mà user là founder */
     ClubRepository clubRepository;
@@ -94,6 +95,12 @@ public class AuthenticationService {
     /** Repository thao tác với bảng registers - lấy CLB mà user là member */
     RegisterRepository registerRepository;
 
+    /** Ghi hash mới vào database trên pool của scheduler, không trên thread băm mật khẩu */
+    TaskScheduler taskScheduler;
+
+    /** Transaction cho việc ghi hash mới */
+    TransactionTemplate transactionTemplate;
+
     /** Secret key để ký và xác minh JWT token (đọc từ application.properties) */
     @NonFinal
     @Value("${jwt.signerKey}")
@@ -125,8 +132,8 @@ public class AuthenticationService {
      * 1. Kiểm tra user tồn tại (theo email).
      * 2. Kiểm tra tài khoản có bị vô hiệu hóa không (isActive).
      * 3. Kiểm tra tài khoản đã xác thực email chưa (enabled).
-     * 4. Khớp mật khẩu (dùng BCrypt).
-     * 5. Nếu đúng -> Tạo token.
+     * 4. Khớp mật khẩu (dùng BCrypt, trên pool của PasswordHashingService).
+     * 5. Nếu đúng -> Tạo token; hash có cost cũ được băm lại ở nền.
      */
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
         // 1. Kiểm tra Email có tồn tại không
@@ -145,11 +152,16 @@ public class AuthenticationService {
         }
 
         // 4. Kiểm tra mật khẩu
-        boolean authenticated = passwordEncoder.matches(request.getPassword(), user.getPassword());
+        boolean authenticated = passwordHashingService.matches(request.getPassword(), user.getPassword());
         if (!authenticated) {
             throw new AppException(ErrorCode.WRONG_PASSWORD);
         }
 
+        // Hash tạo với bcrypt-strength cũ -> băm lại ở nền, không làm chậm lần đăng nhập này
+        if (passwordHashingService.needsUpgrade(user.getPassword())) {
+            upgradePasswordHash(user, request.getPassword());
+        }
+
         // 5. Nếu tất cả OK -> Tạo Token JWT
         var token = generateToken(user);
 
@@ -159,6 +171,29 @@ public class AuthenticationService {
                 .build();
     }
 
+    /**
+     * upgradePasswordHash: Băm lại mật khẩu với cost hiện tại sau khi đăng nhập đúng.
+     * Pool đang quá tải hoặc lỗi -> bỏ qua, lần đăng nhập sau thử lại.
+     * Lệnh UPDATE chạy trên pool của scheduler: thread băm (chỉ bằng số CPU) được trả lại ngay khi băm xong,
+     * không bị giữ trong lúc chờ database.
+     */
+    private void upgradePasswordHash(Users user, String rawPassword) {
+        String userId = user.getUserId();
+        String currentHash = user.getPassword();
+        try {
+            passwordHashingService.encodeAsync(rawPassword)
+                    .thenAcceptAsync(newHash -> transactionTemplate.executeWithoutResult(
+                                    status -> userRepository.updatePasswordIfUnchanged(userId, currentHash, newHash)),
+                            task -> taskScheduler.schedule(task, Instant.now()))
+                    .exceptionally(e -> {
+                        log.warn("Password hash upgrade failed for user {}: {}", userId, e.getMessage());
+                        return null;
+                    });
+        } catch (AppException e) {
+            log.debug("Password hash upgrade skipped for user {}: {}", userId, e.getErrorCode());
+        }
+    }
+
     /**
      * logout: Xử lý đăng xuất.
      * Hiện tại chỉ verify token, sau này sẽ thêm logic Blacklist token vào Redis/DB
@@ -36,6 +36,9 @@ import com.swp391.clubmanagement.repository.RegisterRepository; // Repository ch
 import com.swp391.clubmanagement.repository.RoleRepository; // Repository cho bảng Roles
 import com.swp391.clubmanagement.repository.UserRepository; // Repository cho bảng Users
 
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.VndAmount; // Kiểu tiền VND dạng long
+
 // ========== Lombok ==========
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
@@ -48,7 +51,6 @@ import org.springframework.stereotype.Service; // Đánh dấu class là Spring
 import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
 
 // ========== Java Standard Library ==========
-import java.math.BigDecimal; // Số tiền (doanh thu)
 import java.time.LocalDateTime; // Ngày giờ
 import java.time.YearMonth; // Năm-tháng (để tính doanh thu theo tháng)
 import java.time.format.DateTimeFormatter; // Format ngày giờ
@@ -350,7 +352,8 @@ public class ClubService {
         // Thống kê tài chính - Tính doanh thu theo tháng (chỉ tính những người đã trả tiền, trừ founder)
         Users founder = club.getFounder();
         YearMonth currentMonth = YearMonth.now();
-        BigDecimal totalRevenue = allRegisters.stream()
+        // Cộng dồn bằng long (VND không có đơn vị lẻ) thay vì BigDecimal::add để tránh tạo object mỗi dòng
+        long totalRevenue = allRegisters.stream()
                 .filter(r -> r.getIsPaid() && r.getPaymentDate() != null)
                 .filter(r -> {
                     // Loại trừ tiền của founder
@@ -362,8 +365,8 @@ public class ClubService {
                     YearMonth paymentMonth = YearMonth.from(paymentDate);
                     return paymentMonth.equals(currentMonth);
                 })
-                .map(r -> r.getMembershipPackage().getPrice())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                .mapToLong(r -> VndAmount.toLong(r.getMembershipPackage().getPrice()))
+                .sum();
         
         long paidCount = allRegisters.stream()
                 .filter(r -> r.getStatus() == JoinStatus.DaDuyet && r.getIsPaid())
@@ -397,7 +400,7 @@ public class ClubService {
                 .phoChuTichCount(phoChuTichCount)
                 .thuKyCount(thuKyCount)
                 .thanhVienCount(thanhVienCount)
-                .totalRevenue(totalRevenue)
+                .totalRevenue(VndAmount.of(totalRevenue))
                 .paidCount(paidCount)
                 .unpaidCount(unpaidCount)
                 .unpaidMembers(unpaidMembers)
@@ -0,0 +1,304 @@
+// Package định nghĩa service layer - hàng đợi email gửi nền
+package com.swp391.clubmanagement.service;
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.EmailOutbox; // Entity email chờ gửi
+import com.swp391.clubmanagement.entity.Users; // Entity người dùng
+
+// ========== Enum ==========
+import com.swp391.clubmanagement.enums.ProcessingStatus; // Trạng thái xử lý
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.EmailOutboxRepository; // Repository cho bảng EmailOutbox
+import com.swp391.clubmanagement.repository.UserRepository; // Repository cho bảng Users
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+
+// ========== Jakarta Mail ==========
+import jakarta.mail.MessagingException; // Exception khi tạo email
+import jakarta.mail.SendFailedException; // Server SMTP từ chối người nhận
+import jakarta.mail.internet.MimeMessage; // Email message (HTML)
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.mail.MailParseException; // Email không hợp lệ (lỗi vĩnh viễn)
+import org.springframework.mail.MailPreparationException; // Không tạo được email (lỗi vĩnh viễn)
+import org.springframework.mail.javamail.MimeMessageHelper; // Helper để tạo email HTML
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho claim lô / ghi kết quả
+
+// ========== Java Standard Library ==========
+import java.time.LocalDateTime; // Ngày giờ
+import java.util.ArrayList; // Danh sách
+import java.util.List; // Danh sách
+import java.util.UUID; // Tạo mật khẩu mới
+
+/**
+ * Service hàng đợi email (email outbox)
+ *
+ * Chức năng chính:
+ * - enqueue: ghi email vào EmailOutbox, tham gia transaction nghiệp vụ của caller (đăng ký, quên mật khẩu...)
+ * - dispatch: job nền lấy email đến hạn theo lô và gửi cả lô qua pool kết nối SMTP (PooledMailTransport)
+ *
+ * Business Rules:
+ * - Email và thay đổi nghiệp vụ commit cùng nhau: rollback thì không gửi, commit thì chắc chắn được gửi
+ * - Request không chờ SMTP: độ trễ đăng ký không phụ thuộc mail server
+ * - Lấy lô bằng SELECT ... FOR UPDATE SKIP LOCKED và chuyển DangXuLy ngay, nên nhiều instance không gửi trùng;
+ *   việc gửi SMTP diễn ra ngoài transaction (không giữ connection database trong lúc chờ mail server)
+ * - Lỗi -> thử lại với backoff tăng dần (retry-base-seconds * 2^(attempts-1), tối đa 1 giờ);
+ *   quá max-attempts hoặc email không hợp lệ -> ThatBai (dead letter, cần kiểm tra thủ công)
+ * - Gửi thành công thì xóa nội dung HTML
+ * - Email mật khẩu mới (enqueuePasswordReset) không có nội dung trong hàng đợi: mỗi lần gửi tạo mật khẩu mới,
+ *   lưu hash cho user rồi mới gửi -> mật khẩu dạng rõ chỉ nằm trong bộ nhớ, kể cả khi email lỗi / vào dead letter.
+ *   Lần thử lại tạo mật khẩu khác, email nhận được sau cùng luôn chứa mật khẩu đang dùng
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class EmailOutboxService {
+
+    /** Backoff tối đa giữa hai lần thử (1 giờ) */
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    /** Độ dài tối đa của lỗi lưu lại */
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    /** Repository thao tác với bảng email_outbox */
+    EmailOutboxRepository emailOutboxRepository;
+
+    /** Gửi email qua pool kết nối SMTP */
+    PooledMailTransport mailTransport;
+
+    /** Repository thao tác với bảng users (email mật khẩu mới) */
+    UserRepository userRepository;
+
+    /** Băm mật khẩu mới (BCrypt) */
+    PasswordHashingService passwordHashingService;
+
+    /** Transaction cho claim lô / ghi kết quả gửi */
+    TransactionTemplate transactionTemplate;
+
+    /** Địa chỉ người gửi */
+    @NonFinal
+    @Value("${app.email-outbox.from:clubhubfpt@gmail.com}")
+    String from;
+
+    /** Số email tối đa mỗi lô */
+    @NonFinal
+    @Value("${app.email-outbox.batch-size:50}")
+    int batchSize;
+
+    /** Số lô tối đa mỗi lần chạy dispatch */
+    @NonFinal
+    @Value("${app.email-outbox.max-batches-per-run:20}")
+    int maxBatchesPerRun;
+
+    /** Số lần thử tối đa trước khi chuyển ThatBai */
+    @NonFinal
+    @Value("${app.email-outbox.max-attempts:8}")
+    int maxAttempts;
+
+    /** Backoff cơ sở (giây) cho lần thử lại đầu tiên */
+    @NonFinal
+    @Value("${app.email-outbox.retry-base-seconds:30}")
+    long retryBaseSeconds;
+
+    /** Sau bao lâu email DangXuLy được coi là bị kẹt (giây) */
+    @NonFinal
+    @Value("${app.email-outbox.stale-after-seconds:600}")
+    long staleAfterSeconds;
+
+    /**
+     * Ghi email vào hàng đợi (tham gia transaction của caller nếu có)
+     */
+    @Transactional
+    public void enqueue(String to, String subject, String htmlContent) {
+        LocalDateTime now = DateTimeUtils.nowVietnam();
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .htmlBody(htmlContent)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    /**
+     * Ghi email mật khẩu mới cho user vào hàng đợi (tham gia transaction của caller nếu có)
+     * Không lưu nội dung: mật khẩu được tạo lúc gửi
+     */
+    @Transactional
+    public void enqueuePasswordReset(String to, String subject, String userId) {
+        LocalDateTime now = DateTimeUtils.nowVietnam();
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .passwordResetUserId(userId)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    /**
+     * Job định kỳ: gửi các email đến hạn trong hàng đợi (tối đa max-batches-per-run lô, phần còn lại để lần sau)
+     */
+    @Scheduled(fixedDelayString = "${app.email-outbox.poll-delay-ms:1000}")
+    public void dispatch() {
+        try {
+            LocalDateTime staleBefore = DateTimeUtils.nowVietnam().minusSeconds(staleAfterSeconds);
+            Integer released = transactionTemplate.execute(status -> emailOutboxRepository.releaseStale(
+                    ProcessingStatus.ChoXuLy, ProcessingStatus.DangXuLy, staleBefore));
+            if (released != null && released > 0) {
+                log.warn("Released {} stale outbox emails", released);
+            }
+
+            for (int batches = 1; ; batches++) {
+                List<EmailOutbox> batch = claimBatch();
+                sendBatch(batch);
+                if (batch.size() < batchSize || batches >= maxBatchesPerRun) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Email outbox dispatch failed", e);
+        }
+    }
+
+    /**
+     * Khóa một lô email đến hạn và chuyển sang DangXuLy (commit ngay để giải phóng row lock)
+     */
+    private List<EmailOutbox> claimBatch() {
+        List<EmailOutbox> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = DateTimeUtils.nowVietnam();
+            List<EmailOutbox> emails = emailOutboxRepository.lockDueBatch(now, batchSize);
+            for (EmailOutbox email : emails) {
+                email.setStatus(ProcessingStatus.DangXuLy);
+                email.setLockedAt(now);
+            }
+            return emailOutboxRepository.saveAll(emails);
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    /**
+     * Gửi một lô email qua SMTP (ngoài transaction) rồi ghi nhận kết quả từng email
+     */
+    private void sendBatch(List<EmailOutbox> batch) {
+        List<EmailOutbox> sending = new ArrayList<>(batch.size());
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        for (EmailOutbox email : batch) {
+            email.setAttempts(email.getAttempts() + 1);
+            try {
+                messages.add(toMimeMessage(email));
+                sending.add(email);
+            } catch (Exception e) {
+                recordFailure(email, e);
+            }
+        }
+
+        List<Exception> results = mailTransport.sendAll(messages);
+        for (int i = 0; i < sending.size(); i++) {
+            EmailOutbox email = sending.get(i);
+            if (results.get(i) != null) {
+                recordFailure(email, results.get(i));
+                continue;
+            }
+            email.setStatus(ProcessingStatus.DaXuLy);
+            email.setSentAt(DateTimeUtils.nowVietnam());
+            email.setHtmlBody(null);
+            email.setLockedAt(null);
+            email.setLastError(null);
+            save(email);
+            log.info("Email {} sent successfully to {}", email.getEmailId(), email.getRecipient());
+        }
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) {
+        String html = email.getPasswordResetUserId() != null ? issueNewPassword(email) : email.getHtmlBody();
+        try {
+            MimeMessage mimeMessage = mailTransport.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
+            helper.setText(html, true);
+            helper.setTo(email.getRecipient());
+            helper.setSubject(email.getSubject());
+            helper.setFrom(from);
+            return mimeMessage;
+        } catch (MessagingException e) {
+            throw new MailPreparationException(e);
+        }
+    }
+
+    /**
+     * Tạo mật khẩu mới cho user của email quên mật khẩu, lưu hash và trả về nội dung email (không lưu lại)
+     *
+     * @throws MailPreparationException nếu user không còn tồn tại (lỗi vĩnh viễn)
+     */
+    private String issueNewPassword(EmailOutbox email) {
+        // 8 ký tự đầu của UUID
+        String newPassword = UUID.randomUUID().toString().substring(0, 8);
+        String hash = passwordHashingService.encode(newPassword);
+        Users user = transactionTemplate.execute(status -> {
+            Users found = userRepository.findById(email.getPasswordResetUserId()).orElse(null);
+            if (found != null) {
+                found.setPassword(hash);
+                userRepository.save(found);
+            }
+            return found;
+        });
+        if (user == null) {
+            throw new MailPreparationException("User " + email.getPasswordResetUserId() + " no longer exists");
+        }
+        return EmailService.renderForgotPassword(user.getFullName(), newPassword);
+    }
+
+    /**
+     * Ghi nhận lỗi: lên lịch thử lại với backoff hoặc chuyển ThatBai (dead letter)
+     */
+    private void recordFailure(EmailOutbox email, Exception error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        email.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        email.setLockedAt(null);
+
+        // Email không tạo được (địa chỉ sai, nội dung lỗi) hoặc server từ chối người nhận thì thử lại cũng vô ích
+        boolean permanent = error instanceof MailParseException || error instanceof MailPreparationException
+                || (error instanceof SendFailedException rejected
+                        && rejected.getInvalidAddresses() != null && rejected.getInvalidAddresses().length > 0);
+        if (permanent || email.getAttempts() >= maxAttempts) {
+            email.setStatus(ProcessingStatus.ThatBai);
+            log.error("Email {} to {} moved to dead letter after {} attempts: {}",
+                    email.getEmailId(), email.getRecipient(), email.getAttempts(), message);
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_SECONDS, retryBaseSeconds << Math.min(email.getAttempts() - 1, 20));
+            email.setStatus(ProcessingStatus.ChoXuLy);
+            email.setNextAttemptAt(DateTimeUtils.nowVietnam().plusSeconds(backoff));
+            log.warn("Email {} to {} failed on attempt {}, retrying in {}s: {}",
+                    email.getEmailId(), email.getRecipient(), email.getAttempts(), backoff, message);
+        }
+        save(email);
+    }
+
+    private void save(EmailOutbox email) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.save(email));
+        } catch (Exception e) {
+            // Email vẫn ở DangXuLy, sẽ được releaseStale trả về hàng đợi
+            log.error("Cannot record delivery result for outbox email {}", email.getEmailId(), e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// Package định nghĩa service layer - giới hạn tần suất các API public có gửi email
+package com.swp391.clubmanagement.service;
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.TokenBucketLimiter; // Token bucket theo khóa, LRU giới hạn bộ nhớ
+
+// ========== Micrometer ==========
+import io.micrometer.core.instrument.Counter; // Đếm số request bị từ chối
+import io.micrometer.core.instrument.MeterRegistry; // Đăng ký metric
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+
+// ========== Java Standard Library ==========
+import java.util.Locale; // Chuẩn hóa email
+
+/**
+ * Service giới hạn tần suất cho các API public gửi email và băm mật khẩu (đăng ký, quên mật khẩu)
+ *
+ * Chức năng chính:
+ * - checkEmailRequest: gọi ĐẦU TIÊN trong controller, trước mọi truy vấn database và BCrypt;
+ *   vượt giới hạn -> AppException TOO_MANY_REQUESTS (HTTP 429) ngay lập tức
+ *
+ * Business Rules:
+ * - Ba tầng token bucket (cấu hình app.rate-limit.*):
+ *   + theo email: chặn spam quên mật khẩu / đăng ký vào cùng một hộp thư
+ *   + theo IP client: chặn một máy gửi hàng loạt email khác nhau
+ *   + toàn cục: bảo vệ CPU (BCrypt) và hạn mức gửi của Gmail khi bị tấn công từ nhiều IP
+ * - Bucket theo email / IP nằm trong LRU giới hạn số khóa (max-keys) nên bộ nhớ không tăng theo số khóa lạ
+ * - Giới hạn theo từng instance (in-memory), không chia sẻ giữa các instance
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class EmailRateLimitService {
+
+    /** Khóa duy nhất của bucket toàn cục */
+    private static final String GLOBAL_KEY = "*";
+
+    TokenBucketLimiter perEmail;
+    TokenBucketLimiter perIp;
+    TokenBucketLimiter global;
+
+    Counter rejectedCounter;
+
+    public EmailRateLimitService(
+            MeterRegistry meterRegistry,
+            @Value("${app.rate-limit.email.capacity:3}") int emailCapacity,
+            @Value("${app.rate-limit.email.refill-per-minute:1}") double emailRefillPerMinute,
+            @Value("${app.rate-limit.ip.capacity:10}") int ipCapacity,
+            @Value("${app.rate-limit.ip.refill-per-minute:5}") double ipRefillPerMinute,
+            @Value("${app.rate-limit.global.capacity:50}") int globalCapacity,
+            @Value("${app.rate-limit.global.refill-per-second:5}") double globalRefillPerSecond,
+            @Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+        this.perEmail = new TokenBucketLimiter(emailCapacity, emailRefillPerMinute / 60, maxKeys);
+        this.perIp = new TokenBucketLimiter(ipCapacity, ipRefillPerMinute / 60, maxKeys);
+        this.global = new TokenBucketLimiter(globalCapacity, globalRefillPerSecond, 1);
+        this.rejectedCounter = meterRegistry.counter("app.rate-limit.rejected");
+    }
+
+    /**
+     * Kiểm tra một request public có gửi email
+     *
+     * @param email Email trong request (có thể null khi request không hợp lệ)
+     * @param clientIp Địa chỉ IP của client
+     * @throws AppException TOO_MANY_REQUESTS nếu vượt bất kỳ giới hạn nào
+     */
+    public void checkEmailRequest(String email, String clientIp) {
+        if (!perIp.tryAcquire(clientIp)) {
+            reject("ip", clientIp);
+        }
+        if (email != null && !perEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT))) {
+            reject("email", email);
+        }
+        if (!global.tryAcquire(GLOBAL_KEY)) {
+            reject("global", GLOBAL_KEY);
+        }
+    }
+
+    private void reject(String scope, String key) {
+        rejectedCounter.increment();
+        log.warn("Rate limit exceeded: scope={}, key={}", scope, key);
+        throw new AppException(ErrorCode.TOO_MANY_REQUESTS);
+    }
+}
@@ -84,8 +84,8 @@ public class LeaderRegisterService {
     /** Repository thao tác với bảng roles (để cập nhật Role khi thay đổi ClubRole) */
     RoleRepository roleRepository;
     
-    /** Service tạo payment history khi xác nhận thanh toán */
-    PaymentHistoryService paymentHistoryService;
+    /** Outbox settlement: tạo payment history... sau khi xác nhận thanh toán */
+    SettlementOutboxService settlementOutboxService;
 
     /** Các vai trò được phép duyệt đơn (ChuTich, PhoChuTich) */
     private static final List<ClubRoleType> LEADER_ROLES = List.of(
@@ -180,7 +180,9 @@ public class LeaderRegisterService {
 
     /**
      * Xác nhận sinh viên đã đóng tiền
+     * (cập nhật đăng ký và ghi outbox settlement trong cùng một transaction)
      */
+    @Transactional
     public RegisterResponse confirmPayment(ConfirmPaymentRequest request) {
         Users currentUser = getCurrentUser();
 
@@ -221,9 +223,8 @@ public class LeaderRegisterService {
         log.info("Payment confirmed for registration {} by Leader {}. Membership valid until: {}", 
                 request.getSubscriptionId(), currentUser.getEmail(), endDate);
 
-        // Tạo payment history record
-        paymentHistoryService.createPaymentHistory(register);
-        log.info("Payment history created for registration {}", request.getSubscriptionId());
+        // Tác vụ phụ (payment history...) chạy sau qua outbox, chỉ ghi một dòng trong transaction này
+        settlementOutboxService.record(register);
 
         return registerMapper.toRegisterResponse(register);
     }
@@ -0,0 +1,155 @@
+// Package định nghĩa service layer - nhắc gia hạn membership sắp hết hạn
+package com.swp391.clubmanagement.service;
+
+// ========== Enum ==========
+import com.swp391.clubmanagement.enums.JoinStatus; // Trạng thái đăng ký
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.MembershipReminderRepository; // Repository cho bảng MembershipReminder
+import com.swp391.clubmanagement.repository.RegisterRepository; // Repository cho bảng Registers
+import com.swp391.clubmanagement.repository.RegisterRepository.ExpiringMembership; // Membership sắp hết hạn
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.data.domain.PageRequest; // Giới hạn kích thước lô
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng lô
+
+// ========== Java Standard Library ==========
+import java.time.LocalDateTime; // Ngày giờ
+import java.time.temporal.ChronoUnit; // Tính số ngày còn lại
+import java.util.Arrays; // Sắp xếp cửa sổ nhắc
+import java.util.List; // Danh sách
+
+/**
+ * Service nhắc gia hạn membership
+ *
+ * Chức năng chính:
+ * - Job định kỳ tìm các thành viên chính thức (DaDuyet, đã thanh toán) có endDate rơi vào các cửa sổ nhắc
+ *   (mặc định còn 7 ngày, còn 1 ngày) và gửi email nhắc gia hạn trước khi membership chuyển HetHan
+ *
+ * Business Rules:
+ * - Cửa sổ được sắp tăng dần, cửa sổ N ngày nhận endDate trong (now + cửa sổ nhỏ hơn liền trước, now + N ngày]
+ *   -> mỗi membership thuộc đúng một cửa sổ; job bị lỡ một lần vẫn nhắc bù ở lần chạy sau
+ * - Duyệt keyset theo (endDate, subscriptionId) trên index (status, is_paid, end_date), mỗi lô batch-size dòng
+ *   chỉ gồm các cột cần thiết -> thời gian tuyến tính, bộ nhớ giới hạn theo kích thước lô
+ * - Chống nhắc trùng bằng INSERT IGNORE vào MembershipReminder (unique theo đăng ký, cửa sổ, ngày hết hạn):
+ *   job chạy lại hoặc chạy song song trên nhiều instance không gửi hai lần; gia hạn (endDate mới) được nhắc lại
+ * - Email được ghi vào hàng đợi (EmailOutboxService) cùng transaction với bản ghi chống trùng của lô,
+ *   gửi nền theo lô qua pool kết nối SMTP
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class MembershipReminderService {
+
+    /** Repository thao tác với bảng registers */
+    RegisterRepository registerRepository;
+
+    /** Repository thao tác với bảng membership_reminder */
+    MembershipReminderRepository membershipReminderRepository;
+
+    /** Service gửi email (qua hàng đợi) */
+    EmailService emailService;
+
+    /** Transaction cho từng lô */
+    TransactionTemplate transactionTemplate;
+
+    /** Bật/tắt job */
+    @NonFinal
+    @Value("${app.membership-reminder.enabled:true}")
+    boolean enabled;
+
+    /** Các cửa sổ nhắc (số ngày trước khi hết hạn) */
+    @NonFinal
+    @Value("${app.membership-reminder.windows-days:7,1}")
+    int[] windowsDays;
+
+    /** Số membership mỗi lô */
+    @NonFinal
+    @Value("${app.membership-reminder.batch-size:500}")
+    int batchSize;
+
+    /**
+     * Job định kỳ: gửi email nhắc cho mọi cửa sổ
+     */
+    @Scheduled(cron = "${app.membership-reminder.cron:0 0 8 * * *}", zone = "Asia/Ho_Chi_Minh")
+    public void sendReminders() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = DateTimeUtils.nowVietnam();
+            int[] windows = Arrays.stream(windowsDays).filter(days -> days > 0).sorted().distinct().toArray();
+            int previous = 0;
+            for (int window : windows) {
+                int sent = remindWindow(window, now.plusDays(previous), now.plusDays(window), now);
+                if (sent > 0) {
+                    log.info("Queued {} membership expiry reminders for the {}-day window", sent, window);
+                }
+                previous = window;
+            }
+        } catch (Exception e) {
+            log.error("Membership reminder job failed", e);
+        }
+    }
+
+    /**
+     * Nhắc các membership có endDate trong (from, to], duyệt keyset theo lô
+     *
+     * @return số email đã đưa vào hàng đợi
+     */
+    private int remindWindow(int windowDays, LocalDateTime from, LocalDateTime to, LocalDateTime now) {
+        LocalDateTime afterEndDate = from;
+        Integer afterId = 0;
+        int queued = 0;
+        while (true) {
+            List<ExpiringMembership> batch = registerRepository.findExpiringMemberships(
+                    JoinStatus.DaDuyet, from, to, afterEndDate, afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return queued;
+            }
+
+            Integer queuedInBatch = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (ExpiringMembership membership : batch) {
+                    if (membershipReminderRepository.insertIfAbsent(membership.getSubscriptionId(), windowDays,
+                            membership.getEndDate(), now) == 0) {
+                        continue; // Đã nhắc cho mốc này
+                    }
+                    long daysLeft = Math.max(1, ChronoUnit.DAYS.between(now.toLocalDate(),
+                            membership.getEndDate().toLocalDate()));
+                    emailService.sendMembershipExpiryReminder(membership.getEmail(), membership.getFullName(),
+                            membership.getClubName(), daysLeft, membership.getEndDate());
+                    count++;
+                }
+                return count;
+            });
+            queued += queuedInBatch != null ? queuedInBatch : 0;
+
+            ExpiringMembership last = batch.get(batch.size() - 1);
+            afterEndDate = last.getEndDate();
+            afterId = last.getSubscriptionId();
+            if (batch.size() < batchSize) {
+                return queued;
+            }
+        }
+    }
+}
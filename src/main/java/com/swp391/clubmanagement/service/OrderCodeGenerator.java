@@ -0,0 +1,144 @@
+// Package định nghĩa service layer - sinh mã đơn hàng (orderCode) cho PayOS
+package com.swp391.clubmanagement.service;
+
+// ========== Lombok ==========
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+
+// ========== Java Standard Library ==========
+import java.time.Instant; // Thời điểm (UTC)
+import java.util.concurrent.TimeUnit; // Đơn vị thời gian
+import java.util.concurrent.atomic.AtomicLong; // Trạng thái (thời gian, sequence) cập nhật bằng CAS
+import java.util.concurrent.locks.LockSupport; // Chờ đồng hồ đuổi kịp
+
+/**
+ * Service sinh orderCode cho PayOS theo kiểu Snowflake
+ *
+ * Chức năng chính:
+ * - Sinh orderCode duy nhất giữa các node mà không cần query database để kiểm tra trùng
+ * - Giải mã thời điểm sinh từ một orderCode (phục vụ log, đối soát)
+ *
+ * Cấu trúc orderCode (53 bit, luôn dương và không vượt 2^53 - 1 theo giới hạn của PayOS):
+ *   [41 bit: millisecond tính từ EPOCH][5 bit: node ID][7 bit: sequence trong millisecond]
+ * - 41 bit thời gian đủ dùng khoảng 69 năm kể từ EPOCH
+ * - 5 bit node ID: tối đa 32 instance chạy song song (cấu hình payos.order-code.node-id / PAYOS_NODE_ID).
+ *   Các instance chạy cùng lúc BẮT BUỘC dùng node ID khác nhau (trùng node ID -> có thể trùng orderCode);
+ *   không cấu hình thì dùng node 0 và log cảnh báo (chỉ an toàn khi chạy một instance)
+ * - 7 bit sequence: tối đa 128 mã mỗi millisecond trên một node
+ *
+ * Business Rules:
+ * - Thời gian và sequence được đóng gói trong một AtomicLong và chỉ tăng (next = max(prev + 1, now << 7)):
+ *   hết sequence trong một millisecond thì "mượn" millisecond kế tiếp, đồng hồ bị lùi thì tiếp tục tăng từ mã trước,
+ *   nên không bao giờ phát lại một mã đã sinh trên cùng node
+ * - Chỉ được mượn trước tối đa max-borrow-ms so với đồng hồ; vượt quá thì chờ đồng hồ đuổi kịp.
+ *   Trạng thái chỉ nằm trong bộ nhớ, nên khi khởi động generator chờ hết max-borrow-ms: process trước (cùng node)
+ *   có thể đã phát mã ở tương lai tối đa chừng đó, chờ xong thì mọi mã mới đều lớn hơn
+ * - Không bảo vệ được trường hợp đồng hồ hệ thống bị lùi hơn max-borrow-ms giữa hai lần chạy (cần NTP đồng bộ)
+ * - Node khác nhau khác nhau ở 5 bit node ID nên không thể trùng nhau
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@Slf4j
+public class OrderCodeGenerator {
+
+    /** Mốc thời gian bắt đầu đếm: 2025-01-01T00:00:00Z */
+    private static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    private static final int TIMESTAMP_BITS = 41;
+
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    /** Giá trị orderCode lớn nhất PayOS chấp nhận (Number.MAX_SAFE_INTEGER) */
+    public static final long MAX_ORDER_CODE = (1L << (TIMESTAMP_BITS + NODE_BITS + SEQUENCE_BITS)) - 1;
+
+    /** Node ID của instance hiện tại, đã dịch vào đúng vị trí */
+    private final long nodeBits;
+
+    /** Số millisecond tối đa được mượn trước so với đồng hồ */
+    private final long maxBorrowMillis;
+
+    /** Trạng thái đóng gói (millisecond tính từ EPOCH << SEQUENCE_BITS) | sequence của mã sinh gần nhất */
+    private final AtomicLong lastState = new AtomicLong();
+
+    public OrderCodeGenerator(
+            @Value("${payos.order-code.node-id:-1}") long nodeId,
+            @Value("${payos.order-code.max-borrow-ms:100}") long maxBorrowMillis) {
+        if (nodeId < 0) {
+            log.warn("payos.order-code.node-id (PAYOS_NODE_ID) is not set, using node 0: "
+                    + "order codes are only unique while a single instance is running");
+            nodeId = 0;
+        }
+        if (nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("payos.order-code.node-id must be between 0 and " + MAX_NODE_ID
+                    + ", got " + nodeId);
+        }
+        if (maxBorrowMillis < 1) {
+            throw new IllegalStateException("payos.order-code.max-borrow-ms must be positive, got " + maxBorrowMillis);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.maxBorrowMillis = maxBorrowMillis;
+
+        // Process trước trên cùng node có thể đã mượn tới now + maxBorrowMillis: chờ qua mốc đó
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(maxBorrowMillis + 1));
+        log.info("Order code generator initialized: nodeId={}, maxBorrowMs={}", nodeId, maxBorrowMillis);
+    }
+
+    /**
+     * Sinh orderCode mới (thread-safe; chỉ chờ khi đã mượn trước quá max-borrow-ms)
+     */
+    public long nextOrderCode() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long prev = lastState.get();
+            long state = Math.max(prev + 1, now << SEQUENCE_BITS);
+
+            long timestamp = state >>> SEQUENCE_BITS;
+            if (timestamp - now > maxBorrowMillis) {
+                // Sinh quá 128 mã/ms kéo dài hoặc đồng hồ bị lùi: chờ đồng hồ đuổi kịp
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            if (!lastState.compareAndSet(prev, state)) {
+                continue;
+            }
+            if (timestamp > MAX_TIMESTAMP) {
+                throw new IllegalStateException("Order code timestamp overflow, EPOCH must be moved forward");
+            }
+            long sequence = state & ((1L << SEQUENCE_BITS) - 1);
+            return (timestamp << TIMESTAMP_SHIFT) | nodeBits | sequence;
+        }
+    }
+
+    /**
+     * Thời điểm sinh của một orderCode do generator này tạo ra
+     */
+    public static Instant issuedAt(long orderCode) {
+        return Instant.ofEpochMilli((orderCode >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS);
+    }
+
+    /**
+     * orderCode nhỏ nhất có thể được sinh tại thời điểm instant (mọi orderCode sinh trước instant đều nhỏ hơn)
+     *
+     * Dùng để lọc theo thời gian tạo đơn bằng so sánh orderCode, đi theo index payos_order_code.
+     */
+    public static long lowerBoundAt(Instant instant) {
+        long timestamp = Math.max(0, instant.toEpochMilli() - EPOCH_MILLIS);
+        return timestamp << TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * Node ID đã sinh ra orderCode
+     */
+    public static int nodeIdOf(long orderCode) {
+        return (int) ((orderCode >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,221 @@
+// Package định nghĩa service layer - băm / kiểm tra mật khẩu trên thread pool riêng
+package com.swp391.clubmanagement.service;
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Micrometer ==========
+import io.micrometer.core.instrument.Counter; // Đếm số yêu cầu bị từ chối
+import io.micrometer.core.instrument.MeterRegistry; // Đăng ký metric
+import io.micrometer.core.instrument.Timer; // Thời gian chờ / thời gian băm
+
+// ========== Jakarta ==========
+import jakarta.annotation.PreDestroy; // Dừng pool khi ứng dụng dừng
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.security.crypto.password.PasswordEncoder; // BCrypt (strength theo app.password-hashing.bcrypt-strength)
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+
+// ========== Java Standard Library ==========
+import java.util.ArrayList; // Danh sách
+import java.util.List; // Danh sách
+import java.util.concurrent.ArrayBlockingQueue; // Hàng đợi giới hạn
+import java.util.concurrent.Callable; // Tác vụ băm
+import java.util.concurrent.CompletableFuture; // Kết quả bất đồng bộ
+import java.util.concurrent.ExecutionException; // Lỗi trong tác vụ băm
+import java.util.concurrent.Future; // Kết quả tác vụ
+import java.util.concurrent.RejectedExecutionException; // Hàng đợi đầy
+import java.util.concurrent.ThreadPoolExecutor; // Thread pool băm mật khẩu
+import java.util.concurrent.TimeUnit; // Đơn vị thời gian
+import java.util.concurrent.TimeoutException; // Chờ quá lâu
+import java.util.concurrent.atomic.AtomicInteger; // Đánh số thread
+
+/**
+ * Service băm và kiểm tra mật khẩu (BCrypt) trên một thread pool riêng, giới hạn theo số CPU
+ *
+ * Chức năng chính:
+ * - encode / matches: băm mật khẩu mới, so khớp mật khẩu đăng nhập (chờ kết quả trên thread gọi)
+ * - encodeAsync: băm không chờ (nâng cấp hash sau khi đăng nhập)
+ * - encodeAll: băm nhiều mật khẩu (import CSV), không chiếm quá số thread của pool cùng lúc
+ * - needsUpgrade: hash cũ có cost thấp hơn bcrypt-strength hiện tại
+ *
+ * Business Rules:
+ * - BCrypt tốn CPU: chỉ tối đa threads phép băm chạy cùng lúc (mặc định = số CPU), dù có bao nhiêu request
+ *   đăng nhập / đăng ký -> thread Tomcat chỉ chờ, các API khác vẫn còn CPU để chạy
+ * - Hàng đợi giới hạn queue-capacity: đầy -> từ chối ngay với 503 (SERVICE_BUSY) thay vì xếp hàng vô hạn;
+ *   chờ quá wait-timeout-ms -> hủy tác vụ và cũng trả về 503
+ * - Tăng bcrypt-strength không cần migrate: hash cũ vẫn kiểm tra được, và được băm lại khi user đăng nhập thành công
+ *
+ * Metric:
+ * - password.hash.queue / password.hash.active: số tác vụ đang chờ / đang chạy
+ * - password.hash.rejected: số yêu cầu bị từ chối (đầy hàng đợi hoặc chờ quá lâu)
+ * - password.hash.wait: thời gian chờ trong hàng đợi
+ * - password.hash.duration: thời gian băm (tag operation = encode / matches)
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PasswordHashingService {
+
+    /** BCrypt với strength đã cấu hình (SecurityConfig) */
+    PasswordEncoder passwordEncoder;
+
+    /** Thread pool băm mật khẩu, hàng đợi giới hạn */
+    ThreadPoolExecutor executor;
+
+    /** Thời gian tối đa chờ một phép băm (ms) */
+    long waitTimeoutMillis;
+
+    Counter rejectedCounter;
+    Timer waitTimer;
+    Timer encodeTimer;
+    Timer matchesTimer;
+
+    public PasswordHashingService(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${app.password-hashing.threads:0}") int threads,
+            @Value("${app.password-hashing.queue-capacity:200}") int queueCapacity,
+            @Value("${app.password-hashing.wait-timeout-ms:5000}") long waitTimeoutMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+
+        // 0 = số CPU
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.rejectedCounter = meterRegistry.counter("password.hash.rejected");
+        this.waitTimer = meterRegistry.timer("password.hash.wait");
+        this.encodeTimer = meterRegistry.timer("password.hash.duration", "operation", "encode");
+        this.matchesTimer = meterRegistry.timer("password.hash.duration", "operation", "matches");
+        meterRegistry.gauge("password.hash.queue", executor, pool -> pool.getQueue().size());
+        meterRegistry.gauge("password.hash.active", executor, ThreadPoolExecutor::getActiveCount);
+        log.info("Password hashing pool initialized: threads={}, queueCapacity={}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Băm mật khẩu mới
+     *
+     * @throws AppException SERVICE_BUSY nếu pool quá tải
+     */
+    public String encode(String rawPassword) {
+        return await(submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword))));
+    }
+
+    /**
+     * Mật khẩu có khớp hash đã lưu không
+     *
+     * @throws AppException SERVICE_BUSY nếu pool quá tải
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(submit(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword))));
+    }
+
+    /**
+     * Băm mật khẩu mới, không chờ kết quả
+     *
+     * @throws AppException SERVICE_BUSY nếu hàng đợi đầy
+     */
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * Băm nhiều mật khẩu, kết quả theo đúng thứ tự đầu vào
+     *
+     * Gửi vào pool từng đợt bằng số thread, nên không lấp đầy hàng đợi và đăng nhập vẫn chen vào được giữa các đợt.
+     *
+     * @throws AppException SERVICE_BUSY nếu pool quá tải
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        int window = executor.getMaximumPoolSize();
+        for (int start = 0; start < rawPasswords.size(); start += window) {
+            List<CompletableFuture<String>> futures = rawPasswords
+                    .subList(start, Math.min(start + window, rawPasswords.size())).stream()
+                    .map(this::encodeAsync)
+                    .toList();
+            for (CompletableFuture<String> future : futures) {
+                hashes.add(await(future));
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Hash được tạo với cost thấp hơn cấu hình hiện tại (cần băm lại)
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            Future<?> future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            // Hủy tác vụ còn trong hàng đợi nếu bên gọi đã bỏ cuộc (timeout)
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    future.cancel(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Password hashing pool saturated: queue={}, active={}",
+                    executor.getQueue().size(), executor.getActiveCount());
+            throw new AppException(ErrorCode.SERVICE_BUSY);
+        }
+        return result;
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejectedCounter.increment();
+            log.warn("Password hashing timed out after {} ms", waitTimeoutMillis);
+            throw new AppException(ErrorCode.SERVICE_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.SERVICE_BUSY);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -4,6 +4,7 @@ package com.swp391.clubmanagement.service;
 // ========== DTO ==========
 import com.swp391.clubmanagement.dto.request.PayOSCreatePaymentRequest; // Request tạo payment link
 import com.swp391.clubmanagement.dto.response.ConfirmWebhookResponse; // Response xác nhận webhook
+import com.swp391.clubmanagement.dto.response.PayOSPaymentInfoResponse; // Response trạng thái đơn hàng
 import com.swp391.clubmanagement.dto.response.PayOSPaymentLinkResponse; // Response payment link
 import com.swp391.clubmanagement.dto.response.PayOSWebhookData; // Dữ liệu webhook từ PayOS
 
@@ -11,6 +12,15 @@ import com.swp391.clubmanagement.dto.response.PayOSWebhookData; // Dữ liệu w
 import com.swp391.clubmanagement.exception.AppException; // Custom exception
 import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
 
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.HmacSigner; // Ký / xác thực HMAC SHA256
+
+// ========== Resilience4j ==========
+import io.github.resilience4j.bulkhead.Bulkhead; // Giới hạn số lời gọi đồng thời
+import io.github.resilience4j.bulkhead.BulkheadFullException; // Hết lượt gọi đồng thời
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException; // Circuit breaker đang mở
+import io.github.resilience4j.circuitbreaker.CircuitBreaker; // Circuit breaker
+
 // ========== Lombok ==========
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
@@ -24,15 +34,16 @@ import org.springframework.http.*; // HTTP headers, status, media type
 import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
 import org.springframework.web.client.HttpClientErrorException; // Exception cho 4xx errors
 import org.springframework.web.client.HttpServerErrorException; // Exception cho 5xx errors
+import org.springframework.web.client.ResourceAccessException; // Exception cho lỗi I/O (timeout, connection refused)
 import org.springframework.web.client.RestClientException; // Exception cho network errors
 import org.springframework.web.client.RestTemplate; // HTTP client để gọi PayOS API
 
-// ========== Java Cryptography ==========
-import javax.crypto.Mac; // HMAC (Hash-based Message Authentication Code)
-import javax.crypto.spec.SecretKeySpec; // Secret key cho HMAC
-import java.nio.charset.StandardCharsets; // UTF-8 charset
-import java.security.InvalidKeyException; // Exception khi key không hợp lệ
-import java.security.NoSuchAlgorithmException; // Exception khi algorithm không tồn tại
+// ========== Jakarta ==========
+import jakarta.annotation.PostConstruct; // Khởi tạo sau khi inject dependencies
+
+// ========== Java Standard Library ==========
+import java.util.concurrent.ThreadLocalRandom; // Jitter cho thời gian chờ retry
+import java.util.function.Supplier; // Lời gọi PayOS được bảo vệ
 
 /**
  * Service tích hợp với PayOS payment gateway
@@ -46,6 +57,8 @@ import java.security.NoSuchAlgorithmException; // Exception khi algorithm không
  * - Sử dụng HMAC SHA256 để tạo và verify signature
  * - Signature được tạo từ: amount + orderCode + description
  * - Tất cả request đến PayOS API đều cần client-id và api-key
+ * - Gọi PayOS qua RestTemplate dùng chung có connection pool và timeout; chỉ lời gọi idempotent được retry
+ * - Mọi lời gọi đi qua circuit breaker + bulkhead: PayOS lỗi/chậm hoặc quá nhiều lời gọi đồng thời -> fail ngay (503)
  * 
  * @Service: Spring Service Bean, được quản lý bởi IoC Container
  * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
@@ -58,8 +71,14 @@ import java.security.NoSuchAlgorithmException; // Exception khi algorithm không
 @Slf4j
 public class PayOSService {
     
-    /** RestTemplate để gọi PayOS API (HTTP client) */
-    RestTemplate restTemplate = new RestTemplate();
+    /** RestTemplate dùng chung để gọi PayOS API (connection pool, timeout - xem PayOSClientConfig) */
+    RestTemplate payOSRestTemplate;
+    
+    /** Circuit breaker: fail ngay khi PayOS đang lỗi/chậm liên tục */
+    CircuitBreaker payOSCircuitBreaker;
+    
+    /** Bulkhead: giới hạn số lời gọi PayOS đồng thời */
+    Bulkhead payOSBulkhead;
     
     /** Client ID của PayOS (đọc từ application.properties) */
     @NonFinal
@@ -76,33 +95,52 @@ public class PayOSService {
     @Value("${payos.checksum-key}")
     String checksumKey;
     
-    /** Base URL của PayOS API (đọc từ application.properties) */
+    /** Ký / xác thực chữ ký HMAC với checksum key (khởi tạo một lần sau khi inject config) */
     @NonFinal
-    @Value("${payos.api-url}")
-    String apiUrl;
+    HmacSigner signer;
     
     /** Base URL của ứng dụng (để tạo returnUrl và cancelUrl) */
     @NonFinal
     @Value("${app.base-url}")
     String baseUrl;
+    
+    /** Số lần gọi tối đa (tính cả lần đầu) cho lời gọi idempotent */
+    @NonFinal
+    @Value("${payos.http.retry.max-attempts:3}")
+    int retryMaxAttempts;
+    
+    /** Thời gian chờ cơ sở của backoff lũy thừa */
+    @NonFinal
+    @Value("${payos.http.retry.base-delay-ms:200}")
+    long retryBaseDelayMs;
+    
+    /** Thời gian chờ tối đa giữa hai lần retry */
+    @NonFinal
+    @Value("${payos.http.retry.max-delay-ms:2000}")
+    long retryMaxDelayMs;
+
+    /**
+     * Tạo signer từ checksum key (Mac và khóa được chuẩn bị sẵn, dùng lại cho mọi request)
+     */
+    @PostConstruct
+    void initSigner() {
+        signer = new HmacSigner(checksumKey);
+    }
 
     /**
      * Tạo payment link từ PayOS
      */
     public PayOSPaymentLinkResponse createPaymentLink(PayOSCreatePaymentRequest request) {
         try {
-            String url = apiUrl + "/v2/payment-requests";
-
-            String dataStr = String.format(
-                    "amount=%d&cancelUrl=%s&description=%s&orderCode=%d&returnUrl=%s",
-                    request.getAmount(),
-                    request.getCancelUrl(),
-                    request.getDescription(),
-                    request.getOrderCode(),
-                    request.getReturnUrl()
-            );
+            String url = "/v2/payment-requests";
 
-            String signature = createSignature(dataStr);
+            // Chuỗi ký theo thứ tự alphabet: amount, cancelUrl, description, orderCode, returnUrl
+            String signature = signer.sign(signer.payload()
+                    .field("amount", request.getAmount())
+                    .field("cancelUrl", request.getCancelUrl())
+                    .field("description", request.getDescription())
+                    .field("orderCode", request.getOrderCode())
+                    .field("returnUrl", request.getReturnUrl()));
             request.setSignature(signature);
 
             log.info("Creating payment link with signature: {}", signature);
@@ -143,12 +181,13 @@ public class PayOSService {
                 log.warn("Failed to serialize request body: {}", e.getMessage());
             }
             
-            ResponseEntity<PayOSPaymentLinkResponse> response = restTemplate.exchange(
+            // Tạo payment link KHÔNG retry: POST không idempotent, PayOS từ chối orderCode đã tồn tại
+            ResponseEntity<PayOSPaymentLinkResponse> response = guarded(() -> payOSRestTemplate.exchange(
                     url,
                     HttpMethod.POST,
                     entity,
                     PayOSPaymentLinkResponse.class
-            );
+            ));
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 PayOSPaymentLinkResponse body = response.getBody();
@@ -203,6 +242,39 @@ public class PayOSService {
         }
     }
 
+    /**
+     * Hỏi PayOS trạng thái thực tế của một đơn hàng (GET, idempotent -> được retry)
+     */
+    public PayOSPaymentInfoResponse getPaymentInfo(Long orderCode) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("x-client-id", clientId);
+            headers.set("x-api-key", apiKey);
+            
+            ResponseEntity<PayOSPaymentInfoResponse> response = exchangeIdempotent(
+                    "/v2/payment-requests/{orderCode}",
+                    HttpMethod.GET,
+                    new HttpEntity<>(headers),
+                    PayOSPaymentInfoResponse.class,
+                    orderCode
+            );
+            
+            PayOSPaymentInfoResponse body = response.getBody();
+            if (body == null || !"00".equals(body.getCode()) || body.getData() == null) {
+                log.warn("PayOS payment info failed: orderCode={}, code={}, desc={}", orderCode,
+                        body != null ? body.getCode() : null, body != null ? body.getDesc() : null);
+                throw new AppException(ErrorCode.PAYMENT_NOT_FOUND);
+            }
+            return body;
+        } catch (HttpClientErrorException e) {
+            log.warn("PayOS payment info rejected: orderCode={}, status={}", orderCode, e.getStatusCode());
+            throw new AppException(ErrorCode.PAYMENT_NOT_FOUND);
+        } catch (RestClientException e) {
+            log.error("PayOS payment info error: orderCode={}, {}", orderCode, e.getMessage());
+            throw new AppException(ErrorCode.PAYOS_UNAVAILABLE);
+        }
+    }
+
     /**
      * Xác thực webhook từ PayOS (wrapper method)
      */
@@ -221,8 +293,8 @@ public class PayOSService {
 
     /**
      * Verify webhook signature
-     * PayOS webhook signature được tạo từ: amount, orderCode, description
-     * Theo tài liệu PayOS, signature được tính từ data object
+     * Theo tài liệu PayOS, signature được tính từ TOÀN BỘ các trường của data object:
+     * sắp xếp theo tên trường (alphabet), nối dạng key=value bằng '&', giá trị null -> chuỗi rỗng
      */
     public boolean verifyWebhookSignature(String code, String desc, PayOSWebhookData.WebhookData data, String signature) {
         try {
@@ -231,39 +303,37 @@ public class PayOSService {
                 return false;
             }
             
-            // PayOS webhook signature được tạo từ các trường trong data
-            // Format theo PayOS: amount + orderCode + description (theo thứ tự)
-            // URL encode description nếu có ký tự đặc biệt
-            String description = data.getDescription() != null ? data.getDescription() : "";
-            
-            // Tạo data string để verify signature
-            // PayOS có thể dùng format: amount + orderCode + description
-            String dataStr = String.format(
-                    "amount=%d&description=%s&orderCode=%d",
-                    data.getAmount() != null ? data.getAmount() : 0,
-                    description,
-                    data.getOrderCode() != null ? data.getOrderCode() : 0L
-            );
-            
-            log.debug("Verifying webhook signature with data: {}", dataStr);
+            // Payload ký: các trường của data theo thứ tự alphabet
+            HmacSigner.Payload payload = signer.payload()
+                    .field("accountNumber", data.getAccountNumber())
+                    .field("amount", data.getAmount())
+                    .field("code", data.getCode())
+                    .field("counterAccountBankId", data.getCounterAccountBankId())
+                    .field("counterAccountBankName", data.getCounterAccountBankName())
+                    .field("counterAccountName", data.getCounterAccountName())
+                    .field("counterAccountNumber", data.getCounterAccountNumber())
+                    .field("currency", data.getCurrency())
+                    .field("desc", data.getDesc())
+                    .field("description", data.getDescription())
+                    .field("orderCode", data.getOrderCode())
+                    .field("paymentLinkId", data.getPaymentLinkId())
+                    .field("reference", data.getReference())
+                    .field("transactionDateTime", data.getTransactionDateTime())
+                    .field("virtualAccountName", data.getVirtualAccountName())
+                    .field("virtualAccountNumber", data.getVirtualAccountNumber());
             
-            // Tạo signature bằng HMAC SHA256
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(checksumKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKeySpec);
-            byte[] hash = mac.doFinal(dataStr.getBytes(StandardCharsets.UTF_8));
-            String calculatedSignature = bytesToHex(hash);
+            if (log.isDebugEnabled()) {
+                log.debug("Verifying webhook signature with data: {}", payload);
+            }
             
-            boolean isValid = calculatedSignature.equalsIgnoreCase(signature);
+            // So sánh thời gian hằng với HMAC SHA256 của payload
+            boolean isValid = signer.verify(payload, signature);
             
             if (!isValid) {
-                log.warn("Webhook signature mismatch. Expected: {}, Received: {}", calculatedSignature, signature);
+                log.warn("Webhook signature mismatch for orderCode={}", data.getOrderCode());
             }
             
             return isValid;
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            log.error("Error verifying webhook signature", e);
-            return false;
         } catch (Exception e) {
             log.error("Unexpected error verifying webhook signature", e);
             return false;
@@ -271,29 +341,62 @@ public class PayOSService {
     }
 
     /**
-     * Convert bytes to hex string
+     * Gọi PayOS cho request idempotent, retry khi lỗi mạng/timeout hoặc PayOS quá tải (502, 503, 504)
+     * 
+     * Thời gian chờ giữa các lần gọi: backoff lũy thừa có "full jitter" (ngẫu nhiên trong [0, min(max, base * 2^n)])
+     * để nhiều request cùng lỗi không dồn lại gọi PayOS cùng một lúc.
+     * Chỉ dùng cho lời gọi mà gửi lại nhiều lần cho cùng kết quả (GET, đăng ký webhook).
+     * 
+     * url là URI template (vd. "/v2/payment-requests/{orderCode}"), giá trị truyền qua uriVariables:
+     * metric http.client.requests gắn tag uri theo template, không tạo một tag mới cho mỗi đơn hàng.
      */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    private <T> ResponseEntity<T> exchangeIdempotent(String url, HttpMethod method, HttpEntity<?> entity,
+                                                     Class<T> responseType, Object... uriVariables) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return guarded(() -> payOSRestTemplate.exchange(url, method, entity, responseType, uriVariables));
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                if (attempt >= retryMaxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                long ceiling = Math.min(retryMaxDelayMs, retryBaseDelayMs << (attempt - 1));
+                long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+                log.warn("PayOS call {} {} failed (attempt {}/{}): {}. Retrying in {} ms",
+                        method, url, attempt, retryMaxAttempts, e.getMessage(), delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
         }
-        return result.toString();
     }
-
-    private String createSignature(String dataStr) {
+    
+    /**
+     * Chạy một lời gọi PayOS qua circuit breaker và bulkhead
+     * 
+     * @throws AppException PAYOS_UNAVAILABLE khi circuit breaker đang mở, PAYOS_BUSY khi hết lượt gọi đồng thời
+     */
+    private <T> T guarded(Supplier<T> call) {
         try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(checksumKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKeySpec);
-            byte[] hash = mac.doFinal(dataStr.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            // Log lỗi để debug
-            log.error("Error creating signature: {}", e.getMessage());
-            // Ném RuntimeException để code biên dịch được
-            throw new RuntimeException("Cannot create signature: " + e.getMessage(), e);
+            return payOSCircuitBreaker.executeSupplier(() -> payOSBulkhead.executeSupplier(call));
+        } catch (CallNotPermittedException e) {
+            log.warn("PayOS circuit breaker is open, failing fast");
+            throw new AppException(ErrorCode.PAYOS_UNAVAILABLE);
+        } catch (BulkheadFullException e) {
+            log.warn("PayOS bulkhead is full, failing fast");
+            throw new AppException(ErrorCode.PAYOS_BUSY);
+        }
+    }
+    
+    private static boolean isRetryable(RestClientException e) {
+        if (e instanceof HttpServerErrorException serverError) {
+            int status = serverError.getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
         }
+        // ResourceAccessException: lỗi I/O (không kết nối được, timeout, hết kết nối trong pool)
+        return true;
     }
 
     /**
@@ -302,7 +405,7 @@ public class PayOSService {
      */
     public ConfirmWebhookResponse confirmWebhook(String webhookUrl) {
         try {
-            String url = apiUrl + "/confirm-webhook";
+            String url = "/confirm-webhook";
             
             log.info("Confirming webhook URL with PayOS: {}", webhookUrl);
             
@@ -320,7 +423,8 @@ public class PayOSService {
             log.info("PayOS Confirm Webhook Request URL: {}", url);
             log.info("PayOS Confirm Webhook Request Body: {}", requestBody);
             
-            ResponseEntity<ConfirmWebhookResponse> response = restTemplate.exchange(
+            // Đăng ký lại cùng một webhook URL không gây tác dụng phụ -> được retry
+            ResponseEntity<ConfirmWebhookResponse> response = exchangeIdempotent(
                     url,
                     HttpMethod.POST,
                     entity,
@@ -0,0 +1,263 @@
+// Package định nghĩa service layer - xử lý lưu trữ (archive) lịch sử thanh toán cũ
+package com.swp391.clubmanagement.service;
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.PaymentHistoryArchiveRepository; // Repository cho bảng PaymentHistoryArchive
+import com.swp391.clubmanagement.repository.PaymentHistoryRepository; // Repository cho bảng PaymentHistory
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+
+// ========== Jakarta ==========
+import jakarta.persistence.EntityManager; // Chạy lệnh DDL tách partition
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.boot.context.event.ApplicationReadyEvent; // Sự kiện ứng dụng đã khởi động xong
+import org.springframework.context.event.EventListener; // Lắng nghe sự kiện Spring
+import org.springframework.data.domain.PageRequest; // Giới hạn kích thước lô
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng lô
+
+// ========== Java Standard Library ==========
+import java.time.LocalDate; // Ngày
+import java.time.LocalDateTime; // Ngày giờ
+import java.util.List; // Danh sách
+import java.util.Objects; // So sánh giá trị có thể null
+import java.util.regex.Matcher; // Đọc năm từ tên partition
+import java.util.regex.Pattern; // Tên partition theo năm (pYYYY)
+
+/**
+ * Service lưu trữ (archive) lịch sử thanh toán cũ
+ *
+ * Chức năng chính:
+ * - Định kỳ chuyển các giao dịch cũ hơn mốc lưu trữ từ bảng nóng PaymentHistory sang PaymentHistoryArchive
+ * - Quyết định một query theo khoảng thời gian cần đọc bảng nào (route) để không quét bảng thừa
+ *
+ * Business Rules:
+ * - Mốc lưu trữ (hot cutoff) = ngày 1/1 của năm (năm hiện tại - retentionYears + 1)
+ *   Ví dụ: năm 2026, retention-years = 2 -> giữ 2025, 2026 trong bảng nóng, chuyển các năm trước đó
+ * - Mỗi lô được copy + xóa trong cùng một transaction nên mỗi giao dịch luôn nằm ở đúng một bảng
+ * - Bảng lưu trữ chỉ chứa payment_date < hot cutoff (mốc chỉ tăng theo thời gian)
+ * - Bảng nóng không chứa payment_date < ngày thanh toán nhỏ nhất đang có (hotLowerBound),
+ *   vì giao dịch mới luôn được ghi với thời điểm hiện tại
+ * - Kho lưu trữ được RANGE partition theo archive_year (V15): trước mỗi lần chuyển dữ liệu, job tách partition
+ *   cho các năm đến hết năm của mốc lưu trữ ra khỏi partition hứng p_future (ensurePartitions),
+ *   nên năm sắp được chuyển luôn có partition riêng. Lỗi khi tách chỉ được log: dữ liệu vẫn vào p_future
+ * - Trạng thái route (archiveEmpty, hotLowerBound) được nạp lại định kỳ (state-refresh-ms), không chỉ khi khởi động:
+ *   job lưu trữ chạy trên một instance thì các instance khác cũng thấy dữ liệu mới trong kho sau tối đa một chu kỳ
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentArchiveService {
+
+    /** Repository thao tác với bảng payment_history (bảng nóng) */
+    PaymentHistoryRepository paymentHistoryRepository;
+
+    /** Repository thao tác với bảng payment_history_archive (kho lưu trữ) */
+    PaymentHistoryArchiveRepository paymentHistoryArchiveRepository;
+
+    /** Chạy mỗi lô copy + xóa trong một transaction riêng */
+    TransactionTemplate transactionTemplate;
+
+    /** Chạy lệnh DDL tách partition (không có tham số bind cho tên partition) */
+    EntityManager entityManager;
+
+    /** Tên partition theo năm do V15 / ensurePartitions tạo, ví dụ p2025 */
+    private static final Pattern YEAR_PARTITION = Pattern.compile("p(\\d{4})");
+
+    /** Bật/tắt job lưu trữ */
+    @NonFinal
+    @Value("${app.payment-archive.enabled:true}")
+    boolean enabled;
+
+    /** Số năm gần nhất được giữ trong bảng nóng (tính cả năm hiện tại) */
+    @NonFinal
+    @Value("${app.payment-archive.retention-years:2}")
+    int retentionYears;
+
+    /** Số giao dịch chuyển trong mỗi lô (mỗi lô là một transaction) */
+    @NonFinal
+    @Value("${app.payment-archive.batch-size:1000}")
+    int batchSize;
+
+    /** Ngày thanh toán nhỏ nhất còn trong bảng nóng (null nếu bảng nóng rỗng) */
+    @NonFinal
+    volatile LocalDateTime hotLowerBound;
+
+    /** Kho lưu trữ đang rỗng: khi true, mọi query chỉ cần đọc bảng nóng */
+    @NonFinal
+    volatile boolean archiveEmpty = true;
+
+    /**
+     * Bảng cần đọc cho một query theo khoảng thời gian
+     */
+    public enum Route {
+        /** Chỉ đọc bảng nóng PaymentHistory */
+        HOT,
+        /** Chỉ đọc kho lưu trữ PaymentHistoryArchive */
+        ARCHIVE,
+        /** Đọc cả hai bảng và gộp kết quả */
+        BOTH
+    }
+
+    /**
+     * Mốc lưu trữ hiện tại: giao dịch trước mốc này sẽ được chuyển sang kho lưu trữ
+     */
+    public LocalDateTime hotCutoff() {
+        int firstHotYear = DateTimeUtils.nowVietnam().getYear() - retentionYears + 1;
+        return LocalDate.of(firstHotYear, 1, 1).atStartOfDay();
+    }
+
+    /**
+     * Kho lưu trữ đã có dữ liệu chưa (dùng cho các query không theo khoảng thời gian, ví dụ lịch sử giao dịch)
+     */
+    public boolean hasArchivedData() {
+        return !archiveEmpty;
+    }
+
+    /**
+     * Xác định bảng cần đọc cho khoảng thời gian [startDate, endDate]
+     */
+    public Route route(LocalDateTime startDate, LocalDateTime endDate) {
+        // Kho lưu trữ rỗng hoặc khoảng thời gian nằm hoàn toàn sau mốc lưu trữ -> chỉ bảng nóng
+        if (archiveEmpty || !startDate.isBefore(hotCutoff())) {
+            return Route.HOT;
+        }
+        // Khoảng thời gian kết thúc trước giao dịch cũ nhất của bảng nóng -> chỉ kho lưu trữ
+        LocalDateTime lowerBound = hotLowerBound;
+        if (lowerBound != null && endDate.isBefore(lowerBound)) {
+            return Route.ARCHIVE;
+        }
+        return Route.BOTH;
+    }
+
+    /**
+     * Nạp trạng thái kho lưu trữ khi ứng dụng khởi động xong và định kỳ sau đó
+     * (instance khác có thể đã chuyển dữ liệu sang kho lưu trữ)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshState() {
+        LocalDateTime lowerBound = paymentHistoryRepository.findMinPaymentDate();
+        boolean empty = paymentHistoryArchiveRepository.findAnyPaymentId(PageRequest.of(0, 1)).isEmpty();
+        boolean changed = empty != archiveEmpty || !Objects.equals(lowerBound, hotLowerBound);
+        hotLowerBound = lowerBound;
+        archiveEmpty = empty;
+        if (changed) {
+            log.info("Payment archive state: hotCutoff={}, hotLowerBound={}, archiveEmpty={}",
+                    hotCutoff(), hotLowerBound, archiveEmpty);
+        }
+    }
+
+    /**
+     * Job định kỳ: nạp lại trạng thái route
+     */
+    @Scheduled(fixedDelayString = "${app.payment-archive.state-refresh-ms:60000}",
+            initialDelayString = "${app.payment-archive.state-refresh-ms:60000}")
+    public void refreshStatePeriodically() {
+        try {
+            refreshState();
+        } catch (Exception e) {
+            log.warn("Cannot refresh payment archive state: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Job định kỳ: chuyển các giao dịch cũ hơn mốc lưu trữ sang PaymentHistoryArchive theo từng lô
+     */
+    @Scheduled(cron = "${app.payment-archive.cron:0 30 2 * * *}", zone = "Asia/Ho_Chi_Minh")
+    public void archiveOldPayments() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime cutoff = hotCutoff();
+        ensurePartitions(cutoff.getYear());
+
+        int totalMoved = 0;
+        try {
+            while (true) {
+                Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+                if (moved == null || moved == 0) {
+                    break;
+                }
+                totalMoved += moved;
+            }
+        } catch (Exception e) {
+            log.error("Payment archive stopped after moving {} records (cutoff={})", totalMoved, cutoff, e);
+        } finally {
+            refreshState();
+        }
+
+        if (totalMoved > 0) {
+            log.info("Archived {} payment history records older than {}", totalMoved, cutoff);
+        }
+    }
+
+    /**
+     * Tách partition cho từng năm (sau năm lớn nhất đã có) đến hết lastYear ra khỏi partition hứng p_future
+     *
+     * Chạy trước khi dữ liệu của năm đó được chuyển sang, khi p_future còn rỗng, nên REORGANIZE không chép dữ liệu.
+     * Bảng chưa được partition (không có partition nào) thì bỏ qua.
+     */
+    private void ensurePartitions(int lastYear) {
+        try {
+            List<String> partitions = paymentHistoryArchiveRepository.findPartitionNames();
+            if (partitions.isEmpty()) {
+                return;
+            }
+            int maxYear = 0;
+            for (String partition : partitions) {
+                Matcher matcher = YEAR_PARTITION.matcher(partition);
+                if (matcher.matches()) {
+                    maxYear = Math.max(maxYear, Integer.parseInt(matcher.group(1)));
+                }
+            }
+            for (int year = maxYear + 1; maxYear > 0 && year <= lastYear; year++) {
+                String ddl = "ALTER TABLE payment_history_archive REORGANIZE PARTITION p_future INTO ("
+                        + "PARTITION p" + year + " VALUES LESS THAN (" + (year + 1) + "), "
+                        + "PARTITION p_future VALUES LESS THAN MAXVALUE)";
+                transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(ddl).executeUpdate());
+                log.info("Added payment archive partition p{}", year);
+            }
+        } catch (Exception e) {
+            // Không chặn job lưu trữ: thiếu partition thì dữ liệu vào p_future
+            log.warn("Cannot add payment archive partitions up to {}: {}", lastYear, e.getMessage());
+        }
+    }
+
+    /**
+     * Chuyển một lô giao dịch (copy sang kho lưu trữ rồi xóa khỏi bảng nóng) trong transaction hiện tại
+     *
+     * @return Số giao dịch đã chuyển (0 nếu không còn gì để chuyển)
+     */
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Integer> ids = paymentHistoryRepository.findIdsOlderThan(cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        int copied = paymentHistoryArchiveRepository.copyFromPaymentHistory(ids, DateTimeUtils.nowVietnam());
+        if (copied != ids.size()) {
+            // Không xóa khi copy thiếu (ví dụ user/CLB/gói đã bị xóa) -> rollback cả lô
+            throw new IllegalStateException("Archive copy mismatch: expected " + ids.size() + ", copied " + copied);
+        }
+
+        return paymentHistoryRepository.deleteByPaymentIdIn(ids);
+    }
+}
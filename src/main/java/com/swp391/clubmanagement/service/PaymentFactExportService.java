@@ -0,0 +1,290 @@
+// Package định nghĩa service layer - xuất dữ liệu thanh toán ra file cột (Arrow IPC) cho phân tích offline
+package com.swp391.clubmanagement.service;
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.PaymentHistoryArchiveRepository; // Repository cho bảng PaymentHistoryArchive
+import com.swp391.clubmanagement.repository.PaymentHistoryRepository; // Repository cho bảng PaymentHistory
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+import com.swp391.clubmanagement.utils.VndAmount; // Kiểu tiền VND dạng long
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Apache Arrow ==========
+import org.apache.arrow.compression.CommonsCompressionFactory; // Codec nén ZSTD/LZ4 cho Arrow IPC
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.data.domain.PageRequest; // Giới hạn kích thước lô
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+
+// ========== Java Standard Library ==========
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate; // Ngày
+import java.time.LocalDateTime; // Ngày giờ
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List; // Danh sách
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Service xuất "payment facts" ra file Arrow IPC (nén ZSTD) trên ổ đĩa local cho phân tích offline
+ *
+ * Chức năng chính:
+ * - Mỗi ngày một file: {export-dir}/payment-facts-YYYY-MM-DD.arrow, gồm các giao dịch có payment_date trong ngày đó
+ * - Xuất tăng dần (incremental): job tìm ngày mới nhất đã có file và xuất tiếp các ngày còn thiếu đến hôm qua
+ * - Nhóm phân tích đọc file bằng pyarrow / DuckDB / Polars mà không cần truy vấn MySQL production
+ *
+ * Schema file (mỗi dòng là một giao dịch):
+ * - payment_id (int32), club_id (int32), package_id (int32), user_id (utf8)
+ * - amount_vnd (int64, đơn vị đồng), payment_date (timestamp[us], giờ Việt Nam), payment_method (utf8)
+ *
+ * Business Rules:
+ * - Chỉ xuất các ngày đã kết thúc (trước hôm nay theo giờ VN) nên file của một ngày không thay đổi sau khi ghi
+ * - Ngày không có giao dịch vẫn có file (0 dòng) để đánh dấu đã xuất
+ * - File được ghi ra file tạm rồi đổi tên (atomic move): người đọc không bao giờ thấy file ghi dở
+ * - Mỗi lần chạy xuất tối đa max-backfill-days ngày để job không chiếm database quá lâu
+ * - Dữ liệu được đọc theo lô (keyset theo payment_id), mỗi lô là một record batch trong file
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentFactExportService {
+
+    /** Tiền tố tên file export */
+    private static final String FILE_PREFIX = "payment-facts-";
+
+    /** Đuôi file Arrow IPC (file format) */
+    private static final String FILE_SUFFIX = ".arrow";
+
+    /** Schema Arrow của file payment facts */
+    private static final Schema SCHEMA = new Schema(List.of(
+            new Field("payment_id", FieldType.notNullable(new ArrowType.Int(32, true)), null),
+            new Field("club_id", FieldType.notNullable(new ArrowType.Int(32, true)), null),
+            new Field("package_id", FieldType.notNullable(new ArrowType.Int(32, true)), null),
+            new Field("user_id", FieldType.notNullable(ArrowType.Utf8.INSTANCE), null),
+            new Field("amount_vnd", FieldType.notNullable(new ArrowType.Int(64, true)), null),
+            new Field("payment_date", FieldType.notNullable(new ArrowType.Timestamp(TimeUnit.MICROSECOND, null)), null),
+            new Field("payment_method", FieldType.notNullable(ArrowType.Utf8.INSTANCE), null)
+    ));
+
+    /** Repository thao tác với bảng payment_history (bảng nóng) */
+    PaymentHistoryRepository paymentHistoryRepository;
+
+    /** Repository thao tác với bảng payment_history_archive (kho lưu trữ) */
+    PaymentHistoryArchiveRepository paymentHistoryArchiveRepository;
+
+    /** Biết ngày nào có thể đã nằm trong kho lưu trữ */
+    PaymentArchiveService paymentArchiveService;
+
+    /** Bật/tắt job export */
+    @NonFinal
+    @Value("${app.payment-export.enabled:true}")
+    boolean enabled;
+
+    /** Thư mục chứa file export */
+    @NonFinal
+    @Value("${app.payment-export.directory:./exports/payment-facts}")
+    String directory;
+
+    /** Số ngày tối đa xuất trong một lần chạy (cũng là số ngày backfill ở lần chạy đầu tiên) */
+    @NonFinal
+    @Value("${app.payment-export.max-backfill-days:31}")
+    int maxBackfillDays;
+
+    /** Số giao dịch mỗi lô đọc từ database (= số dòng mỗi record batch) */
+    @NonFinal
+    @Value("${app.payment-export.batch-size:10000}")
+    int batchSize;
+
+    /**
+     * Job định kỳ: xuất các ngày còn thiếu (từ sau ngày đã xuất gần nhất đến hôm qua)
+     */
+    @Scheduled(cron = "${app.payment-export.cron:0 15 1 * * *}", zone = "Asia/Ho_Chi_Minh")
+    public void exportPendingDays() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Path exportDir = Paths.get(directory);
+            Files.createDirectories(exportDir);
+
+            LocalDate yesterday = DateTimeUtils.nowVietnam().toLocalDate().minusDays(1);
+            LocalDate lastExported = findLastExportedDay(exportDir);
+            LocalDate day = lastExported != null
+                    ? lastExported.plusDays(1)
+                    : yesterday.minusDays(maxBackfillDays - 1L);
+
+            int exportedDays = 0;
+            while (!day.isAfter(yesterday) && exportedDays < maxBackfillDays) {
+                exportDay(exportDir, day);
+                day = day.plusDays(1);
+                exportedDays++;
+            }
+
+            if (exportedDays > 0) {
+                log.info("Exported payment facts for {} day(s) up to {}", exportedDays, day.minusDays(1));
+            }
+        } catch (Exception e) {
+            log.error("Payment facts export failed", e);
+        }
+    }
+
+    /**
+     * Xuất (hoặc xuất lại) file payment facts của một ngày
+     *
+     * @return Số giao dịch đã ghi
+     */
+    public long exportDay(Path exportDir, LocalDate day) throws IOException {
+        LocalDateTime startDate = day.atStartOfDay();
+        LocalDateTime endDate = day.plusDays(1).atStartOfDay();
+        // Ngày trước mốc lưu trữ có thể đã được chuyển (một phần hoặc toàn bộ) sang kho lưu trữ
+        boolean readArchive = paymentArchiveService.hasArchivedData()
+                && startDate.isBefore(paymentArchiveService.hotCutoff());
+
+        Path target = exportDir.resolve(FILE_PREFIX + day + FILE_SUFFIX);
+        Path temp = exportDir.resolve(FILE_PREFIX + day + FILE_SUFFIX + ".tmp");
+        long rowCount = 0;
+
+        try (BufferAllocator allocator = new RootAllocator();
+             VectorSchemaRoot root = VectorSchemaRoot.create(SCHEMA, allocator);
+             FileChannel channel = FileChannel.open(temp,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             ArrowFileWriter writer = new ArrowFileWriter(root, null, channel,
+                     Map.of("export_day", day.toString(), "timezone", "Asia/Ho_Chi_Minh"),
+                     IpcOption.DEFAULT, CommonsCompressionFactory.INSTANCE, CompressionUtil.CodecType.ZSTD)) {
+
+            writer.start();
+            rowCount += writeSource(root, writer, afterId -> paymentHistoryRepository.findFactsBetween(
+                    startDate, endDate, afterId, PageRequest.of(0, batchSize)));
+            if (readArchive) {
+                rowCount += writeSource(root, writer, afterId -> paymentHistoryArchiveRepository.findFactsBetween(
+                        day.getYear(), startDate, endDate, afterId, PageRequest.of(0, batchSize)));
+            }
+            writer.end();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.debug("Exported {} payment facts for {} to {}", rowCount, day, target);
+        return rowCount;
+    }
+
+    /**
+     * Đọc lần lượt các lô từ một nguồn (keyset theo payment_id) và ghi mỗi lô thành một record batch
+     */
+    private long writeSource(VectorSchemaRoot root, ArrowFileWriter writer, FactBatchLoader loader) throws IOException {
+        IntVector paymentIds = (IntVector) root.getVector("payment_id");
+        IntVector clubIds = (IntVector) root.getVector("club_id");
+        IntVector packageIds = (IntVector) root.getVector("package_id");
+        VarCharVector userIds = (VarCharVector) root.getVector("user_id");
+        BigIntVector amounts = (BigIntVector) root.getVector("amount_vnd");
+        TimeStampMicroVector paymentDates = (TimeStampMicroVector) root.getVector("payment_date");
+        VarCharVector paymentMethods = (VarCharVector) root.getVector("payment_method");
+
+        long written = 0;
+        int afterId = 0;
+        while (true) {
+            List<Object[]> rows = loader.load(afterId);
+            if (rows.isEmpty()) {
+                return written;
+            }
+
+            root.allocateNew();
+            for (int i = 0; i < rows.size(); i++) {
+                // Shape: [paymentId, clubId, packageId, userId, amount, paymentDate, paymentMethod]
+                Object[] row = rows.get(i);
+                paymentIds.setSafe(i, ((Number) row[0]).intValue());
+                clubIds.setSafe(i, ((Number) row[1]).intValue());
+                packageIds.setSafe(i, ((Number) row[2]).intValue());
+                userIds.setSafe(i, ((String) row[3]).getBytes(StandardCharsets.UTF_8));
+                amounts.setSafe(i, VndAmount.toLong(row[4]));
+                paymentDates.setSafe(i, toEpochMicros((LocalDateTime) row[5]));
+                paymentMethods.setSafe(i, ((String) row[6]).getBytes(StandardCharsets.UTF_8));
+            }
+            root.setRowCount(rows.size());
+            writer.writeBatch();
+
+            written += rows.size();
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).intValue();
+            if (rows.size() < batchSize) {
+                return written;
+            }
+        }
+    }
+
+    /**
+     * Ngày mới nhất đã có file export (null nếu chưa xuất lần nào)
+     */
+    private LocalDate findLastExportedDay(Path exportDir) throws IOException {
+        LocalDate last = null;
+        try (Stream<Path> files = Files.list(exportDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    LocalDate day = LocalDate.parse(
+                            name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                    if (last == null || day.isAfter(last)) {
+                        last = day;
+                    }
+                } catch (DateTimeParseException e) {
+                    log.warn("Ignoring unexpected file in payment export directory: {}", name);
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Giờ địa phương (không múi giờ) -> số micro giây kể từ 1970-01-01T00:00 (timestamp "naive" của Arrow)
+     */
+    private static long toEpochMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    /**
+     * Đọc một lô payment facts có payment_id > afterId
+     */
+    @FunctionalInterface
+    private interface FactBatchLoader {
+        List<Object[]> load(int afterId);
+    }
+}
@@ -9,7 +9,8 @@ import com.swp391.clubmanagement.dto.response.RevenueByMonthWithClubsResponse; /
 // ========== Entity ==========
 import com.swp391.clubmanagement.entity.Clubs; // Entity CLB
 import com.swp391.clubmanagement.entity.PaymentHistory; // Entity lịch sử thanh toán
-import com.swp391.clubmanagement.entity.Registers; // Entity đăng ký tham gia CLB
+import com.swp391.clubmanagement.entity.PaymentHistoryArchive; // Entity lịch sử thanh toán đã lưu trữ
+import com.swp391.clubmanagement.entity.PaymentSettlementOutbox; // Event settlement kèm snapshot thanh toán
 import com.swp391.clubmanagement.entity.Users; // Entity người dùng
 
 // ========== Exception ==========
@@ -18,9 +19,16 @@ import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
 
 // ========== Repository ==========
 import com.swp391.clubmanagement.repository.ClubRepository; // Repository cho bảng Clubs
+import com.swp391.clubmanagement.repository.MembershipRepository; // Repository cho bảng Memberships
+import com.swp391.clubmanagement.repository.PaymentHistoryArchiveRepository; // Repository cho bảng PaymentHistoryArchive
 import com.swp391.clubmanagement.repository.PaymentHistoryRepository; // Repository cho bảng PaymentHistory
+import com.swp391.clubmanagement.repository.RegisterRepository; // Repository cho bảng Registers
 import com.swp391.clubmanagement.repository.UserRepository; // Repository cho bảng Users
 
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.RevenueReportEngine; // Gom báo cáo doanh thu một lần duyệt
+import com.swp391.clubmanagement.utils.VndAmount; // Kiểu tiền VND dạng long
+
 // ========== Lombok ==========
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
@@ -29,13 +37,13 @@ import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
 
 // ========== Spring Framework ==========
 import org.springframework.data.domain.Page; // Phân trang
+import org.springframework.data.domain.PageImpl; // Ghép trang từ hai bảng
 import org.springframework.data.domain.Pageable; // Thông tin phân trang
 import org.springframework.security.core.context.SecurityContextHolder; // Lấy user hiện tại từ JWT
 import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
 import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
 
 // ========== Java Standard Library ==========
-import java.math.BigDecimal; // Số tiền (doanh thu)
 import java.time.LocalDateTime; // Ngày giờ
 import java.util.*; // Collections
 import java.util.stream.Collectors; // Collect stream thành collection
@@ -44,7 +52,7 @@ import java.util.stream.Collectors; // Collect stream thành collection
  * Service xử lý lịch sử giao dịch và tính doanh thu
  * 
  * Chức năng chính:
- * - Tạo payment history record khi thanh toán thành công
+ * - Tạo payment history record khi thanh toán thành công (SettlementEventHandler, chạy từ outbox sau settlement)
  * - Xem lịch sử giao dịch của user hiện tại
  * - Xem lịch sử giao dịch của một CLB
  * - Tính tổng doanh thu của một CLB
@@ -52,9 +60,13 @@ import java.util.stream.Collectors; // Collect stream thành collection
  * - Tính doanh thu theo tháng kèm danh sách doanh thu từng CLB
  * 
  * Business Rules:
- * - Payment history được tạo tự động khi Leader xác nhận thanh toán
+ * - Payment history được tạo tự động khi Leader xác nhận thanh toán / PayOS báo đã thanh toán,
+ *   mỗi event settlement đúng một record (unique settlement_outbox_id), từ snapshot trong event
+ *   (đăng ký được thanh toán lại khi gia hạn / tham gia lại, mỗi lần là một giao dịch riêng)
  * - Doanh thu chỉ tính các giao dịch đã thanh toán thành công
  * - Có thể tính doanh thu theo CLB hoặc theo tháng
+ * - Giao dịch cũ được chuyển sang PaymentHistoryArchive (xem PaymentArchiveService);
+ *   các query theo khoảng thời gian chỉ đọc bảng cần thiết và gộp kết quả khi khoảng thời gian nằm ở cả hai bảng
  * 
  * @Service: Spring Service Bean, được quản lý bởi IoC Container
  * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
@@ -65,17 +77,29 @@ import java.util.stream.Collectors; // Collect stream thành collection
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Slf4j
-public class PaymentHistoryService {
+public class PaymentHistoryService implements SettlementEventHandler {
     
     /** Repository thao tác với bảng payment_history */
     PaymentHistoryRepository paymentHistoryRepository;
     
+    /** Repository thao tác với bảng payment_history_archive (giao dịch đã lưu trữ) */
+    PaymentHistoryArchiveRepository paymentHistoryArchiveRepository;
+    
+    /** Quyết định đọc bảng nóng / kho lưu trữ cho từng query */
+    PaymentArchiveService paymentArchiveService;
+    
     /** Repository thao tác với bảng users */
     UserRepository userRepository;
     
     /** Repository thao tác với bảng clubs */
     ClubRepository clubRepository;
     
+    /** Repository thao tác với bảng registers (tham chiếu theo ID khi tạo payment history) */
+    RegisterRepository registerRepository;
+    
+    /** Repository thao tác với bảng memberships (tham chiếu theo ID khi tạo payment history) */
+    MembershipRepository membershipRepository;
+    
     /**
      * Lấy user hiện tại từ SecurityContext
      */
@@ -87,57 +111,127 @@ public class PaymentHistoryService {
     }
     
     /**
-     * Tạo payment history record khi thanh toán thành công
+     * Settlement handler: tạo payment history cho event settlement (idempotent theo outboxId - bỏ qua nếu đã có)
+     */
+    @Override
+    public void onPaymentSettled(PaymentSettlementOutbox event) {
+        if (paymentHistoryRepository.existsBySettlementOutboxId(event.getOutboxId())) {
+            log.info("Payment history already exists for settlement event {}, skipping", event.getOutboxId());
+            return;
+        }
+        createPaymentHistory(event);
+    }
+    
+    /**
+     * Tạo payment history record từ snapshot của event settlement
+     * Unique settlement_outbox_id chặn record trùng nếu hai relay cùng xử lý một event
      */
     @Transactional
-    public PaymentHistory createPaymentHistory(Registers register) {
+    public PaymentHistory createPaymentHistory(PaymentSettlementOutbox event) {
+        if (event.getAmount() == null || event.getPaymentDate() == null || event.getPackageId() == null) {
+            throw new IllegalStateException("Settlement event " + event.getOutboxId() + " has no payment snapshot");
+        }
         PaymentHistory paymentHistory = PaymentHistory.builder()
-                .register(register)
-                .user(register.getUser())
-                .club(register.getMembershipPackage().getClub())
-                .membershipPackage(register.getMembershipPackage())
-                .amount(register.getMembershipPackage().getPrice())
-                .paymentMethod(register.getPaymentMethod())
-                .payosOrderCode(register.getPayosOrderCode())
-                .payosReference(register.getPayosReference())
-                .paymentDate(register.getPaymentDate())
+                .register(registerRepository.getReferenceById(event.getSubscriptionId()))
+                .settlementOutboxId(event.getOutboxId())
+                .user(userRepository.getReferenceById(event.getUserId()))
+                .club(clubRepository.getReferenceById(event.getClubId()))
+                .membershipPackage(membershipRepository.getReferenceById(event.getPackageId()))
+                .amount(event.getAmount())
+                .paymentMethod(event.getPaymentMethod())
+                .payosOrderCode(event.getPayosOrderCode())
+                .payosReference(event.getPayosReference())
+                .paymentDate(event.getPaymentDate())
                 .build();
         
         paymentHistory = paymentHistoryRepository.save(paymentHistory);
-        log.info("Created payment history record: paymentId={}, subscriptionId={}, amount={}", 
-                paymentHistory.getPaymentId(), register.getSubscriptionId(), paymentHistory.getAmount());
+        log.info("Created payment history record: paymentId={}, subscriptionId={}, settlementEvent={}, amount={}", 
+                paymentHistory.getPaymentId(), event.getSubscriptionId(), event.getOutboxId(), paymentHistory.getAmount());
         
         return paymentHistory;
     }
     
     /**
      * Xem lịch sử giao dịch của user hiện tại
+     * Giao dịch đã lưu trữ (cũ hơn) được nối tiếp sau các giao dịch trong bảng nóng
      */
+    @Transactional(readOnly = true)
     public Page<PaymentHistoryResponse> getMyPaymentHistory(Pageable pageable) {
         Users currentUser = getCurrentUser();
         Page<PaymentHistory> paymentHistoryPage = paymentHistoryRepository.findByUser(currentUser, pageable);
-        return paymentHistoryPage.map(this::toPaymentHistoryResponse);
+        if (!paymentArchiveService.hasArchivedData()) {
+            return paymentHistoryPage.map(this::toPaymentHistoryResponse);
+        }
+        
+        String userId = currentUser.getUserId();
+        return appendArchivedPage(paymentHistoryPage, pageable,
+                paymentHistoryArchiveRepository.countByUserId(userId),
+                (offset, limit) -> paymentHistoryArchiveRepository.findByUserIdWithOffset(userId, offset, limit));
     }
     
     /**
      * Xem lịch sử giao dịch của một CLB
+     * Giao dịch đã lưu trữ (cũ hơn) được nối tiếp sau các giao dịch trong bảng nóng
      */
+    @Transactional(readOnly = true)
     public Page<PaymentHistoryResponse> getClubPaymentHistory(Integer clubId, Pageable pageable) {
         Clubs club = clubRepository.findById(clubId)
                 .orElseThrow(() -> new AppException(ErrorCode.CLUB_NOT_FOUND));
         Page<PaymentHistory> paymentHistoryPage = paymentHistoryRepository.findByClub(club, pageable);
-        return paymentHistoryPage.map(this::toPaymentHistoryResponse);
+        if (!paymentArchiveService.hasArchivedData()) {
+            return paymentHistoryPage.map(this::toPaymentHistoryResponse);
+        }
+        
+        return appendArchivedPage(paymentHistoryPage, pageable,
+                paymentHistoryArchiveRepository.countByClubId(clubId),
+                (offset, limit) -> paymentHistoryArchiveRepository.findByClubIdWithOffset(clubId, offset, limit));
     }
     
     /**
-     * Tính tổng doanh thu của một CLB
+     * Ghép trang bảng nóng với phần tiếp theo từ kho lưu trữ
+     * Thứ tự tổng thể: toàn bộ giao dịch bảng nóng (theo sort của client), sau đó giao dịch lưu trữ (mới nhất trước).
+     * Với sort mặc định (paymentDate DESC) thứ tự này trùng với thứ tự thời gian vì giao dịch lưu trữ luôn cũ hơn.
      */
+    private Page<PaymentHistoryResponse> appendArchivedPage(
+            Page<PaymentHistory> hotPage, Pageable pageable, long archivedTotal, ArchivedSliceLoader loader) {
+        long hotTotal = hotPage.getTotalElements();
+        List<PaymentHistoryResponse> content = new ArrayList<>(pageable.getPageSize());
+        hotPage.forEach(paymentHistory -> content.add(toPaymentHistoryResponse(paymentHistory)));
+        
+        int remaining = pageable.getPageSize() - content.size();
+        if (remaining > 0 && archivedTotal > 0) {
+            // Vị trí bắt đầu trong kho lưu trữ = offset của trang trừ đi số giao dịch bảng nóng đã hiển thị ở các trang trước
+            long archiveOffset = Math.max(0, pageable.getOffset() - hotTotal);
+            loader.load(archiveOffset, remaining)
+                    .forEach(archived -> content.add(toPaymentHistoryResponse(archived)));
+        }
+        
+        return new PageImpl<>(content, pageable, hotTotal + archivedTotal);
+    }
+    
+    /**
+     * Đọc một đoạn giao dịch lưu trữ theo offset tuyệt đối
+     */
+    @FunctionalInterface
+    private interface ArchivedSliceLoader {
+        List<PaymentHistoryArchive> load(long offset, int limit);
+    }
+    
+    /**
+     * Tính tổng doanh thu của một CLB (bảng nóng + kho lưu trữ)
+     */
+    @Transactional(readOnly = true)
     public RevenueResponse calculateRevenueByClub(Integer clubId) {
         Clubs club = clubRepository.findById(clubId)
                 .orElseThrow(() -> new AppException(ErrorCode.CLUB_NOT_FOUND));
         
-        BigDecimal totalRevenue = paymentHistoryRepository.calculateTotalRevenueByClub(clubId);
-        Long transactionCount = paymentHistoryRepository.countByClub(club);
+        VndAmount totalRevenue = VndAmount.of(paymentHistoryRepository.calculateTotalRevenueByClub(clubId));
+        long transactionCount = paymentHistoryRepository.countByClub(club);
+        if (paymentArchiveService.hasArchivedData()) {
+            totalRevenue = totalRevenue.add(
+                    VndAmount.toLong(paymentHistoryArchiveRepository.calculateTotalRevenueByClub(clubId)));
+            transactionCount += paymentHistoryArchiveRepository.countByClubId(clubId);
+        }
         
         return RevenueResponse.builder()
                 .totalRevenue(totalRevenue)
@@ -150,6 +244,7 @@ public class PaymentHistoryService {
     /**
      * Tính doanh thu của một CLB theo tháng
      */
+    @Transactional(readOnly = true)
     public List<RevenueResponse> calculateRevenueByClubByMonth(
             Integer clubId, LocalDateTime startDate, LocalDateTime endDate) {
         Clubs club = clubRepository.findById(clubId)
@@ -158,113 +253,139 @@ public class PaymentHistoryService {
         // Điều chỉnh endDate thành cuối ngày để tính đủ cả ngày hôm đó
         LocalDateTime adjustedEndDate = endDate.toLocalDate().atTime(23, 59, 59, 999999999);
         
-        List<Object[]> results = paymentHistoryRepository.calculateRevenueByClubByMonth(
-                clubId, startDate, adjustedEndDate);
+        RoutedRows rows = loadRouted(startDate, adjustedEndDate,
+                (start, end) -> paymentHistoryRepository.calculateRevenueByClubByMonth(clubId, start, end),
+                (startYear, endYear, start, end) -> paymentHistoryArchiveRepository.calculateRevenueByClubByMonth(
+                        clubId, startYear, endYear, start, end));
         
-        return results.stream().map(result -> {
-            BigDecimal totalRevenue = (BigDecimal) result[2];
-            Long transactionCount = ((Number) result[3]).longValue();
-            
-            return RevenueResponse.builder()
-                    .clubId(clubId)
-                    .clubName(club.getClubName())
-                    .totalRevenue(totalRevenue)
-                    .transactionCount(transactionCount)
-                    .startDate(startDate)
-                    .endDate(endDate)
-                    .build();
-        }).collect(Collectors.toList());
+        return RevenueReportEngine.byMonth(rows.hot(), rows.archive(), false,
+                (year, month, revenue, transactionCount, groups) -> RevenueResponse.builder()
+                        .clubId(clubId)
+                        .clubName(club.getClubName())
+                        .totalRevenue(VndAmount.of(revenue))
+                        .transactionCount(transactionCount)
+                        .startDate(startDate)
+                        .endDate(endDate)
+                        .build());
     }
     
     /**
      * Tính doanh thu theo tháng (giữ nguyên để tương thích với các API khác)
      */
+    @Transactional(readOnly = true)
     public List<RevenueResponse> calculateRevenueByMonth(
             LocalDateTime startDate, LocalDateTime endDate) {
         // Điều chỉnh endDate thành cuối ngày để tính đủ cả ngày hôm đó
         LocalDateTime adjustedEndDate = endDate.toLocalDate().atTime(23, 59, 59, 999999999);
         
-        List<Object[]> results = paymentHistoryRepository.calculateRevenueByMonth(startDate, adjustedEndDate);
+        // Dùng chung query theo CLB và tháng, engine cộng dồn tổng của từng tháng
+        RoutedRows rows = loadRouted(startDate, adjustedEndDate,
+                paymentHistoryRepository::calculateRevenueByClubAndMonth,
+                paymentHistoryArchiveRepository::calculateRevenueByClubAndMonth);
         
-        return results.stream().map(result -> {
-            BigDecimal totalRevenue = (BigDecimal) result[2];
-            Long transactionCount = ((Number) result[3]).longValue();
-            
-            return RevenueResponse.builder()
-                    .totalRevenue(totalRevenue)
-                    .transactionCount(transactionCount)
-                    .startDate(startDate)
-                    .endDate(endDate)
-                    .build();
-        }).collect(Collectors.toList());
+        return RevenueReportEngine.byMonth(rows.hot(), rows.archive(), false,
+                (year, month, revenue, transactionCount, groups) -> RevenueResponse.builder()
+                        .totalRevenue(VndAmount.of(revenue))
+                        .transactionCount(transactionCount)
+                        .startDate(startDate)
+                        .endDate(endDate)
+                        .build());
     }
     
     /**
      * Tính doanh thu theo tháng kèm danh sách doanh thu từng CLB
      */
+    @Transactional(readOnly = true)
     public List<RevenueByMonthWithClubsResponse> calculateRevenueByMonthWithClubs(
             LocalDateTime startDate, LocalDateTime endDate) {
         // Điều chỉnh endDate thành cuối ngày để tính đủ cả ngày hôm đó
         LocalDateTime adjustedEndDate = endDate.toLocalDate().atTime(23, 59, 59, 999999999);
         
-        // Lấy dữ liệu doanh thu theo CLB và tháng
-        List<Object[]> results = paymentHistoryRepository.calculateRevenueByClubAndMonth(
-                startDate, adjustedEndDate);
+        // Lấy dữ liệu doanh thu theo CLB và tháng (đã sắp xếp theo tháng giảm dần, doanh thu giảm dần)
+        RoutedRows rows = loadRouted(startDate, adjustedEndDate,
+                paymentHistoryRepository::calculateRevenueByClubAndMonth,
+                paymentHistoryArchiveRepository::calculateRevenueByClubAndMonth);
         
-        // Group by month (year, month) để tính tổng và danh sách CLB
-        Map<String, RevenueByMonthWithClubsResponse> monthMap = new LinkedHashMap<>();
+        return RevenueReportEngine.byMonth(rows.hot(), rows.archive(), true,
+                (year, month, revenue, transactionCount, groups) -> RevenueByMonthWithClubsResponse.builder()
+                        .year(year)
+                        .month(month)
+                        .totalRevenue(VndAmount.of(revenue))
+                        .totalTransactionCount(transactionCount)
+                        .clubRevenues(groups.stream()
+                                .map(group -> RevenueByMonthWithClubsResponse.ClubRevenueItem.builder()
+                                        .clubId(group.groupId())
+                                        .clubName(group.groupName())
+                                        .revenue(VndAmount.of(group.revenue()))
+                                        .transactionCount(group.transactionCount())
+                                        .build())
+                                .collect(Collectors.toList()))
+                        .build());
+    }
+    
+    /**
+     * Tính doanh thu theo từng gói membership của một CLB trong khoảng thời gian (doanh thu giảm dần)
+     */
+    @Transactional(readOnly = true)
+    public List<RevenueResponse> calculateRevenueByPackageForClub(
+            Integer clubId, LocalDateTime startDate, LocalDateTime endDate) {
+        Clubs club = clubRepository.findById(clubId)
+                .orElseThrow(() -> new AppException(ErrorCode.CLUB_NOT_FOUND));
         
-        for (Object[] result : results) {
-            Integer year = ((Number) result[0]).intValue();
-            Integer month = ((Number) result[1]).intValue();
-            Integer clubId = ((Number) result[2]).intValue();
-            String clubName = (String) result[3];
-            BigDecimal revenue = (BigDecimal) result[4];
-            Long transactionCount = ((Number) result[5]).longValue();
-            
-            // Tạo key cho tháng (year-month)
-            String monthKey = year + "-" + month;
-            
-            // Lấy hoặc tạo response cho tháng này
-            final Integer finalYear = year;
-            final Integer finalMonth = month;
-            RevenueByMonthWithClubsResponse monthResponse = monthMap.computeIfAbsent(monthKey, k -> 
-                RevenueByMonthWithClubsResponse.builder()
-                        .year(finalYear)
-                        .month(finalMonth)
-                        .totalRevenue(BigDecimal.ZERO)
-                        .totalTransactionCount(0L)
-                        .clubRevenues(new ArrayList<>())
-                        .build()
-            );
-            
-            // Cộng dồn tổng doanh thu và số giao dịch
-            monthResponse.setTotalRevenue(monthResponse.getTotalRevenue().add(revenue));
-            monthResponse.setTotalTransactionCount(
-                    monthResponse.getTotalTransactionCount() + transactionCount);
-            
-            // Thêm doanh thu của CLB vào danh sách
-            RevenueByMonthWithClubsResponse.ClubRevenueItem clubItem = 
-                RevenueByMonthWithClubsResponse.ClubRevenueItem.builder()
-                        .clubId(clubId)
-                        .clubName(clubName)
-                        .revenue(revenue)
-                        .transactionCount(transactionCount)
-                        .build();
-            
-            monthResponse.getClubRevenues().add(clubItem);
-        }
+        // Điều chỉnh endDate thành cuối ngày để tính đủ cả ngày hôm đó
+        LocalDateTime adjustedEndDate = endDate.toLocalDate().atTime(23, 59, 59, 999999999);
         
-        // Chuyển map thành list và sắp xếp theo tháng giảm dần
-        return monthMap.values().stream()
-                .sorted((a, b) -> {
-                    int yearCompare = b.getYear().compareTo(a.getYear());
-                    if (yearCompare != 0) return yearCompare;
-                    return b.getMonth().compareTo(a.getMonth());
-                })
+        RoutedRows rows = loadRouted(startDate, adjustedEndDate,
+                (start, end) -> paymentHistoryRepository.calculateRevenueByPackageForClub(clubId, start, end),
+                (startYear, endYear, start, end) -> paymentHistoryArchiveRepository.calculateRevenueByPackageForClub(
+                        clubId, startYear, endYear, start, end));
+        
+        return RevenueReportEngine.byGroup(rows.hot(), rows.archive()).stream()
+                .map(group -> RevenueResponse.builder()
+                        .clubId(clubId)
+                        .clubName(club.getClubName())
+                        .packageId(group.groupId())
+                        .packageName(group.groupName())
+                        .totalRevenue(VndAmount.of(group.revenue()))
+                        .transactionCount(group.transactionCount())
+                        .startDate(startDate)
+                        .endDate(endDate)
+                        .build())
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Chạy query doanh thu trên bảng nóng và/hoặc kho lưu trữ tùy theo khoảng thời gian
+     * Bảng không cần đọc trả về danh sách rỗng
+     */
+    private RoutedRows loadRouted(LocalDateTime startDate, LocalDateTime adjustedEndDate,
+                                  HotRevenueQuery hotQuery, ArchiveRevenueQuery archiveQuery) {
+        int startYear = startDate.getYear();
+        int endYear = adjustedEndDate.getYear();
+        return switch (paymentArchiveService.route(startDate, adjustedEndDate)) {
+            case HOT -> new RoutedRows(hotQuery.load(startDate, adjustedEndDate), List.of());
+            case ARCHIVE -> new RoutedRows(List.of(), archiveQuery.load(startYear, endYear, startDate, adjustedEndDate));
+            case BOTH -> new RoutedRows(hotQuery.load(startDate, adjustedEndDate),
+                    archiveQuery.load(startYear, endYear, startDate, adjustedEndDate));
+        };
+    }
+    
+    /** Kết quả query doanh thu của bảng nóng và kho lưu trữ (cùng shape) */
+    private record RoutedRows(List<Object[]> hot, List<Object[]> archive) {
+    }
+    
+    /** Query doanh thu trên bảng nóng PaymentHistory */
+    @FunctionalInterface
+    private interface HotRevenueQuery {
+        List<Object[]> load(LocalDateTime startDate, LocalDateTime endDate);
+    }
+    
+    /** Query doanh thu trên kho lưu trữ PaymentHistoryArchive (lọc thêm theo archive_year) */
+    @FunctionalInterface
+    private interface ArchiveRevenueQuery {
+        List<Object[]> load(Integer startYear, Integer endYear, LocalDateTime startDate, LocalDateTime endDate);
+    }
+    
     /**
      * Convert PaymentHistory entity sang PaymentHistoryResponse DTO
      */
@@ -287,5 +408,28 @@ public class PaymentHistoryService {
                 .createdAt(paymentHistory.getCreatedAt())
                 .build();
     }
+    
+    /**
+     * Convert PaymentHistoryArchive (snapshot đã lưu trữ) sang PaymentHistoryResponse DTO
+     */
+    private PaymentHistoryResponse toPaymentHistoryResponse(PaymentHistoryArchive archived) {
+        return PaymentHistoryResponse.builder()
+                .paymentId(archived.getPaymentId())
+                .subscriptionId(archived.getSubscriptionId())
+                .userId(archived.getUserId())
+                .userName(archived.getUserName())
+                .userEmail(archived.getUserEmail())
+                .clubId(archived.getClubId())
+                .clubName(archived.getClubName())
+                .packageId(archived.getPackageId())
+                .packageName(archived.getPackageName())
+                .amount(archived.getAmount())
+                .paymentMethod(archived.getPaymentMethod())
+                .payosOrderCode(archived.getPayosOrderCode())
+                .payosReference(archived.getPayosReference())
+                .paymentDate(archived.getPaymentDate())
+                .createdAt(archived.getCreatedAt())
+                .build();
+    }
 }
 
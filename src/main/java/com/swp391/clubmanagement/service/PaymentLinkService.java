@@ -0,0 +1,280 @@
+// Package định nghĩa service layer - tạo payment link PayOS cho đăng ký CLB
+package com.swp391.clubmanagement.service;
+
+// ========== DTO ==========
+import com.swp391.clubmanagement.dto.request.PayOSCreatePaymentRequest; // Request tạo payment link gửi PayOS
+import com.swp391.clubmanagement.dto.response.PaymentLinkResponse; // Response payment link trả về client
+import com.swp391.clubmanagement.dto.response.PayOSPaymentLinkResponse; // Response PayOS
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.Registers; // Entity đăng ký tham gia CLB
+
+// ========== Enum ==========
+import com.swp391.clubmanagement.enums.JoinStatus; // Trạng thái đăng ký
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.RegisterRepository; // Repository cho bảng Registers
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction ngắn cho từng bước
+
+// ========== Java Standard Library ==========
+import java.math.BigDecimal; // Giá gói membership
+import java.time.Duration; // Thời gian giữ chỗ orderCode
+import java.time.Instant; // Thời điểm
+import java.util.Collections; // Danh sách 1 phần tử
+
+/**
+ * Service tạo payment link PayOS cho đăng ký CLB
+ *
+ * Chức năng chính:
+ * - Tạo payment link cho một đăng ký đã được duyệt, hoặc trả về link đang chờ thanh toán nếu đã có
+ *
+ * Business Rules:
+ * - Lời gọi PayOS nằm NGOÀI transaction và lock của register, chia làm 3 bước:
+ *   1. Giữ chỗ (transaction ngắn, khóa register): kiểm tra điều kiện, gán orderCode mới vào register
+ *   2. Gọi PayOS (không giữ connection database hay lock nào)
+ *   3. Ghi nhận (transaction ngắn, khóa register): lưu paymentLinkId nếu register vẫn giữ đúng orderCode đã gán
+ * - Gọi PayOS thất bại -> bù trừ: xóa orderCode đã giữ chỗ để user tạo lại được
+ * - Register đang giữ chỗ (có orderCode, chưa có paymentLinkId) -> request khác nhận 409,
+ *   trừ khi chỗ giữ đã quá reservation-timeout (request trước bị dừng giữa chừng) thì được giữ chỗ lại
+ * - Webhook của cùng register chỉ chờ lock trong bước 1 và 3 (vài millisecond), không chờ theo PayOS
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentLinkService {
+
+    /** URL trang thanh toán của PayOS theo paymentLinkId */
+    private static final String PAYOS_CHECKOUT_URL = "https://pay.payos.vn/web/";
+
+    /** Frontend nhận redirect từ PayOS (PayOS không chấp nhận localhost) */
+    private static final String FRONTEND_URL = "https://club-management-system-ochre.vercel.app";
+
+    /** Repository thao tác với bảng registers */
+    RegisterRepository registerRepository;
+
+    /** Gọi PayOS API */
+    PayOSService payOSService;
+
+    /** Sinh orderCode duy nhất */
+    OrderCodeGenerator orderCodeGenerator;
+
+    /** Transaction ngắn cho bước giữ chỗ, ghi nhận và bù trừ */
+    TransactionTemplate transactionTemplate;
+
+    /** Thời gian tối đa một orderCode được giữ chỗ chờ PayOS trả lời */
+    @NonFinal
+    @Value("${payos.payment-link.reservation-timeout-seconds:60}")
+    long reservationTimeoutSeconds;
+
+    /**
+     * Kết quả bước giữ chỗ: link đã có sẵn, hoặc thông tin cần để gọi PayOS
+     */
+    private record Reservation(PaymentLinkResponse existing, Integer subscriptionId, long orderCode,
+                               int amount, String packageName) {
+    }
+
+    /**
+     * Tạo payment link cho đăng ký subscriptionId của user currentUserId
+     *
+     * @return Payment link và cờ cho biết link có sẵn từ trước hay vừa tạo
+     */
+    public PaymentLinkResult createPaymentLink(Integer subscriptionId, String currentUserId) {
+        Reservation reservation = transactionTemplate.execute(status -> reserve(subscriptionId, currentUserId));
+        if (reservation.existing() != null) {
+            return new PaymentLinkResult(reservation.existing(), true);
+        }
+
+        PayOSPaymentLinkResponse payOSResponse;
+        try {
+            payOSResponse = callPayOS(reservation);
+        } catch (RuntimeException e) {
+            log.error("Creating PayOS payment link failed: subscriptionId={}, orderCode={}",
+                    subscriptionId, reservation.orderCode(), e);
+            transactionTemplate.executeWithoutResult(status -> releaseReservation(reservation));
+            throw e;
+        }
+
+        PaymentLinkResponse response = transactionTemplate.execute(status -> confirm(reservation, payOSResponse));
+        return new PaymentLinkResult(response, false);
+    }
+
+    /**
+     * Bước 1: khóa register, kiểm tra điều kiện và gán orderCode mới
+     */
+    private Reservation reserve(Integer subscriptionId, String currentUserId) {
+        // Pessimistic lock chỉ giữ trong transaction ngắn này
+        Registers register = registerRepository.findByIdWithLock(subscriptionId)
+                .orElseThrow(() -> new AppException(ErrorCode.REGISTER_NOT_FOUND));
+
+        // Kiểm tra quyền: chỉ user sở hữu register mới được tạo payment link
+        if (!register.getUser().getUserId().equals(currentUserId)) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+
+        // Kiểm tra đã thanh toán chưa
+        if (Boolean.TRUE.equals(register.getIsPaid())) {
+            throw new AppException(ErrorCode.PAYMENT_ALREADY_PROCESSED);
+        }
+
+        // Kiểm tra đã được duyệt chưa
+        if (register.getStatus() != JoinStatus.DaDuyet) {
+            throw new AppException(ErrorCode.INVALID_APPLICATION_STATUS);
+        }
+
+        // Kiểm tra price hợp lệ
+        BigDecimal price = register.getMembershipPackage().getPrice();
+        if (price == null || price.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        // Đã có payment link đang chờ thanh toán -> trả về link đó
+        if (register.getPayosOrderCode() != null && register.getPayosPaymentLinkId() != null) {
+            log.info("Payment link already exists for subscriptionId: {}, orderCode: {}, paymentLinkId: {}. Returning existing link.",
+                    register.getSubscriptionId(), register.getPayosOrderCode(), register.getPayosPaymentLinkId());
+            PaymentLinkResponse existing = PaymentLinkResponse.builder()
+                    .paymentLink(PAYOS_CHECKOUT_URL + register.getPayosPaymentLinkId())
+                    .orderCode(register.getPayosOrderCode())
+                    .paymentLinkId(register.getPayosPaymentLinkId())
+                    .build();
+            return new Reservation(existing, subscriptionId, register.getPayosOrderCode(), 0, null);
+        }
+
+        // Một request khác đang tạo link (đã giữ orderCode, chưa có paymentLinkId)
+        if (register.getPayosOrderCode() != null && !isStale(register.getPayosOrderCode())) {
+            throw new AppException(ErrorCode.PAYMENT_LINK_IN_PROGRESS);
+        }
+
+        // Sinh orderCode duy nhất (Snowflake: thời gian + node ID + sequence), không cần query kiểm tra trùng
+        long orderCode = orderCodeGenerator.nextOrderCode();
+        register.setPayosOrderCode(orderCode);
+        registerRepository.save(register);
+
+        // PayOS yêu cầu amount là số nguyên (VND), price trong DB đã là VND
+        return new Reservation(null, subscriptionId, orderCode, price.intValue(),
+                register.getMembershipPackage().getPackageName());
+    }
+
+    /**
+     * Bước 2: gọi PayOS (không có transaction, không giữ lock)
+     */
+    private PayOSPaymentLinkResponse callPayOS(Reservation reservation) {
+        // PayOS sẽ redirect về returnUrl với query params: code, id, cancel, status, orderCode
+        String returnUrl = FRONTEND_URL + "/payment/success?subscriptionId=" + reservation.subscriptionId();
+        String cancelUrl = FRONTEND_URL + "/payment/cancel?subscriptionId=" + reservation.subscriptionId();
+
+        // PayOS giới hạn description tối đa 25 ký tự
+        String description = "Phi CLB" + reservation.packageName();
+
+        PayOSCreatePaymentRequest.ItemData item = PayOSCreatePaymentRequest.ItemData.builder()
+                .name(reservation.packageName())
+                .quantity(1)
+                .price(reservation.amount())
+                .build();
+
+        PayOSCreatePaymentRequest payOSRequest = PayOSCreatePaymentRequest.builder()
+                .orderCode(reservation.orderCode())
+                .amount(reservation.amount())
+                .description(description)
+                .items(Collections.singletonList(item))
+                .returnUrl(returnUrl)
+                .cancelUrl(cancelUrl)
+                .build();
+
+        PayOSPaymentLinkResponse payOSResponse = payOSService.createPaymentLink(payOSRequest);
+
+        // Validate response
+        if (payOSResponse == null || payOSResponse.getData() == null) {
+            log.error("PayOS response is null or data is null for subscriptionId: {}", reservation.subscriptionId());
+            throw new AppException(ErrorCode.PAYMENT_LINK_CREATION_FAILED, "PayOS returned invalid response");
+        }
+        if (payOSResponse.getData().getOrderCode() == null || payOSResponse.getData().getPaymentLinkId() == null) {
+            log.error("PayOS response missing required fields: orderCode={}, paymentLinkId={}",
+                    payOSResponse.getData().getOrderCode(), payOSResponse.getData().getPaymentLinkId());
+            throw new AppException(ErrorCode.PAYMENT_LINK_CREATION_FAILED, "PayOS response missing required fields");
+        }
+        return payOSResponse;
+    }
+
+    /**
+     * Bước 3: khóa register và lưu paymentLinkId cho orderCode đã giữ chỗ
+     */
+    private PaymentLinkResponse confirm(Reservation reservation, PayOSPaymentLinkResponse payOSResponse) {
+        Registers register = registerRepository.findByIdWithLock(reservation.subscriptionId())
+                .orElseThrow(() -> new AppException(ErrorCode.REGISTER_NOT_FOUND));
+
+        // Register đã bị hủy/đăng ký lại trong lúc gọi PayOS -> link vừa tạo không còn thuộc về register này
+        if (!Long.valueOf(reservation.orderCode()).equals(register.getPayosOrderCode())) {
+            log.warn("Reservation lost while calling PayOS: subscriptionId={}, reservedOrderCode={}, currentOrderCode={}",
+                    reservation.subscriptionId(), reservation.orderCode(), register.getPayosOrderCode());
+            throw new AppException(ErrorCode.PAYMENT_LINK_CREATION_FAILED, "Đăng ký đã thay đổi trong lúc tạo payment link");
+        }
+
+        // Lưu orderCode từ PayOS response (có thể khác với orderCode ta gửi lên)
+        register.setPayosOrderCode(payOSResponse.getData().getOrderCode());
+        register.setPayosPaymentLinkId(payOSResponse.getData().getPaymentLinkId());
+        registerRepository.save(register);
+
+        log.info("Saved PayOS info to register: subscriptionId={}, orderCode={}, paymentLinkId={}",
+                register.getSubscriptionId(),
+                payOSResponse.getData().getOrderCode(),
+                payOSResponse.getData().getPaymentLinkId());
+
+        return PaymentLinkResponse.builder()
+                .paymentLink(PAYOS_CHECKOUT_URL + payOSResponse.getData().getPaymentLinkId())
+                .qrCode(payOSResponse.getData().getQrCode())
+                .orderCode(payOSResponse.getData().getOrderCode())
+                .paymentLinkId(payOSResponse.getData().getPaymentLinkId())
+                .build();
+    }
+
+    /**
+     * Bù trừ khi gọi PayOS thất bại: bỏ orderCode đã giữ chỗ (nếu register vẫn đang giữ đúng orderCode đó)
+     */
+    private void releaseReservation(Reservation reservation) {
+        registerRepository.findByIdWithLock(reservation.subscriptionId()).ifPresent(register -> {
+            if (Long.valueOf(reservation.orderCode()).equals(register.getPayosOrderCode())
+                    && register.getPayosPaymentLinkId() == null) {
+                register.setPayosOrderCode(null);
+                registerRepository.save(register);
+            }
+        });
+    }
+
+    /**
+     * Chỗ giữ đã quá hạn chưa (thời điểm giữ chỗ được giải mã từ chính orderCode)
+     */
+    private boolean isStale(long orderCode) {
+        Instant reservedAt = OrderCodeGenerator.issuedAt(orderCode);
+        return reservedAt.plus(Duration.ofSeconds(reservationTimeoutSeconds)).isBefore(Instant.now());
+    }
+
+    /**
+     * Payment link trả về cho controller
+     *
+     * @param link     Thông tin payment link
+     * @param existing true nếu là link đang chờ thanh toán đã tạo từ trước
+     */
+    public record PaymentLinkResult(PaymentLinkResponse link, boolean existing) {
+    }
+}
@@ -0,0 +1,266 @@
+// Package định nghĩa service layer - đối soát đơn hàng PayOS chưa nhận được webhook
+package com.swp391.clubmanagement.service;
+
+// ========== DTO ==========
+import com.swp391.clubmanagement.dto.response.PayOSPaymentInfoResponse; // Trạng thái đơn hàng từ PayOS
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.RegisterRepository; // Repository cho bảng Registers
+
+// ========== Resilience4j ==========
+import io.github.resilience4j.ratelimiter.RateLimiter; // Giới hạn số lời gọi PayOS mỗi giây
+import io.github.resilience4j.ratelimiter.RateLimiterConfig; // Cấu hình rate limiter
+import io.github.resilience4j.ratelimiter.RequestNotPermitted; // Chờ lượt gọi quá lâu
+
+// ========== Micrometer ==========
+import io.micrometer.core.instrument.Counter; // Đếm số đơn đã kiểm tra / ghi nhận / lỗi
+import io.micrometer.core.instrument.MeterRegistry; // Đăng ký metric
+import io.micrometer.core.instrument.Timer; // Thời gian mỗi lần chạy
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.data.domain.PageRequest; // Giới hạn kích thước lô
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho việc gỡ payment link
+
+// ========== Java Standard Library ==========
+import java.time.Duration; // Khoảng thời gian
+import java.time.Instant; // Thời điểm
+import java.util.List; // Danh sách
+import java.util.concurrent.atomic.AtomicLong; // Giá trị gauge
+
+/**
+ * Service đối soát (reconciliation) thanh toán PayOS
+ *
+ * Chức năng chính:
+ * - Định kỳ tìm các đăng ký đã có payment link nhưng chưa thanh toán, tạo cách đây hơn min-age-minutes
+ * - Hỏi PayOS trạng thái thực tế của từng đơn; đơn PAID được ghi nhận qua đúng đường settlement của webhook
+ *   (PaymentSettlementService, idempotent) -> webhook bị mất không còn phải chờ Chủ tịch xác nhận tay
+ * - Đơn PayOS báo CANCELLED / EXPIRED (sinh viên bỏ dở) được gỡ khỏi đăng ký: không bị hỏi lại mỗi lần chạy
+ *   trong suốt lookback-hours, và lần tạo link sau sinh đơn mới thay vì trả lại link đã hủy
+ *
+ * Business Rules:
+ * - Thời điểm tạo đơn được giải mã từ orderCode (OrderCodeGenerator), nên lọc "cũ hơn N phút" và
+ *   "không cũ hơn lookback-hours" chỉ là so sánh khoảng orderCode, duyệt keyset theo index payos_order_code
+ * - Lời gọi PayOS bị giới hạn rate-per-second (rate limiter) và vẫn đi qua circuit breaker / bulkhead của PayOSService;
+ *   PayOS không khả dụng -> dừng lần chạy hiện tại, lần sau chạy lại
+ * - Chạy song song trên nhiều instance vẫn an toàn (settlement khóa register và kiểm tra isPaid)
+ * - Chỉ đối soát đơn có orderCode do OrderCodeGenerator sinh ra: đơn tạo trước đó (mã cũ = subscriptionId + hậu tố
+ *   thời gian, hoặc timestamp * 100000 + ...) không giải mã được thời điểm tạo, nằm ngoài khoảng orderCode và
+ *   không bao giờ được hỏi PayOS. Chỉ ảnh hưởng đơn chưa thanh toán tạo trong lookback-hours trước khi triển khai;
+ *   các đơn đó vẫn được ghi nhận qua webhook hoặc Leader xác nhận tay như trước
+ *
+ * Metric:
+ * - payos.reconciliation.checked / settled / closed / failed: số đơn đã hỏi PayOS / được ghi nhận nhờ đối soát /
+ *   đã kết thúc không thanh toán / lỗi
+ * - payos.reconciliation.lag.seconds: tuổi của đơn PayOS còn đang chờ (PENDING / PROCESSING) cũ nhất trong lần chạy gần nhất
+ * - payos.reconciliation.pending: số đơn PayOS còn đang chờ (PENDING / PROCESSING) trong lần chạy gần nhất
+ * - payos.reconciliation.run: thời gian mỗi lần chạy
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentReconciliationService {
+
+    /** Repository thao tác với bảng registers */
+    RegisterRepository registerRepository;
+
+    /** Hỏi trạng thái đơn hàng từ PayOS */
+    PayOSService payOSService;
+
+    /** Ghi nhận thanh toán (cùng đường với webhook) */
+    PaymentSettlementService paymentSettlementService;
+
+    /** Transaction cho việc gỡ payment link đã kết thúc */
+    TransactionTemplate transactionTemplate;
+
+    /** Giới hạn số lời gọi PayOS mỗi giây */
+    RateLimiter rateLimiter;
+
+    boolean enabled;
+    int batchSize;
+    Duration minAge;
+    Duration lookback;
+
+    Counter checkedCounter;
+    Counter settledCounter;
+    Counter closedCounter;
+    Counter failedCounter;
+    Timer runTimer;
+    AtomicLong lagSeconds = new AtomicLong();
+    AtomicLong pendingOrders = new AtomicLong();
+
+    public PaymentReconciliationService(
+            RegisterRepository registerRepository,
+            PayOSService payOSService,
+            PaymentSettlementService paymentSettlementService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payos.reconciliation.enabled:true}") boolean enabled,
+            @Value("${payos.reconciliation.batch-size:50}") int batchSize,
+            @Value("${payos.reconciliation.min-age-minutes:10}") long minAgeMinutes,
+            @Value("${payos.reconciliation.lookback-hours:72}") long lookbackHours,
+            @Value("${payos.reconciliation.rate-per-second:5}") int ratePerSecond) {
+        this.registerRepository = registerRepository;
+        this.payOSService = payOSService;
+        this.paymentSettlementService = paymentSettlementService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.minAge = Duration.ofMinutes(minAgeMinutes);
+        this.lookback = Duration.ofHours(lookbackHours);
+        this.rateLimiter = RateLimiter.of("payos-reconciliation", RateLimiterConfig.custom()
+                .limitForPeriod(ratePerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(30))
+                .build());
+
+        this.checkedCounter = meterRegistry.counter("payos.reconciliation.checked");
+        this.settledCounter = meterRegistry.counter("payos.reconciliation.settled");
+        this.closedCounter = meterRegistry.counter("payos.reconciliation.closed");
+        this.failedCounter = meterRegistry.counter("payos.reconciliation.failed");
+        this.runTimer = meterRegistry.timer("payos.reconciliation.run");
+        meterRegistry.gauge("payos.reconciliation.lag.seconds", lagSeconds);
+        meterRegistry.gauge("payos.reconciliation.pending", pendingOrders);
+    }
+
+    /**
+     * Job định kỳ: đối soát các đơn chưa thanh toán với PayOS
+     */
+    @Scheduled(fixedDelayString = "${payos.reconciliation.fixed-delay-ms:300000}",
+            initialDelayString = "${payos.reconciliation.initial-delay-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        runTimer.record(this::reconcileOnce);
+    }
+
+    private void reconcileOnce() {
+        Instant now = Instant.now();
+        long after = OrderCodeGenerator.lowerBoundAt(now.minus(lookback)) - 1;
+        long before = OrderCodeGenerator.lowerBoundAt(now.minus(minAge));
+
+        long oldestPending = -1;
+        int pending = 0;
+        int settled = 0;
+        int closed = 0;
+        try {
+            while (true) {
+                List<Long> orderCodes = registerRepository.findUnpaidOrderCodes(after, before,
+                        PageRequest.of(0, batchSize));
+                if (orderCodes.isEmpty()) {
+                    break;
+                }
+                for (Long orderCode : orderCodes) {
+                    switch (reconcileOrder(orderCode)) {
+                        case SETTLED -> settled++;
+                        case CLOSED -> closed++;
+                        case PENDING -> {
+                            pending++;
+                            if (oldestPending < 0) {
+                                // Keyset tăng dần theo orderCode = tăng dần theo thời gian tạo đơn
+                                oldestPending = orderCode;
+                            }
+                        }
+                        case FAILED -> { }
+                    }
+                }
+                after = orderCodes.get(orderCodes.size() - 1);
+            }
+        } catch (AppException e) {
+            // PayOS không khả dụng / quá tải: dừng lần chạy này, lần sau tiếp tục
+            log.warn("Payment reconciliation stopped early: {}", e.getErrorCode());
+        } catch (RequestNotPermitted e) {
+            log.warn("Payment reconciliation stopped early: rate limiter timeout");
+        }
+
+        pendingOrders.set(pending);
+        lagSeconds.set(oldestPending < 0 ? 0
+                : Duration.between(OrderCodeGenerator.issuedAt(oldestPending), now).toSeconds());
+        if (settled > 0 || closed > 0 || pending > 0) {
+            log.info("Payment reconciliation finished: settled={}, closed={}, stillPending={}", settled, closed, pending);
+        }
+    }
+
+    /**
+     * Đối soát một đơn hàng
+     *
+     * @throws AppException khi PayOS không khả dụng (dừng cả lần chạy)
+     */
+    private Outcome reconcileOrder(Long orderCode) {
+        RateLimiter.waitForPermission(rateLimiter);
+        PayOSPaymentInfoResponse.PaymentInfo info;
+        try {
+            info = payOSService.getPaymentInfo(orderCode).getData();
+        } catch (AppException e) {
+            if (e.getErrorCode() == ErrorCode.PAYMENT_NOT_FOUND) {
+                failedCounter.increment();
+                return Outcome.FAILED;
+            }
+            failedCounter.increment();
+            throw e;
+        } finally {
+            checkedCounter.increment();
+        }
+
+        String status = info.getStatus();
+        if ("CANCELLED".equals(status) || "EXPIRED".equals(status)) {
+            Integer released = transactionTemplate.execute(
+                    tx -> registerRepository.releaseClosedPaymentLink(orderCode));
+            if (released != null && released > 0) {
+                closedCounter.increment();
+                log.info("Payment link closed without payment: orderCode={}, status={}", orderCode, status);
+            }
+            return Outcome.CLOSED;
+        }
+        if (!"PAID".equals(status)) {
+            // PENDING / PROCESSING: vẫn có thể được thanh toán
+            return Outcome.PENDING;
+        }
+
+        String reference = info.getTransactions() != null && !info.getTransactions().isEmpty()
+                ? info.getTransactions().get(0).getReference()
+                : null;
+        Integer amount = info.getAmountPaid() != null ? info.getAmountPaid() : info.getAmount();
+        try {
+            if (paymentSettlementService.settlePayOSPayment(orderCode, amount, reference)) {
+                settledCounter.increment();
+                log.info("Payment reconciled from PayOS status: orderCode={}, reference={}", orderCode, reference);
+            }
+            return Outcome.SETTLED;
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.error("Payment reconciliation settlement failed: orderCode={}", orderCode, e);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Kết quả đối soát một đơn hàng
+     */
+    private enum Outcome {
+        /** PayOS báo PAID, đã ghi nhận thanh toán */
+        SETTLED,
+        /** PENDING / PROCESSING: chưa thanh toán, còn có thể thanh toán */
+        PENDING,
+        /** CANCELLED / EXPIRED: kết thúc không thanh toán, đã gỡ khỏi đăng ký */
+        CLOSED,
+        /** Không hỏi được PayOS / ghi nhận lỗi, lần sau thử lại */
+        FAILED
+    }
+}
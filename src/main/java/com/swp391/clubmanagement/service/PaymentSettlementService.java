@@ -0,0 +1,187 @@
+// Package định nghĩa service layer - ghi nhận thanh toán thành công cho đăng ký CLB
+package com.swp391.clubmanagement.service;
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.Registers; // Entity đăng ký tham gia CLB
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.RegisterRepository; // Repository cho bảng Registers
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
+
+// ========== Java Standard Library ==========
+import java.time.LocalDateTime; // Ngày giờ
+
+/**
+ * Service ghi nhận thanh toán (settlement) cho đăng ký CLB
+ * 
+ * Chức năng chính:
+ * - Ghi nhận thanh toán PayOS theo orderCode: đánh dấu đã thanh toán, set thời hạn membership, tạo payment history
+ * 
+ * Business Rules:
+ * - Idempotent: gọi nhiều lần với cùng orderCode chỉ ghi nhận một lần (kiểm tra isPaid sau khi khóa register)
+ * - Register được khóa pessimistic (SELECT ... FOR UPDATE) để các webhook đồng thời không ghi nhận trùng
+ * - Số tiền PayOS báo về phải khớp giá gói membership
+ * 
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentSettlementService {
+    
+    /** Repository thao tác với bảng registers */
+    RegisterRepository registerRepository;
+    
+    /** Ghi event vào outbox để chạy các tác vụ phụ (payment history...) sau commit */
+    SettlementOutboxService settlementOutboxService;
+    
+    /**
+     * Ghi nhận thanh toán PayOS thành công cho đơn hàng orderCode
+     * 
+     * @param orderCode Mã đơn hàng PayOS
+     * @param amount Số tiền PayOS báo đã thanh toán (VND)
+     * @param reference Mã tham chiếu giao dịch của PayOS
+     * @return true nếu lần gọi này ghi nhận thanh toán, false nếu đơn đã được ghi nhận trước đó
+     */
+    @Transactional
+    public boolean settlePayOSPayment(Long orderCode, Integer amount, String reference) {
+        Registers registerFound = registerRepository.findByPayosOrderCode(orderCode)
+                .orElseThrow(() -> {
+                    log.error("Register not found for orderCode: {}", orderCode);
+                    return new AppException(ErrorCode.PAYMENT_NOT_FOUND);
+                });
+        
+        // Lock register để tránh race condition khi xử lý webhook đồng thời
+        // Reload với lock để đảm bảo dữ liệu mới nhất
+        Integer subscriptionId = registerFound.getSubscriptionId();
+        Registers register = registerRepository.findByIdWithLock(subscriptionId)
+                .orElseThrow(() -> {
+                    log.error("Register not found after lock for subscriptionId: {}", subscriptionId);
+                    return new AppException(ErrorCode.PAYMENT_NOT_FOUND);
+                });
+        
+        // Kiểm tra đã thanh toán chưa (double-check sau khi lock)
+        if (Boolean.TRUE.equals(register.getIsPaid())) {
+            log.info("Payment already processed for orderCode: {} (duplicate event)", orderCode);
+            return false;
+        }
+        
+        // Kiểm tra amount có khớp không (tránh fraud)
+        int expectedAmount = register.getMembershipPackage().getPrice().intValue();
+        if (amount == null || expectedAmount != amount) {
+            log.error("Amount mismatch for orderCode: {}. Expected: {}, Received: {}", 
+                    orderCode, expectedAmount, amount);
+            throw new AppException(ErrorCode.INVALID_PAYMENT_SIGNATURE);
+        }
+        
+        // Cập nhật thông tin thanh toán
+        LocalDateTime now = DateTimeUtils.nowVietnam();
+        register.setIsPaid(true);
+        register.setPaymentDate(now);
+        register.setPaymentMethod("PayOS");
+        register.setPayosReference(reference);
+        
+        // Set thời gian bắt đầu và kết thúc membership dựa trên term của gói
+        register.setStartDate(now);
+        LocalDateTime endDate = calculateEndDate(now, register.getMembershipPackage().getTerm());
+        register.setEndDate(endDate);
+        
+        register = registerRepository.save(register);
+        
+        // Tác vụ phụ (payment history...) chạy sau qua outbox, chỉ ghi một dòng trong transaction này
+        // (kèm đánh thức client đang long-poll trạng thái đơn sau khi commit)
+        settlementOutboxService.record(register);
+        
+        log.info("Payment settled for subscriptionId: {}, orderCode: {}, membership valid until: {}", 
+                register.getSubscriptionId(), orderCode, endDate);
+        return true;
+    }
+    
+    /**
+     * Helper method: Tính toán endDate dựa trên term của gói membership
+     * @param startDate Ngày bắt đầu
+     * @param term Kỳ hạn (VD: "1 tháng", "3 tháng", "6 tháng", "1 năm")
+     * @return Ngày hết hạn
+     */
+    private LocalDateTime calculateEndDate(LocalDateTime startDate, String term) {
+        if (term == null || term.isEmpty()) {
+            // Mặc định 1 năm nếu không có term
+            log.warn("Term is null or empty. Using default 1 year");
+            return startDate.plusYears(1);
+        }
+        
+        // Chuyển về lowercase và trim để dễ xử lý
+        String normalizedTerm = term.toLowerCase().trim();
+        
+        // Parse term và tính endDate
+        if (normalizedTerm.contains("tháng")) {
+            // Trích xuất số tháng (VD: "1 tháng", "3 tháng", "6 tháng")
+            try {
+                String[] parts = normalizedTerm.split("\\s+");
+                int months = Integer.parseInt(parts[0]);
+                log.info("Calculated end date: {} months from {}", months, startDate);
+                return startDate.plusMonths(months);
+            } catch (Exception e) {
+                log.warn("Cannot parse term: {}. Using default 6 months", term);
+                return startDate.plusMonths(6);
+            }
+        } else if (normalizedTerm.contains("năm")) {
+            // Trích xuất số năm (VD: "1 năm", "2 năm")
+            try {
+                String[] parts = normalizedTerm.split("\\s+");
+                int years = Integer.parseInt(parts[0]);
+                log.info("Calculated end date: {} years from {}", years, startDate);
+                return startDate.plusYears(years);
+            } catch (Exception e) {
+                log.warn("Cannot parse term: {}. Using default 1 year", term);
+                return startDate.plusYears(1);
+            }
+        } else if (normalizedTerm.contains("month")) {
+            // Support English format (VD: "1 month", "6 months")
+            try {
+                String[] parts = normalizedTerm.split("\\s+");
+                int months = Integer.parseInt(parts[0]);
+                log.info("Calculated end date: {} months from {}", months, startDate);
+                return startDate.plusMonths(months);
+            } catch (Exception e) {
+                log.warn("Cannot parse term: {}. Using default 6 months", term);
+                return startDate.plusMonths(6);
+            }
+        } else if (normalizedTerm.contains("year")) {
+            // Support English format (VD: "1 year", "2 years")
+            try {
+                String[] parts = normalizedTerm.split("\\s+");
+                int years = Integer.parseInt(parts[0]);
+                log.info("Calculated end date: {} years from {}", years, startDate);
+                return startDate.plusYears(years);
+            } catch (Exception e) {
+                log.warn("Cannot parse term: {}. Using default 1 year", term);
+                return startDate.plusYears(1);
+            }
+        } else {
+            // Format không nhận diện được, mặc định 1 năm
+            log.warn("Unknown term format: {}. Using default 1 year", term);
+            return startDate.plusYears(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+// Package định nghĩa service layer - thông báo trạng thái thanh toán cho các request long-poll
+package com.swp391.clubmanagement.service;
+
+// ========== Lombok ==========
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionSynchronization; // Callback sau khi commit
+import org.springframework.transaction.support.TransactionSynchronizationManager; // Transaction hiện tại
+
+// ========== Java Standard Library ==========
+import java.util.Map; // Map orderCode -> waiter
+import java.util.Set; // Danh sách waiter của một đơn
+import java.util.concurrent.CompletableFuture; // Waiter được hoàn tất khi đơn thanh toán
+import java.util.concurrent.ConcurrentHashMap; // Map thread-safe
+
+/**
+ * Service thông báo trong process khi một đơn hàng PayOS được thanh toán
+ *
+ * Chức năng chính:
+ * - Request long-poll (GET /payments/{orderCode}/status) đăng ký một waiter theo orderCode rồi "đỗ" lại,
+ *   không giữ thread và không query database định kỳ
+ * - Khi một thanh toán được ghi nhận (SettlementOutboxService.record: webhook, đối soát, Leader xác nhận), mọi waiter của orderCode được đánh thức SAU KHI transaction commit
+ *   (client đọc lại sẽ luôn thấy isPaid = true)
+ *
+ * Business Rules:
+ * - Thông báo chỉ trong một instance: client đang chờ ở instance khác sẽ nhận kết quả khi hết thời gian chờ
+ *   và gọi lại (lần gọi lại đọc trạng thái từ database)
+ * - Waiter tự gỡ khỏi map khi hoàn tất (thanh toán, timeout hoặc client ngắt kết nối)
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@Slf4j
+public class PaymentStatusNotifier {
+
+    /** orderCode -> các waiter đang chờ đơn đó */
+    private final Map<Long, Set<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Đăng ký chờ đơn orderCode được thanh toán (future hoàn tất với true khi có thông báo)
+     *
+     * Gọi trước khi đọc trạng thái từ database để không lỡ thông báo xảy ra giữa hai bước.
+     * Người gọi phải gọi {@link #cancel} khi không chờ nữa.
+     */
+    public CompletableFuture<Boolean> await(Long orderCode) {
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        // Thêm waiter bên trong compute (nguyên tử với cancel / notifyPaid): không bao giờ thêm vào một set
+        // vừa bị gỡ khỏi map, nơi notifyPaid không còn thấy
+        waiters.compute(orderCode, (key, set) -> {
+            Set<CompletableFuture<Boolean>> orderWaiters = set != null ? set : ConcurrentHashMap.newKeySet();
+            orderWaiters.add(waiter);
+            return orderWaiters;
+        });
+        return waiter;
+    }
+
+    /**
+     * Gỡ waiter khỏi danh sách chờ (timeout, client ngắt kết nối, đã có kết quả)
+     */
+    public void cancel(Long orderCode, CompletableFuture<Boolean> waiter) {
+        waiters.computeIfPresent(orderCode, (key, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Báo đơn orderCode đã thanh toán: đánh thức waiter sau khi transaction hiện tại commit
+     * (hoặc ngay lập tức nếu không có transaction)
+     */
+    public void notifyPaidAfterCommit(Long orderCode) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyPaid(orderCode);
+                }
+            });
+        } else {
+            notifyPaid(orderCode);
+        }
+    }
+
+    private void notifyPaid(Long orderCode) {
+        Set<CompletableFuture<Boolean>> orderWaiters = waiters.remove(orderCode);
+        if (orderWaiters == null) {
+            return;
+        }
+        log.debug("Waking {} payment status waiters for orderCode={}", orderWaiters.size(), orderCode);
+        for (CompletableFuture<Boolean> waiter : orderWaiters) {
+            waiter.complete(Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+// Package định nghĩa service layer - gửi email qua pool kết nối SMTP
+package com.swp391.clubmanagement.service;
+
+// ========== Resilience4j ==========
+import io.github.resilience4j.ratelimiter.RateLimiter; // Giới hạn số email mỗi giây theo nhà cung cấp
+import io.github.resilience4j.ratelimiter.RateLimiterConfig; // Cấu hình rate limiter
+
+// ========== Micrometer ==========
+import io.micrometer.core.instrument.Counter; // Đếm số email gửi thành công / lỗi
+import io.micrometer.core.instrument.MeterRegistry; // Đăng ký metric
+import io.micrometer.core.instrument.Timer; // Thời gian gửi mỗi lô
+
+// ========== Jakarta ==========
+import jakarta.annotation.PreDestroy; // Đóng kết nối khi ứng dụng dừng
+import jakarta.mail.MessagingException; // Lỗi SMTP
+import jakarta.mail.Transport; // Kết nối SMTP
+import jakarta.mail.internet.MimeMessage; // Email message (HTML)
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.mail.javamail.JavaMailSenderImpl; // Session + thông tin SMTP từ spring.mail.*
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+
+// ========== Java Standard Library ==========
+import java.time.Duration; // Khoảng thời gian
+import java.util.ArrayList; // Danh sách
+import java.util.List; // Danh sách
+import java.util.concurrent.ArrayBlockingQueue; // Các kết nối đang rảnh
+import java.util.concurrent.BlockingQueue; // Các kết nối đang rảnh
+import java.util.concurrent.CompletableFuture; // Gửi song song trên nhiều kết nối
+import java.util.concurrent.ExecutorService; // Thread gửi email
+import java.util.concurrent.Executors; // Tạo thread pool
+import java.util.concurrent.TimeUnit; // Đơn vị thời gian
+import java.util.concurrent.atomic.AtomicLong; // Giá trị gauge
+
+/**
+ * Service gửi email qua một pool nhỏ các kết nối SMTP đã xác thực
+ *
+ * Chức năng chính:
+ * - sendAll: gửi một lô email, chia đều cho tối đa pool-size kết nối chạy song song,
+ *   mỗi kết nối gửi lần lượt nhiều email (không bắt tay TCP/TLS/AUTH lại cho từng email như JavaMailSender.send)
+ * - createMimeMessage: tạo email trên cùng Session với pool (cấu hình spring.mail.*)
+ *
+ * Business Rules:
+ * - Kết nối được giữ lại giữa các lô; kết nối rảnh quá idle-seconds hoặc đã gửi max-messages-per-connection email
+ *   thì đóng và mở lại (server SMTP thường tự cắt kết nối rảnh / giới hạn số email mỗi phiên)
+ * - Lỗi của một email không làm hỏng cả lô: kết quả trả về theo từng email; kết nối lỗi bị đóng, email sau mở kết nối mới
+ * - Tổng số email gửi đi bị giới hạn rate-per-second (giới hạn của nhà cung cấp SMTP), chung cho mọi kết nối
+ *
+ * Metric:
+ * - mail.smtp.sent / mail.smtp.failed: số email gửi thành công / lỗi
+ * - mail.smtp.throughput: số email/giây của lô gần nhất
+ * - mail.smtp.batch: thời gian gửi mỗi lô
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PooledMailTransport {
+
+    /** Session + host/port/username/password từ spring.mail.* */
+    JavaMailSenderImpl mailSender;
+
+    /** Các kết nối đang rảnh */
+    BlockingQueue<PooledConnection> idle;
+
+    /** Thread gửi song song, mỗi thread giữ một kết nối trong lúc gửi */
+    ExecutorService executor;
+
+    /** Giới hạn số email mỗi giây */
+    RateLimiter rateLimiter;
+
+    int poolSize;
+    long idleMillis;
+    int maxMessagesPerConnection;
+
+    Counter sentCounter;
+    Counter failedCounter;
+    Timer batchTimer;
+    AtomicLong throughput = new AtomicLong();
+
+    public PooledMailTransport(
+            JavaMailSenderImpl mailSender,
+            MeterRegistry meterRegistry,
+            @Value("${app.mail-transport.pool-size:3}") int poolSize,
+            @Value("${app.mail-transport.idle-seconds:60}") long idleSeconds,
+            @Value("${app.mail-transport.max-messages-per-connection:100}") int maxMessagesPerConnection,
+            @Value("${app.mail-transport.rate-per-second:10}") int ratePerSecond) {
+        this.mailSender = mailSender;
+        this.poolSize = poolSize;
+        this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            idle.add(new PooledConnection());
+        }
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "smtp-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rateLimiter = RateLimiter.of("smtp", RateLimiterConfig.custom()
+                .limitForPeriod(ratePerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofMinutes(5))
+                .build());
+
+        this.sentCounter = meterRegistry.counter("mail.smtp.sent");
+        this.failedCounter = meterRegistry.counter("mail.smtp.failed");
+        this.batchTimer = meterRegistry.timer("mail.smtp.batch");
+        meterRegistry.gauge("mail.smtp.throughput", throughput);
+    }
+
+    /**
+     * Email rỗng trên Session của pool
+     */
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Gửi một lô email qua pool kết nối
+     *
+     * @return danh sách cùng thứ tự với messages: null nếu gửi thành công, ngược lại là lỗi của email đó
+     */
+    public List<Exception> sendAll(List<MimeMessage> messages) {
+        List<Exception> results = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            results.add(null);
+        }
+        if (messages.isEmpty()) {
+            return results;
+        }
+
+        long start = System.nanoTime();
+        int slices = Math.min(poolSize, messages.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(slices);
+        for (int slice = 0; slice < slices; slice++) {
+            int first = slice;
+            futures.add(CompletableFuture.runAsync(() -> {
+                // Mỗi slice gửi các email first, first + slices, ... trên một kết nối
+                PooledConnection connection = borrow();
+                try {
+                    for (int i = first; i < messages.size(); i += slices) {
+                        results.set(i, connection.send(messages.get(i)));
+                    }
+                } finally {
+                    idle.add(connection);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        long elapsedNanos = System.nanoTime() - start;
+        batchTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        long sent = results.stream().filter(r -> r == null).count();
+        sentCounter.increment(sent);
+        failedCounter.increment(messages.size() - sent);
+        throughput.set(sent * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos));
+        return results;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        idle.forEach(PooledConnection::close);
+    }
+
+    private PooledConnection borrow() {
+        try {
+            // Chỉ có pool-size slice chạy cùng lúc nên luôn lấy được kết nối
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for SMTP connection", e);
+        }
+    }
+
+    /**
+     * Một kết nối SMTP được tái sử dụng (chỉ một thread dùng tại một thời điểm)
+     */
+    private final class PooledConnection {
+
+        private Transport transport;
+        private long lastUsedAt;
+        private int messagesSent;
+
+        Exception send(MimeMessage message) {
+            try {
+                RateLimiter.waitForPermission(rateLimiter);
+                Transport connected = connection();
+                message.saveChanges();
+                connected.sendMessage(message, message.getAllRecipients());
+                messagesSent++;
+                lastUsedAt = System.currentTimeMillis();
+                return null;
+            } catch (Exception e) {
+                // Không biết kết nối còn dùng được không: đóng, email sau mở kết nối mới
+                close();
+                return e;
+            }
+        }
+
+        private Transport connection() throws MessagingException {
+            boolean expired = System.currentTimeMillis() - lastUsedAt > idleMillis
+                    || messagesSent >= maxMessagesPerConnection;
+            if (transport != null && (expired || !transport.isConnected())) {
+                close();
+            }
+            if (transport == null) {
+                Transport opened = mailSender.getSession().getTransport(mailSender.getProtocol());
+                opened.connect(mailSender.getHost(), mailSender.getPort(),
+                        mailSender.getUsername(), mailSender.getPassword());
+                transport = opened;
+                messagesSent = 0;
+                log.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+            }
+            return transport;
+        }
+
+        void close() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error closing SMTP connection", e);
+            }
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+// Package định nghĩa service layer - tác vụ phụ chạy sau khi một đăng ký được thanh toán
+package com.swp391.clubmanagement.service;
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.PaymentSettlementOutbox; // Event settlement kèm snapshot thanh toán
+
+/**
+ * Tác vụ phụ chạy sau khi một đăng ký được ghi nhận thanh toán (payment history, email, thống kê...)
+ *
+ * Mọi bean implement interface này được SettlementOutboxService gọi lần lượt cho từng event trong outbox,
+ * trong transaction của event đó, SAU khi transaction settlement đã commit.
+ *
+ * Business Rules:
+ * - Handler phải idempotent theo event (outboxId): event lỗi ở một handler được chạy lại cho TẤT CẢ handler.
+ *   Không dùng subscriptionId làm khóa idempotent - cùng một đăng ký được thanh toán lại khi gia hạn / tham gia lại
+ * - Dùng snapshot trong event (số tiền, gói, mã PayOS, ngày thanh toán), không đọc lại đăng ký:
+ *   lúc relay chạy đăng ký có thể đã thuộc về lần thanh toán sau
+ * - Ném exception -> cả event được thử lại với backoff (transaction của event bị rollback)
+ */
+public interface SettlementEventHandler {
+
+    /**
+     * Xử lý một lần thanh toán đã được ghi nhận
+     *
+     * @param event Event settlement (outboxId, subscriptionId và snapshot của lần thanh toán)
+     */
+    void onPaymentSettled(PaymentSettlementOutbox event);
+}
@@ -0,0 +1,226 @@
+// Package định nghĩa service layer - outbox cho các tác vụ phụ sau khi ghi nhận thanh toán
+package com.swp391.clubmanagement.service;
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.PaymentSettlementOutbox; // Entity outbox settlement
+import com.swp391.clubmanagement.entity.Memberships; // Entity gói membership
+import com.swp391.clubmanagement.entity.Registers; // Entity đăng ký tham gia CLB
+
+// ========== Enum ==========
+import com.swp391.clubmanagement.enums.ProcessingStatus; // Trạng thái xử lý event
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.PaymentSettlementOutboxRepository; // Repository cho bảng PaymentSettlementOutbox
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.annotation.Propagation; // Bắt buộc chạy trong transaction settlement
+import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng event
+
+// ========== Java Standard Library ==========
+import java.time.LocalDateTime; // Ngày giờ
+import java.util.List; // Danh sách
+
+/**
+ * Service outbox cho các tác vụ phụ sau khi một đăng ký được ghi nhận thanh toán
+ *
+ * Chức năng chính:
+ * - record: ghi một event vào PaymentSettlementOutbox, TRONG transaction settlement (webhook, đối soát, xác nhận tay)
+ * - relay: job nền lấy event theo lô và gọi lần lượt mọi SettlementEventHandler (payment history, ...)
+ *
+ * Business Rules:
+ * - Transaction settlement chỉ ghi thêm một dòng, không phụ thuộc số lượng tác vụ phụ
+ * - Dòng outbox chứa snapshot của lần thanh toán (số tiền, gói, mã PayOS, ngày thanh toán): handler không đọc lại
+ *   đăng ký, vì đăng ký được dùng lại khi gia hạn / tham gia lại
+ *   -> thêm handler mới không làm settlement chậm hơn
+ * - Event và thay đổi của đăng ký commit cùng nhau: không mất tác vụ phụ khi ứng dụng dừng giữa chừng
+ * - Lấy lô bằng SELECT ... FOR UPDATE SKIP LOCKED và chuyển DangXuLy ngay, nên nhiều instance relay không lấy trùng
+ * - Mỗi event chạy mọi handler + đánh dấu DaXuLy trong cùng một transaction; lỗi -> rollback và thử lại với
+ *   backoff tăng dần (retry-base-seconds * 2^(attempts-1)), quá max-attempts -> ThatBai
+ * - Handler phải idempotent theo outboxId (event lỗi được chạy lại cho tất cả handler)
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SettlementOutboxService {
+
+    /** Backoff tối đa giữa hai lần thử (1 giờ) */
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    /** Độ dài tối đa của lỗi lưu lại */
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    /** Repository thao tác với bảng payment_settlement_outbox */
+    PaymentSettlementOutboxRepository outboxRepository;
+
+    /** Đánh thức request long-poll trạng thái đơn PayOS */
+    PaymentStatusNotifier paymentStatusNotifier;
+
+    /** Các tác vụ phụ sau settlement (theo thứ tự @Order) */
+    List<SettlementEventHandler> handlers;
+
+    /** Transaction cho claim lô / xử lý từng event / ghi lỗi */
+    TransactionTemplate transactionTemplate;
+
+    /** Số event tối đa mỗi lô */
+    @NonFinal
+    @Value("${app.settlement-outbox.batch-size:100}")
+    int batchSize;
+
+    /** Số lô tối đa mỗi lần chạy relay */
+    @NonFinal
+    @Value("${app.settlement-outbox.max-batches-per-run:20}")
+    int maxBatchesPerRun;
+
+    /** Số lần thử tối đa trước khi chuyển ThatBai */
+    @NonFinal
+    @Value("${app.settlement-outbox.max-attempts:8}")
+    int maxAttempts;
+
+    /** Backoff cơ sở (giây) cho lần thử lại đầu tiên */
+    @NonFinal
+    @Value("${app.settlement-outbox.retry-base-seconds:5}")
+    long retryBaseSeconds;
+
+    /** Sau bao lâu event DangXuLy được coi là bị kẹt (giây) */
+    @NonFinal
+    @Value("${app.settlement-outbox.stale-after-seconds:300}")
+    long staleAfterSeconds;
+
+    /**
+     * Ghi event "đăng ký đã thanh toán" kèm snapshot thanh toán vào outbox (phải gọi trong transaction settlement)
+     * và đánh thức các request long-poll của đơn PayOS (nếu có) sau khi transaction commit
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Registers register) {
+        LocalDateTime now = DateTimeUtils.nowVietnam();
+        Memberships membershipPackage = register.getMembershipPackage();
+        outboxRepository.save(PaymentSettlementOutbox.builder()
+                .subscriptionId(register.getSubscriptionId())
+                .userId(register.getUser().getUserId())
+                .clubId(membershipPackage.getClub().getClubId())
+                .packageId(membershipPackage.getPackageId())
+                .amount(membershipPackage.getPrice())
+                .paymentMethod(register.getPaymentMethod())
+                .payosOrderCode(register.getPayosOrderCode())
+                .payosReference(register.getPayosReference())
+                .paymentDate(register.getPaymentDate())
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        // Mọi đường ghi nhận thanh toán đều qua đây (kể cả Leader xác nhận đơn đã có link PayOS)
+        if (register.getPayosOrderCode() != null) {
+            paymentStatusNotifier.notifyPaidAfterCommit(register.getPayosOrderCode());
+        }
+    }
+
+    /**
+     * Job định kỳ: chạy tác vụ phụ cho các event đến hạn trong outbox (tối đa max-batches-per-run lô mỗi lần)
+     */
+    @Scheduled(fixedDelayString = "${app.settlement-outbox.poll-delay-ms:1000}")
+    public void relay() {
+        try {
+            LocalDateTime staleBefore = DateTimeUtils.nowVietnam().minusSeconds(staleAfterSeconds);
+            Integer released = transactionTemplate.execute(status -> outboxRepository.releaseStale(
+                    ProcessingStatus.ChoXuLy, ProcessingStatus.DangXuLy, staleBefore));
+            if (released != null && released > 0) {
+                log.warn("Released {} stale settlement outbox events", released);
+            }
+
+            for (int batches = 1; ; batches++) {
+                List<PaymentSettlementOutbox> batch = claimBatch();
+                batch.forEach(this::process);
+                if (batch.size() < batchSize || batches >= maxBatchesPerRun) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Settlement outbox relay failed", e);
+        }
+    }
+
+    /**
+     * Khóa một lô event đến hạn và chuyển sang DangXuLy (commit ngay để giải phóng row lock)
+     */
+    private List<PaymentSettlementOutbox> claimBatch() {
+        List<PaymentSettlementOutbox> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = DateTimeUtils.nowVietnam();
+            List<PaymentSettlementOutbox> events = outboxRepository.lockDueBatch(now, batchSize);
+            for (PaymentSettlementOutbox event : events) {
+                event.setStatus(ProcessingStatus.DangXuLy);
+                event.setLockedAt(now);
+            }
+            return outboxRepository.saveAll(events);
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    /**
+     * Xử lý một event: chạy mọi handler + đánh dấu DaXuLy trong cùng transaction
+     */
+    private void process(PaymentSettlementOutbox event) {
+        event.setAttempts(event.getAttempts() + 1);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (SettlementEventHandler handler : handlers) {
+                    handler.onPaymentSettled(event);
+                }
+                event.setStatus(ProcessingStatus.DaXuLy);
+                event.setProcessedAt(DateTimeUtils.nowVietnam());
+                event.setLockedAt(null);
+                event.setLastError(null);
+                outboxRepository.save(event);
+            });
+        } catch (Exception e) {
+            recordFailure(event, e);
+        }
+    }
+
+    /**
+     * Ghi nhận lỗi: lên lịch thử lại với backoff hoặc chuyển ThatBai khi hết số lần thử
+     */
+    private void recordFailure(PaymentSettlementOutbox event, Exception error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        event.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        event.setLockedAt(null);
+        event.setProcessedAt(null);
+
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(ProcessingStatus.ThatBai);
+            log.error("Settlement outbox event {} (subscriptionId={}) failed permanently after {} attempts",
+                    event.getOutboxId(), event.getSubscriptionId(), event.getAttempts(), error);
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_SECONDS, retryBaseSeconds << Math.min(event.getAttempts() - 1, 20));
+            event.setStatus(ProcessingStatus.ChoXuLy);
+            event.setNextAttemptAt(DateTimeUtils.nowVietnam().plusSeconds(backoff));
+            log.warn("Settlement outbox event {} (subscriptionId={}) failed on attempt {}, retrying in {}s: {}",
+                    event.getOutboxId(), event.getSubscriptionId(), event.getAttempts(), backoff, message);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.save(event));
+        } catch (Exception e) {
+            // Event vẫn ở DangXuLy, sẽ được releaseStale trả về hàng đợi
+            log.error("Cannot record failure for settlement outbox event {}", event.getOutboxId(), e);
+        }
+    }
+}
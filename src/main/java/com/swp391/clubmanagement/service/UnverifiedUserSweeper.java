@@ -0,0 +1,97 @@
+// Package định nghĩa service layer - dọn tài khoản chưa xác thực email đã hết hạn
+package com.swp391.clubmanagement.service;
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.UserRepository; // Repository cho bảng Users
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.experimental.NonFinal; // Cho phép field không final
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng lô
+
+// ========== Java Standard Library ==========
+import java.time.LocalDateTime; // Ngày giờ
+
+/**
+ * Job dọn tài khoản đăng ký nhưng không bao giờ xác thực email
+ *
+ * Chức năng chính:
+ * - Định kỳ xóa các tài khoản chưa kích hoạt (is_enabled = false) có verificationExpiry đã qua hơn grace-hours
+ *
+ * Business Rules:
+ * - Tài khoản chưa xác thực không đăng nhập được, link xác thực đã hết hạn -> không còn dùng được;
+ *   xóa đi để bảng Users nhỏ lại và email / mã sinh viên được đăng ký lại
+ * - Xóa theo lô batch-size dòng mỗi transaction (DELETE ... LIMIT), không khóa bảng lâu
+ * - Tài khoản đã phát sinh dữ liệu liên quan (đăng ký CLB, thanh toán...) không bị xóa
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class UnverifiedUserSweeper {
+
+    /** Repository thao tác với bảng users */
+    UserRepository userRepository;
+
+    /** Transaction cho từng lô */
+    TransactionTemplate transactionTemplate;
+
+    /** Bật/tắt job */
+    @NonFinal
+    @Value("${app.unverified-sweeper.enabled:true}")
+    boolean enabled;
+
+    /** Thời gian giữ lại sau khi link xác thực hết hạn (giờ) */
+    @NonFinal
+    @Value("${app.unverified-sweeper.grace-hours:24}")
+    long graceHours;
+
+    /** Số tài khoản xóa mỗi lô */
+    @NonFinal
+    @Value("${app.unverified-sweeper.batch-size:500}")
+    int batchSize;
+
+    /**
+     * Job định kỳ: xóa hết các tài khoản chưa xác thực đã quá hạn
+     */
+    @Scheduled(cron = "${app.unverified-sweeper.cron:0 0 * * * *}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime expiredBefore = DateTimeUtils.nowVietnam().minusHours(graceHours);
+            int total = 0;
+            while (true) {
+                Integer deleted = transactionTemplate.execute(status ->
+                        userRepository.deleteExpiredUnverified(expiredBefore, batchSize));
+                int count = deleted != null ? deleted : 0;
+                total += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Removed {} unverified accounts whose verification expired before {}", total, expiredBefore);
+            }
+        } catch (Exception e) {
+            log.error("Unverified account sweep failed", e);
+        }
+    }
+}
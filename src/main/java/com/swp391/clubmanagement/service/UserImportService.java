@@ -0,0 +1,420 @@
+// Package định nghĩa service layer - import tài khoản sinh viên hàng loạt từ file CSV
+package com.swp391.clubmanagement.service;
+
+// ========== DTO ==========
+import com.swp391.clubmanagement.dto.request.UserCreationRequest; // Dữ liệu một tài khoản
+import com.swp391.clubmanagement.dto.response.UserImportResponse; // Kết quả import
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.Roles; // Entity vai trò trong hệ thống
+import com.swp391.clubmanagement.entity.Users; // Entity người dùng
+
+// ========== Enum ==========
+import com.swp391.clubmanagement.enums.RoleType; // Vai trò hệ thống
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Mapper ==========
+import com.swp391.clubmanagement.mapper.UserMapper; // Chuyển đổi DTO -> Entity
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.RoleRepository; // Repository cho bảng Roles
+import com.swp391.clubmanagement.repository.UserRepository; // Repository cho bảng Users
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+import com.swp391.clubmanagement.utils.TokenDigest; // Băm mã xác thực email
+
+// ========== Jakarta ==========
+import jakarta.persistence.EntityManager; // Flush / clear persistence context theo lô
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.core.NestedExceptionUtils; // Lỗi gốc của exception
+import org.springframework.dao.DataIntegrityViolationException; // Vi phạm ràng buộc khi lưu
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng lô
+import org.springframework.web.multipart.MultipartFile; // File CSV upload
+
+// ========== Java Standard Library ==========
+import java.io.BufferedReader; // Đọc file theo dòng
+import java.io.IOException; // Lỗi đọc file
+import java.io.InputStreamReader; // Đọc file UTF-8
+import java.nio.charset.StandardCharsets; // UTF-8
+import java.sql.SQLIntegrityConstraintViolationException; // Vi phạm ràng buộc (lỗi JDBC gốc)
+import java.util.ArrayList; // Danh sách
+import java.util.HashMap; // Vị trí cột theo tên
+import java.util.HashSet; // Tập email / mã sinh viên
+import java.util.List; // Danh sách
+import java.util.Locale; // Chuẩn hóa chữ thường
+import java.util.Map; // Vị trí cột theo tên
+import java.util.Set; // Tập email / mã sinh viên
+import java.util.UUID; // Mã xác thực email
+
+/**
+ * Service import tài khoản sinh viên hàng loạt (Admin, đầu mỗi đợt nhập học)
+ *
+ * Định dạng file: CSV UTF-8, dòng đầu là header.
+ * - Cột bắt buộc: studentCode, fullName, email, password
+ * - Cột tùy chọn: phoneNumber, major
+ *
+ * Chức năng chính:
+ * - Đọc file theo từng dòng (stream, không đọc cả file vào bộ nhớ), tối đa max-rows dòng
+ * - Kiểm tra dữ liệu từng dòng; kiểm tra trùng trong file và với database bằng tập email / mã sinh viên
+ *   nạp bằng MỘT query (thay vì hai query exists cho mỗi tài khoản như POST /users)
+ * - Băm mật khẩu (BCrypt) trên pool chung của PasswordHashingService, từng đợt nhỏ để đăng nhập vẫn chen vào được
+ * - Lưu theo lô batch-size tài khoản mỗi transaction, Hibernate gom INSERT thành JDBC batch
+ *   (hibernate.jdbc.batch_size); email xác thực được đưa vào hàng đợi cùng transaction của lô
+ * - Trả về kết quả từng dòng (CREATED / FAILED + lý do)
+ *
+ * Business Rules:
+ * - Tài khoản import giống hệt đăng ký qua POST /users: role SinhVien, chưa kích hoạt, phải xác thực email
+ * - Một dòng lỗi không làm hỏng cả file; lô lỗi khi lưu (vd. trùng do đăng ký cùng lúc) được lưu lại từng dòng
+ *   để xác định chính xác dòng nào lỗi
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class UserImportService {
+
+    private static final String STATUS_CREATED = "CREATED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("studentCode", "fullName", "email", "password");
+
+    /** Độ dài tối thiểu của mật khẩu (giống PASSWORD_INVALID) */
+    private static final int MIN_PASSWORD_LENGTH = 8;
+
+    /** Unique key của bảng users (V1, V3) */
+    private static final String EMAIL_UNIQUE_KEY = "uk_users_email";
+    private static final String STUDENT_CODE_UNIQUE_KEY = "uk_users_student_code";
+
+    /** Độ dài tối đa của lỗi trả về cho một dòng */
+    private static final int MAX_ERROR_LENGTH = 300;
+
+    UserRepository userRepository;
+    RoleRepository roleRepository;
+    UserMapper userMapper;
+    PasswordHashingService passwordHashingService;
+    EmailService emailService;
+    EntityManager entityManager;
+    TransactionTemplate transactionTemplate;
+
+    String baseUrl;
+    int maxRows;
+    int batchSize;
+
+    public UserImportService(
+            UserRepository userRepository,
+            RoleRepository roleRepository,
+            UserMapper userMapper,
+            PasswordHashingService passwordHashingService,
+            EmailService emailService,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.base-url:https://clubmanage.azurewebsites.net/api}") String baseUrl,
+            @Value("${app.user-import.max-rows:5000}") int maxRows,
+            @Value("${app.user-import.batch-size:100}") int batchSize) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.userMapper = userMapper;
+        this.passwordHashingService = passwordHashingService;
+        this.emailService = emailService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.baseUrl = baseUrl;
+        this.maxRows = maxRows;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import tài khoản từ file CSV
+     *
+     * @throws AppException INVALID_IMPORT_FILE nếu file rỗng, thiếu cột bắt buộc hoặc vượt quá max-rows
+     * @throws AppException SERVICE_BUSY nếu pool băm mật khẩu quá tải (chưa có tài khoản nào được lưu)
+     */
+    public UserImportResponse importUsers(MultipartFile file) {
+        List<ImportRow> rows = parse(file);
+
+        // Kiểm tra dữ liệu + trùng trong file
+        Set<String> fileEmails = new HashSet<>();
+        Set<String> fileStudentCodes = new HashSet<>();
+        for (ImportRow row : rows) {
+            row.error = validate(row);
+            if (row.error == null && !fileEmails.add(normalize(row.request.getEmail()))) {
+                row.error = "Email bị trùng trong file";
+            }
+            if (row.error == null && !fileStudentCodes.add(normalize(row.request.getStudentCode()))) {
+                row.error = "Mã sinh viên bị trùng trong file";
+            }
+        }
+
+        // Kiểm tra trùng với database: một query cho cả file
+        List<ImportRow> valid = rows.stream().filter(row -> row.error == null).toList();
+        if (!valid.isEmpty()) {
+            Set<String> existingEmails = new HashSet<>();
+            Set<String> existingStudentCodes = new HashSet<>();
+            List<Object[]> existing = userRepository.findExistingEmailsAndStudentCodes(
+                    valid.stream().map(row -> row.request.getEmail()).toList(),
+                    valid.stream().map(row -> row.request.getStudentCode()).toList());
+            for (Object[] pair : existing) {
+                existingEmails.add(normalize((String) pair[0]));
+                existingStudentCodes.add(normalize((String) pair[1]));
+            }
+            for (ImportRow row : valid) {
+                if (existingEmails.contains(normalize(row.request.getEmail()))) {
+                    row.error = ErrorCode.USER_EXISTED.getMessage() + " (email)";
+                } else if (existingStudentCodes.contains(normalize(row.request.getStudentCode()))) {
+                    row.error = ErrorCode.USER_EXISTED.getMessage() + " (mã sinh viên)";
+                }
+            }
+        }
+
+        // Băm mật khẩu trên pool chung (PasswordHashingService)
+        List<ImportRow> accepted = rows.stream().filter(row -> row.error == null).toList();
+        List<String> hashes = passwordHashingService.encodeAll(
+                accepted.stream().map(row -> row.request.getPassword()).toList());
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).passwordHash = hashes.get(i);
+        }
+
+        // Lưu theo lô
+        Roles studentRole = roleRepository.findByRoleName(RoleType.SinhVien)
+                .orElseThrow(() -> new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION));
+        for (int start = 0; start < accepted.size(); start += batchSize) {
+            List<ImportRow> chunk = accepted.subList(start, Math.min(start + batchSize, accepted.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(chunk, studentRole));
+            } catch (RuntimeException e) {
+                // Bỏ các entity của lô đã rollback khỏi persistence context (open-in-view giữ EntityManager cả request)
+                entityManager.clear();
+                log.warn("User import batch failed, retrying {} rows one by one: {}", chunk.size(), e.getMessage());
+                for (ImportRow row : chunk) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> persist(List.of(row), studentRole));
+                    } catch (RuntimeException rowError) {
+                        entityManager.clear();
+                        row.error = describeSaveError(rowError);
+                        log.warn("User import row {} failed: {}", row.line, row.error);
+                    }
+                }
+            }
+        }
+
+        List<UserImportResponse.RowResult> results = new ArrayList<>(rows.size());
+        int created = 0;
+        for (ImportRow row : rows) {
+            if (row.error == null) {
+                created++;
+            }
+            results.add(UserImportResponse.RowResult.builder()
+                    .line(row.line)
+                    .email(row.request.getEmail())
+                    .studentCode(row.request.getStudentCode())
+                    .status(row.error == null ? STATUS_CREATED : STATUS_FAILED)
+                    .message(row.error)
+                    .build());
+        }
+        log.info("User import finished: total={}, created={}, failed={}", rows.size(), created, rows.size() - created);
+        return UserImportResponse.builder()
+                .total(rows.size())
+                .created(created)
+                .failed(rows.size() - created)
+                .rows(results)
+                .build();
+    }
+
+    /**
+     * Lưu một lô tài khoản (trong transaction) và đưa email xác thực vào hàng đợi
+     */
+    private void persist(List<ImportRow> chunk, Roles studentRole) {
+        List<Users> users = new ArrayList<>(chunk.size());
+        List<String> tokens = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            String token = UUID.randomUUID().toString();
+            tokens.add(token);
+            Users user = userMapper.toUser(row.request);
+            user.setPassword(row.passwordHash);
+            user.setRole(studentRole);
+            user.setVerificationCode(TokenDigest.sha256Hex(token));
+            user.setVerificationExpiry(DateTimeUtils.nowVietnam().plusHours(UserService.VERIFICATION_EXPIRY_HOURS));
+            user.setEnabled(false);
+            users.add(user);
+        }
+        // UUID do Hibernate sinh (không phải IDENTITY) nên các INSERT được gom thành JDBC batch khi flush
+        userRepository.saveAll(users);
+        entityManager.flush();
+        for (int i = 0; i < users.size(); i++) {
+            Users user = users.get(i);
+            emailService.sendVerificationEmail(user.getEmail(), user.getFullName(),
+                    baseUrl + "/users/verify?token=" + tokens.get(i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Đọc file CSV theo từng dòng
+     */
+    private List<ImportRow> parse(MultipartFile file) {
+        List<ImportRow> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new AppException(ErrorCode.INVALID_IMPORT_FILE);
+            }
+            if (headerLine.startsWith("\uFEFF")) {
+                headerLine = headerLine.substring(1); // BOM do Excel thêm vào
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> header = splitCsvLine(headerLine);
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+                    throw new AppException(ErrorCode.INVALID_IMPORT_FILE);
+                }
+            }
+
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (rows.size() >= maxRows) {
+                    throw new AppException(ErrorCode.INVALID_IMPORT_FILE);
+                }
+                List<String> values = splitCsvLine(line);
+                rows.add(new ImportRow(lineNumber, UserCreationRequest.builder()
+                        .studentCode(column(values, columns, "studentcode"))
+                        .fullName(column(values, columns, "fullname"))
+                        .email(column(values, columns, "email"))
+                        .password(column(values, columns, "password"))
+                        .phoneNumber(column(values, columns, "phonenumber"))
+                        .major(column(values, columns, "major"))
+                        .build()));
+            }
+        } catch (IOException e) {
+            log.error("Cannot read user import file", e);
+            throw new AppException(ErrorCode.INVALID_IMPORT_FILE);
+        }
+        if (rows.isEmpty()) {
+            throw new AppException(ErrorCode.INVALID_IMPORT_FILE);
+        }
+        return rows;
+    }
+
+    /**
+     * Lý do lưu một dòng thất bại: chỉ trùng unique key email / mã sinh viên mới là USER_EXISTED,
+     * lỗi khác (dữ liệu quá dài, ràng buộc khác, mất kết nối...) trả về đúng nguyên nhân
+     */
+    private static String describeSaveError(RuntimeException error) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(error);
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        // entityManager.flush() không đi qua exception translation nên có thể nhận lỗi JDBC gốc
+        if (error instanceof DataIntegrityViolationException || cause instanceof SQLIntegrityConstraintViolationException) {
+            // MySQL: "Duplicate entry '...' for key 'users.uk_users_email'"
+            if (message.contains(EMAIL_UNIQUE_KEY)) {
+                return ErrorCode.USER_EXISTED.getMessage() + " (email)";
+            }
+            if (message.contains(STUDENT_CODE_UNIQUE_KEY)) {
+                return ErrorCode.USER_EXISTED.getMessage() + " (mã sinh viên)";
+            }
+            message = "Dữ liệu không hợp lệ: " + message;
+        } else {
+            message = "Lỗi lưu dữ liệu: " + message;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private static String validate(ImportRow row) {
+        UserCreationRequest request = row.request;
+        if (request.getStudentCode() == null || request.getFullName() == null
+                || request.getEmail() == null || request.getPassword() == null) {
+            return "Thiếu thông tin bắt buộc (studentCode, fullName, email, password)";
+        }
+        int at = request.getEmail().indexOf('@');
+        if (at <= 0 || at != request.getEmail().lastIndexOf('@') || at == request.getEmail().length() - 1) {
+            return ErrorCode.INVALID_EMAIL.getMessage();
+        }
+        if (request.getPassword().length() < MIN_PASSWORD_LENGTH) {
+            return ErrorCode.PASSWORD_INVALID.getMessage();
+        }
+        return null;
+    }
+
+    /** Giá trị một cột (đã trim, chuỗi rỗng -> null) */
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Tách một dòng CSV (hỗ trợ giá trị trong dấu nháy kép, "" là một dấu nháy)
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * Một dòng dữ liệu trong file và trạng thái xử lý của nó
+     */
+    private static final class ImportRow {
+        final int line;
+        final UserCreationRequest request;
+        String passwordHash;
+        String error;
+
+        ImportRow(int line, UserCreationRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+// Package định nghĩa service layer - tìm kiếm / lọc users cho Admin
+package com.swp391.clubmanagement.service;
+
+// ========== DTO ==========
+import com.swp391.clubmanagement.dto.request.UserSearchRequest; // Bộ lọc tìm kiếm
+import com.swp391.clubmanagement.dto.response.UserResponse; // Response DTO cho user
+import com.swp391.clubmanagement.dto.response.UserSearchResponse; // Một trang kết quả
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.Users; // Entity người dùng
+
+// ========== Exception ==========
+import com.swp391.clubmanagement.exception.AppException; // Custom exception
+import com.swp391.clubmanagement.exception.ErrorCode; // Mã lỗi hệ thống
+
+// ========== Mapper ==========
+import com.swp391.clubmanagement.mapper.UserMapper; // Chuyển đổi Entity -> DTO
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.UserRepository; // Repository cho bảng Users
+import com.swp391.clubmanagement.repository.UserSpecifications; // Điều kiện lọc Users
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.TextNormalizer; // Bỏ dấu họ tên
+
+// ========== Jakarta Persistence ==========
+import jakarta.persistence.EntityManager; // Chạy criteria query có LIMIT
+import jakarta.persistence.Tuple; // (userId, createdAt)
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor; // Tự động tạo constructor inject dependencies
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Spring Framework ==========
+import org.springframework.boot.context.event.ApplicationReadyEvent; // Backfill sau khi khởi động
+import org.springframework.context.event.EventListener; // Lắng nghe event ứng dụng
+import org.springframework.data.domain.PageRequest; // Kích thước lô backfill
+import org.springframework.data.jpa.domain.Specification; // Điều kiện lọc
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng lô backfill
+
+// ========== Java Standard Library ==========
+import java.nio.charset.StandardCharsets; // Mã hóa con trỏ
+import java.time.LocalDateTime; // Ngày giờ
+import java.time.format.DateTimeParseException; // Con trỏ sai định dạng
+import java.util.Base64; // Mã hóa con trỏ
+import java.util.List; // Danh sách
+import java.util.Map; // Tra user theo userId
+import java.util.function.Function; // Function.identity()
+import java.util.stream.Collectors; // Gom kết quả stream
+
+/**
+ * Service tìm kiếm users cho Admin
+ *
+ * Chức năng chính:
+ * - search: lọc theo mã sinh viên, họ tên (không dấu), email, chuyên ngành, vai trò, trạng thái hoạt động;
+ *   kết quả mới nhất trước, phân trang keyset bằng con trỏ (createdAt, userId)
+ * - Backfill cột full_name_normalized cho dữ liệu có từ trước V9 khi ứng dụng khởi động
+ *
+ * Business Rules:
+ * - Điều kiện lọc là Spring Data Specification (UserSpecifications), mọi điều kiện đi theo index
+ * - Keyset thay cho OFFSET: trang thứ N cũng nhanh như trang đầu, không có COUNT(*) toàn bảng
+ * - Hai bước như getAllUsers: lấy (userId, createdAt) của trang bằng LIMIT size + 1, sau đó mới
+ *   eager load registers / club cho đúng các user của trang
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @RequiredArgsConstructor: Lombok tự động tạo constructor inject dependencies
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class UserSearchService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    /** Repository thao tác với bảng users */
+    UserRepository userRepository;
+
+    /** Mapper chuyển đổi Entity (Users) -> DTO (UserResponse) */
+    UserMapper userMapper;
+
+    /** Chạy criteria query với LIMIT (không kèm count query như findAll(spec, pageable)) */
+    EntityManager entityManager;
+
+    /** Transaction cho từng lô backfill */
+    TransactionTemplate transactionTemplate;
+
+    /**
+     * Tìm kiếm users theo bộ lọc, phân trang keyset
+     *
+     * @throws AppException INVALID_SEARCH_CURSOR nếu cursor không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public UserSearchResponse search(UserSearchRequest request) {
+        int size = request.getSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(MAX_PAGE_SIZE, request.getSize()));
+
+        Specification<Users> specification = UserSpecifications.matches(request);
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            Cursor cursor = Cursor.decode(request.getCursor());
+            specification = specification.and(UserSpecifications.before(cursor.createdAt(), cursor.userId()));
+        }
+
+        // Bước 1: (userId, createdAt) của trang, đọc thêm 1 dòng để biết còn trang sau không
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Users> root = query.from(Users.class);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        query.multiselect(root.get("userId"), root.get("createdAt"));
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("userId")));
+        List<Tuple> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+
+        boolean hasNext = rows.size() > size;
+        List<Tuple> page = hasNext ? rows.subList(0, size) : rows;
+        if (page.isEmpty()) {
+            return UserSearchResponse.builder().users(List.of()).build();
+        }
+
+        // Bước 2: eager load registers -> membershipPackage -> club cho các user của trang
+        List<String> userIds = page.stream().map(row -> row.get(0, String.class)).toList();
+        Map<String, Users> usersById = userRepository.findAllWithRegistersByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(Users::getUserId, Function.identity()));
+        List<UserResponse> users = userIds.stream()
+                .map(userId -> userMapper.toUserResponse(usersById.get(userId)))
+                .toList();
+
+        Tuple last = page.get(page.size() - 1);
+        return UserSearchResponse.builder()
+                .users(users)
+                .nextCursor(hasNext
+                        ? new Cursor(last.get(1, LocalDateTime.class), last.get(0, String.class)).encode()
+                        : null)
+                .build();
+    }
+
+    /**
+     * Tính full_name_normalized cho các user có từ trước V9 (chạy một lần, các lần khởi động sau không còn dòng nào)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNormalizedNames() {
+        try {
+            int total = 0;
+            while (true) {
+                Integer updated = transactionTemplate.execute(status -> {
+                    List<Users> users = userRepository.findByFullNameNormalizedIsNull(
+                            PageRequest.of(0, BACKFILL_BATCH_SIZE));
+                    users.forEach(user -> user.setFullNameNormalized(TextNormalizer.normalize(user.getFullName())));
+                    return users.size();
+                });
+                if (updated == null || updated == 0) {
+                    break;
+                }
+                total += updated;
+                if (updated < BACKFILL_BATCH_SIZE) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Backfilled full_name_normalized for {} users", total);
+            }
+        } catch (Exception e) {
+            log.error("Backfill of full_name_normalized failed", e);
+        }
+    }
+
+    /**
+     * Con trỏ keyset: vị trí (createdAt, userId) của user cuối cùng trang trước, mã hóa base64url
+     */
+    private record Cursor(LocalDateTime createdAt, String userId) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((createdAt + "|" + userId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf('|');
+                if (separator <= 0 || separator == decoded.length() - 1) {
+                    throw new AppException(ErrorCode.INVALID_SEARCH_CURSOR);
+                }
+                return new Cursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                        decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new AppException(ErrorCode.INVALID_SEARCH_CURSOR);
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.swp391.clubmanagement.repository.UserRepository; // Repository cho b
 
 // ========== Utilities ==========
 import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+import com.swp391.clubmanagement.utils.TokenDigest; // Băm mã xác thực email
 
 // ========== Lombok ==========
 import lombok.AccessLevel;
@@ -35,14 +36,16 @@ import org.springframework.beans.factory.annotation.Value; // Inject giá trị
 
 // ========== Spring Framework ==========
 import org.springframework.security.core.context.SecurityContextHolder; // Lấy user hiện tại từ JWT
-import org.springframework.security.crypto.password.PasswordEncoder; // Mã hóa mật khẩu (BCrypt)
 import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
 import org.springframework.data.domain.Page; // Phân trang
 import org.springframework.data.domain.Pageable; // Thông tin phân trang
 import org.springframework.transaction.annotation.Transactional; // Quản lý transaction
 
 // ========== Java Standard Library ==========
+import java.util.Map; // Tra user theo userId
 import java.util.UUID; // Tạo mã xác thực ngẫu nhiên
+import java.util.function.Function; // Function.identity()
+import java.util.stream.Collectors; // Gom kết quả stream
 
 /**
  * Service quản lý người dùng
@@ -73,8 +76,8 @@ public class UserService {
     /** Mapper chuyển đổi Entity (Users) <-> DTO (UserResponse) */
     UserMapper userMapper;
     
-    /** PasswordEncoder để mã hóa mật khẩu (BCrypt) */
-    PasswordEncoder passwordEncoder;
+    /** Băm / kiểm tra mật khẩu (BCrypt) trên thread pool riêng */
+    PasswordHashingService passwordHashingService;
     
     /** Service gửi email (xác thực, quên mật khẩu) */
     EmailService emailService;
@@ -85,7 +88,7 @@ public class UserService {
     String baseUrl;
 
     /** Thời hạn link xác thực email (1 giờ) */
-    private static final int VERIFICATION_EXPIRY_HOURS = 1;
+    static final int VERIFICATION_EXPIRY_HOURS = 1;
 
     /**
      * Tạo tài khoản người dùng mới
@@ -95,13 +98,14 @@ public class UserService {
      * - Mật khẩu được mã hóa bằng BCrypt
      * - Role mặc định là SinhVien (Student)
      * - Tạo mã xác thực ngẫu nhiên (UUID)
-     * - Gửi email xác thực với link (có thời hạn 1 giờ)
+     * - Gửi email xác thực với link (có thời hạn 1 giờ), email được ghi vào hàng đợi cùng transaction
      * - Tài khoản chưa được kích hoạt (enabled = false) cho đến khi verify email
      * 
      * @param request Thông tin đăng ký: email, password, fullName, studentCode, etc.
      * @return Users Entity đã tạo
      * @throws AppException USER_EXISTED nếu email hoặc studentCode đã tồn tại
      */
+    @Transactional
     public Users createUser(UserCreationRequest request) {
         // Kiểm tra email đã tồn tại chưa
         if (userRepository.existsByEmail(request.getEmail()))
@@ -115,16 +119,16 @@ public class UserService {
         Users user = userMapper.toUser(request);
         
         // Mã hóa mật khẩu bằng BCrypt trước khi lưu
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(request.getPassword()));
 
         // Gán role mặc định là SinhVien (Student)
         Roles studentRole = roleRepository.findByRoleName(RoleType.SinhVien)
                 .orElseThrow(() -> new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION));
         user.setRole(studentRole);
 
-        // Tạo mã xác nhận ngẫu nhiên (UUID) và thời hạn
+        // Tạo mã xác nhận ngẫu nhiên (UUID) và thời hạn; database chỉ lưu SHA-256 của mã
         String verificationToken = UUID.randomUUID().toString();
-        user.setVerificationCode(verificationToken);
+        user.setVerificationCode(TokenDigest.sha256Hex(verificationToken));
         user.setVerificationExpiry(DateTimeUtils.nowVietnam().plusHours(VERIFICATION_EXPIRY_HOURS));
         user.setEnabled(false); // Chưa kích hoạt cho đến khi verify email
 
@@ -141,7 +145,7 @@ public class UserService {
      * Xác thực email thông qua token (click link trong email)
      * 
      * Flow:
-     * 1. Tìm user theo verificationCode (token)
+     * 1. Tìm user theo SHA-256 của token (verificationCode lưu digest, tra cứu một lần trên index)
      * 2. Kiểm tra đã xác thực chưa (nếu rồi thì return luôn)
      * 3. Kiểm tra link còn hạn không (1 giờ)
      * 4. Kích hoạt tài khoản (enabled = true) và xóa verificationCode
@@ -152,7 +156,7 @@ public class UserService {
      */
     public void verifyEmailByToken(String token) {
         // Tìm user theo verificationCode
-        Users user = userRepository.findByVerificationCode(token)
+        Users user = userRepository.findByVerificationCode(TokenDigest.sha256Hex(token))
                 .orElseThrow(() -> new AppException(ErrorCode.INVALID_VERIFICATION_CODE));
 
         // Kiểm tra đã xác thực chưa (nếu rồi thì không cần làm gì)
@@ -190,7 +194,7 @@ public class UserService {
             throw new AppException(ErrorCode.VERIFICATION_LINK_EXPIRED);
         }
 
-        if (request.getVerificationCode().equals(user.getVerificationCode())) {
+        if (TokenDigest.matches(request.getVerificationCode(), user.getVerificationCode())) {
             user.setEnabled(true);
             user.setVerificationCode(null);
             user.setVerificationExpiry(null);
@@ -205,27 +209,21 @@ public class UserService {
      * 
      * Flow:
      * 1. Tìm user theo email
-     * 2. Tạo mật khẩu mới ngẫu nhiên (8 ký tự)
-     * 3. Mã hóa và lưu mật khẩu mới
-     * 4. Gửi email chứa mật khẩu mới
+     * 2. Ghi yêu cầu email mật khẩu mới vào hàng đợi (cùng transaction)
+     * 3. Job gửi email tạo mật khẩu mới ngẫu nhiên, lưu hash và gửi đi ngay lúc gửi
+     *    (mật khẩu dạng rõ không bao giờ được lưu trong database, kể cả hàng đợi email)
      * 
      * @param request Chứa email của user
      * @throws AppException USER_NOT_FOUND nếu không tìm thấy user
      */
+    @Transactional
     public void forgotPassword(ForgotPasswordRequest request) {
         // Tìm user theo email
         Users user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
 
-        // Tạo mật khẩu mới ngẫu nhiên (8 ký tự đầu của UUID)
-        String newPassword = UUID.randomUUID().toString().substring(0, 8);
-        
-        // Mã hóa và lưu mật khẩu mới
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
-
-        // Gửi email chứa mật khẩu mới
-        emailService.sendForgotPasswordEmail(user.getEmail(), user.getFullName(), newPassword);
+        // Gửi email chứa mật khẩu mới (mật khẩu được tạo khi gửi)
+        emailService.sendForgotPasswordEmail(user);
     }
 
     /**
@@ -244,12 +242,12 @@ public class UserService {
         Users user = getMyInfo();
 
         // Kiểm tra mật khẩu cũ có đúng không (so sánh với BCrypt hash)
-        if (!passwordEncoder.matches(request.getOldPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getOldPassword(), user.getPassword())) {
             throw new AppException(ErrorCode.WRONG_PASSWORD);
         }
 
         // Mã hóa và lưu mật khẩu mới
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
         userRepository.save(user);
     }
 
@@ -277,11 +275,25 @@ public class UserService {
         return userMapper.toUserResponse(user);
     }
 
+    /**
+     * Danh sách users có phân trang (Admin), kèm clubIds của từng user
+     * 
+     * Phân trang hai bước để database làm LIMIT/OFFSET:
+     * 1. findUserIds: lấy userId của trang (query nhẹ, không join registers)
+     * 2. findAllWithRegistersByUserIdIn: eager load registers -> membershipPackage -> club cho đúng các userId đó
+     * Bộ nhớ chỉ phụ thuộc page size, không phụ thuộc tổng số sinh viên.
+     */
     @Transactional(readOnly = true)
     public Page<UserResponse> getAllUsers(Pageable pageable) {
-        // Sử dụng findAllWithRegisters để eager load registers và populate clubIds
-        return userRepository.findAllWithRegisters(pageable)
-                .map(userMapper::toUserResponse);
+        Page<String> userIds = userRepository.findUserIds(pageable);
+        if (userIds.isEmpty()) {
+            return userIds.map(userId -> null);
+        }
+
+        Map<String, Users> usersById = userRepository.findAllWithRegistersByUserIdIn(userIds.getContent()).stream()
+                .collect(Collectors.toMap(Users::getUserId, Function.identity()));
+        // Giữ đúng thứ tự sắp xếp của bước 1
+        return userIds.map(userId -> userMapper.toUserResponse(usersById.get(userId)));
     }
 
     /**
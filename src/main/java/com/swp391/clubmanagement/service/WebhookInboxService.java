@@ -0,0 +1,344 @@
+// Package định nghĩa service layer - hàng đợi (inbox) webhook PayOS và worker xử lý nền
+package com.swp391.clubmanagement.service;
+
+// ========== DTO ==========
+import com.swp391.clubmanagement.dto.response.PayOSWebhookData; // Dữ liệu webhook từ PayOS
+
+// ========== Entity ==========
+import com.swp391.clubmanagement.entity.PaymentWebhookInbox; // Entity hàng đợi webhook
+
+// ========== Enum ==========
+import com.swp391.clubmanagement.enums.ProcessingStatus; // Trạng thái xử lý
+
+// ========== Repository ==========
+import com.swp391.clubmanagement.repository.PaymentWebhookInboxRepository; // Repository cho bảng PaymentWebhookInbox
+import com.swp391.clubmanagement.repository.PaymentWebhookKeyRepository; // Repository cho bảng PaymentWebhookKey
+
+// ========== Utilities ==========
+import com.swp391.clubmanagement.utils.DateTimeUtils; // Xử lý thời gian theo múi giờ VN
+import com.swp391.clubmanagement.utils.RecentKeyFilter; // Bộ lọc khóa gần đây trong bộ nhớ
+
+// ========== Lombok ==========
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults; // Tự động thêm private final cho fields
+import lombok.extern.slf4j.Slf4j; // Tự động tạo logger
+
+// ========== Jackson / Jakarta ==========
+import com.fasterxml.jackson.databind.ObjectMapper; // Parse JSON payload
+import jakarta.annotation.PreDestroy; // Dừng worker pool khi tắt ứng dụng
+
+// ========== Spring Framework ==========
+import org.springframework.beans.factory.annotation.Value; // Inject giá trị từ config
+import org.springframework.scheduling.annotation.Scheduled; // Chạy định kỳ
+import org.springframework.stereotype.Service; // Đánh dấu class là Spring Service Bean
+import org.springframework.transaction.support.TransactionTemplate; // Transaction cho từng bước xử lý
+
+// ========== Java Standard Library ==========
+import java.time.LocalDateTime; // Ngày giờ
+import java.util.ArrayList;
+import java.util.List; // Danh sách
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator; // Xóa một lô, trả về số dòng đã xóa
+
+/**
+ * Service hàng đợi webhook PayOS (inbox pattern)
+ *
+ * Chức năng chính:
+ * - enqueue: lưu webhook (đã xác thực chữ ký) vào bảng PaymentWebhookInbox để controller trả lời PayOS ngay,
+ *   loại webhook trùng theo (orderCode, reference) trước khi chạm tới register
+ * - drain (định kỳ): lấy các event đến hạn theo lô, xử lý trên worker pool và ghi nhận kết quả
+ *
+ * Business Rules:
+ * - Mỗi lô được khóa bằng FOR UPDATE SKIP LOCKED rồi chuyển sang DangXuLy: nhiều instance không lấy trùng event
+ * - Các event cùng orderCode (cùng một đăng ký) được xử lý tuần tự theo thứ tự nhận: một lô chỉ lấy event cũ nhất
+ *   chưa xong của mỗi orderCode, event sau chỉ đến lượt khi event trước đã DaXuLy hoặc ThatBai
+ *   (event trước lỗi và đang chờ backoff thì event sau cũng chờ theo)
+ * - Ghi nhận thanh toán và đánh dấu DaXuLy nằm trong cùng một transaction;
+ *   PaymentSettlementService idempotent nên xử lý lại một event (sau khi worker chết) không ghi nhận trùng
+ * - Lỗi được thử lại với backoff tăng dần (retry-base-seconds * 2^(attempts-1)), quá max-attempts -> ThatBai
+ * - Event kẹt ở DangXuLy quá stale-after-seconds được trả về hàng đợi
+ * - Retention (purge, hằng ngày): khóa chống trùng và event DaXuLy cũ hơn retention-days bị xóa theo lô;
+ *   event ThatBai được giữ lại để kiểm tra thủ công
+ *
+ * @Service: Spring Service Bean, được quản lý bởi IoC Container
+ * @FieldDefaults: Tự động thêm private final cho các field
+ * @Slf4j: Tự động tạo logger với tên "log"
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class WebhookInboxService {
+
+    /** Backoff tối đa giữa hai lần thử (1 giờ) */
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    /** Độ dài tối đa của lỗi lưu lại */
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    /** Repository thao tác với bảng payment_webhook_inbox */
+    PaymentWebhookInboxRepository inboxRepository;
+
+    /** Repository khóa chống trùng (orderCode, reference) */
+    PaymentWebhookKeyRepository webhookKeyRepository;
+
+    /** Bộ lọc trong bộ nhớ các khóa webhook đã nhận gần đây */
+    RecentKeyFilter<String> recentKeys;
+
+    /** Ghi nhận thanh toán (idempotent) */
+    PaymentSettlementService paymentSettlementService;
+
+    /** Transaction cho claim lô / xử lý từng event / ghi lỗi */
+    TransactionTemplate transactionTemplate;
+
+    /** Parse payload JSON đã lưu */
+    ObjectMapper objectMapper;
+
+    /** Worker pool xử lý event (mỗi task là toàn bộ event của một orderCode trong lô) */
+    ExecutorService workers;
+
+    /** Số event tối đa mỗi lô */
+    int batchSize;
+
+    /** Số lô tối đa mỗi lần drain */
+    int maxBatchesPerRun;
+
+    /** Số lần thử tối đa trước khi chuyển ThatBai */
+    int maxAttempts;
+
+    /** Backoff cơ sở (giây) cho lần thử lại đầu tiên */
+    long retryBaseSeconds;
+
+    /** Sau bao lâu event DangXuLy được coi là bị kẹt (giây) */
+    long staleAfterSeconds;
+
+    /** Số ngày giữ khóa chống trùng và event đã xử lý */
+    long retentionDays;
+
+    /** Số dòng xóa mỗi lô khi purge */
+    int retentionBatchSize;
+
+    public WebhookInboxService(
+            PaymentWebhookInboxRepository inboxRepository,
+            PaymentWebhookKeyRepository webhookKeyRepository,
+            PaymentSettlementService paymentSettlementService,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            @Value("${payos.webhook.inbox.worker-threads:4}") int workerThreads,
+            @Value("${payos.webhook.inbox.batch-size:100}") int batchSize,
+            @Value("${payos.webhook.inbox.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${payos.webhook.inbox.max-attempts:8}") int maxAttempts,
+            @Value("${payos.webhook.inbox.retry-base-seconds:5}") long retryBaseSeconds,
+            @Value("${payos.webhook.inbox.stale-after-seconds:300}") long staleAfterSeconds,
+            @Value("${payos.webhook.recent-keys-capacity:10000}") int recentKeysCapacity,
+            @Value("${payos.webhook.retention.days:30}") long retentionDays,
+            @Value("${payos.webhook.retention.batch-size:1000}") int retentionBatchSize) {
+        this.inboxRepository = inboxRepository;
+        this.webhookKeyRepository = webhookKeyRepository;
+        this.recentKeys = new RecentKeyFilter<>(recentKeysCapacity);
+        this.paymentSettlementService = paymentSettlementService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseSeconds = retryBaseSeconds;
+        this.staleAfterSeconds = staleAfterSeconds;
+        this.retentionDays = retentionDays;
+        this.retentionBatchSize = retentionBatchSize;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Lưu webhook vào hàng đợi (gọi từ controller sau khi đã xác thực chữ ký)
+     *
+     * Chống trùng theo (orderCode, reference) qua 2 lớp:
+     * 1. RecentKeyFilter trong bộ nhớ: webhook PayOS gửi lại bị loại ngay, không chạm database
+     * 2. INSERT ... ON DUPLICATE KEY UPDATE vào PaymentWebhookKey (unique index): ghi khóa và event trong cùng
+     *    một transaction, khóa đã tồn tại nghĩa là giao dịch đã được nhận trước đó. Lỗi dữ liệu (vd. reference
+     *    quá dài) vẫn được báo lỗi, không bị coi là webhook trùng như với INSERT IGNORE
+     *
+     * @param orderCode Mã đơn hàng PayOS
+     * @param reference Mã tham chiếu giao dịch PayOS
+     * @param payload JSON gốc PayOS gửi
+     * @return true nếu webhook được đưa vào hàng đợi, false nếu là webhook trùng
+     */
+    public boolean enqueue(Long orderCode, String reference, String payload) {
+        String normalizedReference = reference != null ? reference : "";
+        String key = orderCode + ":" + normalizedReference;
+        if (recentKeys.contains(key)) {
+            log.info("Duplicate webhook ignored (in-memory): orderCode={}, reference={}", orderCode, reference);
+            return false;
+        }
+        
+        Boolean accepted = transactionTemplate.execute(status -> {
+            LocalDateTime now = DateTimeUtils.nowVietnam();
+            if (webhookKeyRepository.insertOrCountDuplicate(orderCode, normalizedReference, now) != 1) {
+                return false;
+            }
+            PaymentWebhookInbox event = inboxRepository.save(PaymentWebhookInbox.builder()
+                    .orderCode(orderCode)
+                    .payload(payload)
+                    .nextAttemptAt(now)
+                    .receivedAt(now)
+                    .build());
+            log.info("Webhook queued: eventId={}, orderCode={}", event.getEventId(), orderCode);
+            return true;
+        });
+        
+        // Chỉ ghi vào filter sau khi transaction đã commit (khóa chắc chắn nằm trong database)
+        recentKeys.add(key);
+        if (!Boolean.TRUE.equals(accepted)) {
+            log.info("Duplicate webhook ignored: orderCode={}, reference={}", orderCode, reference);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Job định kỳ: xử lý các event đến hạn trong hàng đợi (tối đa max-batches-per-run lô, phần còn lại để lần sau)
+     */
+    @Scheduled(fixedDelayString = "${payos.webhook.inbox.poll-delay-ms:500}")
+    public void drain() {
+        try {
+            LocalDateTime staleBefore = DateTimeUtils.nowVietnam().minusSeconds(staleAfterSeconds);
+            Integer released = transactionTemplate.execute(status -> inboxRepository.releaseStale(
+                    ProcessingStatus.ChoXuLy, ProcessingStatus.DangXuLy, staleBefore));
+            if (released != null && released > 0) {
+                log.warn("Released {} stale webhook events back to the inbox", released);
+            }
+
+            for (int batches = 1; ; batches++) {
+                List<PaymentWebhookInbox> batch = claimBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                // Mỗi orderCode có nhiều nhất một event trong lô (lockDueBatch) nên các event chạy song song được
+                List<CompletableFuture<Void>> tasks = new ArrayList<>(batch.size());
+                for (PaymentWebhookInbox event : batch) {
+                    tasks.add(CompletableFuture.runAsync(() -> process(event), workers));
+                }
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+
+                if (batch.size() < batchSize || batches >= maxBatchesPerRun) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Webhook inbox drain failed", e);
+        }
+    }
+
+    /**
+     * Job hằng ngày: xóa khóa chống trùng và event đã xử lý cũ hơn retention-days (mỗi lô một transaction)
+     */
+    @Scheduled(cron = "${payos.webhook.retention.cron:0 45 3 * * *}", zone = "Asia/Ho_Chi_Minh")
+    public void purgeExpired() {
+        try {
+            LocalDateTime cutoff = DateTimeUtils.nowVietnam().minusDays(retentionDays);
+            int keys = purge(limit -> webhookKeyRepository.deleteReceivedBefore(cutoff, limit));
+            int events = purge(limit -> inboxRepository.deleteProcessedBefore(cutoff, limit));
+            if (keys > 0 || events > 0) {
+                log.info("Webhook retention purged {} keys and {} processed events older than {}", keys, events, cutoff);
+            }
+        } catch (Exception e) {
+            log.error("Webhook retention purge failed", e);
+        }
+    }
+
+    private int purge(IntUnaryOperator deleteBatch) {
+        int total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> deleteBatch.applyAsInt(retentionBatchSize));
+            int count = deleted != null ? deleted : 0;
+            total += count;
+            if (count < retentionBatchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Khóa một lô event đến hạn và chuyển sang DangXuLy (commit ngay để giải phóng row lock)
+     */
+    private List<PaymentWebhookInbox> claimBatch() {
+        List<PaymentWebhookInbox> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = DateTimeUtils.nowVietnam();
+            List<PaymentWebhookInbox> events = inboxRepository.lockDueBatch(now, batchSize);
+            for (PaymentWebhookInbox event : events) {
+                event.setStatus(ProcessingStatus.DangXuLy);
+                event.setLockedAt(now);
+            }
+            return inboxRepository.saveAll(events);
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    /**
+     * Xử lý một event: ghi nhận thanh toán + đánh dấu DaXuLy trong cùng transaction
+     */
+    private void process(PaymentWebhookInbox event) {
+        event.setAttempts(event.getAttempts() + 1);
+        try {
+            PayOSWebhookData webhookData = objectMapper.readValue(event.getPayload(), PayOSWebhookData.class);
+            PayOSWebhookData.WebhookData data = webhookData.getData();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                paymentSettlementService.settlePayOSPayment(data.getOrderCode(), data.getAmount(), data.getReference());
+                event.setStatus(ProcessingStatus.DaXuLy);
+                event.setProcessedAt(DateTimeUtils.nowVietnam());
+                event.setLockedAt(null);
+                event.setLastError(null);
+                inboxRepository.save(event);
+            });
+        } catch (Exception e) {
+            recordFailure(event, e);
+        }
+    }
+
+    /**
+     * Ghi nhận lỗi: lên lịch thử lại với backoff hoặc chuyển ThatBai khi hết số lần thử
+     */
+    private void recordFailure(PaymentWebhookInbox event, Exception error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        event.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        event.setLockedAt(null);
+        event.setProcessedAt(null);
+
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(ProcessingStatus.ThatBai);
+            log.error("Webhook event {} (orderCode={}) failed permanently after {} attempts",
+                    event.getEventId(), event.getOrderCode(), event.getAttempts(), error);
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_SECONDS, retryBaseSeconds << Math.min(event.getAttempts() - 1, 20));
+            event.setStatus(ProcessingStatus.ChoXuLy);
+            event.setNextAttemptAt(DateTimeUtils.nowVietnam().plusSeconds(backoff));
+            log.warn("Webhook event {} (orderCode={}) failed on attempt {}, retrying in {}s: {}",
+                    event.getEventId(), event.getOrderCode(), event.getAttempts(), backoff, message);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> inboxRepository.save(event));
+        } catch (Exception e) {
+            // Event vẫn ở DangXuLy, sẽ được releaseStale trả về hàng đợi
+            log.error("Cannot record failure for webhook event {}", event.getEventId(), e);
+        }
+    }
+
+    /**
+     * Dừng worker pool khi tắt ứng dụng
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,250 @@
+package com.swp391.clubmanagement.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * HmacSigner - Ký và xác thực chữ ký HMAC-SHA256 dạng hex (chuẩn chữ ký của PayOS)
+ *
+ * Thiết kế để gọi trên mọi request mà không tạo rác:
+ * - Khóa (SecretKeySpec) tạo một lần; mỗi thread giữ một Mac đã init sẵn (ThreadLocal), không gọi Mac.getInstance mỗi lần
+ * - Chuỗi ký "key1=value1&key2=value2..." được ghi thẳng thành byte UTF-8 vào buffer tái sử dụng của thread
+ *   (Payload), số nguyên được ghi từng chữ số, không qua String.format
+ * - Mã hóa hex bằng bảng tra, xác thực bằng cách giải mã hex của chữ ký nhận được và so sánh
+ *   thời gian hằng (MessageDigest.isEqual) để không lộ thông tin qua thời gian phản hồi
+ *
+ * Cách dùng:
+ *   signer.sign(signer.payload().field("amount", 2000).field("description", "Phi CLB"))
+ */
+public final class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /** Giá trị nibble của ký tự hex (hoa hoặc thường), -1 nếu không phải ký tự hex */
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private final ThreadLocal<Mac> macs;
+
+    private final ThreadLocal<Payload> payloads = ThreadLocal.withInitial(Payload::new);
+
+    /** Buffer chứa digest và chữ ký nhận được đã giải mã (mỗi thread một cặp) */
+    private final ThreadLocal<byte[][]> digestBuffers;
+
+    private final int macLength;
+
+    /**
+     * @param key Khóa bí mật (checksum key của PayOS)
+     */
+    public HmacSigner(String key) {
+        SecretKeySpec keySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        Mac prototype = newMac(keySpec);
+        this.macLength = prototype.getMacLength();
+        this.macs = ThreadLocal.withInitial(() -> newMac(keySpec));
+        this.digestBuffers = ThreadLocal.withInitial(() -> new byte[][]{new byte[macLength], new byte[macLength]});
+    }
+
+    /**
+     * Payload rỗng của thread hiện tại để ghi các trường cần ký
+     * (buffer được tái sử dụng: chỉ dùng trước lần gọi payload() tiếp theo trên cùng thread)
+     */
+    public Payload payload() {
+        return payloads.get().reset();
+    }
+
+    /**
+     * Chữ ký HMAC dạng hex chữ thường của payload
+     */
+    public String sign(Payload payload) {
+        byte[] digest = digest(payload);
+        byte[] hex = new byte[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            int b = digest[i] & 0xff;
+            hex[i * 2] = HEX_DIGITS[b >>> 4];
+            hex[i * 2 + 1] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(hex, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Chữ ký nhận được (hex, không phân biệt hoa thường) có khớp payload không - so sánh thời gian hằng
+     */
+    public boolean verify(Payload payload, String signature) {
+        if (signature == null || signature.length() != macLength * 2) {
+            return false;
+        }
+        byte[][] buffers = digestBuffers.get();
+        byte[] received = buffers[1];
+        int invalid = 0;
+        for (int i = 0; i < macLength; i++) {
+            int high = hexValue(signature.charAt(i * 2));
+            int low = hexValue(signature.charAt(i * 2 + 1));
+            invalid |= (high | low) & 0x80000000;
+            received[i] = (byte) ((high << 4) | (low & 0x0f));
+        }
+        boolean matches = MessageDigest.isEqual(digest(payload), received);
+        return matches && invalid == 0;
+    }
+
+    private byte[] digest(Payload payload) {
+        Mac mac = macs.get();
+        byte[] out = digestBuffers.get()[0];
+        mac.update(payload.bytes, 0, payload.length);
+        try {
+            mac.doFinal(out, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        return out;
+    }
+
+    private static int hexValue(char c) {
+        return c < 128 ? HEX_VALUES[c] : -1;
+    }
+
+    private static Mac newMac(SecretKeySpec keySpec) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Chuỗi cần ký dạng "key1=value1&key2=value2", ghi thẳng thành byte UTF-8 (giá trị null -> chuỗi rỗng)
+     */
+    public static final class Payload {
+
+        private static final int INITIAL_CAPACITY = 512;
+
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        private int length;
+
+        private Payload() {
+        }
+
+        private Payload reset() {
+            length = 0;
+            return this;
+        }
+
+        public Payload field(String name, CharSequence value) {
+            appendName(name);
+            if (value != null) {
+                appendUtf8(value);
+            }
+            return this;
+        }
+
+        public Payload field(String name, Long value) {
+            appendName(name);
+            if (value != null) {
+                appendLong(value);
+            }
+            return this;
+        }
+
+        public Payload field(String name, Integer value) {
+            appendName(name);
+            if (value != null) {
+                appendLong(value);
+            }
+            return this;
+        }
+
+        /**
+         * Nội dung payload dạng chuỗi (chỉ dùng để log debug)
+         */
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void appendName(String name) {
+            ensureCapacity(name.length() + 2);
+            if (length > 0) {
+                bytes[length++] = '&';
+            }
+            // Tên trường luôn là ASCII
+            for (int i = 0; i < name.length(); i++) {
+                bytes[length++] = (byte) name.charAt(i);
+            }
+            bytes[length++] = '=';
+        }
+
+        private void appendLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                appendUtf8(Long.toString(value));
+                return;
+            }
+            ensureCapacity(20);
+            if (value < 0) {
+                bytes[length++] = '-';
+                value = -value;
+            }
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + (int) (value % 10));
+                value /= 10;
+            } while (value != 0);
+            // Chữ số được ghi ngược, đảo lại
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte tmp = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = tmp;
+            }
+        }
+
+        private void appendUtf8(CharSequence value) {
+            int count = value.length();
+            ensureCapacity(count * 3);
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xc0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[length++] = (byte) (0xf0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Surrogate lẻ: thay bằng '?' giống String.getBytes(UTF_8)
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xe0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.swp391.clubmanagement.utils;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HtmlTemplate - Template HTML đơn giản với slot dạng {{tenSlot}}, được biên dịch một lần khi khởi động
+ *
+ * - Template được tách sẵn thành các đoạn văn bản cố định và slot; slot được gán sẵn vị trí tham số,
+ *   nên render chỉ là nối chuỗi, không parse lại và không dùng String.format trên vài KB HTML mỗi lần
+ * - Giá trị của slot luôn được escape HTML (& < > " ') trước khi ghi vào kết quả
+ * - Render vào buffer StringBuilder tái sử dụng của thread hiện tại
+ * - CSS không cần escape '%' như khi dùng String.formatted
+ *
+ * Cách dùng:
+ *   HtmlTemplate template = HtmlTemplate.load("templates/email/verification.html", "fullName", "verificationLink");
+ *   String html = template.render(fullName, link); // Thứ tự giá trị theo thứ tự tên tham số khi load
+ */
+public final class HtmlTemplate {
+
+    private static final String SLOT_OPEN = "{{";
+    private static final String SLOT_CLOSE = "}}";
+
+    /** Buffer lớn hơn ngưỡng này không được giữ lại (tránh giữ bộ nhớ sau một lần render quá lớn) */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(8 * 1024));
+
+    /** Đoạn văn bản cố định thứ i đứng trước slot thứ i; đoạn cuối cùng đứng sau slot cuối cùng */
+    private final String[] literals;
+
+    /** Vị trí tham số của từng slot */
+    private final int[] slotParams;
+
+    private final String[] paramNames;
+
+    private final int literalLength;
+
+    private HtmlTemplate(String[] literals, int[] slotParams, String[] paramNames) {
+        this.literals = literals;
+        this.slotParams = slotParams;
+        this.paramNames = paramNames;
+        this.literalLength = Arrays.stream(literals).mapToInt(String::length).sum();
+    }
+
+    /**
+     * Đọc và biên dịch template từ classpath (UTF-8)
+     *
+     * @param paramNames Tên các tham số của render, theo thứ tự; mọi slot trong template phải nằm trong danh sách này
+     */
+    public static HtmlTemplate load(String classpathLocation, String... paramNames) {
+        try (InputStream in = new ClassPathResource(classpathLocation).getInputStream()) {
+            return compile(new String(in.readAllBytes(), StandardCharsets.UTF_8), paramNames);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load template " + classpathLocation, e);
+        }
+    }
+
+    /**
+     * Biên dịch template từ chuỗi nguồn
+     */
+    public static HtmlTemplate compile(String source, String... paramNames) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf(SLOT_OPEN, position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf(SLOT_CLOSE, open + SLOT_OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed template slot at offset " + open);
+            }
+            String name = source.substring(open + SLOT_OPEN.length(), close).trim();
+            int param = Arrays.asList(paramNames).indexOf(name);
+            if (param < 0) {
+                throw new IllegalArgumentException("Unknown template slot '" + name + "', expected one of "
+                        + Arrays.toString(paramNames));
+            }
+            literals.add(source.substring(position, open));
+            slots.add(param);
+            position = close + SLOT_CLOSE.length();
+        }
+        literals.add(source.substring(position));
+        return new HtmlTemplate(literals.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                paramNames.clone());
+    }
+
+    /**
+     * Render template với giá trị các tham số (theo thứ tự paramNames, null -> chuỗi rỗng)
+     */
+    public String render(Object... values) {
+        if (values.length != paramNames.length) {
+            throw new IllegalArgumentException("Expected " + paramNames.length + " template values "
+                    + Arrays.toString(paramNames) + ", got " + values.length);
+        }
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(literalLength + 64 * slotParams.length);
+        for (int i = 0; i < slotParams.length; i++) {
+            buffer.append(literals[i]);
+            Object value = values[slotParams[i]];
+            if (value != null) {
+                appendEscaped(buffer, value.toString());
+            }
+        }
+        buffer.append(literals[literals.length - 1]);
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFERS.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Render và mã hóa UTF-8 (dùng cho trang tĩnh được cache dưới dạng byte[])
+     */
+    public byte[] renderBytes(Object... values) {
+        return render(values).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendEscaped(StringBuilder buffer, String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                buffer.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        buffer.append(value, start, value.length());
+    }
+}
@@ -0,0 +1,42 @@
+package com.swp391.clubmanagement.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RecentKeyFilter - Tập các khóa gần đây có giới hạn kích thước (LRU), thread-safe
+ *
+ * Dùng làm bộ lọc nhanh trong bộ nhớ đặt trước một kiểm tra trong database:
+ * khóa có trong filter chắc chắn đã được xử lý -> bỏ qua luôn; khóa không có thì vẫn phải hỏi database
+ * (filter chỉ nhớ capacity khóa gần nhất và mất khi restart).
+ */
+public final class RecentKeyFilter<K> {
+
+    private final Map<K, Boolean> keys;
+
+    /**
+     * @param capacity Số khóa tối đa được nhớ, khóa cũ nhất bị loại khi đầy
+     */
+    public RecentKeyFilter(int capacity) {
+        this.keys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Khóa đã được ghi nhận gần đây chưa
+     */
+    public synchronized boolean contains(K key) {
+        return keys.get(key) != null;
+    }
+
+    /**
+     * Ghi nhận khóa
+     */
+    public synchronized void add(K key) {
+        keys.put(key, Boolean.TRUE);
+    }
+}
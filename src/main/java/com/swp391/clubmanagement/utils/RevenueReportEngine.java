@@ -0,0 +1,163 @@
+package com.swp391.clubmanagement.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RevenueReportEngine - Gom kết quả query doanh thu thành báo cáo trong MỘT lần duyệt
+ *
+ * Tất cả báo cáo doanh thu theo tháng dùng chung một shape Object[] (theo thứ tự cột):
+ *   [year, month, groupId, groupName, totalRevenue, transactionCount]
+ * trong đó "group" là CLB hoặc gói membership, và query đã ORDER BY year DESC, month DESC, totalRevenue DESC.
+ *
+ * Vì dữ liệu đã được database sắp xếp, các dòng cùng tháng luôn nằm liền nhau: engine chỉ cần so sánh
+ * month key (số nguyên đóng gói year * 12 + month - 1) với dòng trước để biết khi nào sang tháng mới.
+ * Không dùng Map theo key chuỗi, không sắp xếp lại kết quả.
+ *
+ * Khi khoảng thời gian nằm ở cả bảng nóng và kho lưu trữ, hai danh sách (đều đã sắp xếp) được trộn
+ * theo kiểu merge của merge-sort. Chỉ trong trường hợp hiếm một tháng có dữ liệu ở cả hai bảng
+ * (job lưu trữ đang chạy dở) thì các group của riêng tháng đó mới được cộng gộp và sắp xếp lại.
+ */
+public final class RevenueReportEngine {
+
+    /** Vị trí các cột trong shape chung của query doanh thu theo tháng */
+    public static final int COL_YEAR = 0;
+    public static final int COL_MONTH = 1;
+    public static final int COL_GROUP_ID = 2;
+    public static final int COL_GROUP_NAME = 3;
+    public static final int COL_REVENUE = 4;
+    public static final int COL_COUNT = 5;
+
+    /** Month key nhỏ hơn mọi tháng hợp lệ: đánh dấu danh sách đã duyệt hết */
+    private static final int NO_MONTH = Integer.MIN_VALUE;
+
+    private RevenueReportEngine() {
+    }
+
+    /**
+     * Doanh thu của một group (CLB / gói) trong một tháng hoặc trong cả khoảng thời gian
+     */
+    public record GroupRevenue(int groupId, String groupName, long revenue, long transactionCount) {
+    }
+
+    /**
+     * Nhận một tháng đã gom xong và chuyển thành DTO của từng API
+     *
+     * @param groups Danh sách group theo doanh thu giảm dần (rỗng nếu gọi với collectGroups = false)
+     */
+    @FunctionalInterface
+    public interface MonthMapper<R> {
+        R map(int year, int month, long revenue, long transactionCount, List<GroupRevenue> groups);
+    }
+
+    /**
+     * Đóng gói (year, month) thành một số int, giữ nguyên thứ tự thời gian
+     */
+    public static int monthKey(int year, int month) {
+        return year * 12 + (month - 1);
+    }
+
+    /**
+     * Gom các dòng [year, month, groupId, groupName, revenue, count] thành báo cáo theo tháng (tháng mới nhất trước)
+     *
+     * @param primary       Kết quả query bảng nóng (đã sắp xếp)
+     * @param secondary     Kết quả query kho lưu trữ (đã sắp xếp), List.of() nếu không cần đọc
+     * @param collectGroups true nếu báo cáo cần danh sách group của từng tháng
+     * @param mapper        Chuyển mỗi tháng thành phần tử kết quả
+     */
+    public static <R> List<R> byMonth(List<Object[]> primary, List<Object[]> secondary,
+                                      boolean collectGroups, MonthMapper<R> mapper) {
+        List<R> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        int primarySize = primary.size();
+        int secondarySize = secondary.size();
+
+        while (i < primarySize || j < secondarySize) {
+            int primaryKey = i < primarySize ? monthKeyOf(primary.get(i)) : NO_MONTH;
+            int secondaryKey = j < secondarySize ? monthKeyOf(secondary.get(j)) : NO_MONTH;
+            // Tháng mới nhất trong hai danh sách (cả hai đều giảm dần theo tháng)
+            int key = Math.max(primaryKey, secondaryKey);
+
+            long revenue = 0;
+            long transactionCount = 0;
+            List<GroupRevenue> groups = collectGroups ? new ArrayList<>() : List.of();
+
+            for (; i < primarySize && monthKeyOf(primary.get(i)) == key; i++) {
+                Object[] row = primary.get(i);
+                long rowRevenue = VndAmount.toLong(row[COL_REVENUE]);
+                long rowCount = ((Number) row[COL_COUNT]).longValue();
+                revenue = Math.addExact(revenue, rowRevenue);
+                transactionCount += rowCount;
+                if (collectGroups) {
+                    groups.add(toGroup(row, rowRevenue, rowCount));
+                }
+            }
+            for (; j < secondarySize && monthKeyOf(secondary.get(j)) == key; j++) {
+                Object[] row = secondary.get(j);
+                long rowRevenue = VndAmount.toLong(row[COL_REVENUE]);
+                long rowCount = ((Number) row[COL_COUNT]).longValue();
+                revenue = Math.addExact(revenue, rowRevenue);
+                transactionCount += rowCount;
+                if (collectGroups) {
+                    groups.add(toGroup(row, rowRevenue, rowCount));
+                }
+            }
+
+            // Tháng có dữ liệu ở cả hai bảng: cộng gộp group trùng và sắp xếp lại riêng tháng này
+            if (collectGroups && primaryKey == key && secondaryKey == key) {
+                groups = combineGroups(groups);
+            }
+
+            result.add(mapper.map(key / 12, key % 12 + 1, revenue, transactionCount, groups));
+        }
+        return result;
+    }
+
+    /**
+     * Gộp kết quả doanh thu theo group trong cả khoảng thời gian (shape [groupId, groupName, revenue, count],
+     * ORDER BY revenue DESC) từ bảng nóng và kho lưu trữ
+     */
+    public static List<GroupRevenue> byGroup(List<Object[]> primary, List<Object[]> secondary) {
+        List<GroupRevenue> groups = new ArrayList<>(primary.size() + secondary.size());
+        for (Object[] row : primary) {
+            groups.add(new GroupRevenue(((Number) row[0]).intValue(), (String) row[1],
+                    VndAmount.toLong(row[2]), ((Number) row[3]).longValue()));
+        }
+        if (secondary.isEmpty()) {
+            // Một nguồn: giữ nguyên thứ tự database đã sắp xếp
+            return groups;
+        }
+        for (Object[] row : secondary) {
+            groups.add(new GroupRevenue(((Number) row[0]).intValue(), (String) row[1],
+                    VndAmount.toLong(row[2]), ((Number) row[3]).longValue()));
+        }
+        return combineGroups(groups);
+    }
+
+    private static int monthKeyOf(Object[] row) {
+        return monthKey(((Number) row[COL_YEAR]).intValue(), ((Number) row[COL_MONTH]).intValue());
+    }
+
+    private static GroupRevenue toGroup(Object[] row, long revenue, long transactionCount) {
+        return new GroupRevenue(((Number) row[COL_GROUP_ID]).intValue(), (String) row[COL_GROUP_NAME],
+                revenue, transactionCount);
+    }
+
+    /**
+     * Cộng gộp các group trùng ID (đến từ hai nguồn) và sắp xếp theo doanh thu giảm dần
+     */
+    private static List<GroupRevenue> combineGroups(List<GroupRevenue> groups) {
+        Map<Integer, GroupRevenue> combined = new HashMap<>();
+        for (GroupRevenue group : groups) {
+            combined.merge(group.groupId(), group, (a, b) -> new GroupRevenue(a.groupId(), a.groupName(),
+                    Math.addExact(a.revenue(), b.revenue()), a.transactionCount() + b.transactionCount()));
+        }
+        List<GroupRevenue> result = new ArrayList<>(combined.values());
+        result.sort(Comparator.comparingLong(GroupRevenue::revenue).reversed());
+        return result;
+    }
+}
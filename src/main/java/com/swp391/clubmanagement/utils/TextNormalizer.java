@@ -0,0 +1,33 @@
+package com.swp391.clubmanagement.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class chuẩn hóa chuỗi tiếng Việt để tìm kiếm không phân biệt dấu và hoa thường
+ *
+ * "  Nguyễn Văn   Đức " -> "nguyen van duc"
+ */
+public class TextNormalizer {
+
+    /** Dấu thanh / dấu mũ sau khi tách tổ hợp (NFD) */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Bỏ dấu, chuyển chữ thường, gộp khoảng trắng (null -> null)
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String withoutMarks = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                // Đ/đ không phải chữ tổ hợp nên NFD không tách được
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return WHITESPACE.matcher(withoutMarks.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
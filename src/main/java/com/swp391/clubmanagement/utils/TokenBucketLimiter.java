@@ -0,0 +1,64 @@
+package com.swp391.clubmanagement.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TokenBucketLimiter - Giới hạn tần suất theo khóa (email, IP...) bằng token bucket, lưu trong bộ nhớ
+ *
+ * - Mỗi khóa có một bucket tối đa capacity token, nạp lại refillPerSecond token mỗi giây; mỗi request lấy 1 token
+ *   -> cho phép burst ngắn tới capacity, tốc độ trung bình không vượt refillPerSecond
+ * - Số khóa được giữ tối đa maxKeys (LRU): khóa lâu không dùng bị bỏ trước, bộ nhớ không tăng theo số IP/email lạ
+ *   (khóa bị bỏ coi như bucket đầy - chấp nhận được vì khóa đó đã lâu không gửi request)
+ * - Thread-safe; toàn bộ thao tác trên một khóa chỉ là vài phép tính trong một lock ngắn
+ */
+public final class TokenBucketLimiter {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final Map<String, Bucket> buckets;
+
+    public TokenBucketLimiter(int capacity, double refillPerSecond, int maxKeys) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.buckets = new LinkedHashMap<>(Math.min(maxKeys, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Lấy một token cho khóa
+     *
+     * @return false nếu bucket của khóa đã hết token (request phải bị từ chối)
+     */
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        synchronized (buckets) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                buckets.put(key, bucket);
+            }
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) * refillPerNano);
+            bucket.refilledAt = now;
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens -= 1;
+            return true;
+        }
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long refilledAt;
+
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.swp391.clubmanagement.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Utility class băm token bí mật (mã xác thực email...) trước khi lưu database
+ *
+ * - Database chỉ giữ SHA-256 (64 ký tự hex chữ thường, độ dài cố định) của token, token gốc chỉ nằm trong email:
+ *   lộ dữ liệu bảng Users không làm lộ link xác thực còn hiệu lực
+ * - Token là UUID ngẫu nhiên (122 bit) nên SHA-256 không salt là đủ, và tìm kiếm vẫn là so sánh bằng trên index
+ * - Cùng định dạng với SHA2(value, 256) của MySQL (dùng khi migrate dữ liệu cũ)
+ */
+public class TokenDigest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * SHA-256 của token dạng hex chữ thường (null -> null)
+     */
+    public static String sha256Hex(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Token nhận được có khớp digest đã lưu không (so sánh thời gian hằng)
+     */
+    public static boolean matches(String token, String storedDigest) {
+        if (token == null || storedDigest == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(sha256Hex(token).getBytes(StandardCharsets.US_ASCII),
+                storedDigest.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,146 @@
+package com.swp391.clubmanagement.utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * VndAmount - Kiểu giá trị tiền VND gọn nhẹ, lưu bằng số nguyên long (đơn vị: đồng)
+ *
+ * VND không có đơn vị lẻ nên toàn bộ phép cộng dồn doanh thu có thể thực hiện trên long
+ * thay vì BigDecimal (mỗi phép add của BigDecimal tạo ra một object mới).
+ *
+ * Quy ước sử dụng:
+ * - Tính toán trong bộ nhớ: dùng {@link #toLong()} / {@link #add(long)} hoặc cộng dồn trực tiếp bằng long
+ * - Ranh giới JSON: {@link #toBigDecimal()} được đánh dấu @JsonValue nên client vẫn nhận số dạng 10000.00
+ *   như khi DTO còn dùng BigDecimal (scale = 2, giống cột DECIMAL(10,2) trong database)
+ *
+ * Class bất biến (immutable), các giá trị nhỏ thường gặp (0) được cache sẵn.
+ */
+public final class VndAmount implements Comparable<VndAmount> {
+
+    /** Giá trị 0 đồng (dùng chung, tránh tạo object mới) */
+    public static final VndAmount ZERO = new VndAmount(0L);
+
+    /** Scale khi xuất ra JSON: giữ nguyên format DECIMAL(10,2) của database */
+    private static final int JSON_SCALE = 2;
+
+    /** Giới hạn của nhánh chuyển đổi nhanh BigDecimal -> long (xem wholeDong) */
+    private static final double MAX_FAST_PATH = 1e13;
+
+    /** Số tiền tính bằng đồng */
+    private final long amount;
+
+    private VndAmount(long amount) {
+        this.amount = amount;
+    }
+
+    /**
+     * Tạo VndAmount từ số đồng
+     */
+    public static VndAmount of(long amount) {
+        return amount == 0L ? ZERO : new VndAmount(amount);
+    }
+
+    /**
+     * Chuyển từ BigDecimal (giá trị đọc từ database) sang VndAmount
+     * Phần lẻ (nếu có) được làm tròn HALF_UP vì VND không có đơn vị nhỏ hơn đồng
+     *
+     * @param value Giá trị BigDecimal, null được coi là 0
+     */
+    @JsonCreator
+    public static VndAmount of(BigDecimal value) {
+        return of(toLong(value));
+    }
+
+    /**
+     * Chuyển BigDecimal/Number (kết quả query aggregate) sang số đồng dạng long
+     * Dùng khi cần cộng dồn trực tiếp bằng long mà không tạo VndAmount trung gian
+     *
+     * @param value BigDecimal, Long, Integer... (kết quả SUM của Hibernate), null được coi là 0
+     */
+    public static long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return wholeDong(decimal);
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        throw new IllegalArgumentException("Unsupported money value: " + value.getClass().getName());
+    }
+
+    /**
+     * BigDecimal sang số đồng, không tạo object trung gian với giá trị thường gặp
+     *
+     * Cột DECIMAL(10,2) luôn có scale 2 (vd. 150000.00): setScale sẽ tạo một BigDecimal mới cho mỗi dòng.
+     * Với |giá trị| < 10^13 và scale <= 2, doubleValue() chia unscaled value cho 10^scale mà không cấp phát,
+     * và sai số (< 0.002) nhỏ hơn khoảng cách tối thiểu 0.01 giữa giá trị lẻ và số nguyên gần nhất,
+     * nên double là số nguyên khi và chỉ khi giá trị là số nguyên. Giá trị có phần lẻ đi đường chậm (HALF_UP).
+     */
+    private static long wholeDong(BigDecimal decimal) {
+        if (decimal.scale() <= 2) {
+            double value = decimal.doubleValue();
+            if (Math.abs(value) < MAX_FAST_PATH && value == Math.rint(value)) {
+                return (long) value;
+            }
+        }
+        return decimal.setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Cộng thêm một số đồng, trả về VndAmount mới
+     * Dùng Math.addExact để phát hiện tràn số thay vì âm thầm sai
+     */
+    public VndAmount add(long other) {
+        return other == 0L ? this : of(Math.addExact(amount, other));
+    }
+
+    /**
+     * Cộng với một VndAmount khác
+     */
+    public VndAmount add(VndAmount other) {
+        return other == null ? this : add(other.amount);
+    }
+
+    /**
+     * Số tiền tính bằng đồng
+     */
+    public long toLong() {
+        return amount;
+    }
+
+    /**
+     * Chuyển sang BigDecimal - CHỈ dùng ở ranh giới JSON / PayOS
+     */
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(amount).setScale(JSON_SCALE);
+    }
+
+    @Override
+    public int compareTo(VndAmount other) {
+        return Long.compare(amount, other.amount);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VndAmount that)) return false;
+        return amount == that.amount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(amount);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(amount);
+    }
+}
@@ -0,0 +1,13 @@
+-- =====================================================================
+-- V10: Mã xác thực email lưu dạng SHA-256 (xem TokenDigest) + index cho job dọn tài khoản chưa xác thực
+--
+-- - verification_code: băm các mã đang chờ xác thực (UUID plaintext) bằng SHA2 -> link trong email đã gửi vẫn dùng được;
+--   cột đổi thành CHAR(64) cố định, index idx_users_verification_code (V3) giữ nguyên
+-- - users(is_enabled, verification_expiry): UnverifiedUserSweeper tìm tài khoản chưa xác thực đã hết hạn
+-- =====================================================================
+
+UPDATE users SET verification_code = SHA2(verification_code, 256) WHERE verification_code IS NOT NULL;
+
+ALTER TABLE users MODIFY COLUMN verification_code CHAR(64);
+
+CREATE INDEX idx_users_enabled_verification_expiry ON users (is_enabled, verification_expiry);
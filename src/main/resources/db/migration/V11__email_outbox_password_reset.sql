@@ -0,0 +1,22 @@
+-- =====================================================================
+-- V11: Email mật khẩu mới không lưu nội dung trong hàng đợi
+-- =====================================================================
+-- email_outbox.password_reset_user_id: EmailOutboxService tạo mật khẩu mới, lưu hash và dựng nội dung ngay lúc gửi,
+-- html_body luôn NULL -> mật khẩu dạng rõ không nằm trong database kể cả khi email lỗi / vào dead letter (ThatBai).
+-- Email mật khẩu mới đang chờ gửi được chuyển sang dạng mới (sẽ nhận mật khẩu khác khi gửi),
+-- nội dung của email đã gửi / đã vào dead letter được xóa.
+
+ALTER TABLE email_outbox ADD COLUMN password_reset_user_id VARCHAR(255) NULL AFTER html_body;
+
+UPDATE email_outbox e
+    JOIN users u ON u.email = e.recipient
+SET e.password_reset_user_id = u.user_id,
+    e.html_body = NULL
+WHERE e.subject = 'Mật Khẩu Mới - ClubHub' AND e.status IN ('ChoXuLy', 'DangXuLy');
+
+-- Email chờ gửi của user không còn tồn tại: không gửi được nữa -> dead letter
+UPDATE email_outbox SET status = 'ThatBai', last_error = 'Password reset email redacted (user not found)'
+WHERE subject = 'Mật Khẩu Mới - ClubHub' AND status IN ('ChoXuLy', 'DangXuLy') AND password_reset_user_id IS NULL;
+
+UPDATE email_outbox SET html_body = NULL
+WHERE subject = 'Mật Khẩu Mới - ClubHub' AND html_body IS NOT NULL;
@@ -0,0 +1,12 @@
+-- =====================================================================
+-- V12: Retention cho khóa chống trùng và hàng đợi webhook PayOS
+-- =====================================================================
+-- - payment_webhook_key.duplicate_count: khóa đã có -> INSERT ... ON DUPLICATE KEY UPDATE tăng bộ đếm
+--   (thay cho INSERT IGNORE, vốn biến cả lỗi dữ liệu thành warning)
+-- - Index theo thời gian để job retention xóa theo lô (WebhookInboxService.purgeExpired)
+
+ALTER TABLE payment_webhook_key ADD COLUMN duplicate_count INT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_pwk_received_at ON payment_webhook_key (received_at);
+
+CREATE INDEX idx_pwi_status_processed_at ON payment_webhook_inbox (status, processed_at);
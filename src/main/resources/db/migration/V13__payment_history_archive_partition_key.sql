@@ -0,0 +1,9 @@
+-- =====================================================================
+-- V13: Khóa chính của kho lưu trữ gồm archive_year
+-- =====================================================================
+-- MySQL chỉ cho phép partition theo cột có mặt trong mọi unique key: với PRIMARY KEY (payment_id),
+-- bảng không thể RANGE partition theo archive_year như V2 dự tính. Khóa chính (payment_id, archive_year)
+-- vẫn duy nhất theo payment_id (giữ nguyên từ PaymentHistory, mỗi giao dịch chỉ được chuyển một lần)
+-- và cho phép về sau: ALTER TABLE payment_history_archive PARTITION BY RANGE (archive_year) (...)
+
+ALTER TABLE payment_history_archive DROP PRIMARY KEY, ADD PRIMARY KEY (payment_id, archive_year);
@@ -0,0 +1,35 @@
+-- =====================================================================
+-- V14: Snapshot thanh toán trong outbox settlement, payment history idempotent theo event
+-- =====================================================================
+-- - payment_settlement_outbox lưu lại số tiền / gói / mã PayOS / ngày thanh toán tại thời điểm settlement:
+--   đăng ký được dùng lại khi gia hạn / tham gia lại, đọc registers lúc relay có thể ra dữ liệu của lần thanh toán sau
+-- - payment_history.settlement_outbox_id (unique): mỗi event settlement tạo đúng một payment history,
+--   kể cả khi cùng một đăng ký được thanh toán nhiều lần
+
+ALTER TABLE payment_settlement_outbox
+    ADD COLUMN user_id          VARCHAR(255) NULL AFTER subscription_id,
+    ADD COLUMN club_id          INT NULL AFTER user_id,
+    ADD COLUMN package_id       INT NULL AFTER club_id,
+    ADD COLUMN amount           DECIMAL(10, 2) NULL AFTER package_id,
+    ADD COLUMN payment_method   VARCHAR(255) NULL AFTER amount,
+    ADD COLUMN payos_order_code BIGINT NULL AFTER payment_method,
+    ADD COLUMN payos_reference  VARCHAR(255) NULL AFTER payos_order_code,
+    ADD COLUMN payment_date     DATETIME(6) NULL AFTER payos_reference;
+
+-- Event chưa xử lý: lấy snapshot từ đăng ký hiện tại (đúng như cách relay đọc trước đây)
+UPDATE payment_settlement_outbox o
+    JOIN registers r ON r.subscription_id = o.subscription_id
+    JOIN memberships m ON m.package_id = r.package_id
+SET o.user_id          = r.user_id,
+    o.club_id          = m.club_id,
+    o.package_id       = m.package_id,
+    o.amount           = m.price,
+    o.payment_method   = r.payment_method,
+    o.payos_order_code = r.payos_order_code,
+    o.payos_reference  = r.payos_reference,
+    o.payment_date     = r.payment_date
+WHERE o.status IN ('ChoXuLy', 'DangXuLy');
+
+ALTER TABLE payment_history
+    ADD COLUMN settlement_outbox_id BIGINT NULL AFTER subscription_id,
+    ADD CONSTRAINT uk_payment_history_settlement UNIQUE (settlement_outbox_id);
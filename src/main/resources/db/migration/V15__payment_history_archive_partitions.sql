@@ -0,0 +1,24 @@
+-- =====================================================================
+-- V15: RANGE partition kho lưu trữ theo archive_year (mỗi năm một partition)
+-- =====================================================================
+-- Query lưu trữ luôn lọc archive_year BETWEEN :startYear AND :endYear nên MySQL chỉ mở các partition
+-- của những năm đó (partition pruning), không quét cả kho.
+--
+-- p_before_2020: dữ liệu trước khi hệ thống hoạt động (nếu có)
+-- p_future: partition hứng (MAXVALUE) để INSERT không bao giờ lỗi khi thiếu partition của một năm.
+--   PaymentArchiveService.ensurePartitions tách năm tiếp theo ra khỏi p_future trước mỗi lần chuyển dữ liệu,
+--   khi p_future còn rỗng nên REORGANIZE không phải chép dòng nào.
+
+ALTER TABLE payment_history_archive
+PARTITION BY RANGE (archive_year) (
+    PARTITION p_before_2020 VALUES LESS THAN (2020),
+    PARTITION p2020 VALUES LESS THAN (2021),
+    PARTITION p2021 VALUES LESS THAN (2022),
+    PARTITION p2022 VALUES LESS THAN (2023),
+    PARTITION p2023 VALUES LESS THAN (2024),
+    PARTITION p2024 VALUES LESS THAN (2025),
+    PARTITION p2025 VALUES LESS THAN (2026),
+    PARTITION p2026 VALUES LESS THAN (2027),
+    PARTITION p2027 VALUES LESS THAN (2028),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
@@ -0,0 +1,129 @@
+-- =====================================================================
+-- V1: Schema gốc (tương đương schema do Hibernate ddl-auto: update tạo ra)
+--
+-- Database đã có dữ liệu: Flyway baseline tại version 1 (spring.flyway.baseline-on-migrate),
+-- file này KHÔNG chạy lại, chỉ các migration V2 trở đi được áp dụng.
+-- Database mới: file này tạo toàn bộ schema ban đầu.
+-- =====================================================================
+
+CREATE TABLE roles (
+    role_id   INT NOT NULL AUTO_INCREMENT,
+    role_name ENUM ('QuanTriVien','SinhVien','ChuTich') NOT NULL,
+    PRIMARY KEY (role_id),
+    CONSTRAINT uk_roles_role_name UNIQUE (role_name)
+) ENGINE = InnoDB;
+
+CREATE TABLE users (
+    user_id             VARCHAR(255) NOT NULL,
+    student_code        VARCHAR(255) NOT NULL,
+    full_name           VARCHAR(255) NOT NULL,
+    major               VARCHAR(255),
+    phone_number        VARCHAR(15),
+    avatar_url          VARCHAR(255),
+    email               VARCHAR(255) NOT NULL,
+    password            VARCHAR(255),
+    verification_code   VARCHAR(255),
+    verification_expiry DATETIME(6),
+    is_enabled          BIT NOT NULL,
+    is_active           BIT,
+    created_at          DATETIME(6),
+    role_id             INT NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT uk_users_student_code UNIQUE (student_code),
+    CONSTRAINT fk_users_role FOREIGN KEY (role_id) REFERENCES roles (role_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE clubs (
+    club_id          INT NOT NULL AUTO_INCREMENT,
+    club_name        VARCHAR(255) NOT NULL,
+    category         ENUM ('HocThuat','TheThao','NgheThuat','TinhNguyen','Khac'),
+    logo             VARCHAR(255),
+    location         VARCHAR(255),
+    description      TEXT,
+    email            VARCHAR(255),
+    founder_id       VARCHAR(255),
+    is_active        BIT,
+    established_date DATE,
+    PRIMARY KEY (club_id),
+    CONSTRAINT fk_clubs_founder FOREIGN KEY (founder_id) REFERENCES users (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE club_applications (
+    request_id             INT NOT NULL AUTO_INCREMENT,
+    creator_id             VARCHAR(255) NOT NULL,
+    club_id                INT,
+    proposed_name          VARCHAR(255) NOT NULL,
+    category               ENUM ('HocThuat','TheThao','NgheThuat','TinhNguyen','Khac'),
+    purpose                TEXT,
+    description            TEXT,
+    location               VARCHAR(255),
+    email                  VARCHAR(255),
+    default_membership_fee DECIMAL(10, 2),
+    status                 ENUM ('DangCho','ChapThuan','TuChoi'),
+    admin_note             TEXT,
+    reviewer_id            VARCHAR(255),
+    created_at             DATETIME(6),
+    updated_at             DATETIME(6),
+    PRIMARY KEY (request_id),
+    CONSTRAINT uk_club_applications_club UNIQUE (club_id),
+    CONSTRAINT fk_club_applications_creator FOREIGN KEY (creator_id) REFERENCES users (user_id),
+    CONSTRAINT fk_club_applications_club FOREIGN KEY (club_id) REFERENCES clubs (club_id),
+    CONSTRAINT fk_club_applications_reviewer FOREIGN KEY (reviewer_id) REFERENCES users (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE memberships (
+    package_id   INT NOT NULL AUTO_INCREMENT,
+    club_id      INT NOT NULL,
+    package_name VARCHAR(255) NOT NULL,
+    term         VARCHAR(255) NOT NULL,
+    price        DECIMAL(10, 2),
+    description  TEXT,
+    is_active    BIT,
+    created_at   DATETIME(6),
+    PRIMARY KEY (package_id),
+    CONSTRAINT fk_memberships_club FOREIGN KEY (club_id) REFERENCES clubs (club_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE registers (
+    subscription_id       INT NOT NULL AUTO_INCREMENT,
+    user_id               VARCHAR(255) NOT NULL,
+    package_id            INT NOT NULL,
+    status                ENUM ('ChoDuyet','DaDuyet','TuChoi','DaRoiCLB','HetHan'),
+    join_reason           TEXT,
+    approver_id           VARCHAR(255),
+    is_paid               BIT,
+    payment_date          DATETIME(6),
+    payment_method        VARCHAR(255),
+    payos_order_code      BIGINT,
+    payos_payment_link_id VARCHAR(255),
+    payos_reference       VARCHAR(255),
+    club_role             ENUM ('ThanhVien','ChuTich','PhoChuTich','ThuKy'),
+    start_date            DATETIME(6),
+    end_date              DATETIME(6),
+    join_date             DATETIME(6),
+    created_at            DATETIME(6),
+    PRIMARY KEY (subscription_id),
+    CONSTRAINT uk_registers_user_package UNIQUE (user_id, package_id),
+    CONSTRAINT fk_registers_user FOREIGN KEY (user_id) REFERENCES users (user_id),
+    CONSTRAINT fk_registers_package FOREIGN KEY (package_id) REFERENCES memberships (package_id),
+    CONSTRAINT fk_registers_approver FOREIGN KEY (approver_id) REFERENCES users (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE payment_history (
+    payment_id       INT NOT NULL AUTO_INCREMENT,
+    subscription_id  INT NOT NULL,
+    user_id          VARCHAR(255) NOT NULL,
+    club_id          INT NOT NULL,
+    package_id       INT NOT NULL,
+    amount           DECIMAL(10, 2) NOT NULL,
+    payment_method   VARCHAR(255) NOT NULL,
+    payos_order_code BIGINT,
+    payos_reference  VARCHAR(255),
+    payment_date     DATETIME(6) NOT NULL,
+    created_at       DATETIME(6),
+    PRIMARY KEY (payment_id),
+    CONSTRAINT fk_payment_history_register FOREIGN KEY (subscription_id) REFERENCES registers (subscription_id),
+    CONSTRAINT fk_payment_history_user FOREIGN KEY (user_id) REFERENCES users (user_id),
+    CONSTRAINT fk_payment_history_club FOREIGN KEY (club_id) REFERENCES clubs (club_id),
+    CONSTRAINT fk_payment_history_package FOREIGN KEY (package_id) REFERENCES memberships (package_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,30 @@
+-- =====================================================================
+-- V2: Kho lưu trữ lịch sử thanh toán (xem PaymentArchiveService)
+--
+-- IF NOT EXISTS: môi trường đã chạy bản trước (ddl-auto: update) có thể đã có bảng này.
+-- Không có foreign key: dữ liệu là snapshot, bảng có thể được RANGE partition theo archive_year.
+-- =====================================================================
+
+CREATE TABLE IF NOT EXISTS payment_history_archive (
+    payment_id       INT NOT NULL,
+    subscription_id  INT NOT NULL,
+    user_id          VARCHAR(255) NOT NULL,
+    user_name        VARCHAR(255),
+    user_email       VARCHAR(255),
+    club_id          INT NOT NULL,
+    club_name        VARCHAR(255),
+    package_id       INT NOT NULL,
+    package_name     VARCHAR(255),
+    amount           DECIMAL(10, 2) NOT NULL,
+    payment_method   VARCHAR(255) NOT NULL,
+    payos_order_code BIGINT,
+    payos_reference  VARCHAR(255),
+    payment_date     DATETIME(6) NOT NULL,
+    created_at       DATETIME(6),
+    archive_year     INT NOT NULL,
+    archived_at      DATETIME(6),
+    PRIMARY KEY (payment_id),
+    INDEX idx_pha_year_club (archive_year, club_id),
+    INDEX idx_pha_user_date (user_id, payment_date),
+    INDEX idx_pha_club_date (club_id, payment_date)
+) ENGINE = InnoDB;
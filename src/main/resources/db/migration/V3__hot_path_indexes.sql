@@ -0,0 +1,24 @@
+-- =====================================================================
+-- V3: Index cho các đường query nóng
+--
+-- - registers.payos_order_code: webhook / trang kết quả PayOS tìm đăng ký theo orderCode
+-- - registers(package_id, status, is_paid): đếm/lọc thành viên theo gói, trạng thái, đã thanh toán
+-- - payment_history(club_id, payment_date): lịch sử & doanh thu theo CLB trong khoảng thời gian
+-- - payment_history(payment_date): doanh thu toàn hệ thống theo tháng, job lưu trữ tìm giao dịch cũ
+-- - users.email (UNIQUE): đăng nhập / tìm user hiện tại từ JWT
+-- - users.verification_code: xác thực email qua link
+--
+-- Lưu ý: uk_users_email sẽ thất bại nếu database đang có email trùng -> cần dọn dữ liệu trùng trước khi migrate.
+-- =====================================================================
+
+CREATE INDEX idx_registers_payos_order_code ON registers (payos_order_code);
+
+CREATE INDEX idx_registers_package_status_paid ON registers (package_id, status, is_paid);
+
+CREATE INDEX idx_payment_history_club_date ON payment_history (club_id, payment_date);
+
+CREATE INDEX idx_payment_history_payment_date ON payment_history (payment_date);
+
+CREATE UNIQUE INDEX uk_users_email ON users (email);
+
+CREATE INDEX idx_users_verification_code ON users (verification_code);
@@ -0,0 +1,19 @@
+-- =====================================================================
+-- V4: Hàng đợi webhook PayOS (xem WebhookInboxService)
+-- =====================================================================
+
+CREATE TABLE payment_webhook_inbox (
+    event_id        BIGINT NOT NULL AUTO_INCREMENT,
+    order_code      BIGINT NOT NULL,
+    payload         TEXT NOT NULL,
+    status          ENUM ('ChoXuLy','DangXuLy','DaXuLy','ThatBai') NOT NULL,
+    attempts        INT NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    locked_at       DATETIME(6),
+    last_error      TEXT,
+    received_at     DATETIME(6) NOT NULL,
+    processed_at    DATETIME(6),
+    PRIMARY KEY (event_id),
+    INDEX idx_pwi_status_next_attempt (status, next_attempt_at),
+    INDEX idx_pwi_order_code (order_code)
+) ENGINE = InnoDB;
@@ -0,0 +1,12 @@
+-- =====================================================================
+-- V5: Khóa chống xử lý trùng webhook PayOS (orderCode + reference)
+-- =====================================================================
+
+CREATE TABLE payment_webhook_key (
+    key_id      BIGINT NOT NULL AUTO_INCREMENT,
+    order_code  BIGINT NOT NULL,
+    reference   VARCHAR(100) NOT NULL,
+    received_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (key_id),
+    CONSTRAINT uk_pwk_order_reference UNIQUE (order_code, reference)
+) ENGINE = InnoDB;
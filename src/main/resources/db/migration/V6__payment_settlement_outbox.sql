@@ -0,0 +1,17 @@
+-- =====================================================================
+-- V6: Outbox cho các tác vụ phụ sau khi ghi nhận thanh toán (xem SettlementOutboxService)
+-- =====================================================================
+
+CREATE TABLE payment_settlement_outbox (
+    outbox_id       BIGINT NOT NULL AUTO_INCREMENT,
+    subscription_id INT NOT NULL,
+    status          ENUM ('ChoXuLy','DangXuLy','DaXuLy','ThatBai') NOT NULL,
+    attempts        INT NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    locked_at       DATETIME(6),
+    last_error      TEXT,
+    created_at      DATETIME(6) NOT NULL,
+    processed_at    DATETIME(6),
+    PRIMARY KEY (outbox_id),
+    INDEX idx_pso_status_next_attempt (status, next_attempt_at)
+) ENGINE = InnoDB;
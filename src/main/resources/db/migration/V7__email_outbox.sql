@@ -0,0 +1,19 @@
+-- =====================================================================
+-- V7: Hàng đợi email gửi nền (xem EmailOutboxService)
+-- =====================================================================
+
+CREATE TABLE email_outbox (
+    email_id        BIGINT NOT NULL AUTO_INCREMENT,
+    recipient       VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    html_body       MEDIUMTEXT,
+    status          ENUM ('ChoXuLy','DangXuLy','DaXuLy','ThatBai') NOT NULL,
+    attempts        INT NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    locked_at       DATETIME(6),
+    last_error      TEXT,
+    created_at      DATETIME(6) NOT NULL,
+    sent_at         DATETIME(6),
+    PRIMARY KEY (email_id),
+    INDEX idx_eo_status_next_attempt (status, next_attempt_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,18 @@
+-- =====================================================================
+-- V8: Nhắc gia hạn membership (xem MembershipReminderService)
+--
+-- - membership_reminder: các lần nhắc đã gửi, unique theo (đăng ký, cửa sổ, ngày hết hạn) để không nhắc trùng
+-- - registers(status, is_paid, end_date): job nhắc duyệt keyset theo end_date trong các cửa sổ sắp hết hạn
+-- =====================================================================
+
+CREATE TABLE membership_reminder (
+    reminder_id     BIGINT NOT NULL AUTO_INCREMENT,
+    subscription_id INT NOT NULL,
+    window_days     INT NOT NULL,
+    end_date        DATETIME(6) NOT NULL,
+    sent_at         DATETIME(6) NOT NULL,
+    PRIMARY KEY (reminder_id),
+    CONSTRAINT uk_mr_subscription_window_end UNIQUE (subscription_id, window_days, end_date)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_registers_status_paid_end_date ON registers (status, is_paid, end_date);
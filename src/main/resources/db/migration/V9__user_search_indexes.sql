@@ -0,0 +1,20 @@
+-- =====================================================================
+-- V9: Tìm kiếm / lọc users cho Admin (xem UserSearchService)
+--
+-- - users.full_name_normalized: họ tên không dấu, chữ thường; tìm theo tiền tố tên đi theo index
+--   (giá trị được tính trong Java - Đ/đ và dấu tiếng Việt - nên các dòng cũ được backfill lúc ứng dụng khởi động)
+-- - users.major: lọc theo chuyên ngành
+-- - users(created_at, user_id): keyset pagination theo thứ tự mới nhất trước
+-- - users(role_id, is_active, created_at, user_id): lọc theo vai trò / trạng thái rồi keyset trên cùng index
+-- - student_code, email đã có unique index (tìm theo tiền tố)
+-- =====================================================================
+
+ALTER TABLE users ADD COLUMN full_name_normalized VARCHAR(255);
+
+CREATE INDEX idx_users_full_name_normalized ON users (full_name_normalized);
+
+CREATE INDEX idx_users_major ON users (major);
+
+CREATE INDEX idx_users_created_at_user_id ON users (created_at, user_id);
+
+CREATE INDEX idx_users_role_active_created ON users (role_id, is_active, created_at, user_id);
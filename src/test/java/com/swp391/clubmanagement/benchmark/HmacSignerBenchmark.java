@@ -0,0 +1,95 @@
+package com.swp391.clubmanagement.benchmark;
+
+import com.swp391.clubmanagement.utils.HmacSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HmacSignerBenchmark - Ký / xác thực chữ ký PayOS: cách cũ so với HmacSigner
+ *
+ * - legacySign / legacyVerify: Mac.getInstance + SecretKeySpec mỗi lần, payload bằng String.format,
+ *   hex bằng String.format("%02x") từng byte, so sánh bằng String.equals (như PayOSService trước đây)
+ * - signerSign / signerVerify: HmacSigner (Mac theo thread, payload ghi thẳng thành byte, bảng tra hex,
+ *   so sánh thời gian hằng)
+ *
+ * Throughput và allocation mỗi chữ ký (gc.alloc.rate.norm), chạy trên 4 thread:
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) org.openjdk.jmh.Main HmacSignerBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class HmacSignerBenchmark {
+
+    private static final String KEY = "1a54716c8f0efb2744fb28b6e38b25da7f67a925d98bc1c18bd8faaecadd7675";
+
+    long orderCode = 1_234_567_890_123L;
+    int amount = 150_000;
+    String description = "Phí CLB Guitar - Gói 6 tháng";
+    String cancelUrl = "https://clubmanage.azurewebsites.net/api/payments/cancel";
+    String returnUrl = "https://clubmanage.azurewebsites.net/api/payments/return";
+
+    HmacSigner signer;
+    String signature;
+
+    @Setup
+    public void setUp() {
+        signer = new HmacSigner(KEY);
+        signature = signerSign();
+    }
+
+    @Benchmark
+    public String legacySign() throws Exception {
+        String data = String.format("amount=%d&cancelUrl=%s&description=%s&orderCode=%d&returnUrl=%s",
+                amount, cancelUrl, description, orderCode, returnUrl);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] digest = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    @Benchmark
+    public boolean legacyVerify() throws Exception {
+        return legacySign().equals(signature);
+    }
+
+    @Benchmark
+    public String signerSign() {
+        return signer.sign(payload());
+    }
+
+    @Benchmark
+    public boolean signerVerify() {
+        return signer.verify(payload(), signature);
+    }
+
+    private HmacSigner.Payload payload() {
+        return signer.payload()
+                .field("amount", amount)
+                .field("cancelUrl", cancelUrl)
+                .field("description", description)
+                .field("orderCode", orderCode)
+                .field("returnUrl", returnUrl);
+    }
+}
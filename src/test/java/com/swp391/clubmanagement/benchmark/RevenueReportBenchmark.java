@@ -0,0 +1,124 @@
+package com.swp391.clubmanagement.benchmark;
+
+import com.swp391.clubmanagement.utils.RevenueReportEngine;
+import com.swp391.clubmanagement.utils.RevenueReportEngine.GroupRevenue;
+import com.swp391.clubmanagement.utils.VndAmount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RevenueReportBenchmark - Báo cáo doanh thu tháng x CLB trên 1 triệu dòng kết quả query
+ *
+ * Dữ liệu: 120 tháng x 8334 CLB, shape [year, month, clubId, clubName, revenue (BigDecimal), count (Long)],
+ * đã sắp xếp year DESC, month DESC, revenue DESC như query.
+ * - stringKeyedMap: cách cũ, LinkedHashMap theo key chuỗi year + "-" + month, boxing, sắp xếp lại các tháng
+ * - engine: RevenueReportEngine.byMonth, một lần duyệt theo month key int
+ * - engineMerged: dữ liệu tách thành bảng nóng (24 tháng gần nhất) + kho lưu trữ, trộn trong một lần duyệt
+ *
+ * Chạy (xem thêm VndAmountBenchmark):
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) org.openjdk.jmh.Main RevenueReportBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RevenueReportBenchmark {
+
+    private static final int MONTHS = 120;
+    private static final int CLUBS = 8334;
+    private static final int HOT_MONTHS = 24;
+
+    List<Object[]> rows;
+    List<Object[]> hotRows;
+    List<Object[]> archiveRows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new ArrayList<>(MONTHS * CLUBS);
+        hotRows = new ArrayList<>(HOT_MONTHS * CLUBS);
+        archiveRows = new ArrayList<>((MONTHS - HOT_MONTHS) * CLUBS);
+        String[] clubNames = new String[CLUBS];
+        for (int club = 0; club < CLUBS; club++) {
+            clubNames[club] = "CLB " + club;
+        }
+        for (int m = 0; m < MONTHS; m++) {
+            int key = RevenueReportEngine.monthKey(2026, 12) - m;
+            List<Object[]> month = new ArrayList<>(CLUBS);
+            for (int club = 0; club < CLUBS; club++) {
+                long count = 1 + random.nextInt(50);
+                month.add(new Object[]{key / 12, key % 12 + 1, club + 1, clubNames[club],
+                        BigDecimal.valueOf(count * 50_000L).setScale(2), count});
+            }
+            month.sort(Comparator.comparing((Object[] row) -> (BigDecimal) row[4]).reversed());
+            rows.addAll(month);
+            (m < HOT_MONTHS ? hotRows : archiveRows).addAll(month);
+        }
+    }
+
+    @Benchmark
+    public List<MonthReport> stringKeyedMap() {
+        Map<String, MonthBuilder> months = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Integer year = ((Number) row[0]).intValue();
+            Integer month = ((Number) row[1]).intValue();
+            Integer clubId = ((Number) row[2]).intValue();
+            long revenue = VndAmount.toLong(row[4]);
+            long count = ((Number) row[5]).longValue();
+            MonthBuilder builder = months.computeIfAbsent(year + "-" + month, k -> new MonthBuilder(year, month));
+            builder.revenue = Math.addExact(builder.revenue, revenue);
+            builder.count += count;
+            builder.groups.add(new GroupRevenue(clubId, (String) row[3], revenue, count));
+        }
+        return months.values().stream()
+                .map(builder -> new MonthReport(builder.year, builder.month, builder.revenue, builder.count,
+                        builder.groups))
+                .sorted(Comparator.comparing(MonthReport::year).thenComparing(MonthReport::month).reversed())
+                .toList();
+    }
+
+    @Benchmark
+    public List<MonthReport> engine() {
+        return RevenueReportEngine.byMonth(rows, List.of(), true, MonthReport::new);
+    }
+
+    @Benchmark
+    public List<MonthReport> engineMerged() {
+        return RevenueReportEngine.byMonth(hotRows, archiveRows, true, MonthReport::new);
+    }
+
+    public record MonthReport(Integer year, Integer month, long revenue, long count, List<GroupRevenue> groups) {
+    }
+
+    private static final class MonthBuilder {
+        final Integer year;
+        final Integer month;
+        long revenue;
+        long count;
+        final List<GroupRevenue> groups = new ArrayList<>();
+
+        MonthBuilder(Integer year, Integer month) {
+            this.year = year;
+            this.month = month;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.swp391.clubmanagement.benchmark;
+
+import com.swp391.clubmanagement.utils.VndAmount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VndAmountBenchmark - Cộng dồn doanh thu bằng BigDecimal so với long (VndAmount)
+ *
+ * Mô phỏng ClubService.getClubStats / báo cáo doanh thu: mỗi dòng query trả về số tiền dạng BigDecimal
+ * (cột DECIMAL(10,2)), cần cộng dồn thành tổng doanh thu.
+ * - bigDecimalReduce: cách cũ, reduce(BigDecimal.ZERO, BigDecimal::add) -> mỗi dòng một BigDecimal mới
+ * - longAccumulate: VndAmount.toLong từng dòng và cộng bằng long, chỉ tạo VndAmount cho kết quả cuối
+ *
+ * Xem allocation bằng profiler GC của JMH (gc.alloc.rate.norm = byte cấp phát mỗi lần gọi):
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test.cp
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) org.openjdk.jmh.Main VndAmountBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VndAmountBenchmark {
+
+    @Param({"1000", "100000"})
+    int rows;
+
+    List<BigDecimal> amounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amounts = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            // Giá gói 10.000đ - 1.000.000đ, scale 2 như khi đọc từ DECIMAL(10,2)
+            amounts.add(BigDecimal.valueOf((10 + random.nextInt(990)) * 1000L).setScale(2));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalReduce() {
+        return amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public VndAmount longAccumulate() {
+        long total = 0;
+        for (BigDecimal amount : amounts) {
+            total = Math.addExact(total, VndAmount.toLong(amount));
+        }
+        return VndAmount.of(total);
+    }
+}
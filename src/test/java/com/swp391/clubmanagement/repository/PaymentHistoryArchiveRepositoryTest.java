@@ -0,0 +1,117 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.Clubs;
+import com.swp391.clubmanagement.entity.Memberships;
+import com.swp391.clubmanagement.entity.PaymentHistoryArchive;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Query doanh thu trên kho lưu trữ: CLB / gói đổi tên giữa các snapshot vẫn là một dòng mỗi tháng, mang tên hiện tại
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class PaymentHistoryArchiveRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2022, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2022, 12, 31, 23, 59, 59);
+    private static final int DELETED_CLUB_ID = 9999;
+    private static final int DELETED_PACKAGE_ID = 8888;
+
+    @Autowired
+    PaymentHistoryArchiveRepository paymentHistoryArchiveRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    Clubs club;
+    Memberships membership;
+    int nextPaymentId = 1;
+
+    @BeforeEach
+    void seed() {
+        club = Clubs.builder().clubName("CLB Guitar").build();
+        entityManager.persist(club);
+        membership = Memberships.builder().club(club).packageName("Gói năm").term("12 tháng")
+                .price(BigDecimal.valueOf(100_000)).build();
+        entityManager.persist(membership);
+
+        // Tháng 3/2022: cùng CLB / gói nhưng snapshot mang tên cũ và tên mới
+        archive(club.getClubId(), "CLB Nhạc", membership.getPackageId(), "Gói 12 tháng", 3, 100_000);
+        archive(club.getClubId(), "CLB Guitar", membership.getPackageId(), "Gói năm", 3, 50_000);
+        // CLB / gói đã bị xóa: chỉ còn tên trong snapshot
+        archive(DELETED_CLUB_ID, "CLB Cờ", DELETED_PACKAGE_ID, "Gói cũ", 3, 20_000);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void revenueByClubAndMonthGroupsRenamedClubIntoOneRow() {
+        List<Object[]> rows = paymentHistoryArchiveRepository.calculateRevenueByClubAndMonth(2022, 2022, START, END);
+
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), club.getClubId(), "CLB Guitar", 150_000, 2);
+        assertRow(rows.get(1), DELETED_CLUB_ID, "CLB Cờ", 20_000, 1);
+    }
+
+    @Test
+    void revenueByClubByMonthUsesCurrentClubName() {
+        List<Object[]> rows = paymentHistoryArchiveRepository.calculateRevenueByClubByMonth(
+                club.getClubId(), 2022, 2022, START, END);
+
+        assertEquals(1, rows.size());
+        assertRow(rows.get(0), club.getClubId(), "CLB Guitar", 150_000, 2);
+    }
+
+    @Test
+    void revenueByPackageGroupsRenamedPackageIntoOneRow() {
+        List<Object[]> rows = paymentHistoryArchiveRepository.calculateRevenueByPackageForClub(
+                club.getClubId(), 2022, 2022, START, END);
+
+        assertEquals(1, rows.size());
+        assertEquals(membership.getPackageId(), ((Number) rows.get(0)[0]).intValue());
+        assertEquals("Gói năm", rows.get(0)[1]);
+        assertEquals(0, new BigDecimal("150000").compareTo((BigDecimal) rows.get(0)[2]));
+    }
+
+    private void archive(int clubId, String clubName, int packageId, String packageName, int month, long amount) {
+        LocalDateTime paymentDate = LocalDateTime.of(2022, month, 10, 9, 0);
+        entityManager.persist(PaymentHistoryArchive.builder()
+                .paymentId(nextPaymentId)
+                .subscriptionId(nextPaymentId++)
+                .userId("user-1")
+                .clubId(clubId)
+                .clubName(clubName)
+                .packageId(packageId)
+                .packageName(packageName)
+                .amount(BigDecimal.valueOf(amount))
+                .paymentMethod("PayOS")
+                .paymentDate(paymentDate)
+                .archiveYear(paymentDate.getYear())
+                .build());
+    }
+
+    private static void assertRow(Object[] row, int clubId, String clubName, long revenue, long count) {
+        assertEquals(2022, ((Number) row[0]).intValue());
+        assertEquals(3, ((Number) row[1]).intValue());
+        assertEquals(clubId, ((Number) row[2]).intValue());
+        assertEquals(clubName, row[3]);
+        assertEquals(0, BigDecimal.valueOf(revenue).compareTo((BigDecimal) row[4]));
+        assertEquals(count, ((Number) row[5]).longValue());
+    }
+}
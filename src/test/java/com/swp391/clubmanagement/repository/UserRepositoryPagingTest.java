@@ -0,0 +1,141 @@
+package com.swp391.clubmanagement.repository;
+
+import com.swp391.clubmanagement.entity.Clubs;
+import com.swp391.clubmanagement.entity.Memberships;
+import com.swp391.clubmanagement.entity.Registers;
+import com.swp391.clubmanagement.entity.Roles;
+import com.swp391.clubmanagement.entity.Users;
+import com.swp391.clubmanagement.enums.RoleType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Phân trang hai bước của danh sách user (findUserIds + findAllWithRegistersByUserIdIn) trên H2
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.swp391.clubmanagement.repository.SqlCapture"
+})
+class UserRepositoryPagingTest {
+
+    private static final int USERS = 60;
+    private static final int REGISTERS_PER_USER = 3;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        Roles role = Roles.builder().roleName(RoleType.SinhVien).build();
+        entityManager.persist(role);
+
+        Clubs club = Clubs.builder().clubName("CLB Test").build();
+        entityManager.persist(club);
+        Memberships[] packages = new Memberships[REGISTERS_PER_USER];
+        for (int p = 0; p < REGISTERS_PER_USER; p++) {
+            packages[p] = Memberships.builder().club(club).packageName("Gói " + p).term("1 tháng")
+                    .price(BigDecimal.valueOf(50_000)).build();
+            entityManager.persist(packages[p]);
+        }
+
+        for (int i = 0; i < USERS; i++) {
+            Users user = Users.builder()
+                    .studentCode(String.format(Locale.ROOT, "SE%06d", i))
+                    .fullName("Sinh Vien " + i)
+                    .email("student" + i + "@fpt.edu.vn")
+                    .role(role)
+                    .build();
+            entityManager.persist(user);
+            for (Memberships membershipPackage : packages) {
+                entityManager.persist(Registers.builder().user(user).membershipPackage(membershipPackage).build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SqlCapture.clear();
+    }
+
+    @Test
+    void findUserIdsPagesInTheDatabase() {
+        Page<String> page = userRepository.findUserIds(PageRequest.of(2, PAGE_SIZE, Sort.by("studentCode")));
+
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(USERS, page.getTotalElements());
+
+        List<String> statements = SqlCapture.statements();
+        // Một query lấy ID của trang + một query đếm
+        assertEquals(2, statements.size(), () -> "unexpected statements: " + statements);
+        String pageQuery = statements.get(0).toLowerCase(Locale.ROOT);
+        assertTrue(pageQuery.contains("offset") && (pageQuery.contains("fetch first") || pageQuery.contains("limit")),
+                () -> "page query is not limited in SQL: " + pageQuery);
+        assertTrue(!pageQuery.contains("join"), () -> "page query must not join registers: " + pageQuery);
+        assertTrue(statements.get(1).toLowerCase(Locale.ROOT).contains("count("));
+    }
+
+    @Test
+    void graphIsFetchedOnlyForThePage() {
+        Page<String> page = userRepository.findUserIds(PageRequest.of(0, PAGE_SIZE, Sort.by("studentCode")));
+        SqlCapture.clear();
+        statistics.clear();
+
+        List<Users> users = userRepository.findAllWithRegistersByUserIdIn(page.getContent());
+
+        assertEquals(PAGE_SIZE, users.size());
+        // Users + registers + gói + CLB trong một câu SQL
+        // (Clubs.application là OneToOne phía mappedBy nên Hibernate tra thêm theo từng CLB, không theo từng user)
+        assertEquals(1, graphStatements(), () -> "unexpected statements: " + SqlCapture.statements());
+        // Chỉ load registers của user trong trang, không phải của cả bảng
+        long registersLoaded = statistics.getEntityStatistics(Registers.class.getName()).getLoadCount();
+        assertEquals((long) PAGE_SIZE * REGISTERS_PER_USER, registersLoaded);
+        long usersLoaded = statistics.getEntityStatistics(Users.class.getName()).getLoadCount();
+        assertEquals(PAGE_SIZE, usersLoaded);
+
+        // Graph đã được load, không phát sinh query khi đọc club của từng đăng ký
+        users.forEach(user -> user.getRegisters()
+                .forEach(register -> register.getMembershipPackage().getClub().getClubName()));
+        assertEquals(1, graphStatements());
+    }
+
+    /** Số câu SQL đọc bảng users / registers */
+    private static long graphStatements() {
+        return SqlCapture.statements().stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.contains("from users") || sql.contains("from registers"))
+                .count();
+    }
+}
@@ -0,0 +1,93 @@
+package com.swp391.clubmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderCodeGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int CODES_PER_THREAD = 50_000;
+
+    @Test
+    void nextOrderCodeIsUniqueAcrossThreads() throws Exception {
+        OrderCodeGenerator generator = new OrderCodeGenerator(5, 100);
+        Set<Long> codes = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    long previous = 0;
+                    for (int i = 0; i < CODES_PER_THREAD; i++) {
+                        long code = generator.nextOrderCode();
+                        // Trên cùng một thread mã luôn tăng
+                        assertTrue(code > previous, "codes must increase within a thread");
+                        assertTrue(code > 0 && code <= OrderCodeGenerator.MAX_ORDER_CODE);
+                        assertEquals(5, OrderCodeGenerator.nodeIdOf(code));
+                        codes.add(code);
+                        previous = code;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(THREADS * CODES_PER_THREAD, codes.size());
+    }
+
+    @Test
+    void borrowingStaysWithinMaxBorrow() {
+        OrderCodeGenerator generator = new OrderCodeGenerator(0, 5);
+        for (int i = 0; i < 200_000; i++) {
+            long code = generator.nextOrderCode();
+            long aheadMillis = OrderCodeGenerator.issuedAt(code).toEpochMilli() - System.currentTimeMillis();
+            assertTrue(aheadMillis <= 5, "borrowed " + aheadMillis + " ms ahead of the clock");
+        }
+    }
+
+    @Test
+    void restartedGeneratorOnSameNodeDoesNotReissueCodes() {
+        // Process cũ mượn trước tới giới hạn, process mới (cùng node) khởi động ngay sau đó
+        OrderCodeGenerator first = new OrderCodeGenerator(3, 20);
+        long last = 0;
+        for (int i = 0; i < 100_000; i++) {
+            last = first.nextOrderCode();
+        }
+        OrderCodeGenerator restarted = new OrderCodeGenerator(3, 20);
+        assertTrue(restarted.nextOrderCode() > last);
+    }
+
+    @Test
+    void lowerBoundAtOrdersCodesByIssueTime() {
+        OrderCodeGenerator generator = new OrderCodeGenerator(31, 100);
+        Instant before = Instant.now();
+        long code = generator.nextOrderCode();
+        assertTrue(code >= OrderCodeGenerator.lowerBoundAt(before));
+        assertEquals(31, OrderCodeGenerator.nodeIdOf(code));
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalStateException.class, () -> new OrderCodeGenerator(32, 100));
+    }
+}
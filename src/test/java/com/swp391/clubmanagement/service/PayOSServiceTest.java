@@ -0,0 +1,365 @@
+package com.swp391.clubmanagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swp391.clubmanagement.configuration.PayOSClientConfig;
+import com.swp391.clubmanagement.dto.request.PayOSCreatePaymentRequest;
+import com.swp391.clubmanagement.dto.response.PayOSPaymentInfoResponse;
+import com.swp391.clubmanagement.dto.response.PayOSPaymentLinkResponse;
+import com.swp391.clubmanagement.exception.AppException;
+import com.swp391.clubmanagement.exception.ErrorCode;
+import com.swp391.clubmanagement.simulator.PayOSSimulator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.metrics.web.client.ObservationRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.observation.DefaultClientRequestObservationConvention;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PayOSService với HTTP client thật (PayOSClientConfig) gọi tới PayOS giả lập chạy local
+ *
+ * - StubPayOS: trả lời theo kịch bản (503, chậm, thành công) để kiểm tra retry / timeout / keep-alive,
+ *   circuit breaker và bulkhead
+ * - PayOSSimulator: kiểm tra tạo payment link có chữ ký hợp lệ và trạng thái đơn (PENDING / PAID / CANCELLED)
+ */
+class PayOSServiceTest {
+
+    private static final String CHECKSUM_KEY = "test-checksum-key";
+    private static final long READ_TIMEOUT_MS = 300;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PayOSClientConfig clientConfig = new PayOSClientConfig();
+    private CloseableHttpClient httpClient;
+    private StubPayOS stub;
+    private PayOSSimulator simulator;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    void getPaymentInfoRetriesTransientServerErrors() throws IOException {
+        stub = new StubPayOS(503, 503, 200);
+        PayOSService service = service(stub.baseUrl());
+
+        PayOSPaymentInfoResponse info = service.getPaymentInfo(123L);
+
+        assertEquals("PAID", info.getData().getStatus());
+        assertEquals(3, stub.requests.get());
+    }
+
+    @Test
+    void getPaymentInfoGivesUpAfterMaxAttempts() throws IOException {
+        stub = new StubPayOS(503, 503, 503, 200);
+        PayOSService service = service(stub.baseUrl());
+
+        AppException error = assertThrows(AppException.class, () -> service.getPaymentInfo(123L));
+
+        assertEquals(ErrorCode.PAYOS_UNAVAILABLE, error.getErrorCode());
+        assertEquals(3, stub.requests.get());
+    }
+
+    @Test
+    void getPaymentInfoIsBoundedByReadTimeout() throws IOException {
+        stub = new StubPayOS(200);
+        stub.delayMs = READ_TIMEOUT_MS * 5;
+        PayOSService service = service(stub.baseUrl());
+
+        long start = System.nanoTime();
+        AppException error = assertThrows(AppException.class, () -> service.getPaymentInfo(123L));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(ErrorCode.PAYOS_UNAVAILABLE, error.getErrorCode());
+        assertEquals(3, stub.requests.get());
+        // 3 lần timeout + backoff (tối đa 20 + 40 ms), không chờ theo server
+        assertTrue(elapsedMs < 3 * stub.delayMs, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void connectionsAreKeptAlive() throws IOException {
+        stub = new StubPayOS(200, 200, 200, 200, 200);
+        PayOSService service = service(stub.baseUrl());
+
+        for (int i = 0; i < 5; i++) {
+            service.getPaymentInfo(100L + i);
+        }
+
+        assertEquals(5, stub.requests.get());
+        assertEquals(1, stub.clientPorts.size(), "expected one pooled connection, got " + stub.clientPorts);
+    }
+
+    @Test
+    void latencyIsRecordedPerEndpointTemplate() throws IOException {
+        stub = new StubPayOS(200, 200);
+        PayOSService service = service(stub.baseUrl());
+
+        service.getPaymentInfo(1L);
+        service.getPaymentInfo(2L);
+
+        Timer timer = meterRegistry.find("http.client.requests")
+                .tag("uri", "/v2/payment-requests/{orderCode}")
+                .timer();
+        assertNotNull(timer, () -> "meters: " + meterRegistry.getMetersAsString());
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void createPaymentLinkIsNotRetried() throws IOException {
+        stub = new StubPayOS(503, 200);
+        PayOSService service = service(stub.baseUrl());
+
+        AppException error = assertThrows(AppException.class, () -> service.createPaymentLink(paymentRequest(42L)));
+
+        assertEquals(ErrorCode.PAYMENT_LINK_CREATION_FAILED, error.getErrorCode());
+        assertEquals(1, stub.requests.get());
+    }
+
+    @Test
+    void circuitBreakerOpensAndFailsFastWithoutCallingPayOS() throws IOException {
+        stub = new StubPayOS(503);
+        CircuitBreaker circuitBreaker = clientConfig.payOSCircuitBreaker(meterRegistry, 50, 5000, 4, 4, 30);
+        PayOSService service = service(stub.baseUrl(), READ_TIMEOUT_MS, circuitBreaker,
+                clientConfig.payOSBulkhead(meterRegistry, 10, 0));
+
+        // Lần 1: 3 lần thử đều 503; lần 2: lần thử thứ 4 làm đầy cửa sổ (100% lỗi) -> mở, lần thử sau bị chặn
+        assertThrows(AppException.class, () -> service.getPaymentInfo(1L));
+        AppException opened = assertThrows(AppException.class, () -> service.getPaymentInfo(2L));
+        assertEquals(ErrorCode.PAYOS_UNAVAILABLE, opened.getErrorCode());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(4, stub.requests.get());
+
+        AppException rejected = assertThrows(AppException.class, () -> service.getPaymentInfo(3L));
+
+        assertEquals(ErrorCode.PAYOS_UNAVAILABLE, rejected.getErrorCode());
+        assertEquals(4, stub.requests.get());
+    }
+
+    @Test
+    void bulkheadRejectsCallsOverTheConcurrencyLimit() throws Exception {
+        stub = new StubPayOS(200);
+        stub.delayMs = 500;
+        PayOSService service = service(stub.baseUrl(), 5000,
+                clientConfig.payOSCircuitBreaker(meterRegistry, 50, 5000, 20, 10, 30),
+                clientConfig.payOSBulkhead(meterRegistry, 1, 0));
+
+        CompletableFuture<PayOSPaymentInfoResponse> inFlight = CompletableFuture.supplyAsync(() -> service.getPaymentInfo(1L));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stub.requests.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, stub.requests.get());
+
+        AppException error = assertThrows(AppException.class, () -> service.getPaymentInfo(2L));
+
+        assertEquals(ErrorCode.PAYOS_BUSY, error.getErrorCode());
+        assertEquals("PAID", inFlight.get(5, TimeUnit.SECONDS).getData().getStatus());
+        assertEquals(1, stub.requests.get());
+    }
+
+    @Test
+    void createPaymentLinkAgainstSimulator() throws IOException {
+        simulator = new PayOSSimulator(new PayOSSimulator.Config(0, "client", "key", CHECKSUM_KEY, null,
+                20, 0, 0, 0, 0, 0, 0));
+        simulator.start();
+        // Lần gọi đầu tiên của simulator (JIT, Jackson) có thể chậm hơn READ_TIMEOUT_MS khi chạy cả bộ test
+        PayOSService service = service(simulator.baseUrl(), 5000);
+
+        PayOSPaymentLinkResponse response = service.createPaymentLink(paymentRequest(77L));
+
+        assertEquals("00", response.getCode());
+        assertEquals(77L, response.getData().getOrderCode());
+        assertNotNull(response.getData().getPaymentLinkId());
+    }
+
+    @Test
+    void paymentInfoFollowsSimulatedOrderState() throws Exception {
+        simulator = new PayOSSimulator(new PayOSSimulator.Config(0, "client", "key", CHECKSUM_KEY, null,
+                20, 300, 0, 0, 0, 0, 0));
+        simulator.start();
+        PayOSService service = service(simulator.baseUrl(), 5000);
+        service.createPaymentLink(paymentRequest(81L));
+
+        assertEquals("PENDING", service.getPaymentInfo(81L).getData().getStatus());
+        PayOSPaymentInfoResponse.PaymentInfo paid = awaitStatus(service, 81L, "PAID");
+        assertEquals(50_000, paid.getAmountPaid());
+        assertEquals(1, paid.getTransactions().size());
+
+        AppException missing = assertThrows(AppException.class, () -> service.getPaymentInfo(404L));
+        assertEquals(ErrorCode.PAYMENT_NOT_FOUND, missing.getErrorCode());
+    }
+
+    @Test
+    void paymentInfoReportsCancelledOrders() throws Exception {
+        simulator = new PayOSSimulator(new PayOSSimulator.Config(0, "client", "key", CHECKSUM_KEY, null,
+                20, 0, 0, 0, 0, 0, 1.0));
+        simulator.start();
+        PayOSService service = service(simulator.baseUrl(), 5000);
+        service.createPaymentLink(paymentRequest(82L));
+
+        PayOSPaymentInfoResponse.PaymentInfo cancelled = awaitStatus(service, 82L, "CANCELLED");
+
+        assertEquals(0, cancelled.getAmountPaid());
+        assertTrue(cancelled.getTransactions().isEmpty());
+    }
+
+    private static PayOSPaymentInfoResponse.PaymentInfo awaitStatus(PayOSService service, long orderCode, String status)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        PayOSPaymentInfoResponse.PaymentInfo info = service.getPaymentInfo(orderCode).getData();
+        while (!status.equals(info.getStatus()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            info = service.getPaymentInfo(orderCode).getData();
+        }
+        assertEquals(status, info.getStatus());
+        return info;
+    }
+
+    private PayOSService service(String apiUrl) {
+        return service(apiUrl, READ_TIMEOUT_MS);
+    }
+
+    private PayOSService service(String apiUrl, long readTimeoutMs) {
+        return service(apiUrl, readTimeoutMs,
+                clientConfig.payOSCircuitBreaker(meterRegistry, 50, 5000, 20, 10, 30),
+                clientConfig.payOSBulkhead(meterRegistry, 10, 0));
+    }
+
+    private PayOSService service(String apiUrl, long readTimeoutMs, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        httpClient = clientConfig.payOSHttpClient(4, 500, 500, readTimeoutMs, 30, 300);
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        RestTemplateBuilder builder = new RestTemplateBuilder(new ObservationRestTemplateCustomizer(
+                observationRegistry, new DefaultClientRequestObservationConvention()));
+        RestTemplate restTemplate = clientConfig.payOSRestTemplate(builder, httpClient, apiUrl);
+
+        PayOSService service = new PayOSService(restTemplate, circuitBreaker, bulkhead);
+        ReflectionTestUtils.setField(service, "clientId", "client");
+        ReflectionTestUtils.setField(service, "apiKey", "key");
+        ReflectionTestUtils.setField(service, "checksumKey", CHECKSUM_KEY);
+        ReflectionTestUtils.setField(service, "baseUrl", "http://localhost/api");
+        ReflectionTestUtils.setField(service, "retryMaxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBaseDelayMs", 20L);
+        ReflectionTestUtils.setField(service, "retryMaxDelayMs", 100L);
+        service.initSigner();
+        return service;
+    }
+
+    private static PayOSCreatePaymentRequest paymentRequest(long orderCode) {
+        return PayOSCreatePaymentRequest.builder()
+                .orderCode(orderCode)
+                .amount(50_000)
+                .description("CLB " + orderCode)
+                .items(List.of())
+                .returnUrl("http://localhost/return")
+                .cancelUrl("http://localhost/cancel")
+                .build();
+    }
+
+    /**
+     * PayOS giả lập cho GET/POST /v2/payment-requests: trả lần lượt các status trong kịch bản
+     * (hết kịch bản thì lặp lại status cuối), ghi lại số request và cổng client của từng request
+     */
+    private static final class StubPayOS implements AutoCloseable {
+
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newFixedThreadPool(4);
+        private final ConcurrentLinkedQueue<Integer> script = new ConcurrentLinkedQueue<>();
+        private final int lastStatus;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        final AtomicInteger requests = new AtomicInteger();
+        final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        volatile long delayMs;
+
+        StubPayOS(int... statuses) throws IOException {
+            for (int status : statuses) {
+                script.add(status);
+            }
+            this.lastStatus = statuses[statuses.length - 1];
+            this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            this.server.setExecutor(executor);
+            this.server.createContext("/v2/payment-requests", this::handle);
+            this.server.start();
+        }
+
+        String baseUrl() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try {
+                requests.incrementAndGet();
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.getRequestBody().readAllBytes();
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+                Integer scripted = script.poll();
+                int status = scripted != null ? scripted : lastStatus;
+                String path = exchange.getRequestURI().getPath();
+                long orderCode = path.matches(".*/\\d+$") ? Long.parseLong(path.substring(path.lastIndexOf('/') + 1)) : 0;
+                Object body = status == 200
+                        ? Map.of("code", "00", "desc", "success",
+                                "data", Map.of("id", "link-" + orderCode, "orderCode", orderCode, "amount", 50000,
+                                        "amountPaid", 50000, "amountRemaining", 0, "status", "PAID"))
+                        : Map.of("code", String.valueOf(status), "desc", "Service unavailable");
+                byte[] bytes = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // Client đã bỏ cuộc (timeout)
+            } finally {
+                exchange.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
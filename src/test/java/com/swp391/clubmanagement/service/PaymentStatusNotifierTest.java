@@ -0,0 +1,39 @@
+package com.swp391.clubmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PaymentStatusNotifier: đánh thức đúng các waiter còn đăng ký của đơn được thanh toán
+ */
+class PaymentStatusNotifierTest {
+
+    private final PaymentStatusNotifier notifier = new PaymentStatusNotifier();
+
+    @Test
+    void notifyWakesWaitersOfThatOrderOnly() {
+        CompletableFuture<Boolean> paid = notifier.await(1L);
+        CompletableFuture<Boolean> other = notifier.await(2L);
+
+        notifier.notifyPaidAfterCommit(1L);
+
+        assertTrue(paid.isDone());
+        assertFalse(other.isDone());
+    }
+
+    @Test
+    void cancelledWaiterIsNotWokenButNewOneIs() {
+        CompletableFuture<Boolean> cancelled = notifier.await(1L);
+        notifier.cancel(1L, cancelled);
+        CompletableFuture<Boolean> waiter = notifier.await(1L);
+
+        notifier.notifyPaidAfterCommit(1L);
+
+        assertFalse(cancelled.isDone());
+        assertTrue(waiter.isDone());
+    }
+}
@@ -0,0 +1,141 @@
+package com.swp391.clubmanagement.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PooledMailTransport.sendAll trên SMTP server nhúng (GreenMail)
+ */
+class PooledMailTransportTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PooledMailTransport transport;
+
+    @AfterEach
+    void close() {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    @Test
+    void sendAllDeliversEveryMessageOverThePool() throws Exception {
+        transport = transport(3, 1000);
+        List<MimeMessage> messages = messages(30);
+
+        List<Exception> results = transport.sendAll(messages);
+
+        assertEquals(30, results.size());
+        results.forEach(result -> assertNull(result));
+        assertTrue(greenMail.waitForIncomingEmail(5000, 30));
+        Set<String> subjects = receivedSubjects();
+        IntStream.range(0, 30).forEach(i -> assertTrue(subjects.contains("Thông báo " + i)));
+        assertEquals(30.0, meterRegistry.counter("mail.smtp.sent").count());
+        assertEquals(0.0, meterRegistry.counter("mail.smtp.failed").count());
+    }
+
+    @Test
+    void failedMessageDoesNotFailTheBatch() throws Exception {
+        transport = transport(2, 1000);
+        List<MimeMessage> messages = messages(6);
+        // Email không có người nhận -> SMTP từ chối
+        messages.set(3, transport.createMimeMessage());
+        messages.get(3).setSubject("Không có người nhận");
+        messages.get(3).setText("body");
+
+        List<Exception> results = transport.sendAll(messages);
+
+        assertNotNull(results.get(3));
+        for (int i = 0; i < results.size(); i++) {
+            if (i != 3) {
+                assertNull(results.get(i), "message " + i + " failed: " + results.get(i));
+            }
+        }
+        assertTrue(greenMail.waitForIncomingEmail(5000, 5));
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(1.0, meterRegistry.counter("mail.smtp.failed").count());
+    }
+
+    @Test
+    void reconnectsAfterServerDropsPooledConnections() throws Exception {
+        transport = transport(2, 1000);
+        transport.sendAll(messages(4)).forEach(result -> assertNull(result));
+
+        // Server khởi động lại: kết nối đang giữ trong pool đã chết
+        greenMail.stop();
+        greenMail.start();
+
+        transport.sendAll(messages(4)).forEach(result -> assertNull(result));
+        assertTrue(greenMail.waitForIncomingEmail(5000, 4));
+    }
+
+    @Test
+    void sendAllRespectsRateLimit() throws Exception {
+        transport = transport(3, 10);
+
+        long start = System.nanoTime();
+        List<Exception> results = transport.sendAll(messages(25));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        results.forEach(result -> assertNull(result));
+        // 10 email/giây: 25 email cần ít nhất 2 chu kỳ làm mới giới hạn
+        assertTrue(elapsedMillis >= 1500, "25 messages at 10/s sent in " + elapsedMillis + " ms");
+    }
+
+    private PooledMailTransport transport(int poolSize, int ratePerSecond) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        mailSender.setProtocol("smtp");
+        return new PooledMailTransport(mailSender, meterRegistry, poolSize, 60, 100, ratePerSecond);
+    }
+
+    private List<MimeMessage> messages(int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = transport.createMimeMessage();
+            message.setFrom(new InternetAddress("clubhub@test.local"));
+            message.setRecipient(Message.RecipientType.TO, new InternetAddress("student" + i + "@test.local"));
+            message.setSubject("Thông báo " + i, "UTF-8");
+            message.setText("Nội dung " + i, "UTF-8");
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private Set<String> receivedSubjects() {
+        return Arrays.stream(greenMail.getReceivedMessages())
+                .map(message -> {
+                    try {
+                        return message.getSubject();
+                    } catch (MessagingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,230 @@
+package com.swp391.clubmanagement.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swp391.clubmanagement.dto.response.PayOSWebhookData;
+import com.swp391.clubmanagement.repository.PaymentWebhookInboxRepository;
+import com.swp391.clubmanagement.repository.PaymentWebhookKeyRepository;
+import com.swp391.clubmanagement.simulator.PayOSSimulator;
+import com.swp391.clubmanagement.utils.HmacSigner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * WebhookInboxService trên H2 (MySQL mode) nhận webhook từ PayOSSimulator: mỗi webhook được gửi hai lần
+ * và thứ tự bị xáo trộn, mỗi đơn vẫn chỉ được ghi nhận thanh toán một lần; event sau của cùng đơn không vượt
+ * event trước đang chờ thử lại
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:webhook-inbox;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class WebhookInboxServiceTest {
+
+    private static final String CHECKSUM_KEY = "test-checksum-key";
+    private static final int ORDERS = 20;
+
+    @Autowired
+    PaymentWebhookInboxRepository inboxRepository;
+
+    @Autowired
+    PaymentWebhookKeyRepository webhookKeyRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /** Như ObjectMapper của Spring Boot: bỏ qua trường lạ (webhook PayOS có thêm "success") */
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final PaymentSettlementService settlementService = mock(PaymentSettlementService.class);
+    private final List<Long> settled = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService receiverExecutor = Executors.newFixedThreadPool(4);
+
+    private WebhookInboxService inboxService;
+    private HttpServer receiver;
+    private PayOSSimulator simulator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(settlementService.settlePayOSPayment(anyLong(), anyInt(), any())).thenAnswer(invocation -> {
+            settled.add(invocation.getArgument(0));
+            return true;
+        });
+        inboxService = new WebhookInboxService(inboxRepository, webhookKeyRepository, settlementService,
+                new TransactionTemplate(transactionManager), objectMapper,
+                4, 100, 20, 8, 0, 300, 10_000, 30, 1000);
+
+        // Đóng vai PayOSController: nhận webhook, đưa vào inbox
+        receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.setExecutor(receiverExecutor);
+        receiver.createContext("/webhook", this::receive);
+        receiver.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (simulator != null) {
+            simulator.close();
+        }
+        receiver.stop(0);
+        receiverExecutor.shutdownNow();
+        inboxService.shutdown();
+        inboxRepository.deleteAll();
+        webhookKeyRepository.deleteAll();
+    }
+
+    @Test
+    void duplicateAndReorderedWebhooksSettleEachOrderOnce() throws Exception {
+        // Mọi webhook có một bản trùng, mỗi bản trễ ngẫu nhiên trong 300 ms
+        simulator = new PayOSSimulator(new PayOSSimulator.Config(0, "client", "key", CHECKSUM_KEY,
+                "http://localhost:" + receiver.getAddress().getPort() + "/webhook",
+                1000, 0, 300, 1.0, 0, 0, 0));
+        simulator.start();
+
+        for (long orderCode = 1; orderCode <= ORDERS; orderCode++) {
+            createPaymentLink(orderCode);
+        }
+        await(() -> simulator.webhooksSent() + simulator.webhooksFailed() == 2L * ORDERS);
+        assertEquals(0, simulator.webhooksFailed());
+        assertEquals(2 * ORDERS, arrivals.size());
+
+        await(() -> {
+            inboxService.drain();
+            return settled.size() >= ORDERS;
+        });
+
+        List<Long> expected = LongStream.rangeClosed(1, ORDERS).boxed().toList();
+        assertEquals(ORDERS, settled.size(), "settled " + settled);
+        assertEquals(new HashSet<>(expected), new HashSet<>(settled));
+        assertEquals(ORDERS, inboxRepository.count());
+        // Webhook đến không theo thứ tự tạo đơn
+        List<Long> firstArrivals = arrivals.stream().distinct().toList();
+        assertNotEquals(expected, firstArrivals);
+    }
+
+    @Test
+    void laterEventWaitsForFailedEarlierEventOfSameOrder() throws Exception {
+        List<String> references = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean failed = new AtomicBoolean();
+        when(settlementService.settlePayOSPayment(eq(7L), anyInt(), any())).thenAnswer(invocation -> {
+            String reference = invocation.getArgument(2);
+            references.add(reference);
+            if ("REF-A".equals(reference) && failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return true;
+        });
+        inboxService.enqueue(7L, "REF-A", webhookJson(7L, "REF-A"));
+        inboxService.enqueue(7L, "REF-B", webhookJson(7L, "REF-B"));
+
+        // REF-A lỗi và chờ thử lại (backoff 0): REF-B không được lấy trước nó
+        inboxService.drain();
+        assertEquals(List.of("REF-A"), references);
+
+        inboxService.drain();
+        inboxService.drain();
+        assertEquals(List.of("REF-A", "REF-A", "REF-B"), references);
+    }
+
+    private String webhookJson(long orderCode, String reference) throws IOException {
+        return objectMapper.writeValueAsString(Map.of("code", "00", "desc", "success", "signature", "",
+                "data", Map.of("orderCode", orderCode, "amount", 50_000, "reference", reference)));
+    }
+
+    private void receive(HttpExchange exchange) throws IOException {
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            PayOSWebhookData webhook = objectMapper.readValue(body, PayOSWebhookData.class);
+            arrivals.add(webhook.getData().getOrderCode());
+            inboxService.enqueue(webhook.getData().getOrderCode(), webhook.getData().getReference(), body);
+            exchange.sendResponseHeaders(200, -1);
+        } catch (IOException | RuntimeException e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createPaymentLink(long orderCode) throws Exception {
+        HmacSigner signer = new HmacSigner(CHECKSUM_KEY);
+        String description = "CLB " + orderCode;
+        String signature = signer.sign(signer.payload()
+                .field("amount", 50_000)
+                .field("cancelUrl", "http://localhost/cancel")
+                .field("description", description)
+                .field("orderCode", orderCode)
+                .field("returnUrl", "http://localhost/return"));
+        String body = objectMapper.writeValueAsString(Map.of(
+                "orderCode", orderCode, "amount", 50_000, "description", description,
+                "cancelUrl", "http://localhost/cancel", "returnUrl", "http://localhost/return",
+                "signature", signature));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(simulator.baseUrl() + "/v2/payment-requests"))
+                .header("Content-Type", "application/json")
+                .header("x-client-id", "client")
+                .header("x-api-key", "key")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertTrue(response.body().contains("\"code\":\"00\""), response.body());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
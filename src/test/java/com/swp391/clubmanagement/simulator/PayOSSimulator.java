@@ -0,0 +1,539 @@
+package com.swp391.clubmanagement.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swp391.clubmanagement.utils.HmacSigner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PayOSSimulator - PayOS giả lập chạy local để load test / integration test luồng thanh toán
+ *
+ * Không phải test JUnit: là một HTTP server nhúng (JDK HttpServer) thay cho api-merchant.payos.vn.
+ * Trỏ ứng dụng vào simulator bằng payos.api-url=http://localhost:{port} và dùng cùng checksum key.
+ *
+ * Endpoint giả lập:
+ * - POST /v2/payment-requests: kiểm tra header x-client-id / x-api-key và chữ ký request,
+ *   trả về payment link có chữ ký (orderCode trùng -> code 231 như PayOS)
+ * - GET /v2/payment-requests/{orderCode}: trạng thái đơn (PENDING / PAID / CANCELLED) và giao dịch, như PayOS
+ *   (đơn không tồn tại -> code 101); dùng cho job đối soát (PayOSService.getPaymentInfo)
+ * - POST /v2/payment-requests/{orderCode}/cancel: hủy đơn còn PENDING
+ * - POST /confirm-webhook: luôn xác nhận thành công
+ *
+ * Sau khi tạo link, pay-delay-ms sau đơn chuyển PAID (hoặc CANCELLED theo cancel-rate: người mua bỏ thanh toán,
+ * không có webhook) và simulator bắn webhook có chữ ký về webhook-url:
+ * - rate: số webhook tối đa mỗi giây
+ * - duplicate-rate: xác suất gửi thêm một bản trùng (cùng orderCode, cùng reference)
+ * - reorder-window-ms: mỗi webhook được gửi sau một độ trễ ngẫu nhiên trong cửa sổ này -> thứ tự bị xáo trộn
+ * - latency-ms / error-rate: độ trễ và tỷ lệ trả 503 của API (thử circuit breaker, bulkhead, retry)
+ *
+ * Chạy độc lập (classpath test):
+ *   java ... com.swp391.clubmanagement.simulator.PayOSSimulator port=9090 checksum-key=... \
+ *        webhook-url=http://localhost:8081/api/payments/webhook rate=50 duplicate-rate=0.1
+ */
+@Slf4j
+public final class PayOSSimulator implements AutoCloseable {
+
+    private static final Pattern ORDER_PATH = Pattern.compile("/v2/payment-requests(?:/(\\d+)(/cancel)?)?/?");
+    private static final DateTimeFormatter TRANSACTION_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Config config;
+    private final HmacSigner signer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService serverExecutor;
+    private final HttpClient webhookClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(3))
+            .build();
+
+    /** orderCode -> đơn đã tạo */
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+
+    /** Chuyển đơn sang PAID / CANCELLED sau pay-delay-ms */
+    private final ScheduledExecutorService payer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "payos-simulator-payer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DelayQueue<Delivery> deliveries = new DelayQueue<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "payos-simulator-webhooks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong referenceSequence = new AtomicLong();
+    private final AtomicLong webhooksSent = new AtomicLong();
+    private final AtomicLong webhooksFailed = new AtomicLong();
+
+    /**
+     * Cấu hình simulator
+     *
+     * @param port            Cổng lắng nghe (0 = cổng ngẫu nhiên)
+     * @param clientId        x-client-id hợp lệ (null = chấp nhận mọi giá trị)
+     * @param apiKey          x-api-key hợp lệ (null = chấp nhận mọi giá trị)
+     * @param checksumKey     Checksum key dùng ký request/response/webhook
+     * @param webhookUrl      URL nhận webhook (null = không bắn webhook)
+     * @param ratePerSecond   Số webhook tối đa mỗi giây
+     * @param payDelayMs      Thời gian từ lúc tạo link tới lúc "thanh toán"
+     * @param reorderWindowMs Độ trễ ngẫu nhiên thêm cho mỗi webhook (xáo trộn thứ tự)
+     * @param duplicateRate   Xác suất gửi thêm một webhook trùng
+     * @param latencyMs       Độ trễ thêm cho mỗi lời gọi API
+     * @param errorRate       Xác suất API trả 503
+     * @param cancelRate      Xác suất người mua hủy thay vì thanh toán (đơn CANCELLED, không có webhook)
+     */
+    public record Config(int port, String clientId, String apiKey, String checksumKey, String webhookUrl,
+                         double ratePerSecond, long payDelayMs, long reorderWindowMs, double duplicateRate,
+                         long latencyMs, double errorRate, double cancelRate) {
+
+        static Config from(Properties properties) {
+            return new Config(
+                    Integer.parseInt(properties.getProperty("port", "9090")),
+                    properties.getProperty("client-id"),
+                    properties.getProperty("api-key"),
+                    properties.getProperty("checksum-key", "simulator-checksum-key"),
+                    properties.getProperty("webhook-url"),
+                    Double.parseDouble(properties.getProperty("rate", "20")),
+                    Long.parseLong(properties.getProperty("pay-delay-ms", "1000")),
+                    Long.parseLong(properties.getProperty("reorder-window-ms", "500")),
+                    Double.parseDouble(properties.getProperty("duplicate-rate", "0.1")),
+                    Long.parseLong(properties.getProperty("latency-ms", "0")),
+                    Double.parseDouble(properties.getProperty("error-rate", "0")),
+                    Double.parseDouble(properties.getProperty("cancel-rate", "0")));
+        }
+    }
+
+    public PayOSSimulator(Config config) throws IOException {
+        this.config = config;
+        this.signer = new HmacSigner(config.checksumKey());
+        this.server = HttpServer.create(new InetSocketAddress(config.port()), 0);
+        this.serverExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.server.setExecutor(serverExecutor);
+        this.server.createContext("/v2/payment-requests", this::handlePaymentRequests);
+        this.server.createContext("/confirm-webhook", this::handleConfirmWebhook);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                properties.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        PayOSSimulator simulator = new PayOSSimulator(Config.from(properties));
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+        simulator.start();
+        log.info("PayOS simulator listening on {}", simulator.baseUrl());
+    }
+
+    public void start() {
+        server.start();
+        dispatcher.submit(this::dispatchWebhooks);
+    }
+
+    /**
+     * URL gốc để cấu hình payos.api-url của ứng dụng
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long webhooksSent() {
+        return webhooksSent.get();
+    }
+
+    public long webhooksFailed() {
+        return webhooksFailed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        payer.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    // ========== API ==========
+
+    /**
+     * /v2/payment-requests, /v2/payment-requests/{orderCode}, /v2/payment-requests/{orderCode}/cancel
+     */
+    private void handlePaymentRequests(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            Matcher matcher = ORDER_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                writeJson(exchange, 404, Map.of("code", "404", "desc", "Not found"));
+                return;
+            }
+            boolean create = matcher.group(1) == null;
+            boolean cancel = matcher.group(2) != null;
+            String expectedMethod = create || cancel ? "POST" : "GET";
+            if (!expectedMethod.equals(method)) {
+                writeJson(exchange, 405, Map.of("code", "405", "desc", "Method not allowed"));
+                return;
+            }
+            if (!simulateConditions(exchange) || !authorized(exchange)) {
+                return;
+            }
+
+            if (create) {
+                createPaymentLink(exchange);
+            } else {
+                Order order = orders.get(Long.parseLong(matcher.group(1)));
+                if (order == null) {
+                    writeJson(exchange, 200, Map.of("code", "101", "desc", "Không tìm thấy đơn thanh toán"));
+                    return;
+                }
+                if (cancel) {
+                    readJson(exchange);
+                    order.status.compareAndSet(Order.PENDING, Order.CANCELLED);
+                }
+                writeJson(exchange, 200, paymentInfo(order));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createPaymentLink(HttpExchange exchange) throws IOException {
+        Map<String, Object> request = readJson(exchange);
+        Long orderCode = toLong(request.get("orderCode"));
+        Integer amount = toInteger(request.get("amount"));
+        String description = (String) request.get("description");
+        if (orderCode == null || orderCode <= 0 || amount == null || amount <= 0) {
+            writeJson(exchange, 200, Map.of("code", "20", "desc", "orderCode and amount must be positive"));
+            return;
+        }
+
+        String expectedSignature = signer.sign(signer.payload()
+                .field("amount", amount)
+                .field("cancelUrl", (String) request.get("cancelUrl"))
+                .field("description", description)
+                .field("orderCode", orderCode)
+                .field("returnUrl", (String) request.get("returnUrl")));
+        if (!expectedSignature.equalsIgnoreCase(String.valueOf(request.get("signature")))) {
+            writeJson(exchange, 200, Map.of("code", "201", "desc", "Signature is invalid"));
+            return;
+        }
+
+        String paymentLinkId = UUID.randomUUID().toString().replace("-", "");
+        Order order = new Order(orderCode, amount, description, paymentLinkId, LocalDateTime.now());
+        if (orders.putIfAbsent(orderCode, order) != null) {
+            writeJson(exchange, 200, Map.of("code", "231", "desc", "Đơn thanh toán đã tồn tại"));
+            return;
+        }
+
+        Map<String, Object> data = new TreeMap<>();
+        data.put("bin", "970422");
+        data.put("accountNumber", "0000000000");
+        data.put("accountName", "PAYOS SIMULATOR");
+        data.put("amount", amount);
+        data.put("description", description);
+        data.put("orderCode", orderCode);
+        data.put("currency", "VND");
+        data.put("paymentLinkId", paymentLinkId);
+        data.put("status", "PENDING");
+        data.put("checkoutUrl", baseUrl() + "/web/" + paymentLinkId);
+        data.put("qrCode", "SIMULATOR-QR-" + orderCode);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("code", "00");
+        response.put("desc", "success");
+        response.put("data", data);
+        response.put("signature", sign(data));
+        writeJson(exchange, 200, response);
+
+        schedulePayment(order);
+    }
+
+    /**
+     * Body của GET /v2/payment-requests/{orderCode} (cùng shape PayOSPaymentInfoResponse)
+     */
+    private Map<String, Object> paymentInfo(Order order) {
+        String status = order.status.get();
+        boolean paid = Order.PAID.equals(status);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", order.paymentLinkId);
+        data.put("orderCode", order.orderCode);
+        data.put("amount", order.amount);
+        data.put("amountPaid", paid ? order.amount : 0);
+        data.put("amountRemaining", paid ? 0 : order.amount);
+        data.put("status", status);
+        data.put("createdAt", order.createdAt.format(TRANSACTION_TIME));
+        if (paid) {
+            Map<String, Object> transaction = new LinkedHashMap<>();
+            transaction.put("reference", order.reference);
+            transaction.put("amount", order.amount);
+            transaction.put("accountNumber", "0000000000");
+            transaction.put("description", order.description);
+            transaction.put("transactionDateTime", order.paidAt.format(TRANSACTION_TIME));
+            data.put("transactions", List.of(transaction));
+        } else {
+            data.put("transactions", List.of());
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("code", "00");
+        response.put("desc", "success");
+        response.put("data", data);
+        response.put("signature", null);
+        return response;
+    }
+
+    private void handleConfirmWebhook(HttpExchange exchange) throws IOException {
+        try {
+            if (!simulateConditions(exchange) || !authorized(exchange)) {
+                return;
+            }
+            readJson(exchange);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("code", "00");
+            response.put("desc", "success");
+            response.put("data", null);
+            writeJson(exchange, 200, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Độ trễ và lỗi giả lập; false nếu đã trả 503
+     */
+    private boolean simulateConditions(HttpExchange exchange) throws IOException {
+        if (config.latencyMs() > 0) {
+            try {
+                Thread.sleep(config.latencyMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (config.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.errorRate()) {
+            writeJson(exchange, 503, Map.of("code", "503", "desc", "Service unavailable (simulated)"));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean authorized(HttpExchange exchange) throws IOException {
+        String clientId = exchange.getRequestHeaders().getFirst("x-client-id");
+        String apiKey = exchange.getRequestHeaders().getFirst("x-api-key");
+        boolean valid = clientId != null && apiKey != null
+                && (config.clientId() == null || config.clientId().equals(clientId))
+                && (config.apiKey() == null || config.apiKey().equals(apiKey));
+        if (!valid) {
+            writeJson(exchange, 401, Map.of("code", "401", "desc", "Unauthorized"));
+        }
+        return valid;
+    }
+
+    // ========== Webhook ==========
+
+    /**
+     * Sau pay-delay-ms: đơn còn PENDING chuyển CANCELLED (theo cancel-rate) hoặc PAID kèm webhook
+     * (và bản trùng theo duplicate-rate)
+     */
+    private void schedulePayment(Order order) {
+        payer.schedule(() -> {
+            if (ThreadLocalRandom.current().nextDouble() < config.cancelRate()) {
+                order.status.compareAndSet(Order.PENDING, Order.CANCELLED);
+                return;
+            }
+            order.reference = "SIM" + referenceSequence.incrementAndGet();
+            order.paidAt = LocalDateTime.now();
+            if (!order.status.compareAndSet(Order.PENDING, Order.PAID) || config.webhookUrl() == null) {
+                return;
+            }
+            String body = webhookBody(order);
+            deliveries.add(new Delivery(body, dueAt()));
+            if (ThreadLocalRandom.current().nextDouble() < config.duplicateRate()) {
+                deliveries.add(new Delivery(body, dueAt()));
+            }
+        }, config.payDelayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private long dueAt() {
+        long jitter = config.reorderWindowMs() > 0 ? ThreadLocalRandom.current().nextLong(config.reorderWindowMs()) : 0;
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(jitter);
+    }
+
+    private String webhookBody(Order order) {
+        Map<String, Object> data = new TreeMap<>();
+        data.put("accountNumber", "0000000000");
+        data.put("amount", order.amount);
+        data.put("code", "00");
+        data.put("counterAccountBankId", "");
+        data.put("counterAccountBankName", "");
+        data.put("counterAccountName", "");
+        data.put("counterAccountNumber", "");
+        data.put("currency", "VND");
+        data.put("desc", "success");
+        data.put("description", order.description);
+        data.put("orderCode", order.orderCode);
+        data.put("paymentLinkId", order.paymentLinkId);
+        data.put("reference", order.reference);
+        data.put("transactionDateTime", order.paidAt.format(TRANSACTION_TIME));
+        data.put("virtualAccountName", "");
+        data.put("virtualAccountNumber", "");
+
+        Map<String, Object> webhook = new LinkedHashMap<>();
+        webhook.put("code", "00");
+        webhook.put("desc", "success");
+        webhook.put("success", true);
+        webhook.put("data", data);
+        webhook.put("signature", sign(data));
+        try {
+            return objectMapper.writeValueAsString(webhook);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gửi webhook đến hạn, không vượt quá rate webhook mỗi giây
+     */
+    private void dispatchWebhooks() {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(config.ratePerSecond(), 0.001));
+        long nextSendAt = System.nanoTime();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Delivery delivery = deliveries.take();
+                long wait = nextSendAt - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                nextSendAt = Math.max(nextSendAt, System.nanoTime()) + intervalNanos;
+                send(delivery.body());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.webhookUrl()))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        webhookClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error == null && response.statusCode() < 300) {
+                        webhooksSent.incrementAndGet();
+                    } else {
+                        webhooksFailed.incrementAndGet();
+                    }
+                });
+    }
+
+    /**
+     * Một đơn đã tạo; status chỉ đổi một lần từ PENDING sang PAID hoặc CANCELLED
+     */
+    private static final class Order {
+
+        static final String PENDING = "PENDING";
+        static final String PAID = "PAID";
+        static final String CANCELLED = "CANCELLED";
+
+        final long orderCode;
+        final int amount;
+        final String description;
+        final String paymentLinkId;
+        final LocalDateTime createdAt;
+        final AtomicReference<String> status = new AtomicReference<>(PENDING);
+        /** Có giá trị trước khi status chuyển PAID */
+        volatile String reference;
+        volatile LocalDateTime paidAt;
+
+        Order(long orderCode, int amount, String description, String paymentLinkId, LocalDateTime createdAt) {
+            this.orderCode = orderCode;
+            this.amount = amount;
+            this.description = description;
+            this.paymentLinkId = paymentLinkId;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private record Delivery(String body, long dueAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtNanos, ((Delivery) other).dueAtNanos);
+        }
+    }
+
+    // ========== Helpers ==========
+
+    /**
+     * Chữ ký PayOS của data: các trường theo thứ tự alphabet (TreeMap), null -> chuỗi rỗng
+     */
+    private String sign(Map<String, Object> sortedData) {
+        HmacSigner.Payload payload = signer.payload();
+        sortedData.forEach((name, value) -> payload.field(name, value != null ? value.toString() : null));
+        return signer.sign(payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readJson(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readAllBytes();
+            return bytes.length == 0 ? Map.of() : objectMapper.readValue(bytes, Map.class);
+        }
+    }
+
+    private void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+}
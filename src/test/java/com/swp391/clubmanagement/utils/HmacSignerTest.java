@@ -0,0 +1,100 @@
+package com.swp391.clubmanagement.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HmacSignerTest {
+
+    private static final String KEY = "test-checksum-key";
+
+    private final HmacSigner signer = new HmacSigner(KEY);
+
+    @Test
+    void signatureMatchesJdkHmac() throws Exception {
+        String signature = signer.sign(signer.payload()
+                .field("amount", 150_000)
+                .field("cancelUrl", "https://example.com/cancel")
+                .field("description", "Phí CLB Guitar – gói 6 tháng 🎸")
+                .field("orderCode", 1_234_567_890_123L)
+                .field("returnUrl", (String) null));
+
+        String expected = reference("amount=150000&cancelUrl=https://example.com/cancel"
+                + "&description=Phí CLB Guitar – gói 6 tháng 🎸&orderCode=1234567890123&returnUrl=");
+        assertEquals(expected, signature);
+    }
+
+    @Test
+    void numbersAreWrittenLikeToString() throws Exception {
+        for (long value : new long[]{0, 7, -7, 10, 1_000_000, Long.MAX_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE}) {
+            assertEquals(reference("n=" + value), signer.sign(signer.payload().field("n", value)), "value " + value);
+        }
+        assertEquals(reference("a=&b="), signer.sign(signer.payload().field("a", (Long) null).field("b", (Integer) null)));
+    }
+
+    @Test
+    void payloadGrowsBeyondInitialBuffer() throws Exception {
+        String longValue = "ổ".repeat(1000);
+        assertEquals(reference("text=" + longValue), signer.sign(signer.payload().field("text", longValue)));
+    }
+
+    @Test
+    void verifyAcceptsOnlyTheMatchingSignature() {
+        String signature = signer.sign(signer.payload().field("orderCode", 42L));
+
+        assertTrue(signer.verify(signer.payload().field("orderCode", 42L), signature));
+        assertTrue(signer.verify(signer.payload().field("orderCode", 42L), signature.toUpperCase(Locale.ROOT)));
+        assertFalse(signer.verify(signer.payload().field("orderCode", 43L), signature));
+        assertFalse(signer.verify(signer.payload().field("orderCode", 42L), null));
+        assertFalse(signer.verify(signer.payload().field("orderCode", 42L), signature.substring(2)));
+        // Cùng độ dài nhưng có ký tự không phải hex
+        assertFalse(signer.verify(signer.payload().field("orderCode", 42L), "zz" + signature.substring(2)));
+        char last = signature.charAt(signature.length() - 1);
+        String tampered = signature.substring(0, signature.length() - 1) + (last == '0' ? '1' : '0');
+        assertFalse(signer.verify(signer.payload().field("orderCode", 42L), tampered));
+    }
+
+    @Test
+    void signingIsThreadSafe() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        long orderCode = thread * 1_000_000L + i;
+                        String signature = signer.sign(signer.payload().field("orderCode", orderCode));
+                        assertEquals(reference("orderCode=" + orderCode), signature);
+                        assertTrue(signer.verify(signer.payload().field("orderCode", orderCode), signature));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String reference(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
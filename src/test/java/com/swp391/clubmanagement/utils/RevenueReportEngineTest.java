@@ -0,0 +1,134 @@
+package com.swp391.clubmanagement.utils;
+
+import com.swp391.clubmanagement.utils.RevenueReportEngine.GroupRevenue;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevenueReportEngineTest {
+
+    record Month(int year, int month, long revenue, long count, List<GroupRevenue> groups) {
+    }
+
+    @Test
+    void groupsOrderedRowsByMonthNewestFirst() {
+        List<Object[]> rows = List.of(
+                row(2026, 3, 1, 300_000, 3),
+                row(2026, 3, 2, 100_000, 1),
+                row(2026, 1, 1, 50_000, 1),
+                row(2025, 12, 2, 200_000, 4));
+
+        List<Month> months = RevenueReportEngine.byMonth(rows, List.of(), true, Month::new);
+
+        assertEquals(3, months.size());
+        assertEquals(new Month(2026, 3, 400_000, 4, List.of(
+                new GroupRevenue(1, "CLB 1", 300_000, 3), new GroupRevenue(2, "CLB 2", 100_000, 1))), months.get(0));
+        assertEquals(2026, months.get(1).year());
+        assertEquals(1, months.get(1).month());
+        assertEquals(2025, months.get(2).year());
+        assertEquals(12, months.get(2).month());
+    }
+
+    @Test
+    void withoutGroupsOnlyTotalsAreCollected() {
+        List<Month> months = RevenueReportEngine.byMonth(
+                List.of(row(2026, 2, 1, 10_000, 1), row(2026, 2, 2, 20_000, 2)), List.of(), false, Month::new);
+
+        assertEquals(1, months.size());
+        assertEquals(30_000, months.get(0).revenue());
+        assertEquals(3, months.get(0).count());
+        assertTrue(months.get(0).groups().isEmpty());
+    }
+
+    @Test
+    void mergesHotAndArchiveLikeASingleSortedSource() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<Object[]> hot = randomRows(random, 2024, 2026);
+            // Kho lưu trữ có thể chồng lên tháng cũ nhất của bảng nóng (job lưu trữ đang chạy dở)
+            List<Object[]> archive = randomRows(random, 2022, 2024);
+
+            List<Month> merged = RevenueReportEngine.byMonth(hot, archive, true, Month::new);
+
+            assertEquals(reference(hot, archive), merged);
+        }
+    }
+
+    @Test
+    void byGroupCombinesSourcesAndSortsByRevenue() {
+        List<GroupRevenue> groups = RevenueReportEngine.byGroup(
+                List.<Object[]>of(new Object[]{1, "Gói A", new BigDecimal("500000.00"), 5L},
+                        new Object[]{2, "Gói B", new BigDecimal("100000.00"), 1L}),
+                List.<Object[]>of(new Object[]{2, "Gói B", new BigDecimal("600000.00"), 6L}));
+
+        assertEquals(List.of(new GroupRevenue(2, "Gói B", 700_000, 7), new GroupRevenue(1, "Gói A", 500_000, 5)),
+                groups);
+    }
+
+    /**
+     * Kết quả mong đợi tính theo cách đơn giản: cộng theo (tháng, group), sắp xếp lại toàn bộ
+     */
+    private static List<Month> reference(List<Object[]> hot, List<Object[]> archive) {
+        Map<Integer, Map<Integer, long[]>> byMonth = new TreeMap<>(Comparator.reverseOrder());
+        for (List<Object[]> source : List.of(hot, archive)) {
+            for (Object[] row : source) {
+                int key = RevenueReportEngine.monthKey((Integer) row[0], (Integer) row[1]);
+                long[] totals = byMonth.computeIfAbsent(key, k -> new TreeMap<>())
+                        .computeIfAbsent((Integer) row[2], k -> new long[2]);
+                totals[0] += VndAmount.toLong(row[4]);
+                totals[1] += (Long) row[5];
+            }
+        }
+        List<Month> months = new ArrayList<>();
+        byMonth.forEach((key, groups) -> {
+            List<GroupRevenue> items = new ArrayList<>();
+            long revenue = 0;
+            long count = 0;
+            for (Map.Entry<Integer, long[]> group : groups.entrySet()) {
+                items.add(new GroupRevenue(group.getKey(), "CLB " + group.getKey(),
+                        group.getValue()[0], group.getValue()[1]));
+                revenue += group.getValue()[0];
+                count += group.getValue()[1];
+            }
+            items.sort(Comparator.comparingLong(GroupRevenue::revenue).reversed());
+            months.add(new Month(key / 12, key % 12 + 1, revenue, count, items));
+        });
+        return months;
+    }
+
+    /**
+     * Dòng ngẫu nhiên theo shape query, sắp xếp year DESC, month DESC, revenue DESC (doanh thu khác nhau từng dòng)
+     */
+    private static List<Object[]> randomRows(Random random, int fromYear, int toYear) {
+        List<Object[]> rows = new ArrayList<>();
+        long unique = random.nextInt(1000) * 1000L;
+        for (int key = RevenueReportEngine.monthKey(toYear, 12); key >= RevenueReportEngine.monthKey(fromYear, 1); key--) {
+            if (random.nextInt(4) == 0) {
+                continue;
+            }
+            List<Object[]> month = new ArrayList<>();
+            for (int club = 1; club <= 6; club++) {
+                if (random.nextBoolean()) {
+                    unique += 1 + random.nextInt(7);
+                    month.add(row(key / 12, key % 12 + 1, club, unique * 1000, 1 + random.nextInt(9)));
+                }
+            }
+            month.sort(Comparator.comparing((Object[] row) -> (BigDecimal) row[4]).reversed());
+            rows.addAll(month);
+        }
+        return rows;
+    }
+
+    private static Object[] row(int year, int month, int clubId, long revenue, long count) {
+        return new Object[]{year, month, clubId, "CLB " + clubId, BigDecimal.valueOf(revenue).setScale(2), count};
+    }
+}
@@ -0,0 +1,64 @@
+package com.swp391.clubmanagement.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VndAmountTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void convertsQueryValuesToWholeDong() {
+        assertEquals(0L, VndAmount.toLong(null));
+        assertEquals(150_000L, VndAmount.toLong(new BigDecimal("150000.00")));
+        // VND không có đơn vị lẻ: làm tròn HALF_UP
+        assertEquals(150_001L, VndAmount.toLong(new BigDecimal("150000.50")));
+        assertEquals(-150_001L, VndAmount.toLong(new BigDecimal("-150000.50")));
+        assertEquals(150_000L, VndAmount.toLong(new BigDecimal("150000.49")));
+        assertEquals(150_000L, VndAmount.toLong(new BigDecimal("1.5E+5")));
+        assertEquals(12_345_678_901_234L, VndAmount.toLong(new BigDecimal("12345678901234.00")));
+        assertEquals(9_999_999_999_999L, VndAmount.toLong(new BigDecimal("9999999999999.01")));
+        assertEquals(42L, VndAmount.toLong(42));
+        assertEquals(42L, VndAmount.toLong(42L));
+        assertThrows(IllegalArgumentException.class, () -> VndAmount.toLong("42"));
+    }
+
+    @Test
+    void sumsMatchBigDecimal() {
+        BigDecimal expected = BigDecimal.ZERO;
+        VndAmount total = VndAmount.ZERO;
+        for (int i = 1; i <= 1000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i * 1000L).setScale(2);
+            expected = expected.add(amount);
+            total = total.add(VndAmount.of(amount));
+        }
+        assertEquals(0, expected.compareTo(total.toBigDecimal()));
+        assertEquals(expected.longValueExact(), total.toLong());
+    }
+
+    @Test
+    void zeroIsShared() {
+        assertSame(VndAmount.ZERO, VndAmount.of(0L));
+        assertSame(VndAmount.ZERO, VndAmount.of((BigDecimal) null));
+        VndAmount amount = VndAmount.of(5_000L);
+        assertSame(amount, amount.add(0L));
+    }
+
+    @Test
+    void overflowIsDetected() {
+        VndAmount max = VndAmount.of(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.add(1L));
+    }
+
+    @Test
+    void jsonKeepsDecimalFormat() throws Exception {
+        assertEquals("10000.00", objectMapper.writeValueAsString(VndAmount.of(10_000L)));
+        assertEquals(VndAmount.of(10_000L), objectMapper.readValue("10000.00", VndAmount.class));
+    }
+}